@@ -0,0 +1,64 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017-2018 nuls.io
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package io.nuls.account.ledger.model;
+
+import java.util.List;
+
+/**
+ * 按游标分页查询的一页交易记录
+ * A page of transaction records returned by the cursor query.
+ */
+public class TransactionInfoPage {
+
+    private List<TransactionInfo> list;
+
+    /**
+     * 下一页的游标，即本页最后一条记录的排序key，没有下一页时为null
+     * Cursor of the next page, the sort key of the last record of this page, null if there is no next page.
+     */
+    private byte[] after;
+
+    public TransactionInfoPage(List<TransactionInfo> list, byte[] after) {
+        this.list = list;
+        this.after = after;
+    }
+
+    public List<TransactionInfo> getList() {
+        return list;
+    }
+
+    public void setList(List<TransactionInfo> list) {
+        this.list = list;
+    }
+
+    public byte[] getAfter() {
+        return after;
+    }
+
+    public void setAfter(byte[] after) {
+        this.after = after;
+    }
+}
@@ -27,6 +27,7 @@ package io.nuls.account.ledger.service;
 
 import io.nuls.account.ledger.model.MultipleAddressTransferModel;
 import io.nuls.account.ledger.model.TransactionInfo;
+import io.nuls.account.ledger.model.TransactionInfoPage;
 import io.nuls.account.model.Account;
 import io.nuls.account.model.Balance;
 import io.nuls.account.ledger.model.CoinDataResult;
@@ -217,6 +218,18 @@ public interface AccountLedgerService {
      */
     Result<List<TransactionInfo>> getTxInfoList(byte[] address);
 
+    /**
+     * 按游标分页查询地址的交易记录，默认未确认的在前，已确认的从新到旧
+     * Page through the transaction records of the address, unconfirmed first and then confirmed ones from newest to oldest by default.
+     *
+     * @param address address
+     * @param after   上一页返回的游标，null表示第一页/cursor returned with the previous page, null for the first page
+     * @param limit   每页条数/page size
+     * @param reverse 从旧到新/from oldest to newest
+     * @return Result
+     */
+    Result<TransactionInfoPage> getTxInfoList(byte[] address, byte[] after, int limit, boolean reverse);
+
     /**
      * @param address address
      * @return Result
@@ -0,0 +1,225 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017-2018 nuls.io
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package io.nuls.account.ledger.base.manager;
+
+import io.nuls.account.model.Balance;
+import io.nuls.kernel.constant.NulsConstant;
+import io.nuls.kernel.model.Na;
+
+import java.util.*;
+
+/**
+ * 单个地址的余额聚合，UTXO的保存和删除以增量的方式计入，按锁定类型分别累计金额
+ * 查询余额时读取不可变的快照，不需要加锁，快照只在当前高度或时间越过某个锁定点时才重新计算
+ * Balance aggregate of one address, saved and deleted utxos are applied as deltas and amounts are summed per lock type.
+ * Balance queries read an immutable snapshot without locking, the snapshot is only recomputed when the height or time passes a lock point.
+ */
+public class AddressBalance {
+
+    private final String address;
+
+    private final Map<String, LocalUtxo> utxos = new HashMap<>();
+
+    /**
+     * 未锁定的金额
+     * Amount without lock.
+     */
+    private long unlocked;
+
+    /**
+     * 共识锁定的金额，只有解锁交易改写UTXO后才会释放
+     * Amount locked by consensus, released only when an unlock transaction rewrites the utxo.
+     */
+    private long consensusLocked;
+
+    /**
+     * 锁定高度 -> 金额
+     * lock height -> amount
+     */
+    private final TreeMap<Long, Long> heightLocks = new TreeMap<>();
+
+    /**
+     * 锁定时间 -> 金额
+     * lock time -> amount
+     */
+    private final TreeMap<Long, Long> timeLocks = new TreeMap<>();
+
+    private long heightLocked;
+
+    private long timeLocked;
+
+    private volatile Snapshot snapshot;
+
+    public AddressBalance(String address) {
+        this.address = address;
+    }
+
+    public String getAddress() {
+        return address;
+    }
+
+    /**
+     * 保存UTXO，key已存在时覆盖原来的UTXO
+     * Save a utxo, the former utxo is replaced when the key exists.
+     */
+    public synchronized LocalUtxo put(LocalUtxo utxo) {
+        LocalUtxo old = utxos.put(utxo.getKeyString(), utxo);
+        if (old != null) {
+            apply(old, -1);
+        }
+        apply(utxo, 1);
+        snapshot = null;
+        return old;
+    }
+
+    public synchronized LocalUtxo remove(String key) {
+        LocalUtxo old = utxos.remove(key);
+        if (old != null) {
+            apply(old, -1);
+            snapshot = null;
+        }
+        return old;
+    }
+
+    public synchronized List<LocalUtxo> getUtxoList() {
+        return new ArrayList<>(utxos.values());
+    }
+
+    public synchronized boolean isEmpty() {
+        return utxos.isEmpty();
+    }
+
+    /**
+     * 获取余额，快照在当前高度和时间下仍然有效时直接返回，不加锁
+     * Get the balance, returned without locking while the snapshot is still valid at the current height and time.
+     */
+    public Balance getBalance(long bestHeight, long now) {
+        Snapshot snapshot = this.snapshot;
+        if (snapshot == null || !snapshot.isValid(bestHeight, now)) {
+            snapshot = refresh(bestHeight, now);
+        }
+        return snapshot.balance;
+    }
+
+    /**
+     * 快照在当前高度和时间下是否仍然有效
+     * Whether the snapshot is still valid at the current height and time.
+     */
+    public boolean isValid(long bestHeight, long now) {
+        Snapshot snapshot = this.snapshot;
+        return snapshot != null && snapshot.isValid(bestHeight, now);
+    }
+
+    /**
+     * 下一个会释放的时间锁定点，没有时返回0
+     * The next time lock point to be released, 0 if there is none.
+     */
+    public long getNextLockTime() {
+        Snapshot snapshot = this.snapshot;
+        if (snapshot == null || snapshot.toTime == Long.MAX_VALUE) {
+            return 0L;
+        }
+        return snapshot.toTime;
+    }
+
+    public synchronized Snapshot refresh(long bestHeight, long now) {
+        long usable = unlocked;
+        for (Long amount : heightLocks.headMap(bestHeight, true).values()) {
+            usable += amount;
+        }
+        for (Long amount : timeLocks.headMap(now, true).values()) {
+            usable += amount;
+        }
+        long total = unlocked + consensusLocked + heightLocked + timeLocked;
+
+        Balance balance = new Balance();
+        balance.setUsable(Na.valueOf(usable));
+        balance.setLocked(Na.valueOf(total - usable));
+        balance.setBalance(Na.valueOf(total));
+
+        Long fromHeight = heightLocks.floorKey(bestHeight);
+        Long toHeight = heightLocks.higherKey(bestHeight);
+        Long fromTime = timeLocks.floorKey(now);
+        Long toTime = timeLocks.higherKey(now);
+        Snapshot snapshot = new Snapshot(balance,
+                fromHeight == null ? Long.MIN_VALUE : fromHeight,
+                toHeight == null ? Long.MAX_VALUE : toHeight,
+                fromTime == null ? Long.MIN_VALUE : fromTime,
+                toTime == null ? Long.MAX_VALUE : toTime);
+        this.snapshot = snapshot;
+        return snapshot;
+    }
+
+    private void apply(LocalUtxo utxo, int sign) {
+        long amount = sign * utxo.getNa();
+        long lockTime = utxo.getLockTime();
+        if (lockTime == 0L) {
+            unlocked += amount;
+        } else if (lockTime < 0L) {
+            consensusLocked += amount;
+        } else if (lockTime > NulsConstant.BlOCKHEIGHT_TIME_DIVIDE) {
+            timeLocked += amount;
+            merge(timeLocks, lockTime, amount);
+        } else {
+            heightLocked += amount;
+            merge(heightLocks, lockTime, amount);
+        }
+    }
+
+    private static void merge(TreeMap<Long, Long> locks, long lockPoint, long amount) {
+        Long value = locks.get(lockPoint);
+        long result = (value == null ? 0L : value) + amount;
+        if (result == 0L && value != null) {
+            locks.remove(lockPoint);
+        } else {
+            locks.put(lockPoint, result);
+        }
+    }
+
+    /**
+     * 余额快照，在[fromHeight, toHeight)和[fromTime, toTime)之间没有锁定点被越过，余额保持不变
+     * Balance snapshot, no lock point is crossed within [fromHeight, toHeight) and [fromTime, toTime) so the balance stays the same.
+     */
+    static final class Snapshot {
+        private final Balance balance;
+        private final long fromHeight;
+        private final long toHeight;
+        private final long fromTime;
+        private final long toTime;
+
+        Snapshot(Balance balance, long fromHeight, long toHeight, long fromTime, long toTime) {
+            this.balance = balance;
+            this.fromHeight = fromHeight;
+            this.toHeight = toHeight;
+            this.fromTime = fromTime;
+            this.toTime = toTime;
+        }
+
+        boolean isValid(long bestHeight, long now) {
+            return bestHeight >= fromHeight && bestHeight < toHeight && now >= fromTime && now < toTime;
+        }
+    }
+}
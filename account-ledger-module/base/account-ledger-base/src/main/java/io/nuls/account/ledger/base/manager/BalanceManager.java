@@ -25,65 +25,79 @@
 
 package io.nuls.account.ledger.base.manager;
 
-import io.nuls.account.ledger.base.util.CoinComparator;
 import io.nuls.account.ledger.constant.AccountLedgerErrorCode;
+import io.nuls.account.ledger.storage.listener.LocalUtxoListener;
 import io.nuls.account.ledger.storage.service.LocalUtxoStorageService;
-import io.nuls.account.model.Account;
-import io.nuls.kernel.model.Address;
 import io.nuls.account.model.Balance;
 import io.nuls.account.service.AccountService;
-import io.nuls.core.tools.crypto.Base58;
 import io.nuls.core.tools.log.Log;
 import io.nuls.db.model.Entry;
-import io.nuls.kernel.constant.NulsConstant;
 import io.nuls.kernel.context.NulsContext;
-import io.nuls.kernel.exception.NulsException;
 import io.nuls.kernel.func.TimeService;
 import io.nuls.kernel.lite.annotation.Autowired;
 import io.nuls.kernel.lite.annotation.Component;
+import io.nuls.kernel.model.Address;
 import io.nuls.kernel.model.Coin;
-import io.nuls.kernel.model.Na;
 import io.nuls.kernel.model.Result;
 import io.nuls.kernel.utils.AddressTool;
 
 import java.util.*;
-import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 /**
  * 管理与缓存本地账户的余额
+ * 余额按地址增量维护，本地UTXO每次写入后由存储层通知，查询时读取快照不加锁，时间锁定由时间轮到期释放
+ * Manage and cache the balances of local accounts.
+ * Balances are maintained incrementally per address from the storage notifications after each local utxo write,
+ * queries read a snapshot without locking, and time locks are released by a timer wheel when due.
  */
 
 @Component
-public class BalanceManager {
+public class BalanceManager implements LocalUtxoListener {
+
+    /**
+     * 时间轮每格1秒，一圈1小时
+     * One second per slot, one hour per round.
+     */
+    private static final long LOCK_WHEEL_TICK = 1000L;
+
+    private static final int LOCK_WHEEL_SLOTS = 3600;
 
     @Autowired
     private LocalUtxoStorageService localUtxoStorageService;
     @Autowired
     private AccountService accountService;
 
-    private Map<String, BalanceCacheEntity> balanceMap = new HashMap<>();
+    /**
+     * 地址 -> 余额聚合
+     * address -> balance aggregate
+     */
+    private final Map<String, AddressBalance> balanceMap = new ConcurrentHashMap<>();
+
+    /**
+     * UTXO的key -> 地址，删除时只有key
+     * utxo key -> address, deletions only carry the key
+     */
+    private final Map<String, String> utxoAddressMap = new ConcurrentHashMap<>();
 
-    private Lock lock = new ReentrantLock();
+    private final LockTimeWheel lockTimeWheel = new LockTimeWheel(LOCK_WHEEL_SLOTS, LOCK_WHEEL_TICK, this::releaseTimeLock);
 
     /**
-     * 初始化缓存本地所有账户的余额信息
+     * 重建时独占，增量更新之间共享，不同地址的增量更新互不阻塞
+     * Exclusive while rebuilding, shared between delta updates, so that delta updates on different addresses never block each other.
      */
-    public void initAccountBalance() {
-        balanceMap.clear();
+    private final ReadWriteLock rebuildLock = new ReentrantReadWriteLock();
 
-        Collection<Account> accounts = accountService.getAccountList().getData();
-        if (accounts == null) {
-            return;
-        }
+    private volatile boolean initialized;
 
-        for (Account account : accounts) {
-            try {
-                calBalanceByAddress(account.getAddress().getAddressBytes());
-            } catch (NulsException e) {
-                Log.info("getbalance of address[" + account.getAddress().getBase58() + "] error");
-            }
-        }
+    /**
+     * 初始化缓存本地所有账户的余额信息
+     * Load the balances of all local accounts.
+     */
+    public void initAccountBalance() {
+        rebuild();
     }
 
     /**
@@ -97,141 +111,194 @@ public class BalanceManager {
      * 获取账户余额
      */
     public Result<Balance> getBalance(byte[] address) {
-        lock.lock();
-        try {
-            if (address == null || address.length != Address.ADDRESS_LENGTH) {
-                return Result.getFailed(AccountLedgerErrorCode.PARAMETER_ERROR);
-            }
+        if (address == null || address.length != Address.ADDRESS_LENGTH) {
+            return Result.getFailed(AccountLedgerErrorCode.PARAMETER_ERROR);
+        }
+        if (accountService.getAccount(address).isFailed()) {
+            return Result.getSuccess();
+        }
+        ensureInitialized();
+        AddressBalance addressBalance = balanceMap.get(AddressTool.getStringAddressByBytes(address));
+        if (addressBalance == null) {
+            return Result.getSuccess().setData(new Balance());
+        }
+        return Result.getSuccess().setData(getBalance(addressBalance));
+    }
 
-            String addressKey = AddressTool.getStringAddressByBytes(address);
-            BalanceCacheEntity entity = balanceMap.get(addressKey);
-            Balance balance = null;
-            if (entity == null || (entity.getEarlistLockTime() > 0L && entity.getEarlistLockTime() <= TimeService.currentTimeMillis())) {
-                try {
-                    balance = calBalanceByAddress(address);
-                } catch (NulsException e) {
-                    Log.info("getbalance of address[" + AddressTool.getStringAddressByBytes(address) + "] error");
-                }
-            } else {
-                balance = entity.getBalance();
-            }
-            return Result.getSuccess().setData(balance);
-        } finally {
-            lock.unlock();
+    private Balance getBalance(AddressBalance addressBalance) {
+        long bestHeight = NulsContext.getInstance().getBestHeight();
+        long now = TimeService.currentTimeMillis();
+        if (!addressBalance.isValid(bestHeight, now)) {
+            refresh(addressBalance, bestHeight, now);
         }
+        return addressBalance.getBalance(bestHeight, now);
     }
 
     /**
-     * 刷新余额，其实就是删除缓存，下次获取时再重新计算
+     * 重新计算快照并在时间轮上登记下一个时间锁定点
+     * Recompute the snapshot and register the next time lock point on the timer wheel.
+     */
+    private void refresh(AddressBalance addressBalance, long bestHeight, long now) {
+        addressBalance.refresh(bestHeight, now);
+        long nextLockTime = addressBalance.getNextLockTime();
+        if (nextLockTime > 0L) {
+            lockTimeWheel.schedule(addressBalance.getAddress(), nextLockTime);
+        }
+    }
+
+    /**
+     * 重新检查地址的余额快照，UTXO的变化已经在写入时增量计入，这里只处理锁定的到期
+     * Revalidate the balance snapshot of the address, utxo changes are applied as deltas on write so only lock expiry is handled here.
      */
     public void refreshBalance(byte[] address) {
-            if (address != null) {
-                balanceMap.remove(AddressTool.getStringAddressByBytes(address));
-            }
+        if (address == null) {
+            return;
+        }
+        AddressBalance addressBalance = balanceMap.get(AddressTool.getStringAddressByBytes(address));
+        if (addressBalance != null) {
+            getBalance(addressBalance);
+        }
     }
 
+    /**
+     * 从本地UTXO存储重建所有地址的余额
+     * Rebuild the balances of all addresses from the local utxo storage.
+     */
     public void refreshBalance() {
-        lock.lock();
+        rebuild();
+    }
+
+    /**
+     * 本地UTXO写入后的增量更新
+     * Delta update after local utxos are written.
+     */
+    @Override
+    public void onChange(List<Entry<byte[], byte[]>> saved, List<byte[]> deleted) {
+        rebuildLock.readLock().lock();
         try {
-            balanceMap.clear();
+            Set<AddressBalance> changed = new HashSet<>();
+            for (byte[] key : deleted) {
+                removeUtxo(LocalUtxo.toKeyString(key), changed);
+            }
+            for (Entry<byte[], byte[]> entry : saved) {
+                putUtxo(entry.getKey(), entry.getValue(), changed);
+            }
+            long bestHeight = NulsContext.getInstance().getBestHeight();
+            long now = TimeService.currentTimeMillis();
+            for (AddressBalance addressBalance : changed) {
+                refresh(addressBalance, bestHeight, now);
+            }
         } finally {
-            lock.unlock();
+            rebuildLock.readLock().unlock();
         }
     }
 
-    /**
-     * 计算账户的余额，这个方法应该和获取余额方法互斥，避免并发导致数据不准确
-     */
-    public Balance calBalanceByAddress(byte[] address) throws NulsException {
-        lock.lock();
+    private void rebuild() {
+        rebuildLock.writeLock().lock();
         try {
-            if (accountService.getAccount(address).isFailed()) {
-                return null;
+            localUtxoStorageService.setLocalUtxoListener(this);
+            balanceMap.clear();
+            utxoAddressMap.clear();
+            Set<AddressBalance> changed = new HashSet<>();
+            for (Entry<byte[], byte[]> entry : localUtxoStorageService.loadAllCoinList()) {
+                putUtxo(entry.getKey(), entry.getValue(), changed);
             }
-            List<Coin> coinList = getCoinListByAddress(address);
-            Collections.sort(coinList, CoinComparator.getInstance());
-
-            BalanceCacheEntity balanceCacheEntity = new BalanceCacheEntity();
-
-            Na usable = Na.ZERO;
-            Na locked = Na.ZERO;
-            for (Coin coin : coinList) {
-                if (coin.usable()) {
-                    usable = usable.add(coin.getNa());
-                } else {
-                    locked = locked.add(coin.getNa());
-                    long lockTime = coin.getLockTime();
-                    // the consensus lock type
-                    if (lockTime <= 0L) {
-                        continue;
-                    }
-                    // the height lock type
-                    if (balanceCacheEntity.getLowestLockHeigh() == 0L || (lockTime < NulsConstant.BlOCKHEIGHT_TIME_DIVIDE && lockTime < balanceCacheEntity.getLowestLockHeigh())) {
-                        balanceCacheEntity.setLowestLockHeigh(lockTime);
-                        continue;
-                    }
-                    // the time lock type
-                    if (balanceCacheEntity.getEarlistLockTime() == 0L || (lockTime > NulsConstant.BlOCKHEIGHT_TIME_DIVIDE && lockTime < balanceCacheEntity.getEarlistLockTime())) {
-                        balanceCacheEntity.setEarlistLockTime(lockTime);
-                        continue;
-                    }
-                }
+            long bestHeight = NulsContext.getInstance().getBestHeight();
+            long now = TimeService.currentTimeMillis();
+            for (AddressBalance addressBalance : changed) {
+                refresh(addressBalance, bestHeight, now);
             }
+            initialized = true;
+        } finally {
+            rebuildLock.writeLock().unlock();
+        }
+    }
 
+    private void ensureInitialized() {
+        if (!initialized) {
+            rebuild();
+        }
+    }
 
-            Balance balance = new Balance();
-            balance.setUsable(usable);
-            balance.setLocked(locked);
-            balance.setBalance(usable.add(locked));
-            balanceCacheEntity.setBalance(balance);
+    private void putUtxo(byte[] key, byte[] value, Set<AddressBalance> changed) {
+        LocalUtxo utxo = LocalUtxo.parse(key, value);
+        if (utxo == null || utxo.getAddress() == null) {
+            return;
+        }
+        String address = AddressTool.getStringAddressByBytes(utxo.getAddress());
+        String oldAddress = utxoAddressMap.put(utxo.getKeyString(), address);
+        if (oldAddress != null && !oldAddress.equals(address)) {
+            removeFromAddress(oldAddress, utxo.getKeyString(), changed);
+        }
+        AddressBalance addressBalance = balanceMap.computeIfAbsent(address, AddressBalance::new);
+        addressBalance.put(utxo);
+        changed.add(addressBalance);
+    }
 
-            balanceMap.put(AddressTool.getStringAddressByBytes(address), balanceCacheEntity);
-            return balance;
-        } finally {
-            lock.unlock();
+    private void removeUtxo(String key, Set<AddressBalance> changed) {
+        String address = utxoAddressMap.remove(key);
+        if (address != null) {
+            removeFromAddress(address, key, changed);
+        }
+    }
+
+    private void removeFromAddress(String address, String key, Set<AddressBalance> changed) {
+        AddressBalance addressBalance = balanceMap.get(address);
+        if (addressBalance != null && addressBalance.remove(key) != null) {
+            changed.add(addressBalance);
+        }
+    }
+
+    /**
+     * 时间轮到期回调
+     * Timer wheel callback.
+     */
+    private void releaseTimeLock(String address) {
+        AddressBalance addressBalance = balanceMap.get(address);
+        if (addressBalance != null) {
+            refresh(addressBalance, NulsContext.getInstance().getBestHeight(), TimeService.currentTimeMillis());
+        }
+    }
+
+    /**
+     * 推进时间锁定的时间轮，由定时任务每秒调用
+     * Advance the time lock wheel, called by a scheduled task every second.
+     */
+    public void releaseTimeLocks() {
+        try {
+            lockTimeWheel.advance(TimeService.currentTimeMillis());
+        } catch (Exception e) {
+            Log.error(e);
         }
     }
 
     public List<Coin> getCoinListByAddress(byte[] address) {
         List<Coin> coinList = new ArrayList<>();
-        Collection<Entry<byte[], byte[]>> rawList = localUtxoStorageService.loadAllCoinList();
-        for (Entry<byte[], byte[]> coinEntry : rawList) {
-            Coin coin = new Coin();
-            try {
-                coin.parse(coinEntry.getValue(), 0);
-            } catch (NulsException e) {
-                Log.info("parse coin form db error");
-                continue;
-            }
-            if (Arrays.equals(coin.getAddress(), address)) {
-                coin.setTempOwner(coin.getOwner());
-                coin.setOwner(coinEntry.getKey());
+        ensureInitialized();
+        AddressBalance addressBalance = balanceMap.get(AddressTool.getStringAddressByBytes(address));
+        if (addressBalance == null) {
+            return coinList;
+        }
+        for (LocalUtxo utxo : addressBalance.getUtxoList()) {
+            Coin coin = utxo.toCoin();
+            if (coin != null) {
                 coinList.add(coin);
             }
         }
         return coinList;
     }
 
+    /**
+     * 区块保存或回滚后，重新计算因高度变化而越过锁定点的地址
+     * After blocks are saved or rolled back, recompute the addresses whose lock points were crossed by the height change.
+     */
     public void refreshBalanceIfNesessary() {
-            long bestHeight = NulsContext.getInstance().getBestHeight();
-            Set<String> set = new HashSet<>(balanceMap.keySet());
-            for (String address : set) {
-                BalanceCacheEntity entity = balanceMap.get(address);
-                if (entity == null) {
-                    balanceMap.remove(address);
-                    continue;
-                }
-                if (entity.getEarlistLockTime() == 0L && entity.getLowestLockHeigh() == 0L) {
-                    continue;
-                }
-                if (entity.getLowestLockHeigh() > 0L && entity.getLowestLockHeigh() <= bestHeight) {
-                    balanceMap.remove(address);
-                    continue;
-                }
-                if (entity.getEarlistLockTime() > 0L && entity.getEarlistLockTime() <= TimeService.currentTimeMillis()) {
-                    balanceMap.remove(address);
-                    continue;
-                }
+        long bestHeight = NulsContext.getInstance().getBestHeight();
+        long now = TimeService.currentTimeMillis();
+        for (AddressBalance addressBalance : balanceMap.values()) {
+            if (!addressBalance.isValid(bestHeight, now)) {
+                refresh(addressBalance, bestHeight, now);
             }
+        }
     }
 }
@@ -0,0 +1,115 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017-2018 nuls.io
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package io.nuls.account.ledger.base.manager;
+
+import io.nuls.core.tools.log.Log;
+import io.nuls.kernel.exception.NulsException;
+import io.nuls.kernel.model.Coin;
+
+import java.util.Base64;
+
+/**
+ * 本地账户的一条UTXO，保留原始字节，使用时重新解析，避免调用方修改共享的Coin对象
+ * A utxo of a local account, the raw bytes are kept and parsed on use so that callers never modify a shared Coin.
+ */
+public class LocalUtxo {
+
+    private final byte[] key;
+
+    private final byte[] value;
+
+    private final String keyString;
+
+    private final byte[] address;
+
+    private final long na;
+
+    private final long lockTime;
+
+    private LocalUtxo(byte[] key, byte[] value, Coin coin) {
+        this.key = key;
+        this.value = value;
+        this.keyString = toKeyString(key);
+        this.address = coin.getAddress();
+        this.na = coin.getNa().getValue();
+        this.lockTime = coin.getLockTime();
+    }
+
+    /**
+     * 解析数据库中的UTXO，解析失败时返回null
+     * Parse a utxo from the database, null if it cannot be parsed.
+     */
+    public static LocalUtxo parse(byte[] key, byte[] value) {
+        Coin coin = new Coin();
+        try {
+            coin.parse(value, 0);
+        } catch (NulsException e) {
+            Log.info("parse coin form db error");
+            return null;
+        }
+        return new LocalUtxo(key, value, coin);
+    }
+
+    public static String toKeyString(byte[] key) {
+        return Base64.getEncoder().encodeToString(key);
+    }
+
+    /**
+     * 转换为Coin，owner为UTXO的key，原来的owner放在tempOwner中
+     * Convert into a Coin whose owner is the utxo key, with the original owner in tempOwner.
+     */
+    public Coin toCoin() {
+        Coin coin = new Coin();
+        try {
+            coin.parse(value, 0);
+        } catch (NulsException e) {
+            return null;
+        }
+        coin.setTempOwner(coin.getOwner());
+        coin.setOwner(key);
+        return coin;
+    }
+
+    public byte[] getKey() {
+        return key;
+    }
+
+    public String getKeyString() {
+        return keyString;
+    }
+
+    public byte[] getAddress() {
+        return address;
+    }
+
+    public long getNa() {
+        return na;
+    }
+
+    public long getLockTime() {
+        return lockTime;
+    }
+}
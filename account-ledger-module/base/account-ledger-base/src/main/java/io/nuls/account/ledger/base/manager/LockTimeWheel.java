@@ -0,0 +1,101 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017-2018 nuls.io
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package io.nuls.account.ledger.base.manager;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * 时间锁定的时间轮，每个格子保存到期时间落在其中的地址，推进时回调到期的地址，到期时间超过一圈的地址留在格子里等待下一圈
+ * Timer wheel of time locks, each slot holds the addresses whose deadline falls into it, advancing calls back the due addresses,
+ * addresses more than one round ahead stay in the slot for a later round.
+ */
+public class LockTimeWheel {
+
+    private final long tickMillis;
+
+    private final Map<String, Long>[] slots;
+
+    private final Consumer<String> releaser;
+
+    /**
+     * 最后处理过的格子序号，-1表示还没有推进过
+     * Last processed tick, -1 before the first advance.
+     */
+    private volatile long currentTick = -1L;
+
+    @SuppressWarnings("unchecked")
+    public LockTimeWheel(int slotCount, long tickMillis, Consumer<String> releaser) {
+        this.tickMillis = tickMillis;
+        this.releaser = releaser;
+        this.slots = new Map[slotCount];
+        for (int i = 0; i < slotCount; i++) {
+            slots[i] = new ConcurrentHashMap<>();
+        }
+    }
+
+    /**
+     * 登记地址在deadline时释放，已经过去的时间在下一次推进时释放，与推进互斥，避免写入推进刚处理过的格子后被跳过一圈
+     * Register the address to be released at the deadline, a deadline already passed is released on the next advance.
+     * Mutually exclusive with advance, so an entry is never put into a slot the running advance has already passed.
+     */
+    public synchronized void schedule(String key, long deadline) {
+        long tick = Math.max(deadline / tickMillis, currentTick);
+        slots[(int) (tick % slots.length)].merge(key, deadline, Math::min);
+    }
+
+    /**
+     * 推进到当前时间，回调所有到期的地址，上次推进到的格子里可能还有未到期的地址，需要重新检查
+     * Advance to now and call back every due address, the slot of the last advance may still hold addresses not yet due so it is checked again.
+     */
+    public synchronized void advance(long now) {
+        long target = now / tickMillis;
+        long from = currentTick < 0 ? target - slots.length + 1 : currentTick;
+        from = Math.max(from, target - slots.length + 1);
+        for (long tick = from; tick <= target; tick++) {
+            Map<String, Long> slot = slots[(int) (tick % slots.length)];
+            Iterator<Map.Entry<String, Long>> iterator = slot.entrySet().iterator();
+            while (iterator.hasNext()) {
+                Map.Entry<String, Long> entry = iterator.next();
+                Long deadline = entry.getValue();
+                if (deadline <= now && slot.remove(entry.getKey(), deadline)) {
+                    releaser.accept(entry.getKey());
+                }
+            }
+        }
+        currentTick = target;
+    }
+
+    public int size() {
+        int size = 0;
+        for (Map<String, Long> slot : slots) {
+            size += slot.size();
+        }
+        return size;
+    }
+}
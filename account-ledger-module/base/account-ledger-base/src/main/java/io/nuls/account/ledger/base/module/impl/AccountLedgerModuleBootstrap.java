@@ -55,6 +55,8 @@ public class AccountLedgerModuleBootstrap extends AbstractAccountLedgerModule {
         balanceManager.initAccountBalance();
         ScheduledThreadPoolExecutor executor = TaskManager.createScheduledThreadPool(1, new NulsThreadFactory(AccountLedgerConstant.MODULE_ID_ACCOUNTLEDGER, "CheckUnConfirmTxThread"));
         executor.scheduleAtFixedRate(NulsContext.getServiceBean(CheckUnConfirmTxThread.class), 10, 10, TimeUnit.MINUTES);
+        ScheduledThreadPoolExecutor lockExecutor = TaskManager.createScheduledThreadPool(1, new NulsThreadFactory(AccountLedgerConstant.MODULE_ID_ACCOUNTLEDGER, "BalanceTimeLockThread"));
+        lockExecutor.scheduleAtFixedRate(balanceManager::releaseTimeLocks, 1, 1, TimeUnit.SECONDS);
     }
 
     @Override
@@ -26,6 +26,7 @@
 package io.nuls.account.ledger.base.service;
 
 import io.nuls.account.ledger.model.TransactionInfo;
+import io.nuls.account.ledger.model.TransactionInfoPage;
 import io.nuls.account.ledger.storage.po.TransactionInfoPo;
 import io.nuls.kernel.lite.annotation.Component;
 import io.nuls.kernel.model.Result;
@@ -41,6 +42,12 @@ public interface TransactionInfoService {
 
     Result<List<TransactionInfo>> getTxInfoList(byte[] address);
 
+    /**
+     * 按游标分页查询地址的交易记录，见{@link io.nuls.account.ledger.storage.service.TransactionInfoStorageService#getTransactionInfoList}
+     * Page through the transaction records of the address, see {@link io.nuls.account.ledger.storage.service.TransactionInfoStorageService#getTransactionInfoList}
+     */
+    Result<TransactionInfoPage> getTxInfoList(byte[] address, byte[] after, int limit, boolean reverse);
+
     Result<Integer> saveTransactionInfo(TransactionInfoPo infoPo, List<byte[]> addresses);
 
     Result deleteTransactionInfo(TransactionInfoPo infoPo);
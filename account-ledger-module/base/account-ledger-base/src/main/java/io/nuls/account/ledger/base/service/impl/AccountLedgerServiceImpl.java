@@ -37,6 +37,7 @@ import io.nuls.account.ledger.constant.AccountLedgerErrorCode;
 import io.nuls.account.ledger.model.CoinDataResult;
 import io.nuls.account.ledger.model.MultipleAddressTransferModel;
 import io.nuls.account.ledger.model.TransactionInfo;
+import io.nuls.account.ledger.model.TransactionInfoPage;
 import io.nuls.account.ledger.service.AccountLedgerService;
 import io.nuls.account.ledger.storage.po.TransactionInfoPo;
 import io.nuls.account.ledger.storage.service.UnconfirmedTransactionStorageService;
@@ -1327,6 +1328,11 @@ public class AccountLedgerServiceImpl implements AccountLedgerService, Initializ
         return transactionInfoService.getTxInfoList(address);
     }
 
+    @Override
+    public Result<TransactionInfoPage> getTxInfoList(byte[] address, byte[] after, int limit, boolean reverse) {
+        return transactionInfoService.getTxInfoList(address, after, limit, reverse);
+    }
+
     @Override
     public Result<List<Coin>> getLockedUtxo(byte[] address) {
         Result<List<Coin>> result = new Result<>();
@@ -28,6 +28,7 @@ import io.nuls.account.ledger.base.service.TransactionInfoService;
 import io.nuls.account.ledger.base.util.TxInfoComparator;
 import io.nuls.account.ledger.constant.AccountLedgerErrorCode;
 import io.nuls.account.ledger.model.TransactionInfo;
+import io.nuls.account.ledger.model.TransactionInfoPage;
 import io.nuls.account.ledger.storage.po.TransactionInfoPo;
 import io.nuls.account.ledger.storage.service.TransactionInfoStorageService;
 import io.nuls.account.ledger.storage.service.impl.TransactionInfoStorageServiceImpl;
@@ -62,7 +63,7 @@ public class TransactionInfoServiceImpl implements TransactionInfoService {
             List<TransactionInfoPo> infoPoList = transactionInfoStorageService.getTransactionInfoListByAddress(address);
             List<TransactionInfo> infoList = new ArrayList<>();
             for (TransactionInfoPo po : infoPoList) {
-                if (po.getTxType() == ConsensusConstant.TX_TYPE_RED_PUNISH || po.getTxType() == ConsensusConstant.TX_TYPE_YELLOW_PUNISH) {
+                if (isPunishTx(po)) {
                     continue;
                 }
                 infoList.add(po.toTransactionInfo());
@@ -76,6 +77,31 @@ public class TransactionInfoServiceImpl implements TransactionInfoService {
         }
     }
 
+    @Override
+    public Result<TransactionInfoPage> getTxInfoList(byte[] address, byte[] after, int limit, boolean reverse) {
+        try {
+            List<TransactionInfoPo> infoPoList = transactionInfoStorageService.getTransactionInfoList(address, after, limit, reverse, po -> !isPunishTx(po));
+            List<TransactionInfo> infoList = new ArrayList<>();
+            for (TransactionInfoPo po : infoPoList) {
+                infoList.add(po.toTransactionInfo());
+            }
+            // 游标取存储时的排序key，交易之后确认或回滚都不会改变下一页的起点
+            // The cursor is the stored sort key, a later confirmation or rollback of the transaction does not move the start of the next page.
+            byte[] next = infoPoList.size() < limit ? null : infoPoList.get(infoPoList.size() - 1).getSortKey();
+            return Result.getSuccess().setData(new TransactionInfoPage(infoList, next));
+        } catch (NulsException e) {
+            Log.error(e);
+            return Result.getFailed(e.getErrorCode());
+        } catch (IOException e) {
+            Log.error(e);
+            return Result.getFailed(AccountLedgerErrorCode.IO_ERROR);
+        }
+    }
+
+    private boolean isPunishTx(TransactionInfoPo po) {
+        return po.getTxType() == ConsensusConstant.TX_TYPE_RED_PUNISH || po.getTxType() == ConsensusConstant.TX_TYPE_YELLOW_PUNISH;
+    }
+
     @Override
     public Result<Integer> saveTransactionInfo(TransactionInfoPo infoPo, List<byte[]> addresses) {
         if (infoPo == null) {
@@ -86,21 +112,17 @@ public class TransactionInfoServiceImpl implements TransactionInfoService {
             return Result.getSuccess().setData(new Integer(0));
         }
 
-        List<byte[]> savedKeyList = new ArrayList<>();
+        List<byte[]> savedAddressList = new ArrayList<>();
 
-        try {
-            for (int i = 0; i < addresses.size(); i++) {
-                byte[] infoKey = new byte[Address.ADDRESS_LENGTH + infoPo.getTxHash().size()];
-                System.arraycopy(addresses.get(i), 0, infoKey, 0, Address.ADDRESS_LENGTH);
-                System.arraycopy(infoPo.getTxHash().serialize(), 0, infoKey, Address.ADDRESS_LENGTH, infoPo.getTxHash().size());
-                transactionInfoStorageService.saveTransactionInfo(infoKey, infoPo);
-                savedKeyList.add(infoKey);
-            }
-        } catch (IOException e) {
-            for (int i = 0; i < savedKeyList.size(); i++) {
-                transactionInfoStorageService.deleteTransactionInfo(savedKeyList.get(i));
+        for (int i = 0; i < addresses.size(); i++) {
+            Result result = transactionInfoStorageService.saveTransactionInfo(addresses.get(i), infoPo);
+            if (result.isFailed()) {
+                for (int j = 0; j < savedAddressList.size(); j++) {
+                    transactionInfoStorageService.deleteTransactionInfo(savedAddressList.get(j), infoPo.getTxHash());
+                }
+                return Result.getFailed(AccountLedgerErrorCode.IO_ERROR);
             }
-            return Result.getFailed(AccountLedgerErrorCode.IO_ERROR);
+            savedAddressList.add(addresses.get(i));
         }
         return Result.getSuccess().setData(new Integer(addresses.size()));
     }
@@ -130,15 +152,9 @@ public class TransactionInfoServiceImpl implements TransactionInfoService {
         int addressCount = addresses.length / Address.ADDRESS_LENGTH;
 
         for (int i = 0; i < addressCount; i++) {
-
-            byte[] infoKey = new byte[Address.ADDRESS_LENGTH + infoPo.getTxHash().size()];
-            System.arraycopy(addresses, i * Address.ADDRESS_LENGTH, infoKey, 0, Address.ADDRESS_LENGTH);
-            try {
-                System.arraycopy(infoPo.getTxHash().serialize(), 0, infoKey, Address.ADDRESS_LENGTH, infoPo.getTxHash().size());
-            } catch (IOException e) {
-                Log.info(e.getMessage());
-            }
-            transactionInfoStorageService.deleteTransactionInfo(infoKey);
+            byte[] address = new byte[Address.ADDRESS_LENGTH];
+            System.arraycopy(addresses, i * Address.ADDRESS_LENGTH, address, 0, Address.ADDRESS_LENGTH);
+            transactionInfoStorageService.deleteTransactionInfo(address, infoPo.getTxHash());
         }
 
         return Result.getSuccess().setData(new Integer(addressCount));
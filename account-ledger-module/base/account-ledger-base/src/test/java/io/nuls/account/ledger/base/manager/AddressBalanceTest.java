@@ -0,0 +1,161 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017-2018 nuls.io
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package io.nuls.account.ledger.base.manager;
+
+import io.nuls.account.model.Balance;
+import io.nuls.kernel.model.Coin;
+import io.nuls.kernel.model.Na;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class AddressBalanceTest {
+
+    private static final long NOW = 1600000000000L;
+
+    private byte[] address = ByteBuffer.allocate(23).put((byte) 1).array();
+
+    @Test
+    public void testLockTypes() throws Exception {
+        AddressBalance balance = new AddressBalance("address");
+        balance.put(utxo(1, 100, 0L));
+        balance.put(utxo(2, 200, -1L));
+        balance.put(utxo(3, 300, 10L));
+        balance.put(utxo(4, 400, NOW + 1000L));
+
+        assertBalance(balance.getBalance(9L, NOW), 100, 900);
+        Assert.assertTrue(balance.isValid(9L, NOW + 999L));
+        Assert.assertFalse(balance.isValid(10L, NOW));
+        Assert.assertEquals(NOW + 1000L, balance.getNextLockTime());
+
+        assertBalance(balance.getBalance(10L, NOW), 400, 600);
+        assertBalance(balance.getBalance(10L, NOW + 1000L), 800, 200);
+        Assert.assertEquals(0L, balance.getNextLockTime());
+        // 回滚区块后高度锁定重新生效
+        assertBalance(balance.getBalance(9L, NOW + 1000L), 500, 500);
+    }
+
+    @Test
+    public void testDelta() throws Exception {
+        AddressBalance balance = new AddressBalance("address");
+        balance.put(utxo(1, 100, 0L));
+        balance.put(utxo(2, 200, 10L));
+        assertBalance(balance.getBalance(5L, NOW), 100, 200);
+
+        // 解锁交易改写同一个UTXO的锁定时间
+        balance.put(utxo(2, 200, 0L));
+        assertBalance(balance.getBalance(5L, NOW), 300, 0);
+
+        Assert.assertNotNull(balance.remove(LocalUtxo.toKeyString(key(1))));
+        Assert.assertNull(balance.remove(LocalUtxo.toKeyString(key(1))));
+        assertBalance(balance.getBalance(5L, NOW), 200, 0);
+        Assert.assertEquals(1, balance.getUtxoList().size());
+        Coin coin = balance.getUtxoList().get(0).toCoin();
+        Assert.assertArrayEquals(key(2), coin.getOwner());
+        Assert.assertArrayEquals(address, coin.getTempOwner());
+    }
+
+    @Test
+    public void testLockTimeWheel() {
+        List<String> released = new ArrayList<>();
+        LockTimeWheel wheel = new LockTimeWheel(60, 1000L, released::add);
+        wheel.advance(NOW);
+        wheel.schedule("a", NOW + 1500L);
+        wheel.schedule("b", NOW + 61500L);
+        wheel.schedule("c", NOW - 5000L);
+
+        wheel.advance(NOW + 1000L);
+        Assert.assertEquals(1, released.size());
+        Assert.assertEquals("c", released.get(0));
+        wheel.advance(NOW + 2000L);
+        Assert.assertEquals(2, released.size());
+        Assert.assertEquals("a", released.get(1));
+
+        // 一圈之后的地址留在格子里等待下一圈
+        wheel.advance(NOW + 60000L);
+        Assert.assertEquals(2, released.size());
+        Assert.assertEquals(1, wheel.size());
+        wheel.advance(NOW + 62000L);
+        Assert.assertEquals(3, released.size());
+        Assert.assertEquals(0, wheel.size());
+    }
+
+    @Test
+    public void testLockTimeWheelConcurrentSchedule() throws Exception {
+        Set<String> released = ConcurrentHashMap.newKeySet();
+        LockTimeWheel wheel = new LockTimeWheel(60, 1000L, released::add);
+        AtomicLong clock = new AtomicLong(NOW);
+        wheel.advance(clock.get());
+        int count = 200000;
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicBoolean scheduling = new AtomicBoolean(true);
+        Thread advancer = new Thread(() -> {
+            try {
+                start.await();
+            } catch (InterruptedException e) {
+                return;
+            }
+            while (scheduling.get()) {
+                wheel.advance(clock.addAndGet(3000L));
+            }
+        });
+        advancer.start();
+        start.countDown();
+        // 登记的都是已经到期的时间，与推进并发进行
+        for (int i = 0; i < count; i++) {
+            wheel.schedule(String.valueOf(i), clock.get() - 1L);
+        }
+        scheduling.set(false);
+        advancer.join();
+
+        // 到期的地址最迟在下一次推进时释放，不会等到下一圈
+        wheel.advance(clock.get());
+        Assert.assertEquals(0, wheel.size());
+        Assert.assertEquals(count, released.size());
+    }
+
+    private void assertBalance(Balance balance, long usable, long locked) {
+        Assert.assertEquals(usable, balance.getUsable().getValue());
+        Assert.assertEquals(locked, balance.getLocked().getValue());
+        Assert.assertEquals(usable + locked, balance.getBalance().getValue());
+    }
+
+    private LocalUtxo utxo(int index, long na, long lockTime) throws Exception {
+        return LocalUtxo.parse(key(index), new Coin(address, Na.valueOf(na), lockTime).serialize());
+    }
+
+    private byte[] key(int index) {
+        return ByteBuffer.allocate(35).putInt(index).array();
+    }
+}
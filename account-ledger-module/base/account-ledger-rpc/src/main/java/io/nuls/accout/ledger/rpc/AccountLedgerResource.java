@@ -34,6 +34,7 @@ import io.nuls.account.ledger.base.util.AccountLegerUtils;
 import io.nuls.account.ledger.constant.AccountLedgerErrorCode;
 import io.nuls.account.ledger.model.MultipleAddressTransferModel;
 import io.nuls.account.ledger.model.TransactionInfo;
+import io.nuls.account.ledger.model.TransactionInfoPage;
 import io.nuls.account.ledger.service.AccountLedgerService;
 import io.nuls.account.model.Balance;
 import io.nuls.account.service.AccountService;
@@ -756,6 +757,63 @@ public class AccountLedgerResource {
         return dtoResult.toRpcClientResult();
     }
 
+    @GET
+    @Path("/tx/history/{address}")
+    @Produces(MediaType.APPLICATION_JSON)
+    @ApiOperation(value = "按游标分页查询账户地址的交易记录", notes = "result.data: list 交易列表, after 下一页的游标")
+    @ApiResponses(value = {
+            @ApiResponse(code = 200, message = "success")
+    })
+    public RpcClientResult getTxHistory(@ApiParam(name = "address", value = "账户地址", required = true)
+                                        @PathParam("address") String address,
+                                        @ApiParam(name = "after", value = "游标，上一页返回的after，为空时查询第一页")
+                                        @QueryParam("after") String after,
+                                        @ApiParam(name = "limit", value = "每页条数")
+                                        @QueryParam("limit") Integer limit,
+                                        @ApiParam(name = "reverse", value = "是否从旧到新")
+                                        @QueryParam("reverse") Boolean reverse) {
+        if (null == limit || limit == 0) {
+            limit = 10;
+        }
+        if (limit < 0 || limit > 100) {
+            return Result.getFailed(KernelErrorCode.PARAMETER_ERROR).toRpcClientResult();
+        }
+        byte[] addressBytes;
+        byte[] afterKey = null;
+        try {
+            addressBytes = AddressTool.getAddress(address.trim());
+            if (StringUtils.isNotBlank(after)) {
+                afterKey = Hex.decode(after.trim());
+            }
+        } catch (Exception e) {
+            return Result.getFailed(AccountLedgerErrorCode.PARAMETER_ERROR).toRpcClientResult();
+        }
+
+        Result<TransactionInfoPage> rawResult = accountLedgerService.getTxInfoList(addressBytes, afterKey, limit, reverse != null && reverse);
+        if (rawResult.isFailed()) {
+            return rawResult.toRpcClientResult();
+        }
+        List<TransactionInfo> infoList = rawResult.getData().getList();
+        List<TransactionInfoDto> infoDtoList = new ArrayList<>();
+        for (TransactionInfo info : infoList) {
+            Transaction tx = ledgerService.getTx(info.getTxHash());
+            if (tx == null) {
+                tx = accountLedgerService.getUnconfirmedTransaction(info.getTxHash()).getData();
+            }
+            if (tx == null) {
+                continue;
+            }
+            info.setBlockHeight(tx.getBlockHeight());
+            info.setInfo(tx.getInfo(addressBytes));
+            infoDtoList.add(new TransactionInfoDto(info));
+        }
+        Map<String, Object> map = new HashMap<>();
+        map.put("list", infoDtoList);
+        byte[] next = rawResult.getData().getAfter();
+        map.put("after", next == null ? null : Hex.encode(next));
+        return Result.getSuccess().setData(map).toRpcClientResult();
+    }
+
     @GET
     @Path("/utxo/lock/{address}")
     @Produces(MediaType.APPLICATION_JSON)
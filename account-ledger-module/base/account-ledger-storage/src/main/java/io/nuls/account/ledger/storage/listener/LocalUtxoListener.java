@@ -0,0 +1,47 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017-2018 nuls.io
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package io.nuls.account.ledger.storage.listener;
+
+import io.nuls.db.model.Entry;
+
+import java.util.List;
+
+/**
+ * 本地账户UTXO的变化监听器
+ * Listener of changes to the utxos of local accounts.
+ */
+public interface LocalUtxoListener {
+
+    /**
+     * 本地UTXO写入成功后调用，变化按写入顺序逐个通知，同一次写入中删除先于保存生效，保存已存在的key时视为覆盖
+     * Called after local utxos are written, changes are notified one write at a time in write order,
+     * within one write the deletions take effect before the saves, saving an existing key overwrites it.
+     *
+     * @param saved   保存的UTXO/saved utxos, key-value
+     * @param deleted 删除的UTXO的key/keys of deleted utxos
+     */
+    void onChange(List<Entry<byte[], byte[]>> saved, List<byte[]> deleted);
+}
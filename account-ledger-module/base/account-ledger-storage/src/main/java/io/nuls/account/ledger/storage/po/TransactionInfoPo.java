@@ -34,6 +34,7 @@ import io.nuls.kernel.model.Transaction;
 import io.nuls.kernel.utils.*;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.List;
 
 /**
@@ -135,6 +136,21 @@ public class TransactionInfoPo extends BaseNulsData {
         return size;
     }
 
+    /**
+     * 交易记录在地址下的排序key，未确认的交易在前，已确认的按高度和时间倒序，大端编码使字节序与排序一致
+     * Sort key of the record under its address, unconfirmed transactions first, then confirmed ones by height and time descending,
+     * big-endian so that the byte order matches the sort order.
+     */
+    public byte[] getSortKey() throws IOException {
+        long height = status == TransactionInfo.UNCONFIRMED ? Long.MAX_VALUE : blockHeight;
+        byte[] hashBytes = txHash.serialize();
+        return ByteBuffer.allocate(16 + hashBytes.length)
+                .putLong(Long.MAX_VALUE - height)
+                .putLong(Long.MAX_VALUE - time)
+                .put(hashBytes)
+                .array();
+    }
+
     public NulsDigestData getTxHash() {
         return txHash;
     }
@@ -24,6 +24,7 @@
  */
 package io.nuls.account.ledger.storage.service;
 
+import io.nuls.account.ledger.storage.listener.LocalUtxoListener;
 import io.nuls.db.model.Entry;
 import io.nuls.kernel.model.Coin;
 import io.nuls.kernel.model.Result;
@@ -53,4 +54,12 @@ public interface LocalUtxoStorageService {
     byte[] getUtxoBytes(byte[] owner);
 
     Coin getUtxo(byte[] owner);
+
+    /**
+     * 设置UTXO变化监听器，每次写入成功后同步通知
+     * Set the utxo change listener, notified synchronously after each successful write.
+     *
+     * @param listener
+     */
+    void setLocalUtxoListener(LocalUtxoListener listener);
 }
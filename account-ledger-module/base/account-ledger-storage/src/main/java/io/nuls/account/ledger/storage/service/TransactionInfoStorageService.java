@@ -26,9 +26,11 @@ package io.nuls.account.ledger.storage.service;
 
 import io.nuls.account.ledger.storage.po.TransactionInfoPo;
 import io.nuls.kernel.exception.NulsException;
+import io.nuls.kernel.model.NulsDigestData;
 import io.nuls.kernel.model.Result;
 
 import java.util.List;
+import java.util.function.Predicate;
 
 /**
  * author Facjas
@@ -36,9 +38,31 @@ import java.util.List;
  */
 public interface TransactionInfoStorageService {
 
-    Result saveTransactionInfo(byte[] key, TransactionInfoPo tx);
+    /**
+     * 保存地址的交易记录，同一笔交易再次保存时覆盖原来的记录
+     * Save the transaction record of the address, saving the same transaction again replaces the former record.
+     */
+    Result saveTransactionInfo(byte[] address, TransactionInfoPo tx);
 
-    Result deleteTransactionInfo(byte[] infoKey);
+    Result deleteTransactionInfo(byte[] address, NulsDigestData txHash);
 
+    /**
+     * 地址的所有交易记录，未确认的在前，已确认的按高度和时间从新到旧
+     * All transaction records of the address, unconfirmed first, then confirmed ones from newest to oldest by height and time.
+     */
     List<TransactionInfoPo> getTransactionInfoListByAddress(byte[] address) throws NulsException;
+
+    /**
+     * 按游标分页查询地址的交易记录，直接定位到地址和游标，不需要遍历之前的记录
+     * Page through the transaction records of the address, seeking straight to the address and cursor without scanning earlier records.
+     *
+     * @param address
+     * @param after   游标，上一页最后一条记录的{@link TransactionInfoPo#getSortKey()}，null表示第一页。交易状态变化不影响游标的位置
+     *                /cursor, {@link TransactionInfoPo#getSortKey()} of the last record of the previous page, null for the first page.
+     *                A status change of a transaction does not move the cursor
+     * @param limit   每页条数/page size
+     * @param reverse 是否从旧到新/whether to go from oldest to newest
+     * @param filter  需要返回的记录，null表示全部/records to return, null for all
+     */
+    List<TransactionInfoPo> getTransactionInfoList(byte[] address, byte[] after, int limit, boolean reverse, Predicate<TransactionInfoPo> filter) throws NulsException;
 }
@@ -25,6 +25,7 @@
 package io.nuls.account.ledger.storage.service.impl;
 
 import io.nuls.account.ledger.storage.constant.AccountLedgerStorageConstant;
+import io.nuls.account.ledger.storage.listener.LocalUtxoListener;
 import io.nuls.account.ledger.storage.service.LocalUtxoStorageService;
 import io.nuls.core.tools.log.Log;
 import io.nuls.db.constant.DBErrorCode;
@@ -42,6 +43,8 @@ import io.nuls.ledger.service.LedgerService;
 
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * @author Facjas
@@ -60,6 +63,14 @@ public class LocalUtxoStorageServiceImpl implements LocalUtxoStorageService, Ini
 
     private Map<String, Entry<byte[], byte[]>> cacheMap;
 
+    private volatile LocalUtxoListener listener;
+
+    /**
+     * 写入和通知监听器在同一个锁内完成，保证监听器收到的变化和写入顺序一致
+     * Writes and listener notifications happen under one lock, so the listener sees changes in write order.
+     */
+    private final Lock writeLock = new ReentrantLock();
+
     @Override
     public void afterPropertiesSet() throws NulsException {
 
@@ -84,91 +95,143 @@ public class LocalUtxoStorageServiceImpl implements LocalUtxoStorageService, Ini
 
     @Override
     public Result saveUTXO(byte[] key, byte[] value) {
-        Result result = dbService.put(AccountLedgerStorageConstant.DB_NAME_ACCOUNT_LEDGER_COINDATA, key, value);
+        writeLock.lock();
+        try {
+            Result result = dbService.put(AccountLedgerStorageConstant.DB_NAME_ACCOUNT_LEDGER_COINDATA, key, value);
 
-        if(result.isSuccess() && cacheMap != null) {
-            cacheMap.put(new String(key), new Entry(key, value));
+            if (result.isSuccess() && cacheMap != null) {
+                cacheMap.put(new String(key), new Entry(key, value));
+            }
+            if (result.isSuccess()) {
+                notifyListener(Collections.singletonList(new Entry<>(key, value)), Collections.<byte[]>emptyList());
+            }
+            return result;
+        } finally {
+            writeLock.unlock();
         }
-
-        return result;
     }
 
     @Override
     public Result<Integer> batchSaveUTXO(Map<byte[], byte[]> utxos) {
-        BatchOperation batch = dbService.createWriteBatch(AccountLedgerStorageConstant.DB_NAME_ACCOUNT_LEDGER_COINDATA);
-        Set<Map.Entry<byte[], byte[]>> utxosToSaveEntries = utxos.entrySet();
-        for(Map.Entry<byte[], byte[]> entry : utxosToSaveEntries) {
-            batch.put(entry.getKey(), entry.getValue());
-        }
-        Result batchResult = batch.executeBatch();
-        if (batchResult.isFailed()) {
-            return batchResult;
-        }
-        Result result = Result.getSuccess().setData(new Integer(utxos.size()));
+        writeLock.lock();
+        try {
+            BatchOperation batch = dbService.createWriteBatch(AccountLedgerStorageConstant.DB_NAME_ACCOUNT_LEDGER_COINDATA);
+            Set<Map.Entry<byte[], byte[]>> utxosToSaveEntries = utxos.entrySet();
+            for (Map.Entry<byte[], byte[]> entry : utxosToSaveEntries) {
+                batch.put(entry.getKey(), entry.getValue());
+            }
+            Result batchResult = batch.executeBatch();
+            if (batchResult.isFailed()) {
+                return batchResult;
+            }
+            Result result = Result.getSuccess().setData(new Integer(utxos.size()));
 
-        if(result.isSuccess() && cacheMap != null) {
-            for(Map.Entry<byte[], byte[]> entry : utxosToSaveEntries) {
-                cacheMap.put(new String(entry.getKey()), new Entry(entry.getKey(), entry.getValue()));
+            List<Entry<byte[], byte[]>> saved = new ArrayList<>();
+            for (Map.Entry<byte[], byte[]> entry : utxosToSaveEntries) {
+                if (cacheMap != null) {
+                    cacheMap.put(new String(entry.getKey()), new Entry(entry.getKey(), entry.getValue()));
+                }
+                saved.add(new Entry<>(entry.getKey(), entry.getValue()));
             }
+            notifyListener(saved, Collections.<byte[]>emptyList());
+            return result;
+        } finally {
+            writeLock.unlock();
         }
-
-        return result;
     }
 
     @Override
     public Result deleteUTXO(byte[] key) {
-        Result result = dbService.delete(AccountLedgerStorageConstant.DB_NAME_ACCOUNT_LEDGER_COINDATA, key);
-        if(result.isSuccess() && cacheMap != null) {
-            cacheMap.remove(new String(key));
+        writeLock.lock();
+        try {
+            Result result = dbService.delete(AccountLedgerStorageConstant.DB_NAME_ACCOUNT_LEDGER_COINDATA, key);
+            if (result.isSuccess() && cacheMap != null) {
+                cacheMap.remove(new String(key));
+            }
+            if (result.isSuccess()) {
+                notifyListener(Collections.<Entry<byte[], byte[]>>emptyList(), Collections.singletonList(key));
+            }
+            return result;
+        } finally {
+            writeLock.unlock();
         }
-        return result;
     }
 
     @Override
     public Result batchDeleteUTXO(Set<byte[]> utxos) {
-        BatchOperation batch = dbService.createWriteBatch(AccountLedgerStorageConstant.DB_NAME_ACCOUNT_LEDGER_COINDATA);
-        for (byte[] key : utxos) {
-            batch.delete(key);
-        }
-        Result batchResult = batch.executeBatch();
-        if (batchResult.isFailed()) {
-            return batchResult;
-        }
-        Result result = Result.getSuccess().setData(new Integer(utxos.size()));
-
-        if(result.isSuccess() && cacheMap != null) {
+        writeLock.lock();
+        try {
+            BatchOperation batch = dbService.createWriteBatch(AccountLedgerStorageConstant.DB_NAME_ACCOUNT_LEDGER_COINDATA);
             for (byte[] key : utxos) {
-                cacheMap.remove(new String(key));
+                batch.delete(key);
             }
+            Result batchResult = batch.executeBatch();
+            if (batchResult.isFailed()) {
+                return batchResult;
+            }
+            Result result = Result.getSuccess().setData(new Integer(utxos.size()));
+
+            if (cacheMap != null) {
+                for (byte[] key : utxos) {
+                    cacheMap.remove(new String(key));
+                }
+            }
+            notifyListener(Collections.<Entry<byte[], byte[]>>emptyList(), new ArrayList<>(utxos));
+            return result;
+        } finally {
+            writeLock.unlock();
         }
-        return result;
     }
 
     @Override
     public Result batchSaveAndDeleteUTXO(List<Entry<byte[], byte[]>> utxosToSave, List<byte[]> utxosToDelete) {
-        BatchOperation batch = dbService.createWriteBatch(AccountLedgerStorageConstant.DB_NAME_ACCOUNT_LEDGER_COINDATA);
-        for (byte[] key : utxosToDelete) {
-            batch.delete(key);
-        }
-        for(Entry<byte[], byte[]> entry : utxosToSave) {
-            batch.put(entry.getKey(), entry.getValue());
-        }
-        Result batchResult = batch.executeBatch();
-        if (batchResult.isFailed()) {
-            return batchResult;
-        }
-        Result result = Result.getSuccess().setData(new Integer(utxosToSave.size() + utxosToDelete.size()));
-
-        if(result.isSuccess() && cacheMap != null) {
-            for(Entry<byte[], byte[]> entry : utxosToSave) {
-                cacheMap.put(new String(entry.getKey()), entry);
-            }
+        writeLock.lock();
+        try {
+            BatchOperation batch = dbService.createWriteBatch(AccountLedgerStorageConstant.DB_NAME_ACCOUNT_LEDGER_COINDATA);
             for (byte[] key : utxosToDelete) {
-                cacheMap.remove(new String(key));
+                batch.delete(key);
+            }
+            for (Entry<byte[], byte[]> entry : utxosToSave) {
+                batch.put(entry.getKey(), entry.getValue());
             }
+            Result batchResult = batch.executeBatch();
+            if (batchResult.isFailed()) {
+                return batchResult;
+            }
+            Result result = Result.getSuccess().setData(new Integer(utxosToSave.size() + utxosToDelete.size()));
+
+            if (cacheMap != null) {
+                for (Entry<byte[], byte[]> entry : utxosToSave) {
+                    cacheMap.put(new String(entry.getKey()), entry);
+                }
+                for (byte[] key : utxosToDelete) {
+                    cacheMap.remove(new String(key));
+                }
+            }
+            // 批量中先删除后保存，通知时保持同样的顺序
+            // The batch deletes before it saves, the notification keeps the same order.
+            notifyListener(utxosToSave, utxosToDelete);
+            return result;
+        } finally {
+            writeLock.unlock();
         }
+    }
 
-        return result;
+    @Override
+    public void setLocalUtxoListener(LocalUtxoListener listener) {
+        this.listener = listener;
+    }
+
+    private void notifyListener(List<Entry<byte[], byte[]>> saved, List<byte[]> deleted) {
+        LocalUtxoListener listener = this.listener;
+        if (listener == null) {
+            return;
+        }
+        try {
+            listener.onChange(saved, deleted);
+        } catch (Exception e) {
+            Log.error(e);
+        }
     }
 
     @Override
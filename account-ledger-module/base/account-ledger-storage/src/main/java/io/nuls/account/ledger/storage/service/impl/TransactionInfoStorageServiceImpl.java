@@ -31,7 +31,11 @@ import io.nuls.account.ledger.storage.service.TransactionInfoStorageService;
 import io.nuls.core.tools.array.ArraysTool;
 import io.nuls.core.tools.log.Log;
 import io.nuls.db.constant.DBErrorCode;
+import io.nuls.db.model.Entry;
+import io.nuls.db.model.ScanRange;
+import io.nuls.db.service.BatchOperation;
 import io.nuls.db.service.DBService;
+import io.nuls.db.service.EntryIterator;
 import io.nuls.kernel.constant.KernelErrorCode;
 import io.nuls.kernel.exception.NulsException;
 import io.nuls.kernel.exception.NulsRuntimeException;
@@ -39,14 +43,16 @@ import io.nuls.kernel.lite.annotation.Autowired;
 import io.nuls.kernel.lite.annotation.Component;
 import io.nuls.kernel.lite.core.bean.InitializingBean;
 import io.nuls.kernel.model.Address;
+import io.nuls.kernel.model.NulsDigestData;
 import io.nuls.kernel.model.Result;
 import io.nuls.kernel.utils.AddressTool;
 
 import javax.naming.PartialResultException;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
-import java.util.Set;
+import java.util.function.Predicate;
 
 /**
  * author Facjas
@@ -54,6 +60,41 @@ import java.util.Set;
  */
 @Component
 public class TransactionInfoStorageServiceImpl implements TransactionInfoStorageService, InitializingBean {
+
+    /**
+     * 交易记录的key：地址 + 0 + 排序key，按地址和排序key的字节序排列
+     * Key of a record: address + 0 + sort key, ordered by address and sort key bytes.
+     */
+    private static final byte INFO_PREFIX = 0;
+
+    /**
+     * 交易hash到交易记录key的映射：地址 + 1 + 交易hash，交易状态变化导致排序key变化时用来找到原来的记录
+     * Tx hash to record key mapping: address + 1 + tx hash, used to find the former record when a status change moves the sort key.
+     */
+    private static final byte HASH_PREFIX = 1;
+
+    /**
+     * 倒序索引的key：地址 + 2 + 按位取反的排序key，从旧到新翻页时也是正向seek，值为交易记录的key
+     * Key of the reverse index: address + 2 + bitwise inverted sort key, so paging from oldest to newest is a forward seek as well,
+     * the value is the key of the record.
+     */
+    private static final byte REVERSE_PREFIX = 2;
+
+    /**
+     * 旧格式（地址 + 交易hash）的数据迁移完成的标记
+     * Marker of a finished migration from the former layout (address + tx hash).
+     */
+    private static final byte[] MIGRATED_KEY = new byte[]{0};
+
+    private static final int MIGRATE_BATCH_SIZE = 10000;
+
+    /**
+     * 旧格式的key为地址 + 交易hash，与新格式的两种key长度都不同
+     * A key of the former layout is address + tx hash, its length differs from both kinds of keys of the new layout.
+     */
+    private static final int OLD_KEY_LENGTH = Address.ADDRESS_LENGTH + NulsDigestData.calcDigestData(new byte[0]).size();
+
+
     @Autowired
     private DBService dbService;
 
@@ -63,13 +104,75 @@ public class TransactionInfoStorageServiceImpl implements TransactionInfoStorage
         if (result.isFailed() && !DBErrorCode.DB_AREA_EXIST.equals(result.getErrorCode())) {
             throw new NulsRuntimeException(result.getErrorCode());
         }
+        if (dbService.get(AccountLedgerStorageConstant.DB_NAME_ACCOUNT_LEDGER_TX_INDEX, MIGRATED_KEY) == null) {
+            migrate();
+        }
+    }
+
+    /**
+     * 把旧格式的记录改写为新格式，中途退出时下次启动继续
+     * Rewrite the records of the former layout into the new one, an interrupted migration continues on the next start.
+     */
+    private void migrate() {
+        int count = 0;
+        BatchOperation batch = dbService.createWriteBatch(AccountLedgerStorageConstant.DB_NAME_ACCOUNT_LEDGER_TX_INDEX);
+        EntryIterator<byte[]> iterator = dbService.iterator(AccountLedgerStorageConstant.DB_NAME_ACCOUNT_LEDGER_TX_INDEX, ScanRange.all());
+        try {
+            while (iterator.hasNext()) {
+                Entry<byte[], byte[]> entry = iterator.next();
+                byte[] key = entry.getKey();
+                if (key.length != OLD_KEY_LENGTH) {
+                    continue;
+                }
+                try {
+                    TransactionInfoPo infoPo = new TransactionInfoPo();
+                    infoPo.parse(entry.getValue(), 0);
+                    byte[] address = Arrays.copyOf(key, Address.ADDRESS_LENGTH);
+                    byte[] infoKey = infoKey(address, infoPo);
+                    batch.put(infoKey, entry.getValue());
+                    batch.put(hashKey(address, infoPo.getTxHash()), infoKey);
+                    batch.put(reverseKey(address, infoKey), infoKey);
+                } catch (NulsException | IOException e) {
+                    Log.error(e);
+                }
+                batch.delete(key);
+                if (++count % MIGRATE_BATCH_SIZE == 0) {
+                    executeBatch(batch);
+                    batch = dbService.createWriteBatch(AccountLedgerStorageConstant.DB_NAME_ACCOUNT_LEDGER_TX_INDEX);
+                }
+            }
+        } finally {
+            iterator.close();
+        }
+        batch.put(MIGRATED_KEY, MIGRATED_KEY);
+        executeBatch(batch);
+        if (count > 0) {
+            Log.info("account ledger tx index migrated, " + count + " records");
+        }
+    }
+
+    private void executeBatch(BatchOperation batch) {
+        Result result = batch.executeBatch();
+        if (result.isFailed()) {
+            throw new NulsRuntimeException(result.getErrorCode());
+        }
     }
 
     @Override
-    public Result saveTransactionInfo(byte[] infoKey, TransactionInfoPo infoPo) {
+    public Result saveTransactionInfo(byte[] address, TransactionInfoPo infoPo) {
         try {
-            dbService.put(AccountLedgerStorageConstant.DB_NAME_ACCOUNT_LEDGER_TX_INDEX, infoKey, infoPo.serialize());
-            return Result.getSuccess();
+            byte[] infoKey = infoKey(address, infoPo);
+            byte[] hashKey = hashKey(address, infoPo.getTxHash());
+            BatchOperation batch = dbService.createWriteBatch(AccountLedgerStorageConstant.DB_NAME_ACCOUNT_LEDGER_TX_INDEX);
+            byte[] oldInfoKey = dbService.get(AccountLedgerStorageConstant.DB_NAME_ACCOUNT_LEDGER_TX_INDEX, hashKey);
+            if (oldInfoKey != null && !Arrays.equals(oldInfoKey, infoKey)) {
+                batch.delete(oldInfoKey);
+                batch.delete(reverseKey(address, oldInfoKey));
+            }
+            batch.put(infoKey, infoPo.serialize());
+            batch.put(hashKey, infoKey);
+            batch.put(reverseKey(address, infoKey), infoKey);
+            return batch.executeBatch();
         } catch (Exception e) {
             return Result.getFailed();
         }
@@ -78,26 +181,114 @@ public class TransactionInfoStorageServiceImpl implements TransactionInfoStorage
     @Override
     public List<TransactionInfoPo> getTransactionInfoListByAddress(byte[] address) throws NulsException {
         List<TransactionInfoPo> infoPoList = new ArrayList<>();
-        Set<byte[]> keySet = dbService.keySet(AccountLedgerStorageConstant.DB_NAME_ACCOUNT_LEDGER_TX_INDEX);
-        if (keySet == null || keySet.isEmpty()) {
+        // 按地址前缀遍历，key和value来自同一个快照，不会读到并发删除的记录
+        // Scan by the address prefix, keys and values come from the same snapshot so concurrently deleted records are never read.
+        EntryIterator<byte[]> iterator = dbService.iterator(AccountLedgerStorageConstant.DB_NAME_ACCOUNT_LEDGER_TX_INDEX, ScanRange.prefix(infoPrefix(address)));
+        if (iterator == null) {
             return infoPoList;
         }
-
-        byte[] addressKey = new byte[Address.ADDRESS_LENGTH];
-        for (byte[] key : keySet) {
-            System.arraycopy(key, 0, addressKey, 0, Address.ADDRESS_LENGTH);
-            if (java.util.Arrays.equals(addressKey, address)) {
-                byte[] values = dbService.get(AccountLedgerStorageConstant.DB_NAME_ACCOUNT_LEDGER_TX_INDEX, key);
+        try {
+            while (iterator.hasNext()) {
                 TransactionInfoPo transactionInfoPo = new TransactionInfoPo();
-                transactionInfoPo.parse(values, 0);
+                transactionInfoPo.parse(iterator.next().getValue(), 0);
                 infoPoList.add(transactionInfoPo);
             }
+        } finally {
+            iterator.close();
         }
         return infoPoList;
     }
 
     @Override
-    public Result deleteTransactionInfo(byte[] infoKey) {
-        return dbService.delete(AccountLedgerStorageConstant.DB_NAME_ACCOUNT_LEDGER_TX_INDEX, infoKey);
+    public List<TransactionInfoPo> getTransactionInfoList(byte[] address, byte[] after, int limit, boolean reverse, Predicate<TransactionInfoPo> filter) throws NulsException {
+        byte[] prefix = reverse ? reversePrefix(address) : infoPrefix(address);
+        ScanRange range = ScanRange.prefix(prefix);
+        if (after != null) {
+            // 游标之后的第一个key是在游标后追加一个0字节，游标不需要对应现存的记录
+            // The first key after the cursor is the cursor followed by a zero byte, the cursor does not need to match an existing record.
+            byte[] afterKey = ArraysTool.concatenate(prefix, reverse ? invert(after) : after, new byte[]{0});
+            range = ScanRange.from(afterKey).withPrefix(prefix);
+        }
+        List<TransactionInfoPo> infoPoList = new ArrayList<>();
+        EntryIterator<byte[]> iterator = dbService.iterator(AccountLedgerStorageConstant.DB_NAME_ACCOUNT_LEDGER_TX_INDEX, range);
+        if (iterator == null) {
+            return infoPoList;
+        }
+        try {
+            while (infoPoList.size() < limit && iterator.hasNext()) {
+                byte[] value = iterator.next().getValue();
+                if (reverse) {
+                    // 倒序索引只保存记录的key，记录已被并发删除时跳过
+                    // The reverse index only holds the record key, skip records deleted concurrently.
+                    value = dbService.get(AccountLedgerStorageConstant.DB_NAME_ACCOUNT_LEDGER_TX_INDEX, value);
+                    if (value == null) {
+                        continue;
+                    }
+                }
+                TransactionInfoPo transactionInfoPo = new TransactionInfoPo();
+                transactionInfoPo.parse(value, 0);
+                if (filter == null || filter.test(transactionInfoPo)) {
+                    infoPoList.add(transactionInfoPo);
+                }
+            }
+        } finally {
+            iterator.close();
+        }
+        return infoPoList;
+    }
+
+    @Override
+    public Result deleteTransactionInfo(byte[] address, NulsDigestData txHash) {
+        try {
+            byte[] hashKey = hashKey(address, txHash);
+            byte[] infoKey = dbService.get(AccountLedgerStorageConstant.DB_NAME_ACCOUNT_LEDGER_TX_INDEX, hashKey);
+            if (infoKey == null) {
+                return Result.getSuccess();
+            }
+            BatchOperation batch = dbService.createWriteBatch(AccountLedgerStorageConstant.DB_NAME_ACCOUNT_LEDGER_TX_INDEX);
+            batch.delete(infoKey);
+            batch.delete(hashKey);
+            batch.delete(reverseKey(address, infoKey));
+            return batch.executeBatch();
+        } catch (IOException e) {
+            return Result.getFailed(AccountLedgerErrorCode.IO_ERROR);
+        }
+    }
+
+    private static byte[] infoPrefix(byte[] address) {
+        return ArraysTool.concatenate(address, new byte[]{INFO_PREFIX});
+    }
+
+    private static byte[] reversePrefix(byte[] address) {
+        return ArraysTool.concatenate(address, new byte[]{REVERSE_PREFIX});
+    }
+
+    /**
+     * 记录key对应的倒序索引key，排序key定长，逐字节取反后字节序正好相反
+     * Reverse index key of a record key, the sort key has a fixed length so inverting every byte exactly reverses the byte order.
+     */
+    private static byte[] reverseKey(byte[] address, byte[] infoKey) {
+        byte[] key = Arrays.copyOf(infoKey, infoKey.length);
+        key[address.length] = REVERSE_PREFIX;
+        for (int i = address.length + 1; i < key.length; i++) {
+            key[i] = (byte) ~key[i];
+        }
+        return key;
+    }
+
+    private static byte[] invert(byte[] bytes) {
+        byte[] result = new byte[bytes.length];
+        for (int i = 0; i < bytes.length; i++) {
+            result[i] = (byte) ~bytes[i];
+        }
+        return result;
+    }
+
+    private static byte[] infoKey(byte[] address, TransactionInfoPo infoPo) throws IOException {
+        return ArraysTool.concatenate(address, new byte[]{INFO_PREFIX}, infoPo.getSortKey());
+    }
+
+    private static byte[] hashKey(byte[] address, NulsDigestData txHash) throws IOException {
+        return ArraysTool.concatenate(address, new byte[]{HASH_PREFIX}, txHash.serialize());
     }
 }
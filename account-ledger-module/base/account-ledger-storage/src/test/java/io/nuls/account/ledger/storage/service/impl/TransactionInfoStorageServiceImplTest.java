@@ -0,0 +1,228 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017-2018 nuls.io
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package io.nuls.account.ledger.storage.service.impl;
+
+import io.nuls.account.ledger.model.TransactionInfo;
+import io.nuls.account.ledger.storage.constant.AccountLedgerStorageConstant;
+import io.nuls.account.ledger.storage.po.TransactionInfoPo;
+import io.nuls.db.service.DBService;
+import io.nuls.db.service.impl.LevelDBServiceImpl;
+import io.nuls.kernel.model.NulsDigestData;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.reflect.Field;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 交易记录按地址、高度、时间排列的分页查询，以及旧格式数据的迁移
+ * Paged queries over records ordered by address, height and time, and migration of the former layout.
+ */
+public class TransactionInfoStorageServiceImplTest {
+
+    private DBService dbService;
+
+    private TransactionInfoStorageServiceImpl service;
+
+    private byte[] address = address(1);
+
+    @Before
+    public void init() throws Exception {
+        dbService = new LevelDBServiceImpl();
+        dbService.destroyArea(AccountLedgerStorageConstant.DB_NAME_ACCOUNT_LEDGER_TX_INDEX);
+        service = new TransactionInfoStorageServiceImpl();
+        Field field = TransactionInfoStorageServiceImpl.class.getDeclaredField("dbService");
+        field.setAccessible(true);
+        field.set(service, dbService);
+        service.afterPropertiesSet();
+    }
+
+    @After
+    public void after() {
+        dbService.destroyArea(AccountLedgerStorageConstant.DB_NAME_ACCOUNT_LEDGER_TX_INDEX);
+    }
+
+    @Test
+    public void testPage() throws Exception {
+        for (int i = 0; i < 25; i++) {
+            Assert.assertTrue(service.saveTransactionInfo(address, info(i, i, TransactionInfo.CONFIRMED)).isSuccess());
+            service.saveTransactionInfo(address(2), info(100 + i, i, TransactionInfo.CONFIRMED));
+        }
+        Assert.assertTrue(service.saveTransactionInfo(address, info(25, 0, TransactionInfo.UNCONFIRMED)).isSuccess());
+
+        // 未确认的在前，已确认的从新到旧
+        List<Long> seen = new ArrayList<>();
+        byte[] after = null;
+        while (true) {
+            List<TransactionInfoPo> page = service.getTransactionInfoList(address, after, 10, false, null);
+            for (TransactionInfoPo po : page) {
+                seen.add(po.getTime());
+            }
+            if (page.size() < 10) {
+                break;
+            }
+            after = page.get(page.size() - 1).getSortKey();
+        }
+        Assert.assertEquals(26, seen.size());
+        Assert.assertEquals(25L, (long) seen.get(0));
+        for (int i = 1; i < seen.size(); i++) {
+            Assert.assertEquals(25L - i, (long) seen.get(i));
+        }
+
+        List<TransactionInfoPo> page = service.getTransactionInfoList(address, null, 3, true, null);
+        Assert.assertEquals(0L, page.get(0).getTime());
+        Assert.assertEquals(2L, page.get(2).getTime());
+        page = service.getTransactionInfoList(address, page.get(2).getSortKey(), 3, true, po -> po.getTime() % 2 == 0);
+        Assert.assertEquals(4L, page.get(0).getTime());
+        Assert.assertEquals(8L, page.get(2).getTime());
+
+        // 从旧到新翻到最后，未确认的交易在最后
+        seen.clear();
+        after = null;
+        while (true) {
+            page = service.getTransactionInfoList(address, after, 10, true, null);
+            for (TransactionInfoPo po : page) {
+                seen.add(po.getTime());
+            }
+            if (page.size() < 10) {
+                break;
+            }
+            after = page.get(page.size() - 1).getSortKey();
+        }
+        Assert.assertEquals(26, seen.size());
+        for (int i = 0; i < seen.size(); i++) {
+            Assert.assertEquals((long) i, (long) seen.get(i));
+        }
+        Assert.assertEquals(26, service.getTransactionInfoListByAddress(address).size());
+    }
+
+    @Test
+    public void testCursorAfterStatusChange() throws Exception {
+        for (int i = 0; i < 6; i++) {
+            service.saveTransactionInfo(address, info(i, i, TransactionInfo.CONFIRMED));
+        }
+        List<TransactionInfoPo> page = service.getTransactionInfoList(address, null, 3, false, null);
+        Assert.assertEquals(3L, page.get(2).getTime());
+        byte[] after = page.get(2).getSortKey();
+
+        // 游标所在的交易回滚后，下一页仍从原来的位置继续，不跳过也不重复
+        service.saveTransactionInfo(address, info(3, 0, TransactionInfo.UNCONFIRMED));
+        page = service.getTransactionInfoList(address, after, 3, false, null);
+        Assert.assertEquals(3, page.size());
+        Assert.assertEquals(2L, page.get(0).getTime());
+        Assert.assertEquals(0L, page.get(2).getTime());
+
+        page = service.getTransactionInfoList(address, null, 3, true, null);
+        after = page.get(2).getSortKey();
+        service.saveTransactionInfo(address, info(3, 9, TransactionInfo.CONFIRMED));
+        service.saveTransactionInfo(address, info(2, 8, TransactionInfo.CONFIRMED));
+        page = service.getTransactionInfoList(address, after, 10, true, null);
+        Assert.assertEquals(4, page.size());
+        Assert.assertEquals(4L, page.get(0).getTime());
+        Assert.assertEquals(2L, page.get(2).getTime());
+        Assert.assertEquals(3L, page.get(3).getTime());
+    }
+
+    @Test
+    public void testStatusChange() throws Exception {
+        service.saveTransactionInfo(address, info(1, 10, TransactionInfo.CONFIRMED));
+        service.saveTransactionInfo(address, info(2, 0, TransactionInfo.UNCONFIRMED));
+        Assert.assertEquals(2L, service.getTransactionInfoListByAddress(address).get(0).getTime());
+
+        // 确认后记录移动到对应的高度，原来的记录被删除
+        service.saveTransactionInfo(address, info(2, 11, TransactionInfo.CONFIRMED));
+        List<TransactionInfoPo> list = service.getTransactionInfoListByAddress(address);
+        Assert.assertEquals(2, list.size());
+        Assert.assertEquals(TransactionInfo.CONFIRMED, list.get(0).getStatus());
+        Assert.assertEquals(11L, list.get(0).getBlockHeight());
+
+        Assert.assertTrue(service.deleteTransactionInfo(address, hash(2)).isSuccess());
+        list = service.getTransactionInfoListByAddress(address);
+        Assert.assertEquals(1, list.size());
+        Assert.assertEquals(1L, list.get(0).getTime());
+    }
+
+    @Test
+    public void testMigrate() throws Exception {
+        dbService.destroyArea(AccountLedgerStorageConstant.DB_NAME_ACCOUNT_LEDGER_TX_INDEX);
+        dbService.createArea(AccountLedgerStorageConstant.DB_NAME_ACCOUNT_LEDGER_TX_INDEX);
+        for (int i = 0; i < 5; i++) {
+            TransactionInfoPo po = info(i, i, TransactionInfo.CONFIRMED);
+            byte[] key = new byte[address.length + po.getTxHash().size()];
+            System.arraycopy(address, 0, key, 0, address.length);
+            System.arraycopy(po.getTxHash().serialize(), 0, key, address.length, po.getTxHash().size());
+            dbService.put(AccountLedgerStorageConstant.DB_NAME_ACCOUNT_LEDGER_TX_INDEX, key, po.serialize());
+        }
+        service.afterPropertiesSet();
+        List<TransactionInfoPo> list = service.getTransactionInfoListByAddress(address);
+        Assert.assertEquals(5, list.size());
+        Assert.assertEquals(4L, list.get(0).getTime());
+        Assert.assertEquals(16, dbService.keyList(AccountLedgerStorageConstant.DB_NAME_ACCOUNT_LEDGER_TX_INDEX).size());
+
+        service.saveTransactionInfo(address, info(4, 4, TransactionInfo.CONFIRMED));
+        Assert.assertEquals(5, service.getTransactionInfoListByAddress(address).size());
+    }
+
+    @Test
+    public void testPagingLongHistory() throws Exception {
+        int count = 10000;
+        for (int i = 0; i < count; i++) {
+            service.saveTransactionInfo(address, info(i, i, TransactionInfo.CONFIRMED));
+        }
+
+        List<TransactionInfoPo> page = service.getTransactionInfoList(address, null, 20, false, null);
+        Assert.assertEquals(count - 1L, page.get(0).getTime());
+
+        List<TransactionInfoPo> reversePage = service.getTransactionInfoList(address, page.get(19).getSortKey(), 20, true, null);
+        Assert.assertEquals(count - 19L, reversePage.get(0).getTime());
+
+        List<TransactionInfoPo> all = service.getTransactionInfoListByAddress(address);
+        Assert.assertEquals(count, all.size());
+    }
+
+    private TransactionInfoPo info(int id, long height, byte status) {
+        TransactionInfoPo po = new TransactionInfoPo();
+        po.setTxHash(hash(id));
+        po.setBlockHeight(height);
+        po.setTime(id);
+        po.setAddresses(address);
+        po.setTxType(2);
+        po.setStatus(status);
+        return po;
+    }
+
+    private static NulsDigestData hash(int id) {
+        return NulsDigestData.calcDigestData(ByteBuffer.allocate(4).putInt(id).array());
+    }
+
+    private static byte[] address(int i) {
+        return ByteBuffer.allocate(23).put((byte) 1).putInt(i).array();
+    }
+}
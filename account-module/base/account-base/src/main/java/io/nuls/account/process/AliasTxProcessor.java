@@ -38,9 +38,11 @@ import io.nuls.kernel.lite.annotation.Autowired;
 import io.nuls.kernel.lite.annotation.Component;
 import io.nuls.kernel.model.Result;
 import io.nuls.kernel.model.Transaction;
+import io.nuls.kernel.processor.ConflictKey;
 import io.nuls.kernel.processor.TransactionProcessor;
 import io.nuls.kernel.validate.ValidateResult;
 
+import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
@@ -53,6 +55,10 @@ import java.util.Set;
 @Component
 public class AliasTxProcessor implements TransactionProcessor<AliasTransaction> {
 
+    private static final String ALIAS_KEY_PREFIX = "alias:";
+
+    private static final String ADDRESS_KEY_PREFIX = "alias-address:";
+
     @Autowired
     private AliasService aliasService;
 
@@ -111,4 +117,20 @@ public class AliasTxProcessor implements TransactionProcessor<AliasTransaction>
         }
         return ValidateResult.getSuccessResult();
     }
+
+    /**
+     * 别名和设置别名的账户都只能出现一次
+     * The alias and the account setting it can only appear once.
+     */
+    @Override
+    public List<ConflictKey> getConflictKeys(Transaction tx) {
+        if (tx.getType() != AccountConstant.TX_TYPE_ACCOUNT_ALIAS) {
+            return null;
+        }
+        Alias alias = ((AliasTransaction) tx).getTxData();
+        List<ConflictKey> keys = new ArrayList<>();
+        keys.add(ConflictKey.exclusive(ALIAS_KEY_PREFIX + alias.getAlias(), AccountErrorCode.ALIAS_CONFLICT));
+        keys.add(ConflictKey.exclusive(ADDRESS_KEY_PREFIX + Hex.encode(alias.getAddress()), AccountErrorCode.ACCOUNT_ALREADY_SET_ALIAS));
+        return keys;
+    }
 }
@@ -30,6 +30,7 @@ import io.nuls.kernel.exception.NulsException;
 import io.nuls.kernel.model.BaseNulsData;
 import io.nuls.kernel.utils.NulsByteBuffer;
 import io.nuls.kernel.utils.NulsOutputStreamBuffer;
+import io.nuls.kernel.utils.SerializeUtils;
 
 import java.io.IOException;
 
@@ -73,16 +74,21 @@ public class AliasPo extends BaseNulsData {
 
     @Override
     protected void serializeToStream(NulsOutputStreamBuffer stream) throws IOException {
-
+        stream.writeBytesWithLength(address);
+        stream.writeString(alias);
     }
 
     @Override
     public void parse(NulsByteBuffer byteBuffer) throws NulsException {
-
+        this.address = byteBuffer.readByLengthByte();
+        this.alias = byteBuffer.readString();
     }
 
     @Override
     public int size() {
-        return 0;
+        int size = 0;
+        size += SerializeUtils.sizeOfBytes(address);
+        size += SerializeUtils.sizeOfString(alias);
+        return size;
     }
 }
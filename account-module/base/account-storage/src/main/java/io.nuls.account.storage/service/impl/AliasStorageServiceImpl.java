@@ -29,6 +29,8 @@ import io.nuls.account.storage.constant.AccountStorageConstant;
 import io.nuls.account.storage.po.AliasPo;
 import io.nuls.account.storage.service.AliasStorageService;
 import io.nuls.core.tools.log.Log;
+import io.nuls.db.codec.ModelCodecs;
+import io.nuls.db.codec.NulsDataCodec;
 import io.nuls.db.constant.DBErrorCode;
 import io.nuls.db.service.DBService;
 import io.nuls.kernel.cfg.NulsConfig;
@@ -57,6 +59,9 @@ public class AliasStorageServiceImpl implements AliasStorageService, Initializin
 
     @Override
     public void afterPropertiesSet() throws NulsException {
+        // 别名列表在别名交易验证时整体读取，使用自身的序列化格式代替protostuff反射
+        // The alias list is read as a whole when alias transactions are verified, so it uses its own serialization instead of protostuff reflection.
+        ModelCodecs.register(AliasPo.class, new NulsDataCodec<>(AliasPo::new));
         Result result = this.dbService.createArea(AccountStorageConstant.DB_NAME_ACCOUNT_ALIAS);
         if (result.isFailed() && !DBErrorCode.DB_AREA_EXIST.equals(result.getErrorCode())) {
             throw new NulsRuntimeException(result.getErrorCode());
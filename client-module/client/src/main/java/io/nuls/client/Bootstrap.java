@@ -48,6 +48,7 @@ import io.nuls.kernel.thread.manager.TaskManager;
 import io.nuls.network.manager.ConnectionManager;
 import io.nuls.network.model.Node;
 import io.nuls.network.service.NetworkService;
+import io.nuls.protocol.base.cache.TransactionDuplicateRemoval;
 
 import java.io.File;
 import java.io.UnsupportedEncodingException;
@@ -143,7 +144,7 @@ public class Bootstrap {
                 Log.info("-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-  netTime : " + (DateUtil.convertDate(new Date(TimeService.currentTimeMillis()))));
                 Block bestBlock = NulsContext.getInstance().getBestBlock();
                 Collection<Node> nodes = NulsContext.getServiceBean(NetworkService.class).getAvailableNodes();
-                Log.info("bestHeight:" + bestBlock.getHeader().getHeight() + " , txCount : " + bestBlock.getHeader().getTxCount() + " , tx memory pool count : " + TxMemoryPool.getInstance().size() + " - " + TxMemoryPool.getInstance().getOrphanPoolSize() + " , hash : " + bestBlock.getHeader().getHash() + ",nodeCount:" + nodes.size());
+                Log.info("bestHeight:" + bestBlock.getHeader().getHeight() + " , txCount : " + bestBlock.getHeader().getTxCount() + " , tx memory pool count : " + TxMemoryPool.getInstance().size() + " - " + TxMemoryPool.getInstance().getOrphanPoolSize() + " , tx filter fpp : " + TransactionDuplicateRemoval.getFalsePositiveRate() + " , hash : " + bestBlock.getHeader().getHash() + ",nodeCount:" + nodes.size());
                 map.clear();
                 for (Node node : nodes) {
                     List<Node> ips = map.get(node.getBestBlockHash());
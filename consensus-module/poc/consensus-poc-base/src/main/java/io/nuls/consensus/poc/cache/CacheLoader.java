@@ -34,9 +34,11 @@ import io.nuls.consensus.poc.protocol.util.AgentComparator;
 import io.nuls.consensus.poc.protocol.util.DepositComparator;
 import io.nuls.consensus.poc.protocol.util.PoConvertUtil;
 import io.nuls.consensus.poc.storage.po.AgentPo;
+import io.nuls.consensus.poc.storage.po.CheckpointPo;
 import io.nuls.consensus.poc.storage.po.DepositPo;
 import io.nuls.consensus.poc.storage.po.PunishLogPo;
 import io.nuls.consensus.poc.storage.service.AgentStorageService;
+import io.nuls.consensus.poc.storage.service.CheckpointStorageService;
 import io.nuls.consensus.poc.storage.service.DepositStorageService;
 import io.nuls.consensus.poc.storage.utils.PunishLogComparator;
 import io.nuls.kernel.context.NulsContext;
@@ -62,6 +64,7 @@ public class CacheLoader {
     private BlockService blockService = NulsContext.getServiceBean(BlockService.class);
     private AgentStorageService agentStorageService = NulsContext.getServiceBean(AgentStorageService.class);
     private DepositStorageService depositStorageService = NulsContext.getServiceBean(DepositStorageService.class);
+    private CheckpointStorageService checkpointStorageService = NulsContext.getServiceBean(CheckpointStorageService.class);
 
 
     /**
@@ -141,6 +144,32 @@ public class CacheLoader {
         return blockHeaderList;
     }
 
+    public BlockHeader loadBestBlockHeader() {
+        return blockService.getBestBlockHeader().getData();
+    }
+
+    public BlockHeader loadBlockHeader(long height) {
+        return blockService.getBlockHeader(height).getData();
+    }
+
+    public Block loadBlock(long height) {
+        return blockService.getBlock(height).getData();
+    }
+
+    /**
+     * 加载最新的共识缓存检查点
+     * Load the latest consensus cache checkpoint.
+     *
+     * @return 检查点，不存在时返回null/checkpoint, null if there is none
+     */
+    public CheckpointPo loadCheckpoint() {
+        return checkpointStorageService.get();
+    }
+
+    public boolean saveCheckpoint(CheckpointPo checkpointPo) {
+        return checkpointStorageService.save(checkpointPo);
+    }
+
     public List<Agent> loadAgents() {
 
         List<Agent> agentList = new ArrayList<>();
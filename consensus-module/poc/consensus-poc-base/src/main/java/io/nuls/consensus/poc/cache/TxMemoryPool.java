@@ -26,135 +26,541 @@
 
 package io.nuls.consensus.poc.cache;
 
-import io.nuls.cache.LimitHashMap;
+import io.nuls.kernel.model.Coin;
 import io.nuls.kernel.model.NulsDigestData;
 import io.nuls.kernel.model.Transaction;
+import io.nuls.ledger.util.LedgerUtil;
 
-import java.util.ArrayList;
-import java.util.Iterator;
-import java.util.List;
-import java.util.Queue;
-import java.util.concurrent.LinkedBlockingDeque;
+import java.util.*;
 
 /**
  * 交易 缓存
+ * 以交易hash为索引，维护已花费输出到花费交易的索引用于直接拒绝双花，按祖先交易包的手续费率排序出块，
+ * 按字节数限制内存占用并淘汰手续费率最低的交易，孤儿交易在缺失的父交易到达时被释放重新验证
+ * Transaction cache.
+ * Indexed by tx hash, keeps a spent outpoint to spender index to reject double spends directly, hands out transactions
+ * by the fee rate of their ancestor package, bounds the memory by bytes evicting the lowest fee rate transactions,
+ * and releases orphans for re-verification when their missing parent arrives.
  *
  * @author ln
  * @date 2018/4/13
  */
 public final class TxMemoryPool {
 
-    private final static TxMemoryPool INSTANCE = new TxMemoryPool();
+    /**
+     * 内存池交易的最大总字节数
+     * The max total bytes of the transactions in the pool.
+     */
+    public static final long MAX_POOL_BYTES = 256L * 1024 * 1024;
 
-    private Queue<Transaction> txQueue;
+    /**
+     * 孤儿交易的最大数量
+     * The max count of orphan transactions.
+     */
+    public static final int MAX_ORPHAN_COUNT = 200000;
 
-    private LimitHashMap<NulsDigestData, Transaction> orphanContainer;
+    /**
+     * 系统交易优先，之后按祖先交易包手续费率从高到低，相同时先到先得
+     * System transactions first, then by ancestor package fee rate from high to low, first come first served on ties.
+     */
+    private static final Comparator<TxEntry> PACKAGE_COMPARATOR = new Comparator<TxEntry>() {
+        @Override
+        public int compare(TxEntry o1, TxEntry o2) {
+            if (o1.systemTx != o2.systemTx) {
+                return o1.systemTx ? -1 : 1;
+            }
+            int result = Double.compare(o2.ancestorFeeRate(), o1.ancestorFeeRate());
+            if (result != 0) {
+                return result;
+            }
+            return Long.compare(o1.sequence, o2.sequence);
+        }
+    };
 
-    private TxMemoryPool() {
-        txQueue = new LinkedBlockingDeque<>();
+    /**
+     * 系统交易最后淘汰，之后按自身手续费率从低到高，相同时后到的先淘汰
+     * System transactions last, then by own fee rate from low to high, the latest first on ties.
+     */
+    private static final Comparator<TxEntry> EVICT_COMPARATOR = new Comparator<TxEntry>() {
+        @Override
+        public int compare(TxEntry o1, TxEntry o2) {
+            if (o1.systemTx != o2.systemTx) {
+                return o1.systemTx ? 1 : -1;
+            }
+            int result = Double.compare(o1.feeRate(), o2.feeRate());
+            if (result != 0) {
+                return result;
+            }
+            return Long.compare(o2.sequence, o1.sequence);
+        }
+    };
+
+    private final static TxMemoryPool INSTANCE = new TxMemoryPool(MAX_POOL_BYTES, MAX_ORPHAN_COUNT);
+
+    private final long maxPoolBytes;
 
-//        orphanContainer = new CacheMap<>("orphan-txs", 256, NulsDigestData.class, TxContainer.class, 3600, 0, null);
-        this.orphanContainer = new LimitHashMap(200000);
+    private final int maxOrphanCount;
+
+    /**
+     * 交易hash -> 内存池条目
+     * tx hash -> pool entry
+     */
+    private final Map<String, TxEntry> entryMap = new HashMap<>();
+
+    /**
+     * 已花费的输出 -> 花费它的内存池条目
+     * spent outpoint -> the pool entry spending it
+     */
+    private final Map<String, TxEntry> spenderMap = new HashMap<>();
+
+    /**
+     * 按祖先交易包手续费率从高到低排序，出块时从这里取交易
+     * Ordered by ancestor package fee rate from high to low, packing takes transactions from here.
+     */
+    private final TreeSet<TxEntry> packageSet = new TreeSet<>(PACKAGE_COMPARATOR);
+
+    /**
+     * 按自身手续费率从低到高排序，超出字节限制时从这里淘汰
+     * Ordered by own fee rate from low to high, eviction takes transactions from here when over the byte limit.
+     */
+    private final TreeSet<TxEntry> evictSet = new TreeSet<>(EVICT_COMPARATOR);
+
+    private long poolBytes;
+
+    private long sequence;
+
+    /**
+     * 孤儿交易按接收顺序保存，便于按接收时间淘汰
+     * Orphans in the order they were received, so they can be expired by the receive time.
+     */
+    private final LinkedHashMap<String, OrphanEntry> orphanMap = new LinkedHashMap<>();
+
+    /**
+     * 缺失的父交易hash -> 等待它的孤儿交易hash
+     * missing parent tx hash -> hashes of the orphans waiting for it
+     */
+    private final Map<String, Set<String>> waitingMap = new HashMap<>();
+
+    /**
+     * 父交易已到达、等待重新验证的孤儿交易
+     * Orphans whose parent has arrived, waiting to be verified again.
+     */
+    private final List<Transaction> resolvedOrphanList = new ArrayList<>();
+
+    TxMemoryPool(long maxPoolBytes, int maxOrphanCount) {
+        this.maxPoolBytes = maxPoolBytes;
+        this.maxOrphanCount = maxOrphanCount;
     }
 
     public static TxMemoryPool getInstance() {
         return INSTANCE;
     }
 
+    /**
+     * 内存池按手续费率排序，放回的交易同样按优先级排序，与add相同
+     * The pool is ordered by fee rate, a transaction put back is ordered by its priority as well, same as add.
+     */
     public boolean addInFirst(Transaction tx, boolean isOrphan) {
-        try {
-            if (tx == null) {
+        return add(tx, isOrphan);
+    }
+
+    /**
+     * 加入一笔交易，已存在、与内存池中的交易双花或者因手续费率最低被淘汰时返回false
+     * 加入的交易若是某些孤儿交易缺失的父交易，这些孤儿交易会被释放，通过{@link #takeResolvedOrphans()}获取
+     * Add a transaction, false is returned when it already exists, double spends a transaction in the pool,
+     * or is evicted because its fee rate is the lowest.
+     * Orphans missing the added transaction as parent are released, see {@link #takeResolvedOrphans()}.
+     *
+     * @param tx       交易/transaction
+     * @param isOrphan 是否孤儿交易/whether the transaction is an orphan
+     * @return boolean
+     */
+    public synchronized boolean add(Transaction tx, boolean isOrphan) {
+        if (tx == null) {
+            return false;
+        }
+        String hash = tx.getHash().getDigestHex();
+        if (entryMap.containsKey(hash)) {
+            return false;
+        }
+        if (isOrphan) {
+            return addOrphan(hash, tx);
+        }
+        List<Coin> froms = getFroms(tx);
+        for (Coin from : froms) {
+            if (spenderMap.containsKey(LedgerUtil.asString(from.getOwner()))) {
                 return false;
             }
-            //check Repeatability
-            if (isOrphan) {
-                NulsDigestData hash = tx.getHash();
-                orphanContainer.put(hash, tx);
-            } else {
-                ((LinkedBlockingDeque) txQueue).addFirst(tx);
+        }
+
+        TxEntry entry = new TxEntry(tx, hash, sequence++);
+        for (Coin from : froms) {
+            TxEntry parent = entryMap.get(LedgerUtil.getTxHash(from.getOwner()));
+            if (parent != null && entry.parents.add(parent)) {
+                parent.children.add(entry);
             }
-            return true;
-        } finally {
         }
+        for (TxEntry ancestor : collect(entry.parents, true)) {
+            entry.ancestorFee += ancestor.fee;
+            entry.ancestorSize += ancestor.size;
+        }
+        entryMap.put(hash, entry);
+        for (Coin from : froms) {
+            spenderMap.put(LedgerUtil.asString(from.getOwner()), entry);
+        }
+        packageSet.add(entry);
+        evictSet.add(entry);
+        poolBytes += entry.size;
+
+        removeOrphanEntry(hash);
+        while (poolBytes > maxPoolBytes && !evictSet.isEmpty()) {
+            evict(evictSet.first());
+        }
+        if (!entryMap.containsKey(hash)) {
+            return false;
+        }
+        releaseOrphans(hash);
+        return true;
     }
 
-    public boolean add(Transaction tx, boolean isOrphan) {
-        try {
-            if (tx == null) {
-                return false;
-            }
-            //check Repeatability
-            if (isOrphan) {
-                NulsDigestData hash = tx.getHash();
-                orphanContainer.put(hash, tx);
+    /**
+     * 取出一笔交易，优先取祖先交易包手续费率最高的交易，父交易仍在内存池中时先取出父交易，取出后从内存池中移除
+     * Get a transaction, the one with the highest ancestor package fee rate first, its parent first when the parent is still in the pool.
+     * The transaction is removed from the pool.
+     *
+     * @return Transaction
+     */
+    public synchronized Transaction get() {
+        if (packageSet.isEmpty()) {
+            return null;
+        }
+        TxEntry entry = packageSet.first();
+        while (!entry.parents.isEmpty()) {
+            entry = entry.parents.iterator().next();
+        }
+        removeEntry(entry);
+        return entry.tx;
+    }
+
+    public synchronized List<Transaction> getAll() {
+        List<Transaction> txs = new ArrayList<>(packageSet.size());
+        for (TxEntry entry : packageSet) {
+            txs.add(entry.tx);
+        }
+        return txs;
+    }
+
+    public synchronized List<Transaction> getAllOrphan() {
+        List<Transaction> txs = new ArrayList<>(orphanMap.size());
+        for (OrphanEntry orphan : orphanMap.values()) {
+            txs.add(orphan.tx);
+        }
+        return txs;
+    }
+
+    /**
+     * 移除一笔交易，在内存池中时连同依赖它的后代交易一起移除
+     * Remove a transaction, together with its descendants when it is in the pool.
+     */
+    public synchronized boolean remove(NulsDigestData hash) {
+        String key = hash.getDigestHex();
+        TxEntry entry = entryMap.get(key);
+        if (entry != null) {
+            evict(entry);
+        }
+        removeOrphanEntry(key);
+        return true;
+    }
+
+    /**
+     * 区块确认后移除其中的交易，与它们双花的内存池交易同样被移除，等待它们的孤儿交易被释放
+     * Remove the transactions confirmed by a block, the pool transactions double spending them are removed as well,
+     * and the orphans waiting for them are released.
+     *
+     * @param txs 区块中的交易/transactions of the block
+     */
+    public synchronized void removeConfirmed(List<Transaction> txs) {
+        for (Transaction tx : txs) {
+            String hash = tx.getHash().getDigestHex();
+            TxEntry entry = entryMap.get(hash);
+            if (entry != null) {
+                // 确认的交易的祖先交易必然也已确认，从最早的祖先开始移除
+                // the ancestors of a confirmed transaction are confirmed as well, remove from the earliest one
+                TxEntry root;
+                do {
+                    root = entry;
+                    while (!root.parents.isEmpty()) {
+                        root = root.parents.iterator().next();
+                    }
+                    removeEntry(root);
+                } while (root != entry);
             } else {
-                txQueue.offer(tx);
+                for (Coin from : getFroms(tx)) {
+                    TxEntry spender = spenderMap.get(LedgerUtil.asString(from.getOwner()));
+                    if (spender != null) {
+                        evict(spender);
+                    }
+                }
             }
-            return true;
-        } finally {
+            removeOrphanEntry(hash);
+            releaseOrphans(hash);
         }
     }
 
+    public synchronized boolean exist(NulsDigestData hash) {
+        String key = hash.getDigestHex();
+        return entryMap.containsKey(key) || orphanMap.containsKey(key);
+    }
+
+    public synchronized void clear() {
+        entryMap.clear();
+        spenderMap.clear();
+        packageSet.clear();
+        evictSet.clear();
+        poolBytes = 0;
+        orphanMap.clear();
+        waitingMap.clear();
+        resolvedOrphanList.clear();
+    }
+
+    public synchronized int size() {
+        return entryMap.size();
+    }
+
+    public synchronized int getPoolSize() {
+        return entryMap.size();
+    }
+
+    public synchronized long getPoolBytes() {
+        return poolBytes;
+    }
+
+    public synchronized int getOrphanPoolSize() {
+        return orphanMap.size();
+    }
+
+    public synchronized void removeOrphan(NulsDigestData hash) {
+        removeOrphanEntry(hash.getDigestHex());
+    }
+
     /**
-     * Get a TxContainer, the first TxContainer received, removed from the memory pool after acquisition
-     * <p>
-     * 获取一笔交易，最先收到的交易，获取之后从内存池中移除
+     * 取出父交易已到达的孤儿交易，由调用者重新验证
+     * Take the orphans whose parent has arrived, the caller verifies them again.
      *
-     * @return TxContainer
+     * @return List<Transaction>
      */
-    public Transaction get() {
-        return txQueue.poll();
+    public synchronized List<Transaction> takeResolvedOrphans() {
+        if (resolvedOrphanList.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<Transaction> list = new ArrayList<>(resolvedOrphanList);
+        resolvedOrphanList.clear();
+        return list;
     }
 
-    public List<Transaction> getAll() {
-        List<Transaction> txs = new ArrayList<>();
-        Iterator<Transaction> it = txQueue.iterator();
+    /**
+     * 移除接收时间早于指定时间的孤儿交易
+     * Remove the orphans received before the given time.
+     *
+     * @param receiveTime 接收时间/receive time
+     * @return 移除的数量/removed count
+     */
+    public synchronized int removeExpiredOrphans(long receiveTime) {
+        int count = 0;
+        Iterator<OrphanEntry> it = orphanMap.values().iterator();
         while (it.hasNext()) {
-            txs.add(it.next());
+            OrphanEntry orphan = it.next();
+            if (orphan.receiveTime >= receiveTime) {
+                break;
+            }
+            it.remove();
+            unlinkOrphan(orphan);
+            count++;
         }
-        return txs;
+        return count;
+    }
+
+    private boolean addOrphan(String hash, Transaction tx) {
+        if (orphanMap.containsKey(hash)) {
+            return true;
+        }
+        OrphanEntry orphan = new OrphanEntry(tx, hash, System.currentTimeMillis());
+        for (Coin from : getFroms(tx)) {
+            String parentHash = LedgerUtil.getTxHash(from.getOwner());
+            if (parentHash == null || !orphan.parentHashes.add(parentHash)) {
+                continue;
+            }
+            Set<String> waiting = waitingMap.get(parentHash);
+            if (waiting == null) {
+                waiting = new HashSet<>();
+                waitingMap.put(parentHash, waiting);
+            }
+            waiting.add(hash);
+        }
+        orphanMap.put(hash, orphan);
+        if (orphanMap.size() > maxOrphanCount) {
+            Iterator<OrphanEntry> it = orphanMap.values().iterator();
+            OrphanEntry eldest = it.next();
+            it.remove();
+            unlinkOrphan(eldest);
+        }
+        return true;
     }
 
-    public List<Transaction> getAllOrphan() {
-        return new ArrayList<>(orphanContainer.values());
+    private void releaseOrphans(String parentHash) {
+        Set<String> waiting = waitingMap.remove(parentHash);
+        if (waiting == null) {
+            return;
+        }
+        for (String hash : waiting) {
+            OrphanEntry orphan = orphanMap.remove(hash);
+            if (orphan != null) {
+                unlinkOrphan(orphan);
+                resolvedOrphanList.add(orphan.tx);
+            }
+        }
     }
 
-    public boolean remove(NulsDigestData hash) {
-//        TxContainer obj = container.remove(hash);
-//        if (obj != null) {
-//            txHashQueue.remove(hash);
-//        } else {
-        orphanContainer.remove(hash);
-//        }
-        return true;
+    private void removeOrphanEntry(String hash) {
+        OrphanEntry orphan = orphanMap.remove(hash);
+        if (orphan != null) {
+            unlinkOrphan(orphan);
+        }
     }
 
-    public boolean exist(NulsDigestData hash) {
-        return /*container.containsKey(hash) || */orphanContainer.containsKey(hash);
+    private void unlinkOrphan(OrphanEntry orphan) {
+        for (String parentHash : orphan.parentHashes) {
+            Set<String> waiting = waitingMap.get(parentHash);
+            if (waiting != null && waiting.remove(orphan.hash) && waiting.isEmpty()) {
+                waitingMap.remove(parentHash);
+            }
+        }
+    }
+
+    /**
+     * 移除一笔没有内存池父交易的交易，后代交易的祖先统计随之扣减
+     * Remove a transaction without parents in the pool, the ancestor stats of its descendants are reduced.
+     */
+    private void removeEntry(TxEntry entry) {
+        detach(entry);
+        for (TxEntry child : entry.children) {
+            child.parents.remove(entry);
+        }
+        for (TxEntry descendant : collect(entry.children, false)) {
+            packageSet.remove(descendant);
+            descendant.ancestorFee -= entry.fee;
+            descendant.ancestorSize -= entry.size;
+            packageSet.add(descendant);
+        }
     }
 
-    public void clear() {
-        try {
-            txQueue.clear();
+    /**
+     * 淘汰一笔交易及其所有后代交易
+     * Evict a transaction with all its descendants.
+     */
+    private void evict(TxEntry entry) {
+        Set<TxEntry> removed = collect(Collections.singleton(entry), false);
+        for (TxEntry item : removed) {
+            detach(item);
+            for (TxEntry parent : item.parents) {
+                parent.children.remove(item);
+            }
+        }
+    }
 
-            orphanContainer.clear();
-        } finally {
+    private void detach(TxEntry entry) {
+        packageSet.remove(entry);
+        evictSet.remove(entry);
+        entryMap.remove(entry.hash);
+        for (Coin from : getFroms(entry.tx)) {
+            spenderMap.remove(LedgerUtil.asString(from.getOwner()));
         }
+        poolBytes -= entry.size;
     }
 
-    public int size() {
-        return txQueue.size();
+    /**
+     * 收集给定条目及其所有祖先或后代
+     * Collect the given entries with all their ancestors or descendants.
+     */
+    private static Set<TxEntry> collect(Collection<TxEntry> start, boolean ancestors) {
+        Set<TxEntry> result = new HashSet<>();
+        Deque<TxEntry> stack = new ArrayDeque<>(start);
+        while (!stack.isEmpty()) {
+            TxEntry entry = stack.pop();
+            if (result.add(entry)) {
+                stack.addAll(ancestors ? entry.parents : entry.children);
+            }
+        }
+        return result;
     }
 
-    public int getPoolSize() {
-        return txQueue.size();
+    private static List<Coin> getFroms(Transaction tx) {
+        if (tx.getCoinData() == null || tx.getCoinData().getFrom() == null) {
+            return Collections.emptyList();
+        }
+        return tx.getCoinData().getFrom();
     }
 
-    public int getOrphanPoolSize() {
-        return orphanContainer.size();
+    private static final class TxEntry {
+
+        private final Transaction tx;
+
+        private final String hash;
+
+        private final long sequence;
+
+        private final boolean systemTx;
+
+        private final long fee;
+
+        private final long size;
+
+        /**
+         * 自身及所有仍在内存池中的祖先交易的手续费与字节数之和
+         * Sum of the fee and size of itself and all its ancestors still in the pool.
+         */
+        private long ancestorFee;
+
+        private long ancestorSize;
+
+        private final Set<TxEntry> parents = new HashSet<>();
+
+        private final Set<TxEntry> children = new HashSet<>();
+
+        private TxEntry(Transaction tx, String hash, long sequence) {
+            this.tx = tx;
+            this.hash = hash;
+            this.sequence = sequence;
+            this.systemTx = tx.isSystemTx();
+            this.fee = tx.getFee().getValue();
+            this.size = Math.max(1, tx.size());
+            this.ancestorFee = fee;
+            this.ancestorSize = size;
+        }
+
+        private double feeRate() {
+            return (double) fee / size;
+        }
+
+        private double ancestorFeeRate() {
+            return (double) ancestorFee / ancestorSize;
+        }
     }
 
-    public void removeOrphan(NulsDigestData hash) {
-        this.orphanContainer.remove(hash);
+    private static final class OrphanEntry {
+
+        private final Transaction tx;
+
+        private final String hash;
+
+        private final long receiveTime;
+
+        private final Set<String> parentHashes = new HashSet<>();
+
+        private OrphanEntry(Transaction tx, String hash, long receiveTime) {
+            this.tx = tx;
+            this.hash = hash;
+            this.receiveTime = receiveTime;
+        }
     }
 }
@@ -74,6 +74,18 @@ public interface PocConsensusConstant {
      */
     int INIT_BLOCKS_COUNT = 10;
 
+    /**
+     * The master chain writes a consensus cache checkpoint every specified number of blocks
+     * 主链每隔指定数量的区块写入一次共识缓存检查点
+     */
+    int CHECKPOINT_INTERVAL_BLOCKS = 100;
+
+    /**
+     * When the checkpoint is more than the specified number of blocks behind the best block, the caches are loaded from storage instead
+     * 检查点落后最新区块超过指定数量时，不再重放而是从存储中加载缓存
+     */
+    int CHECKPOINT_MAX_REPLAY_BLOCKS = 10000;
+
     /**
      * Consensus memory expiration data cleaning interval, in milliseconds
      * 共识内存过期数据清理间隔时间，单位毫秒
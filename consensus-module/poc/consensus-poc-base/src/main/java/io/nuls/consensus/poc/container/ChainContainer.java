@@ -45,6 +45,7 @@ import io.nuls.core.tools.log.BlockLog;
 import io.nuls.core.tools.log.Log;
 import io.nuls.kernel.constant.KernelErrorCode;
 import io.nuls.kernel.context.NulsContext;
+import io.nuls.kernel.exception.NulsRuntimeException;
 import io.nuls.kernel.func.TimeService;
 import io.nuls.kernel.model.*;
 import io.nuls.kernel.utils.AddressTool;
@@ -79,8 +80,8 @@ public class ChainContainer implements Cloneable {
         List<Block> blockList = chain.getBlockList();
         List<BlockHeader> blockHeaderList = chain.getBlockHeaderList();
 
-        List<Agent> agentList = chain.getAgentList();
-        List<Deposit> depositList = chain.getDepositList();
+        PersistentList<Agent> agentList = chain.getAgentList();
+        PersistentList<Deposit> depositList = chain.getDepositList();
         List<PunishLogPo> yellowList = chain.getYellowPunishList();
         List<PunishLogPo> redList = chain.getRedPunishList();
 
@@ -122,13 +123,12 @@ public class ChainContainer implements Cloneable {
 
                 NulsDigestData joinHash = cancelDepositTx.getTxData().getJoinTxHash();
 
-                Iterator<Deposit> it = depositList.iterator();
-                while (it.hasNext()) {
-                    Deposit deposit = it.next();
+                for (int i = 0; i < depositList.size(); i++) {
+                    Deposit deposit = depositList.get(i);
                     cancelDepositTx.getTxData().setAddress(deposit.getAddress());
                     if (deposit.getTxHash().equals(joinHash)) {
                         if (deposit.getDelHeight() == -1L) {
-                            deposit.setDelHeight(height);
+                            depositList.getForUpdate(i, ChainContainer::copyDeposit).setDelHeight(height);
                         }
                         break;
                     }
@@ -139,21 +139,19 @@ public class ChainContainer implements Cloneable {
 
                 NulsDigestData agentHash = stopAgentTx.getTxData().getCreateTxHash();
 
-                Iterator<Deposit> it = depositList.iterator();
-                while (it.hasNext()) {
-                    Deposit deposit = it.next();
+                for (int i = 0; i < depositList.size(); i++) {
+                    Deposit deposit = depositList.get(i);
                     if (deposit.getAgentHash().equals(agentHash) && deposit.getDelHeight() == -1L) {
-                        deposit.setDelHeight(height);
+                        depositList.getForUpdate(i, ChainContainer::copyDeposit).setDelHeight(height);
                     }
                 }
 
-                Iterator<Agent> ita = agentList.iterator();
-                while (ita.hasNext()) {
-                    Agent agent = ita.next();
+                for (int i = 0; i < agentList.size(); i++) {
+                    Agent agent = agentList.get(i);
                     stopAgentTx.getTxData().setAddress(agent.getAgentAddress());
                     if (agent.getTxHash().equals(agentHash)) {
                         if (agent.getDelHeight() == -1L) {
-                            agent.setDelHeight(height);
+                            agentList.getForUpdate(i, ChainContainer::copyAgent).setDelHeight(height);
                         }
                         break;
                     }
@@ -168,22 +166,24 @@ public class ChainContainer implements Cloneable {
                 po.setTime(tx.getTime());
                 po.setType(PunishType.RED.getCode());
                 redList.add(po);
-                for (Agent agent : agentList) {
+                for (int i = 0; i < agentList.size(); i++) {
+                    Agent agent = agentList.get(i);
                     if (!Arrays.equals(agent.getAgentAddress(), po.getAddress())) {
                         continue;
                     }
                     if (agent.getDelHeight() > 0) {
                         continue;
                     }
-                    agent.setDelHeight(height);
-                    for (Deposit deposit : depositList) {
+                    agentList.getForUpdate(i, ChainContainer::copyAgent).setDelHeight(height);
+                    for (int j = 0; j < depositList.size(); j++) {
+                        Deposit deposit = depositList.get(j);
                         if (!deposit.getAgentHash().equals(agent.getTxHash())) {
                             continue;
                         }
                         if (deposit.getDelHeight() > 0) {
                             continue;
                         }
-                        deposit.setDelHeight(height);
+                        depositList.getForUpdate(j, ChainContainer::copyDeposit).setDelHeight(height);
                     }
                 }
             } else if (txType == ConsensusConstant.TX_TYPE_YELLOW_PUNISH) {
@@ -474,8 +474,8 @@ public class ChainContainer implements Cloneable {
         BlockHeader rollbackBlockHeader = blockHeaderList.remove(blockHeaderList.size() - 1);
 
         // update txs
-        List<Agent> agentList = chain.getAgentList();
-        List<Deposit> depositList = chain.getDepositList();
+        PersistentList<Agent> agentList = chain.getAgentList();
+        PersistentList<Deposit> depositList = chain.getDepositList();
         List<PunishLogPo> yellowList = chain.getYellowPunishList();
         List<PunishLogPo> redPunishList = chain.getRedPunishList();
 
@@ -485,7 +485,7 @@ public class ChainContainer implements Cloneable {
             Agent agent = agentList.get(i);
 
             if (agent.getDelHeight() == height) {
-                agent.setDelHeight(-1L);
+                agentList.getForUpdate(i, ChainContainer::copyAgent).setDelHeight(-1L);
             }
 
             if (agent.getBlockHeight() == height) {
@@ -497,7 +497,7 @@ public class ChainContainer implements Cloneable {
             Deposit deposit = depositList.get(i);
 
             if (deposit.getDelHeight() == height) {
-                deposit.setDelHeight(-1L);
+                depositList.getForUpdate(i, ChainContainer::copyDeposit).setDelHeight(-1L);
             }
 
             if (deposit.getBlockHeight() == height) {
@@ -560,41 +560,14 @@ public class ChainContainer implements Cloneable {
         newChain.setId(chainContainer.getChain().getId());
         newChain.setStartBlockHeader(chain.getStartBlockHeader());
         newChain.setEndBlockHeader(chain.getEndBlockHeader());
-        newChain.setBlockHeaderList(new ArrayList<>(chain.getBlockHeaderList()));
-        newChain.setBlockList(new ArrayList<>(chain.getBlockList()));
-
-        if (chain.getAgentList() != null) {
-            List<Agent> agentList = new ArrayList<>();
-
-            for (Agent agent : chain.getAgentList()) {
-                try {
-                    agentList.add(agent.clone());
-                } catch (CloneNotSupportedException e) {
-                    Log.error(e);
-                }
-            }
-
-            newChain.setAgentList(agentList);
-        }
-        if (chain.getDepositList() != null) {
-            List<Deposit> depositList = new ArrayList<>();
-
-            for (Deposit deposit : chain.getDepositList()) {
-                try {
-                    depositList.add(deposit.clone());
-                } catch (CloneNotSupportedException e) {
-                    Log.error(e);
-                }
-            }
-
-            newChain.setDepositList(depositList);
-        }
-        if (chain.getYellowPunishList() != null) {
-            newChain.setYellowPunishList(new ArrayList<>(chain.getYellowPunishList()));
-        }
-        if (chain.getRedPunishList() != null) {
-            newChain.setRedPunishList(new ArrayList<>(chain.getRedPunishList()));
-        }
+        // 与当前链共享所有列表，回滚和之后添加区块时只复制改动的部分
+        // Share all lists with the current chain, only the modified parts are copied when rolling back and adding blocks later.
+        newChain.setBlockHeaderList(chain.getBlockHeaderList());
+        newChain.setBlockList(chain.getBlockList());
+        newChain.setAgentList(chain.getAgentList());
+        newChain.setDepositList(chain.getDepositList());
+        newChain.setYellowPunishList(chain.getYellowPunishList());
+        newChain.setRedPunishList(chain.getRedPunishList());
         ChainContainer newChainContainer = new ChainContainer(newChain);
 
         // Bifurcation
@@ -655,6 +628,22 @@ public class ChainContainer implements Cloneable {
         return new ChainContainer(chain);
     }
 
+    private static Agent copyAgent(Agent agent) {
+        try {
+            return agent.clone();
+        } catch (CloneNotSupportedException e) {
+            throw new NulsRuntimeException(e);
+        }
+    }
+
+    private static Deposit copyDeposit(Deposit deposit) {
+        try {
+            return deposit.clone();
+        } catch (CloneNotSupportedException e) {
+            throw new NulsRuntimeException(e);
+        }
+    }
+
     public MeetingRound getCurrentRound() {
         return roundManager.getCurrentRound();
     }
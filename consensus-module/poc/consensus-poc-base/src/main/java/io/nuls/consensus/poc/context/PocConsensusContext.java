@@ -25,6 +25,7 @@
 
 package io.nuls.consensus.poc.context;
 
+import io.nuls.consensus.poc.manager.CacheManager;
 import io.nuls.consensus.poc.manager.ChainManager;
 
 /**
@@ -35,6 +36,8 @@ public class PocConsensusContext {
 
     private static ChainManager chainManager;
 
+    private static CacheManager cacheManager;
+
     public static ChainManager getChainManager() {
         return chainManager;
     }
@@ -42,4 +45,12 @@ public class PocConsensusContext {
     public static void setChainManager(ChainManager chainManager) {
         PocConsensusContext.chainManager = chainManager;
     }
+
+    public static CacheManager getCacheManager() {
+        return cacheManager;
+    }
+
+    public static void setCacheManager(CacheManager cacheManager) {
+        PocConsensusContext.cacheManager = cacheManager;
+    }
 }
\ No newline at end of file
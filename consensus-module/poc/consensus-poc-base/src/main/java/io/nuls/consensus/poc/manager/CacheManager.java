@@ -28,12 +28,22 @@ package io.nuls.consensus.poc.manager;
 
 import io.nuls.consensus.poc.cache.CacheLoader;
 import io.nuls.consensus.poc.constant.PocConsensusConstant;
+import io.nuls.consensus.poc.locker.Lockers;
+import io.nuls.consensus.poc.model.BlockExtendsData;
+import io.nuls.consensus.poc.model.PersistentList;
 import io.nuls.consensus.poc.protocol.entity.Agent;
 import io.nuls.consensus.poc.protocol.entity.Deposit;
 import io.nuls.consensus.poc.container.ChainContainer;
 import io.nuls.consensus.poc.model.Chain;
+import io.nuls.consensus.poc.protocol.util.AgentComparator;
+import io.nuls.consensus.poc.protocol.util.DepositComparator;
+import io.nuls.consensus.poc.protocol.util.PoConvertUtil;
+import io.nuls.consensus.poc.storage.po.AgentPo;
+import io.nuls.consensus.poc.storage.po.CheckpointPo;
+import io.nuls.consensus.poc.storage.po.DepositPo;
 import io.nuls.consensus.poc.storage.po.PunishLogPo;
 import io.nuls.consensus.poc.storage.service.PunishLogStorageService;
+import io.nuls.consensus.poc.storage.utils.PunishLogComparator;
 import io.nuls.core.tools.log.Log;
 import io.nuls.kernel.constant.KernelErrorCode;
 import io.nuls.kernel.context.NulsContext;
@@ -41,9 +51,9 @@ import io.nuls.kernel.exception.NulsException;
 import io.nuls.kernel.exception.NulsRuntimeException;
 import io.nuls.kernel.model.Block;
 import io.nuls.kernel.model.BlockHeader;
-import io.nuls.kernel.model.Transaction;
 
-import java.util.HashSet;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 /**
@@ -55,11 +65,45 @@ public class CacheManager {
 
     private CacheLoader cacheLoader = new CacheLoader();
 
+    /**
+     * 最近一次加载缓存的耗时，单位毫秒
+     * The time used by the latest cache load, in milliseconds.
+     */
+    private long loadTime;
+
+    /**
+     * 最近一次加载缓存是否由检查点恢复
+     * Whether the latest cache load was restored from the checkpoint.
+     */
+    private boolean loadedFromCheckpoint;
+
+    private long lastCheckpointHeight = -1L;
+
     public CacheManager(ChainManager chainManager) {
         this.chainManager = chainManager;
     }
 
     public void load() throws NulsException {
+        long start = System.currentTimeMillis();
+
+        Chain masterChain = loadFromCheckpoint();
+        loadedFromCheckpoint = null != masterChain;
+        if (null == masterChain) {
+            masterChain = loadFromStorage();
+        }
+
+        ChainContainer masterChainContainer = new ChainContainer(masterChain);
+
+        chainManager.setMasterChain(masterChainContainer);
+
+        chainManager.getMasterChain().initRound();
+
+        loadTime = System.currentTimeMillis() - start;
+        Log.info("consensus cache loaded " + (loadedFromCheckpoint ? "from checkpoint" : "from storage") + " , height : " +
+                masterChain.getEndBlockHeader().getHeight() + " , use : " + loadTime + "ms");
+    }
+
+    private Chain loadFromStorage() {
 
         //load storage data to memory
 
@@ -88,11 +132,150 @@ public class CacheManager {
         masterChain.setYellowPunishList(yellowPunishList);
         masterChain.setRedPunishList(redPunishList);
 
-        ChainContainer masterChainContainer = new ChainContainer(masterChain);
+        return masterChain;
+    }
 
-        chainManager.setMasterChain(masterChainContainer);
+    /**
+     * 由检查点恢复主链缓存：检查点的区块必须仍在本地存储的主链上，之后的区块逐个重放，
+     * 最后按从存储加载时相同的窗口和顺序整理，任何一步不满足都返回null，改为从存储加载
+     * Restore the master chain caches from the checkpoint: the block of the checkpoint must still be on the stored chain,
+     * the blocks after it are replayed one by one, then the window and order are made the same as a load from storage.
+     * Returns null if any step fails, so that the caches are loaded from storage instead.
+     */
+    private Chain loadFromCheckpoint() {
+        CheckpointPo checkpoint = cacheLoader.loadCheckpoint();
+        if (null == checkpoint || checkpoint.getBlockHeaderList().isEmpty()) {
+            return null;
+        }
+        BlockHeader bestBlockHeader = cacheLoader.loadBestBlockHeader();
+        if (null == bestBlockHeader || bestBlockHeader.getHeight() < checkpoint.getHeight() ||
+                bestBlockHeader.getHeight() - checkpoint.getHeight() > PocConsensusConstant.CHECKPOINT_MAX_REPLAY_BLOCKS) {
+            return null;
+        }
+        List<BlockHeader> checkpointHeaderList = checkpoint.getBlockHeaderList();
+        BlockHeader checkpointHeader = checkpointHeaderList.get(checkpointHeaderList.size() - 1);
+        BlockHeader storedHeader = cacheLoader.loadBlockHeader(checkpoint.getHeight());
+        if (null == storedHeader || !storedHeader.getHash().equals(checkpoint.getHash()) ||
+                !checkpointHeader.getHash().equals(checkpoint.getHash())) {
+            Log.info("the consensus checkpoint at height " + checkpoint.getHeight() + " is not on the stored chain");
+            return null;
+        }
+        lastCheckpointHeight = checkpoint.getHeight();
 
-        chainManager.getMasterChain().initRound();
+        Chain chain = new Chain();
+        chain.setBlockHeaderList(checkpointHeaderList);
+        chain.setStartBlockHeader(checkpointHeader);
+        chain.setEndBlockHeader(checkpointHeader);
+        List<Agent> agentList = new ArrayList<>();
+        for (AgentPo po : checkpoint.getAgentList()) {
+            agentList.add(PoConvertUtil.poToAgent(po));
+        }
+        chain.setAgentList(agentList);
+        List<Deposit> depositList = new ArrayList<>();
+        for (DepositPo po : checkpoint.getDepositList()) {
+            depositList.add(PoConvertUtil.poToDeposit(po));
+        }
+        chain.setDepositList(depositList);
+        chain.setYellowPunishList(checkpoint.getYellowPunishList());
+        chain.setRedPunishList(checkpoint.getRedPunishList());
+
+        ChainContainer chainContainer = new ChainContainer(chain);
+        for (long height = checkpoint.getHeight() + 1; height <= bestBlockHeader.getHeight(); height++) {
+            Block block = cacheLoader.loadBlock(height);
+            if (null == block || !chainContainer.addBlock(block)) {
+                Log.info("replay the consensus checkpoint failed at height " + height);
+                return null;
+            }
+            PersistentList<Block> blockList = chain.getBlockList();
+            if (blockList.size() > PocConsensusConstant.INIT_BLOCKS_COUNT) {
+                blockList.remove(0);
+            }
+        }
+        if (!chain.getEndBlockHeader().getHash().equals(bestBlockHeader.getHash())) {
+            return null;
+        }
+
+        List<Block> blockList = cacheLoader.loadBlocks(PocConsensusConstant.INIT_BLOCKS_COUNT);
+        if (blockList.isEmpty()) {
+            return null;
+        }
+        chain.setBlockList(blockList);
+        chain.setStartBlockHeader(blockList.get(0).getHeader());
+
+        long breakRoundIndex = new BlockExtendsData(bestBlockHeader.getExtend()).getRoundIndex() - PocConsensusConstant.INIT_HEADERS_OF_ROUND_COUNT;
+        List<BlockHeader> blockHeaderList = new ArrayList<>();
+        for (BlockHeader header : chain.getBlockHeaderList()) {
+            if (new BlockExtendsData(header.getExtend()).getRoundIndex() > breakRoundIndex) {
+                blockHeaderList.add(header);
+            }
+        }
+        chain.setBlockHeaderList(blockHeaderList);
+        List<PunishLogPo> yellowPunishList = new ArrayList<>();
+        for (PunishLogPo po : chain.getYellowPunishList()) {
+            if (po.getRoundIndex() > breakRoundIndex) {
+                yellowPunishList.add(po);
+            }
+        }
+        Collections.sort(yellowPunishList, new PunishLogComparator());
+        chain.setYellowPunishList(yellowPunishList);
+        List<PunishLogPo> redPunishList = new ArrayList<>(chain.getRedPunishList());
+        Collections.sort(redPunishList, new PunishLogComparator());
+        chain.setRedPunishList(redPunishList);
+        agentList = new ArrayList<>(chain.getAgentList());
+        Collections.sort(agentList, new AgentComparator());
+        chain.setAgentList(agentList);
+        depositList = new ArrayList<>(chain.getDepositList());
+        Collections.sort(depositList, new DepositComparator());
+        chain.setDepositList(depositList);
+        return chain;
+    }
+
+    /**
+     * 主链比上一个检查点前进了足够多的区块时写入新的检查点，持有链锁期间只复制列表和转换代理节点、委托
+     * Write a new checkpoint once the master chain has moved far enough since the previous one,
+     * only the lists are copied and the agents and deposits converted while holding the chain lock.
+     *
+     * @return 是否写入了检查点/whether a checkpoint was written
+     */
+    public boolean saveCheckpoint() {
+        CheckpointPo checkpoint = new CheckpointPo();
+        Lockers.CHAIN_LOCK.lock();
+        try {
+            ChainContainer masterChain = chainManager.getMasterChain();
+            if (null == masterChain || null == masterChain.getChain()) {
+                return false;
+            }
+            Chain chain = masterChain.getChain();
+            BlockHeader endBlockHeader = chain.getEndBlockHeader();
+            if (null == endBlockHeader || chain.getBlockHeaderList().isEmpty() ||
+                    (lastCheckpointHeight >= 0 && endBlockHeader.getHeight() - lastCheckpointHeight < PocConsensusConstant.CHECKPOINT_INTERVAL_BLOCKS)) {
+                return false;
+            }
+            checkpoint.setHeight(endBlockHeader.getHeight());
+            checkpoint.setHash(endBlockHeader.getHash());
+            checkpoint.setBlockHeaderList(PersistentList.copyOf(chain.getBlockHeaderList()));
+            List<AgentPo> agentPoList = new ArrayList<>();
+            for (Agent agent : chain.getAgentList()) {
+                AgentPo po = PoConvertUtil.agentToPo(agent);
+                po.setDelHeight(agent.getDelHeight());
+                agentPoList.add(po);
+            }
+            checkpoint.setAgentList(agentPoList);
+            List<DepositPo> depositPoList = new ArrayList<>();
+            for (Deposit deposit : chain.getDepositList()) {
+                depositPoList.add(PoConvertUtil.depositToPo(deposit));
+            }
+            checkpoint.setDepositList(depositPoList);
+            checkpoint.setYellowPunishList(PersistentList.copyOf(chain.getYellowPunishList()));
+            checkpoint.setRedPunishList(PersistentList.copyOf(chain.getRedPunishList()));
+        } finally {
+            Lockers.CHAIN_LOCK.unlock();
+        }
+        boolean success = cacheLoader.saveCheckpoint(checkpoint);
+        if (success) {
+            lastCheckpointHeight = checkpoint.getHeight();
+        }
+        return success;
     }
 
     public void reload() throws NulsException {
@@ -111,4 +294,12 @@ public class CacheManager {
     public void setCacheLoader(CacheLoader cacheLoader) {
         this.cacheLoader = cacheLoader;
     }
+
+    public long getLoadTime() {
+        return loadTime;
+    }
+
+    public boolean isLoadedFromCheckpoint() {
+        return loadedFromCheckpoint;
+    }
 }
@@ -111,6 +111,11 @@ public class ChainManager {
     }
 
     public void setMasterChain(ChainContainer masterChain) {
+        // 新主链若由原主链分叉得到，原主链随即废弃，由新主链接管借用的元素
+        // A new master chain forked from the former one takes over the borrowed elements, the former master chain is discarded.
+        if (null != masterChain && null != masterChain.getChain()) {
+            masterChain.getChain().claimElements();
+        }
         this.masterChain = masterChain;
     }
 
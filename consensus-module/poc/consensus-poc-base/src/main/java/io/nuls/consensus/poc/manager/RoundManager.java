@@ -31,10 +31,8 @@ import io.nuls.consensus.poc.config.ConsensusConfig;
 import io.nuls.consensus.poc.locker.Lockers;
 import io.nuls.consensus.poc.model.*;
 import io.nuls.consensus.poc.protocol.constant.PocConsensusProtocolConstant;
-import io.nuls.consensus.poc.protocol.constant.PunishType;
 import io.nuls.consensus.poc.protocol.entity.Agent;
 import io.nuls.consensus.poc.protocol.entity.Deposit;
-import io.nuls.consensus.poc.storage.po.PunishLogPo;
 import io.nuls.core.tools.calc.DoubleUtils;
 import io.nuls.core.tools.log.ConsensusLog;
 import io.nuls.core.tools.log.Log;
@@ -58,8 +56,11 @@ public class RoundManager {
 
     private Chain chain;
 
+    private ChainIndex chainIndex;
+
     public RoundManager(Chain chain) {
         this.chain = chain;
+        this.chainIndex = new ChainIndex(chain);
     }
 
     public MeetingRound getRoundByIndex(long roundIndex) {
@@ -122,10 +123,9 @@ public class RoundManager {
         if (currentRound.getPreRound() == null) {
 
             BlockExtendsData extendsData = null;
-            List<BlockHeader> blockHeaderList = chain.getBlockHeaderList();
+            List<BlockHeader> blockHeaderList = chainIndex.getBlockHeaderList();
             for (int i = blockHeaderList.size() - 1; i >= 0; i--) {
-                BlockHeader blockHeader = blockHeaderList.get(i);
-                extendsData = new BlockExtendsData(blockHeader.getExtend());
+                extendsData = chainIndex.getExtendsData(blockHeaderList.get(i));
                 if (extendsData.getRoundIndex() < currentRound.getIndex()) {
                     break;
                 }
@@ -322,9 +322,9 @@ public class RoundManager {
         });
     }
 
-    private List<Deposit> getDepositListByAgentId(NulsDigestData agentHash, long startBlockHeight) {
+    List<Deposit> getDepositListByAgentId(NulsDigestData agentHash, long startBlockHeight) {
 
-        List<Deposit> depositList = chain.getDepositList();
+        List<Deposit> depositList = chainIndex.getDepositList(agentHash);
         List<Deposit> resultList = new ArrayList<>();
 
         for (int i = depositList.size() - 1; i >= 0; i--) {
@@ -335,9 +335,6 @@ public class RoundManager {
             if (deposit.getBlockHeight() > startBlockHeight || deposit.getBlockHeight() < 0L) {
                 continue;
             }
-            if (!deposit.getAgentHash().equals(agentHash)) {
-                continue;
-            }
             resultList.add(deposit);
         }
 
@@ -361,14 +358,14 @@ public class RoundManager {
 
     private double calcCreditVal(MeetingMember member, BlockHeader blockHeader) {
 
-        BlockExtendsData roundData = new BlockExtendsData(blockHeader.getExtend());
+        BlockExtendsData roundData = chainIndex.getExtendsData(blockHeader);
 
         long roundStart = roundData.getRoundIndex() - PocConsensusProtocolConstant.RANGE_OF_CAPACITY_COEFFICIENT;
         if (roundStart < 0) {
             roundStart = 0;
         }
-        long blockCount = getBlockCountByAddress(member.getPackingAddress(), roundStart, roundData.getRoundIndex() - 1);
-        long sumRoundVal = getPunishCountByAddress(member.getAgentAddress(), roundStart, roundData.getRoundIndex() - 1, PunishType.YELLOW.getCode());
+        long blockCount = chainIndex.getBlockCount(member.getPackingAddress(), roundStart, roundData.getRoundIndex() - 1);
+        long sumRoundVal = getYellowPunishCount(member.getAgentAddress(), roundStart, roundData.getRoundIndex() - 1);
         double ability = DoubleUtils.div(blockCount, PocConsensusProtocolConstant.RANGE_OF_CAPACITY_COEFFICIENT);
 
         double penalty = DoubleUtils.div(DoubleUtils.mul(PocConsensusProtocolConstant.CREDIT_MAGIC_NUM, sumRoundVal),
@@ -377,27 +374,8 @@ public class RoundManager {
         return DoubleUtils.round(DoubleUtils.sub(ability, penalty), 4);
     }
 
-    private long getPunishCountByAddress(byte[] address, long roundStart, long roundEnd, int code) {
-        long count = 0;
-        List<PunishLogPo> punishList = new ArrayList<>(chain.getYellowPunishList());
-
-        if (code == PunishType.RED.getCode()) {
-            punishList = chain.getRedPunishList();
-        }
-
-        for (int i = punishList.size() - 1; i >= 0; i--) {
-            PunishLogPo punish = punishList.get(i);
-
-            if (punish.getRoundIndex() > roundEnd) {
-                continue;
-            }
-            if (punish.getRoundIndex() < roundStart) {
-                break;
-            }
-            if (Arrays.equals(punish.getAddress(), address)) {
-                count++;
-            }
-        }
+    private long getYellowPunishCount(byte[] address, long roundStart, long roundEnd) {
+        long count = chainIndex.getYellowPunishCount(address, roundStart, roundEnd);
         //每一轮的惩罚都有可能包含上一轮次的惩罚记录，即计算从a到a+99轮的惩罚记录时，a轮的惩罚中可能是惩罚某个地址在a-1轮未出块，导致100轮最多可能有101个惩罚记录，在这里处理下
         //Each round of punishment is likely to contain a rounds punishment record, calculated from a to a + 99 rounds of punishment record,
         // a round of punishment is likely to be punished in an address in a - 1 round not out of the blocks,
@@ -408,41 +386,20 @@ public class RoundManager {
         return count;
     }
 
-    private long getBlockCountByAddress(byte[] packingAddress, long roundStart, long roundEnd) {
-        long count = 0;
-        List<BlockHeader> blockHeaderList = chain.getBlockHeaderList();
-
-        for (int i = blockHeaderList.size() - 1; i >= 0; i--) {
-            BlockHeader blockHeader = blockHeaderList.get(i);
-            BlockExtendsData roundData = new BlockExtendsData(blockHeader.getExtend());
-
-            if (roundData.getRoundIndex() > roundEnd) {
-                continue;
-            }
-            if (roundData.getRoundIndex() < roundStart) {
-                break;
-            }
-            if (Arrays.equals(blockHeader.getPackingAddress(), packingAddress)) {
-                count++;
-            }
-        }
-        return count;
-    }
-
     private BlockHeader getFirstBlockHeightOfPreRoundByRoundIndex(long roundIndex) {
         BlockHeader firstBlockHeader = null;
         long startRoundIndex = 0L;
-        List<BlockHeader> blockHeaderList = chain.getBlockHeaderList();
+        List<BlockHeader> blockHeaderList = chainIndex.getBlockHeaderList();
         for (int i = blockHeaderList.size() - 1; i >= 0; i--) {
             BlockHeader blockHeader = blockHeaderList.get(i);
-            long currentRoundIndex = new BlockExtendsData(blockHeader.getExtend()).getRoundIndex();
+            long currentRoundIndex = chainIndex.getExtendsData(blockHeader).getRoundIndex();
             if (roundIndex > currentRoundIndex) {
                 if (startRoundIndex == 0L) {
                     startRoundIndex = currentRoundIndex;
                 }
                 if (currentRoundIndex < startRoundIndex) {
                     firstBlockHeader = blockHeaderList.get(i + 1);
-                    BlockExtendsData roundData = new BlockExtendsData(firstBlockHeader.getExtend());
+                    BlockExtendsData roundData = chainIndex.getExtendsData(firstBlockHeader);
                     if (roundData.getPackingIndexOfRound() > 1) {
                         firstBlockHeader = blockHeader;
                     }
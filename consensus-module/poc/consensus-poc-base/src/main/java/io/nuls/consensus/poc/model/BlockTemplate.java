@@ -0,0 +1,76 @@
+/*
+ * *
+ *  * MIT License
+ *  *
+ *  * Copyright (c) 2017-2018 nuls.io
+ *  *
+ *  * Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  * of this software and associated documentation files (the "Software"), to deal
+ *  * in the Software without restriction, including without limitation the rights
+ *  * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  * copies of the Software, and to permit persons to whom the Software is
+ *  * furnished to do so, subject to the following conditions:
+ *  *
+ *  * The above copyright notice and this permission notice shall be included in all
+ *  * copies or substantial portions of the Software.
+ *  *
+ *  * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  * SOFTWARE.
+ *
+ */
+package io.nuls.consensus.poc.model;
+
+import io.nuls.kernel.model.Coin;
+import io.nuls.kernel.model.Transaction;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 区块模板，后台预先验证并去除冲突的待打包交易及其产生的临时输出和已花费输出
+ * Block template, the transactions verified and made conflict free in the background ahead of packing,
+ * with the temporary outputs they create and the outputs they spend.
+ */
+public class BlockTemplate {
+
+    private final List<Transaction> txList;
+
+    private final Map<String, Coin> toMap;
+
+    private final Set<String> fromSet;
+
+    private final long size;
+
+    public BlockTemplate(List<Transaction> txList, Map<String, Coin> toMap, Set<String> fromSet, long size) {
+        this.txList = txList;
+        this.toMap = toMap;
+        this.fromSet = fromSet;
+        this.size = size;
+    }
+
+    public List<Transaction> getTxList() {
+        return txList;
+    }
+
+    public Map<String, Coin> getToMap() {
+        return toMap;
+    }
+
+    public Set<String> getFromSet() {
+        return fromSet;
+    }
+
+    /**
+     * 模板中交易的总字节数
+     * Total bytes of the transactions in the template.
+     */
+    public long getSize() {
+        return size;
+    }
+}
@@ -34,7 +34,6 @@ import io.nuls.kernel.model.Block;
 import io.nuls.kernel.model.BlockHeader;
 import io.nuls.kernel.model.Transaction;
 
-import java.util.ArrayList;
 import java.util.List;
 import java.util.Set;
 
@@ -47,16 +46,20 @@ public class Chain implements Cloneable {
     private String preChainId;
     private BlockHeader startBlockHeader;
     private BlockHeader endBlockHeader;
-    private List<BlockHeader> blockHeaderList;
-    private List<Block> blockList;
-    private List<Agent> agentList;
-    private List<Deposit> depositList;
-    private List<PunishLogPo> yellowPunishList;
-    private List<PunishLogPo> redPunishList;
+    /**
+     * 链上的列表都是结构共享的，设置列表时PersistentList在O(1)内共享数据，其他列表复制元素
+     * All lists of the chain are structurally shared, setting a PersistentList shares its data in O(1), other lists are copied.
+     */
+    private PersistentList<BlockHeader> blockHeaderList;
+    private PersistentList<Block> blockList;
+    private PersistentList<Agent> agentList;
+    private PersistentList<Deposit> depositList;
+    private PersistentList<PunishLogPo> yellowPunishList;
+    private PersistentList<PunishLogPo> redPunishList;
 
     public Chain() {
-        blockHeaderList = new ArrayList<>();
-        blockList = new ArrayList<>();
+        blockHeaderList = new PersistentList<>();
+        blockList = new PersistentList<>();
         id = StringUtils.getNewUUID();
     }
 
@@ -77,7 +80,7 @@ public class Chain implements Cloneable {
     }
 
     public void setBlockHeaderList(List<BlockHeader> blockHeaderList) {
-        this.blockHeaderList = blockHeaderList;
+        this.blockHeaderList = PersistentList.copyOf(blockHeaderList);
     }
 
     public String getId() {
@@ -96,48 +99,61 @@ public class Chain implements Cloneable {
         return endBlockHeader;
     }
 
-    public List<BlockHeader> getBlockHeaderList() {
+    public PersistentList<BlockHeader> getBlockHeaderList() {
         return blockHeaderList;
     }
 
-    public List<Block> getBlockList() {
+    public PersistentList<Block> getBlockList() {
         return blockList;
     }
 
-    public List<Agent> getAgentList() {
+    public PersistentList<Agent> getAgentList() {
         return agentList;
     }
 
-    public List<Deposit> getDepositList() {
+    public PersistentList<Deposit> getDepositList() {
         return depositList;
     }
 
     public void setBlockList(List<Block> blockList) {
-        this.blockList = blockList;
+        this.blockList = PersistentList.copyOf(blockList);
     }
 
     public void setAgentList(List<Agent> agentList) {
-        this.agentList = agentList;
+        this.agentList = PersistentList.copyOf(agentList);
     }
 
     public void setDepositList(List<Deposit> depositList) {
-        this.depositList = depositList;
+        this.depositList = PersistentList.copyOf(depositList);
     }
 
-    public List<PunishLogPo> getYellowPunishList() {
+    public PersistentList<PunishLogPo> getYellowPunishList() {
         return yellowPunishList;
     }
 
     public void setYellowPunishList(List<PunishLogPo> yellowPunishList) {
-        this.yellowPunishList = yellowPunishList;
+        this.yellowPunishList = PersistentList.copyOf(yellowPunishList);
     }
 
-    public List<PunishLogPo> getRedPunishList() {
+    public PersistentList<PunishLogPo> getRedPunishList() {
         return redPunishList;
     }
 
     public void setRedPunishList(List<PunishLogPo> redPunishList) {
-        this.redPunishList = redPunishList;
+        this.redPunishList = PersistentList.copyOf(redPunishList);
+    }
+
+    /**
+     * 由getBeforeTheForkChain得到的链成为主链后，接管从原主链借用的代理节点和委托
+     * Take over the agents and deposits borrowed from the former master chain once a chain from getBeforeTheForkChain becomes the master chain.
+     */
+    public void claimElements() {
+        if (null != agentList) {
+            agentList.claimElements();
+        }
+        if (null != depositList) {
+            depositList.claimElements();
+        }
     }
 
     @Override
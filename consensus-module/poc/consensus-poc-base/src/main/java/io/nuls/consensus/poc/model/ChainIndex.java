@@ -0,0 +1,277 @@
+/*
+ * *
+ *  * MIT License
+ *  *
+ *  * Copyright (c) 2017-2018 nuls.io
+ *  *
+ *  * Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  * of this software and associated documentation files (the "Software"), to deal
+ *  * in the Software without restriction, including without limitation the rights
+ *  * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  * copies of the Software, and to permit persons to whom the Software is
+ *  * furnished to do so, subject to the following conditions:
+ *  *
+ *  * The above copyright notice and this permission notice shall be included in all
+ *  * copies or substantial portions of the Software.
+ *  *
+ *  * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  * SOFTWARE.
+ *
+ */
+
+package io.nuls.consensus.poc.model;
+
+import io.nuls.consensus.poc.protocol.entity.Deposit;
+import io.nuls.consensus.poc.storage.po.PunishLogPo;
+import io.nuls.core.tools.crypto.Hex;
+import io.nuls.kernel.model.BlockHeader;
+import io.nuls.kernel.model.NulsDigestData;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 链上计算轮次所需数据的索引：解码后的区块扩展数据、每轮各打包地址的出块数、每轮各地址的黄牌数以及节点到委托的映射
+ * 索引保存链上各列表的镜像，每次同步时按对象比较，先丢弃主链从头部裁剪掉的部分，再找出共同前缀，只处理区块增加或回滚带来的尾部变化，其他修改会退化为重建
+ * 分叉链替换中间的元素（回滚时复制借用的委托）不会改变首尾，由{@link PersistentList#getVersion()}的变化发现并重建
+ * Index of the chain data needed to calculate rounds: decoded block extends data, blocks per packing address per round,
+ * yellow punishes per address per round and the deposits of each agent.
+ * The index keeps a mirror of the chain lists, each sync compares by object identity, first drops the head the master chain
+ * trimmed off, then finds the common prefix and only handles the tail changes made by adding or rolling back blocks,
+ * other modifications fall back to a rebuild.
+ * A fork view replacing an element in the middle (copying a borrowed deposit on rollback) leaves both ends unchanged,
+ * it is detected by a change of {@link PersistentList#getVersion()} and rebuilds.
+ */
+public class ChainIndex {
+
+    private final Chain chain;
+
+    private final List<BlockHeader> headerList = new ArrayList<>();
+
+    private final Map<BlockHeader, BlockExtendsData> extendsMap = new IdentityHashMap<>();
+
+    private final List<PunishLogPo> yellowPunishList = new ArrayList<>();
+
+    private final List<Deposit> depositList = new ArrayList<>();
+
+    private final Map<NulsDigestData, List<Deposit>> agentDepositMap = new HashMap<>();
+
+    private long headerVersion;
+
+    private long yellowPunishVersion;
+
+    private long depositVersion;
+
+    private final RoundWindowCounter blockCounter = new RoundWindowCounter();
+
+    private final RoundWindowCounter yellowPunishCounter = new RoundWindowCounter();
+
+    public ChainIndex(Chain chain) {
+        this.chain = chain;
+    }
+
+    /**
+     * 把链上的变化同步到索引
+     * Sync the changes of the chain into the index.
+     */
+    public synchronized void sync() {
+        syncHeaders();
+        syncYellowPunishes();
+        syncDeposits();
+    }
+
+    /**
+     * 同步后与链上顺序一致的区块头列表
+     * The block header list in the same order as the chain after syncing.
+     */
+    public synchronized List<BlockHeader> getBlockHeaderList() {
+        sync();
+        return new ArrayList<>(headerList);
+    }
+
+    /**
+     * 获取区块头解码后的扩展数据，不在索引中的区块头直接解码
+     * Get the decoded extends data of the block header, a header not in the index is decoded directly.
+     */
+    public synchronized BlockExtendsData getExtendsData(BlockHeader header) {
+        BlockExtendsData extendsData = extendsMap.get(header);
+        if (null == extendsData) {
+            extendsData = new BlockExtendsData(header.getExtend());
+        }
+        return extendsData;
+    }
+
+    /**
+     * 获取打包地址在轮次区间内的出块数，包含首尾
+     * Get the number of blocks packed by the address in the round range, both ends included.
+     */
+    public synchronized int getBlockCount(byte[] packingAddress, long roundStart, long roundEnd) {
+        sync();
+        return blockCounter.count(toKey(packingAddress), roundStart, roundEnd);
+    }
+
+    /**
+     * 获取地址在轮次区间内的黄牌数，包含首尾
+     * Get the number of yellow punishes of the address in the round range, both ends included.
+     */
+    public synchronized int getYellowPunishCount(byte[] address, long roundStart, long roundEnd) {
+        sync();
+        return yellowPunishCounter.count(toKey(address), roundStart, roundEnd);
+    }
+
+    /**
+     * 获取节点的所有委托，与链上委托列表的顺序一致，包含已退出的委托
+     * Get all deposits of the agent in the order of the deposit list of the chain, canceled deposits included.
+     */
+    public synchronized List<Deposit> getDepositList(NulsDigestData agentHash) {
+        sync();
+        List<Deposit> list = agentDepositMap.get(agentHash);
+        if (null == list) {
+            return Collections.emptyList();
+        }
+        return new ArrayList<>(list);
+    }
+
+    private void syncHeaders() {
+        List<BlockHeader> source = nonNull(chain.getBlockHeaderList());
+        long version = versionOf(source);
+        int trimmed = version == headerVersion ? trimmedHead(source, headerList) : 0;
+        for (int i = 0; i < trimmed; i++) {
+            BlockHeader header = headerList.get(i);
+            BlockExtendsData extendsData = extendsMap.remove(header);
+            blockCounter.remove(extendsData.getRoundIndex(), toKey(header.getPackingAddress()));
+        }
+        headerList.subList(0, trimmed).clear();
+        int common = version == headerVersion ? commonPrefix(source, headerList) : 0;
+        headerVersion = version;
+        for (int i = headerList.size() - 1; i >= common; i--) {
+            BlockHeader header = headerList.remove(i);
+            BlockExtendsData extendsData = extendsMap.remove(header);
+            blockCounter.remove(extendsData.getRoundIndex(), toKey(header.getPackingAddress()));
+        }
+        for (int i = common; i < source.size(); i++) {
+            BlockHeader header = source.get(i);
+            BlockExtendsData extendsData = new BlockExtendsData(header.getExtend());
+            headerList.add(header);
+            extendsMap.put(header, extendsData);
+            blockCounter.add(extendsData.getRoundIndex(), toKey(header.getPackingAddress()));
+        }
+    }
+
+    private void syncYellowPunishes() {
+        List<PunishLogPo> source = nonNull(chain.getYellowPunishList());
+        long version = versionOf(source);
+        int trimmed = version == yellowPunishVersion ? trimmedHead(source, yellowPunishList) : 0;
+        for (int i = 0; i < trimmed; i++) {
+            PunishLogPo punish = yellowPunishList.get(i);
+            yellowPunishCounter.remove(punish.getRoundIndex(), toKey(punish.getAddress()));
+        }
+        yellowPunishList.subList(0, trimmed).clear();
+        int common = version == yellowPunishVersion ? commonPrefix(source, yellowPunishList) : 0;
+        yellowPunishVersion = version;
+        for (int i = yellowPunishList.size() - 1; i >= common; i--) {
+            PunishLogPo punish = yellowPunishList.remove(i);
+            yellowPunishCounter.remove(punish.getRoundIndex(), toKey(punish.getAddress()));
+        }
+        for (int i = common; i < source.size(); i++) {
+            PunishLogPo punish = source.get(i);
+            yellowPunishList.add(punish);
+            yellowPunishCounter.add(punish.getRoundIndex(), toKey(punish.getAddress()));
+        }
+    }
+
+    private void syncDeposits() {
+        List<Deposit> source = nonNull(chain.getDepositList());
+        long version = versionOf(source);
+        int trimmed = version == depositVersion ? trimmedHead(source, depositList) : 0;
+        for (int i = 0; i < trimmed; i++) {
+            removeAgentDeposit(depositList.get(i));
+        }
+        depositList.subList(0, trimmed).clear();
+        int common = version == depositVersion ? commonPrefix(source, depositList) : 0;
+        depositVersion = version;
+        for (int i = depositList.size() - 1; i >= common; i--) {
+            removeAgentDeposit(depositList.remove(i));
+        }
+        for (int i = common; i < source.size(); i++) {
+            Deposit deposit = source.get(i);
+            depositList.add(deposit);
+            List<Deposit> list = agentDepositMap.get(deposit.getAgentHash());
+            if (null == list) {
+                list = new ArrayList<>();
+                agentDepositMap.put(deposit.getAgentHash(), list);
+            }
+            list.add(deposit);
+        }
+    }
+
+    private void removeAgentDeposit(Deposit deposit) {
+        List<Deposit> list = agentDepositMap.get(deposit.getAgentHash());
+        for (int j = list.size() - 1; j >= 0; j--) {
+            if (list.get(j) == deposit) {
+                list.remove(j);
+                break;
+            }
+        }
+        if (list.isEmpty()) {
+            agentDepositMap.remove(deposit.getAgentHash());
+        }
+    }
+
+    /**
+     * 链上列表从头部裁剪掉的元素个数：链上列表的第一个元素在镜像中的位置，找不到时为0，由之后的共同前缀比较退化为重建
+     * 只做对象比较，不重新解码或计数，裁剪后的镜像保留原有的索引数据
+     * The number of elements trimmed off the head of the chain list: the position of its first element in the mirror,
+     * 0 when not found, so that the following common prefix comparison falls back to a rebuild.
+     * Only compares object identity, nothing is decoded or counted again and the trimmed mirror keeps its indexed data.
+     */
+    private static <T> int trimmedHead(List<T> source, List<T> mirror) {
+        if (source.isEmpty() || mirror.isEmpty() || source.get(0) == mirror.get(0)) {
+            return 0;
+        }
+        T first = source.get(0);
+        for (int i = 1; i < mirror.size(); i++) {
+            if (mirror.get(i) == first) {
+                return i;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * 链上列表与镜像的共同前缀长度，列表中的对象互不相同且只在尾部增删时为O(变化量)
+     * The length of the common prefix of the chain list and the mirror, O(changes) when the objects
+     * in the list are distinct and only the tail is added or removed.
+     */
+    private static <T> int commonPrefix(List<T> source, List<T> mirror) {
+        if (source.isEmpty() || mirror.isEmpty() || source.get(0) != mirror.get(0)) {
+            return 0;
+        }
+        int common = Math.min(source.size(), mirror.size());
+        while (common > 1 && source.get(common - 1) != mirror.get(common - 1)) {
+            common--;
+        }
+        return common;
+    }
+
+    private static long versionOf(List<?> list) {
+        return list instanceof PersistentList ? ((PersistentList<?>) list).getVersion() : 0L;
+    }
+
+    private static String toKey(byte[] address) {
+        return null == address ? "" : Hex.encode(address);
+    }
+
+    private static <T> List<T> nonNull(List<T> list) {
+        return null == list ? Collections.emptyList() : list;
+    }
+}
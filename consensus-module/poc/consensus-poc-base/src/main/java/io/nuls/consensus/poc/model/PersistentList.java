@@ -0,0 +1,318 @@
+/*
+ * *
+ *  * MIT License
+ *  *
+ *  * Copyright (c) 2017-2018 nuls.io
+ *  *
+ *  * Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  * of this software and associated documentation files (the "Software"), to deal
+ *  * in the Software without restriction, including without limitation the rights
+ *  * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  * copies of the Software, and to permit persons to whom the Software is
+ *  * furnished to do so, subject to the following conditions:
+ *  *
+ *  * The above copyright notice and this permission notice shall be included in all
+ *  * copies or substantial portions of the Software.
+ *  *
+ *  * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  * SOFTWARE.
+ *
+ */
+
+package io.nuls.consensus.poc.model;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.UnaryOperator;
+
+/**
+ * 结构共享的列表，元素按64个一组分块存放，{@link #fork()}在O(1)内得到一个共享全部分块的副本
+ * 任一方第一次修改某个共享的分块时才复制该分块，未改动的前缀始终共享
+ * 副本借用原列表的元素对象，修改元素前需通过{@link #getForUpdate(int, UnaryOperator)}取得副本独有的拷贝，原列表仍原地修改元素，
+ * 因此副本存在期间原列表不能修改元素，副本取代原列表后调用{@link #claimElements()}
+ * A structurally shared list, elements are stored in chunks of 64, {@link #fork()} returns a copy sharing all chunks in O(1).
+ * A shared chunk is only copied the first time either side modifies it, the untouched prefix stays shared.
+ * The copy borrows the element objects of the original list, before modifying an element it gets its own copy through
+ * {@link #getForUpdate(int, UnaryOperator)}, while the original list keeps modifying elements in place,
+ * so the original list must not modify elements while the copy is in use, call {@link #claimElements()} once the copy replaces the original list.
+ */
+public class PersistentList<T> extends AbstractList<T> implements RandomAccess {
+
+    private static final int CHUNK_SHIFT = 6;
+
+    private static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+    private static final AtomicLong VERSION_SEQUENCE = new AtomicLong();
+
+    /**
+     * 当前副本的所有权标记，fork后双方都换成新的标记，旧标记下的分块和元素对双方都是共享的
+     * The ownership token of this copy, both sides get a new token after a fork,
+     * the chunks and elements under the old token are shared by both.
+     */
+    private Object owner = new Object();
+
+    private Object chunksOwner = owner;
+
+    private Chunk[] chunks;
+
+    private int size;
+
+    /**
+     * 是否借用原列表的元素，借用时修改元素前需要复制
+     * Whether the elements are borrowed from the original list, borrowed elements are copied before being modified.
+     */
+    private boolean borrowing;
+
+    /**
+     * 替换元素的版本，set或getForUpdate复制元素时取全局递增的新值，fork的副本沿用原值，从未替换过元素的列表为0
+     * 按对象比较首尾来同步的镜像看不到中间元素的替换，版本变化时需要重建
+     * The replacement version, set and the copy in getForUpdate take a new globally increasing value,
+     * a fork keeps the value of its original, a list whose elements were never replaced is at 0.
+     * A mirror synced by comparing the ends by identity cannot see an element replaced in the middle, it rebuilds when the version changes.
+     */
+    private long version;
+
+    public PersistentList() {
+        chunks = new Chunk[4];
+    }
+
+    public PersistentList(Collection<? extends T> collection) {
+        this();
+        addAll(collection);
+    }
+
+    private PersistentList(Chunk[] chunks, int size) {
+        this.chunks = chunks;
+        this.chunksOwner = null;
+        this.size = size;
+    }
+
+    /**
+     * 得到列表的副本：PersistentList直接共享分块，其他列表复制元素，null返回null
+     * Get a copy of the list: a PersistentList shares its chunks, other lists copy the elements, null returns null.
+     */
+    public static <T> PersistentList<T> copyOf(List<T> list) {
+        if (null == list) {
+            return null;
+        }
+        if (list instanceof PersistentList) {
+            return ((PersistentList<T>) list).fork();
+        }
+        return new PersistentList<>(list);
+    }
+
+    /**
+     * 在O(1)内得到与当前列表共享全部数据的副本，之后双方对列表的增删改互不影响，副本借用当前列表的元素
+     * Get a copy sharing all data with this list in O(1), adding, removing or replacing elements on either side
+     * is not visible to the other afterwards, the copy borrows the elements of this list.
+     */
+    public PersistentList<T> fork() {
+        owner = new Object();
+        PersistentList<T> copy = new PersistentList<>(chunks, size);
+        copy.borrowing = true;
+        copy.version = version;
+        return copy;
+    }
+
+    /**
+     * 原列表不再使用后，副本接管借用的元素，之后原地修改元素
+     * Take over the borrowed elements once the original list is no longer used, elements are modified in place afterwards.
+     */
+    public void claimElements() {
+        borrowing = false;
+    }
+
+    /**
+     * 获取可以直接修改的元素，借用的元素先用copier复制并替换
+     * Get an element that can be modified in place, a borrowed element is copied by the copier and replaced first.
+     */
+    public T getForUpdate(int index, UnaryOperator<T> copier) {
+        rangeCheck(index);
+        if (!borrowing) {
+            return get(index);
+        }
+        Chunk chunk = chunkForWrite(index >>> CHUNK_SHIFT);
+        int offset = index & CHUNK_MASK;
+        if (!chunk.ownedItems[offset]) {
+            chunk.items[offset] = copier.apply((T) chunk.items[offset]);
+            chunk.ownedItems[offset] = true;
+            version = VERSION_SEQUENCE.incrementAndGet();
+        }
+        return (T) chunk.items[offset];
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    @Override
+    public T get(int index) {
+        rangeCheck(index);
+        return (T) chunks[index >>> CHUNK_SHIFT].items[index & CHUNK_MASK];
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public T set(int index, T element) {
+        rangeCheck(index);
+        Chunk chunk = chunkForWrite(index >>> CHUNK_SHIFT);
+        int offset = index & CHUNK_MASK;
+        T old = (T) chunk.items[offset];
+        chunk.items[offset] = element;
+        chunk.ownedItems[offset] = true;
+        version = VERSION_SEQUENCE.incrementAndGet();
+        return old;
+    }
+
+    @Override
+    public boolean add(T element) {
+        int chunkIndex = size >>> CHUNK_SHIFT;
+        if (chunkIndex == chunks.length) {
+            ownChunks(chunks.length << 1);
+        }
+        Chunk chunk;
+        if (null == chunks[chunkIndex]) {
+            ownChunks(chunks.length);
+            chunk = new Chunk(owner);
+            chunks[chunkIndex] = chunk;
+        } else {
+            chunk = chunkForWrite(chunkIndex);
+        }
+        int offset = size & CHUNK_MASK;
+        chunk.items[offset] = element;
+        chunk.ownedItems[offset] = true;
+        size++;
+        modCount++;
+        return true;
+    }
+
+    @Override
+    public void add(int index, T element) {
+        if (index < 0 || index > size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+        if (index == size) {
+            add(element);
+            return;
+        }
+        add(null);
+        for (int i = size - 1; i > index; i--) {
+            move(i - 1, i);
+        }
+        set(index, element);
+    }
+
+    @Override
+    public T remove(int index) {
+        rangeCheck(index);
+        T old = get(index);
+        for (int i = index; i < size - 1; i++) {
+            move(i + 1, i);
+        }
+        int last = size - 1;
+        Chunk chunk = chunks[last >>> CHUNK_SHIFT];
+        if (chunk.owner == owner && chunksOwner == owner) {
+            chunk.items[last & CHUNK_MASK] = null;
+            chunk.ownedItems[last & CHUNK_MASK] = false;
+        }
+        size--;
+        modCount++;
+        return old;
+    }
+
+    @Override
+    public void clear() {
+        owner = new Object();
+        chunksOwner = owner;
+        chunks = new Chunk[4];
+        size = 0;
+        modCount++;
+    }
+
+    @Override
+    protected void removeRange(int fromIndex, int toIndex) {
+        if (fromIndex >= toIndex) {
+            return;
+        }
+        int count = toIndex - fromIndex;
+        for (int i = toIndex; i < size; i++) {
+            move(i, i - count);
+        }
+        for (int i = 0; i < count; i++) {
+            remove(size - 1);
+        }
+    }
+
+    /**
+     * 移动元素时保留其所有权，避免对已独有的元素再次复制
+     * Keep the ownership of an element when moving it, so that an element already owned is not copied again.
+     */
+    private void move(int from, int to) {
+        Chunk source = chunks[from >>> CHUNK_SHIFT];
+        boolean owned = source.owner == owner && source.ownedItems[from & CHUNK_MASK];
+        Object item = source.items[from & CHUNK_MASK];
+        Chunk target = chunkForWrite(to >>> CHUNK_SHIFT);
+        target.items[to & CHUNK_MASK] = item;
+        target.ownedItems[to & CHUNK_MASK] = owned;
+    }
+
+    private Chunk chunkForWrite(int chunkIndex) {
+        ownChunks(chunks.length);
+        Chunk chunk = chunks[chunkIndex];
+        if (chunk.owner != owner) {
+            chunk = new Chunk(owner, chunk.items.clone());
+            chunks[chunkIndex] = chunk;
+        }
+        return chunk;
+    }
+
+    private void ownChunks(int length) {
+        if (chunksOwner != owner || length != chunks.length) {
+            chunks = Arrays.copyOf(chunks, length);
+            chunksOwner = owner;
+        }
+    }
+
+    private void rangeCheck(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+    }
+
+    private static final class Chunk {
+
+        private final Object owner;
+
+        private final Object[] items;
+
+        /**
+         * 元素是否由本分块的所有者创建或复制，复制分块时全部重置为借用
+         * Whether the element was created or copied by the owner of this chunk, all reset to borrowed when the chunk is copied.
+         */
+        private final boolean[] ownedItems = new boolean[CHUNK_SIZE];
+
+        private Chunk(Object owner) {
+            this(owner, new Object[CHUNK_SIZE]);
+        }
+
+        private Chunk(Object owner, Object[] items) {
+            this.owner = owner;
+            this.items = items;
+        }
+    }
+}
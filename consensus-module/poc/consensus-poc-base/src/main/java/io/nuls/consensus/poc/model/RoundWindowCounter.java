@@ -0,0 +1,134 @@
+/*
+ * *
+ *  * MIT License
+ *  *
+ *  * Copyright (c) 2017-2018 nuls.io
+ *  *
+ *  * Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  * of this software and associated documentation files (the "Software"), to deal
+ *  * in the Software without restriction, including without limitation the rights
+ *  * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  * copies of the Software, and to permit persons to whom the Software is
+ *  * furnished to do so, subject to the following conditions:
+ *  *
+ *  * The above copyright notice and this permission notice shall be included in all
+ *  * copies or substantial portions of the Software.
+ *  *
+ *  * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  * SOFTWARE.
+ *
+ */
+
+package io.nuls.consensus.poc.model;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 按轮次计数的滑动窗口，记录每轮中每个键出现的次数，并维护最近一次查询的轮次区间内的合计
+ * 区间移动时只加减进出窗口的轮次，计数变化时同步修改窗口内的合计
+ * Sliding window of per round counters, records how many times each key appears in each round,
+ * and keeps the totals of the round range of the latest query.
+ * When the range moves only the rounds entering or leaving the window are added or subtracted,
+ * a changed counter updates the totals of the window as well.
+ */
+public class RoundWindowCounter {
+
+    private final TreeMap<Long, Map<String, Integer>> roundMap = new TreeMap<>();
+
+    private final Map<String, Integer> windowMap = new HashMap<>();
+
+    private long windowStart = 0L;
+
+    private long windowEnd = -1L;
+
+    public void add(long roundIndex, String key) {
+        change(roundIndex, key, 1);
+    }
+
+    public void remove(long roundIndex, String key) {
+        change(roundIndex, key, -1);
+    }
+
+    /**
+     * 获取键在轮次区间内出现的次数，包含首尾
+     * Get how many times the key appears in the round range, both ends included.
+     */
+    public int count(String key, long roundStart, long roundEnd) {
+        moveWindow(roundStart, roundEnd);
+        Integer count = windowMap.get(key);
+        return null == count ? 0 : count;
+    }
+
+    public void clear() {
+        roundMap.clear();
+        windowMap.clear();
+        windowStart = 0L;
+        windowEnd = -1L;
+    }
+
+    private void change(long roundIndex, String key, int delta) {
+        Map<String, Integer> map = roundMap.get(roundIndex);
+        if (null == map) {
+            map = new HashMap<>();
+            roundMap.put(roundIndex, map);
+        }
+        merge(map, key, delta);
+        if (map.isEmpty()) {
+            roundMap.remove(roundIndex);
+        }
+        if (roundIndex >= windowStart && roundIndex <= windowEnd) {
+            merge(windowMap, key, delta);
+        }
+    }
+
+    private void moveWindow(long start, long end) {
+        if (start == windowStart && end == windowEnd) {
+            return;
+        }
+        if (start > end || windowStart > windowEnd || start > windowEnd || end < windowStart) {
+            windowMap.clear();
+            addRounds(start, end, 1);
+        } else {
+            if (start < windowStart) {
+                addRounds(start, windowStart - 1, 1);
+            } else if (start > windowStart) {
+                addRounds(windowStart, start - 1, -1);
+            }
+            if (end > windowEnd) {
+                addRounds(windowEnd + 1, end, 1);
+            } else if (end < windowEnd) {
+                addRounds(end + 1, windowEnd, -1);
+            }
+        }
+        windowStart = start;
+        windowEnd = end;
+    }
+
+    private void addRounds(long from, long to, int sign) {
+        if (from > to) {
+            return;
+        }
+        for (Map<String, Integer> map : roundMap.subMap(from, true, to, true).values()) {
+            for (Map.Entry<String, Integer> entry : map.entrySet()) {
+                merge(windowMap, entry.getKey(), sign * entry.getValue());
+            }
+        }
+    }
+
+    private static void merge(Map<String, Integer> map, String key, int delta) {
+        Integer count = map.get(key);
+        int value = (null == count ? 0 : count) + delta;
+        if (value == 0) {
+            map.remove(key);
+        } else {
+            map.put(key, value);
+        }
+    }
+}
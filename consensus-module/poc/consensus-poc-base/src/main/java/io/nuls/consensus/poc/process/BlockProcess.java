@@ -395,6 +395,7 @@ public class BlockProcess {
         for (Transaction tx : block.getTxs()) {
             transactionCacheStorageService.removeTx(tx.getHash());
         }
+        TxMemoryPool.getInstance().removeConfirmed(block.getTxs());
         return success;
     }
 
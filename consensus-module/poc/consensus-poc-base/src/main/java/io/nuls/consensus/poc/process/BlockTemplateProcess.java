@@ -0,0 +1,741 @@
+/*
+ * *
+ *  * MIT License
+ *  *
+ *  * Copyright (c) 2017-2018 nuls.io
+ *  *
+ *  * Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  * of this software and associated documentation files (the "Software"), to deal
+ *  * in the Software without restriction, including without limitation the rights
+ *  * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  * copies of the Software, and to permit persons to whom the Software is
+ *  * furnished to do so, subject to the following conditions:
+ *  *
+ *  * The above copyright notice and this permission notice shall be included in all
+ *  * copies or substantial portions of the Software.
+ *  *
+ *  * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  * SOFTWARE.
+ *
+ */
+package io.nuls.consensus.poc.process;
+
+import io.nuls.consensus.poc.cache.TxMemoryPool;
+import io.nuls.consensus.poc.config.ConsensusConfig;
+import io.nuls.consensus.poc.constant.ConsensusStatus;
+import io.nuls.consensus.poc.context.ConsensusStatusContext;
+import io.nuls.consensus.poc.manager.ChainManager;
+import io.nuls.consensus.poc.model.BlockTemplate;
+import io.nuls.consensus.poc.model.MeetingRound;
+import io.nuls.core.tools.array.ArraysTool;
+import io.nuls.core.tools.log.Log;
+import io.nuls.kernel.constant.TransactionErrorCode;
+import io.nuls.kernel.context.NulsContext;
+import io.nuls.kernel.func.TimeService;
+import io.nuls.kernel.model.*;
+import io.nuls.kernel.processor.ConflictKey;
+import io.nuls.kernel.processor.TransactionProcessor;
+import io.nuls.kernel.utils.TransactionManager;
+import io.nuls.kernel.utils.VarInt;
+import io.nuls.kernel.validate.ValidateResult;
+import io.nuls.ledger.service.LedgerService;
+import io.nuls.ledger.util.LedgerUtil;
+import io.nuls.protocol.constant.ProtocolConstant;
+import io.nuls.protocol.service.BlockService;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.function.LongSupplier;
+
+/**
+ * 在打包时间到来之前持续组装区块模板：从内存池取出交易逐笔验证，维护无冲突的待打包交易及临时输出，
+ * 新区块连接到模板所基于的区块之后时增量移除已确认的交易，出现冲突或分叉时重新验证模板中的交易。
+ * 模板已满时，手续费率更高的交易替换手续费率最低的交易包
+ * Keep assembling the block template ahead of the packing slot: take transactions from the memory pool and verify them one by one,
+ * keeping a conflict free candidate transaction list with its temporary outputs. When a new block connects to the block the template
+ * is based on, the confirmed transactions are removed incrementally, the template is verified again on a conflict or a fork.
+ * Once the template is full, a transaction with a higher fee rate replaces the package with the lowest fee rate.
+ */
+public class BlockTemplateProcess {
+
+    /**
+     * 增量追赶最新区块时最多向前查找的区块数
+     * The max count of blocks looked back when catching up with the best block incrementally.
+     */
+    private static final int MAX_CATCH_UP_BLOCK_COUNT = 6;
+
+    /**
+     * 每次从内存池取交易的最长时间，避免长时间占用模板
+     * The max time taking transactions from the memory pool each run, so the template is not held for long.
+     */
+    private static final long FILL_TIME_LIMIT = 100L;
+
+    /**
+     * 非系统交易按交易包（交易及其在模板中的后代交易）手续费率从低到高排序，相同时按交易hash
+     * Non system transactions ordered by the fee rate of their package (the transaction and its descendants in the template)
+     * from low to high, then by transaction hash.
+     */
+    private static final Comparator<TemplateEntry> PACKAGE_COMPARATOR = new Comparator<TemplateEntry>() {
+        @Override
+        public int compare(TemplateEntry o1, TemplateEntry o2) {
+            int result = Double.compare(o1.packageFeeRate(), o2.packageFeeRate());
+            if (result != 0) {
+                return result;
+            }
+            return o1.hash.compareTo(o2.hash);
+        }
+    };
+
+    private static final int ADDED = 0;
+    private static final int DROPPED = 1;
+    private static final int FULL = 2;
+
+    private ChainManager chainManager;
+
+    /**
+     * 每次从内存池取交易的最长时间，不大于0时不限制
+     * The max time taking transactions from the memory pool each run, no limit when not greater than 0.
+     */
+    private final long fillTimeLimit;
+
+    private final LongSupplier clock;
+
+    private TxMemoryPool txMemoryPool = TxMemoryPool.getInstance();
+
+    private LedgerService ledgerService = NulsContext.getServiceBean(LedgerService.class);
+    private BlockService blockService = NulsContext.getServiceBean(BlockService.class);
+
+    /**
+     * 模板所基于的区块hash，为空表示模板未启用
+     * Hash of the block the template is based on, null when the template is not active.
+     */
+    private NulsDigestData baseHash;
+
+    /**
+     * 交易hash -> 模板条目，按加入顺序排列，父交易在前
+     * tx hash -> template entry, in the order they were added, parents first.
+     */
+    private Map<String, TemplateEntry> entryMap = new LinkedHashMap<>();
+
+    /**
+     * 按交易包手续费率从低到高排序，模板已满时从这里取最低的交易包替换
+     * Ordered by package fee rate from low to high, the lowest package is taken from here to be replaced once the template is full.
+     */
+    private TreeSet<TemplateEntry> packageSet = new TreeSet<>(PACKAGE_COMPARATOR);
+
+    private long sequence;
+
+    private Map<String, Coin> toMap = new HashMap<>();
+    private Set<String> fromSet = new HashSet<>();
+    private long totalSize;
+
+    /**
+     * 模板交易占用的冲突键，即各处理器{@link io.nuls.kernel.processor.ConflictDetectProcessor#getConflictKeys}返回的键
+     * Conflict keys taken by the template transactions, the keys returned by {@link io.nuls.kernel.processor.ConflictDetectProcessor#getConflictKeys} of the processors.
+     */
+    private Map<NulsDigestData, List<ConflictKey>> txKeyMap = new HashMap<>();
+    private Map<String, Set<Transaction>> keyHolderMap = new HashMap<>();
+    private Set<String> exclusiveKeySet = new HashSet<>();
+
+    public BlockTemplateProcess(ChainManager chainManager) {
+        this(chainManager, FILL_TIME_LIMIT, System::currentTimeMillis);
+    }
+
+    BlockTemplateProcess(ChainManager chainManager, long fillTimeLimit, LongSupplier clock) {
+        this.chainManager = chainManager;
+        this.fillTimeLimit = fillTimeLimit;
+        this.clock = clock;
+    }
+
+    public void process() {
+        if (!canPackage()) {
+            clear();
+            return;
+        }
+        Block bestBlock = chainManager.getBestBlock();
+        if (null == bestBlock) {
+            return;
+        }
+        update(bestBlock);
+    }
+
+    /**
+     * 追赶最新区块并从内存池补充交易
+     * Catch up with the best block and take more transactions from the memory pool.
+     */
+    synchronized void update(Block bestBlock) {
+        syncBestBlock(bestBlock);
+        long endTime = fillTimeLimit > 0 ? clock.getAsLong() + fillTimeLimit : Long.MAX_VALUE;
+        Transaction tx;
+        while ((fillTimeLimit <= 0 || clock.getAsLong() < endTime) && (tx = txMemoryPool.get()) != null) {
+            if (tryAdd(tx) == FULL && tryReplace(tx) == FULL) {
+                // 内存池按手续费率取出交易，之后的交易也无法替换模板中的交易
+                // the pool hands out transactions by fee rate, the following ones can not replace template transactions either
+                txMemoryPool.addInFirst(tx, false);
+                break;
+            }
+        }
+    }
+
+    /**
+     * 等到封装时间后取出基于指定区块的模板，模板未启用时立即返回null，由调用者自行从内存池取交易
+     * Wait until the seal time and take the template based on the given block,
+     * null is returned at once when the template is not active, the caller takes transactions from the memory pool itself.
+     *
+     * @param preHash  新区块的前一个区块hash/hash of the previous block of the new block
+     * @param sealTime 封装时间/seal time
+     * @return BlockTemplate
+     */
+    public BlockTemplate waitTemplate(NulsDigestData preHash, long sealTime) {
+        if (!isActive()) {
+            return null;
+        }
+        while (TimeService.currentTimeMillis() < sealTime) {
+            try {
+                Thread.sleep(Math.min(100L, sealTime - TimeService.currentTimeMillis()));
+            } catch (InterruptedException e) {
+                Log.error(e);
+                break;
+            }
+        }
+        return getTemplate(preHash);
+    }
+
+    /**
+     * 取出模板的副本，模板不是基于指定区块时返回null
+     * Take a copy of the template, null is returned when the template is not based on the given block.
+     */
+    public synchronized BlockTemplate getTemplate(NulsDigestData preHash) {
+        if (null == baseHash) {
+            return null;
+        }
+        if (null != chainManager) {
+            Block bestBlock = chainManager.getBestBlock();
+            if (null != bestBlock) {
+                syncBestBlock(bestBlock);
+            }
+        }
+        if (!preHash.equals(baseHash)) {
+            return null;
+        }
+        return new BlockTemplate(getTxList(), new HashMap<>(toMap), new HashSet<>(fromSet), totalSize);
+    }
+
+    public synchronized boolean isActive() {
+        return null != baseHash;
+    }
+
+    public synchronized int size() {
+        return entryMap.size();
+    }
+
+    /**
+     * 停止维护模板，模板中的交易放回内存池
+     * Stop maintaining the template, the transactions in it are put back into the memory pool.
+     */
+    public synchronized void clear() {
+        if (null == baseHash) {
+            return;
+        }
+        for (TemplateEntry entry : entryMap.values()) {
+            txMemoryPool.add(entry.tx, false);
+        }
+        baseHash = null;
+        resetTemplate();
+    }
+
+    private boolean canPackage() {
+        if (!ConsensusConfig.isPartakePacking()) {
+            return false;
+        }
+        if (ConsensusStatusContext.getConsensusStatus().ordinal() < ConsensusStatus.RUNNING.ordinal()) {
+            return false;
+        }
+        MeetingRound round = chainManager.getMasterChain().getCurrentRound();
+        return null != round && null != round.getMyMember();
+    }
+
+    private void syncBestBlock(Block bestBlock) {
+        NulsDigestData bestHash = bestBlock.getHeader().getHash();
+        if (bestHash.equals(baseHash)) {
+            return;
+        }
+        if (null != baseHash) {
+            List<Block> blockList = getBlocksAfterBase(bestBlock);
+            if (null != blockList) {
+                boolean conflict = false;
+                for (Block block : blockList) {
+                    if (!applyBlock(block)) {
+                        conflict = true;
+                        break;
+                    }
+                }
+                if (!conflict) {
+                    baseHash = bestHash;
+                    return;
+                }
+            }
+        }
+        baseHash = bestHash;
+        rebuild();
+    }
+
+    /**
+     * 获取模板所基于的区块之后直到最新区块的所有区块，找不到时返回null
+     * Get the blocks after the block the template is based on up to the best block, null when not found.
+     */
+    private List<Block> getBlocksAfterBase(Block bestBlock) {
+        LinkedList<Block> blockList = new LinkedList<>();
+        Block block = bestBlock;
+        while (blockList.size() < MAX_CATCH_UP_BLOCK_COUNT) {
+            blockList.addFirst(block);
+            NulsDigestData preHash = block.getHeader().getPreHash();
+            if (null == preHash) {
+                return null;
+            }
+            if (preHash.equals(baseHash)) {
+                return blockList;
+            }
+            Result<Block> result = blockService.getBlock(preHash);
+            if (null == result || result.isFailed() || null == result.getData()) {
+                return null;
+            }
+            block = result.getData();
+        }
+        return null;
+    }
+
+    /**
+     * 移除区块中已确认的模板交易，以及冲突键（别名、节点等）与区块中交易冲突的模板交易，
+     * 区块中有其他交易花费了模板交易已花费的输出时返回false
+     * Remove the template transactions confirmed by the block, and the template transactions whose conflict keys (alias, agent and so on)
+     * conflict with a transaction of the block, false is returned when another transaction of the block spends an output
+     * already spent by the template.
+     */
+    private boolean applyBlock(Block block) {
+        List<TransactionProcessor> processorList = TransactionManager.getAllProcessorList();
+        boolean spent = false;
+        for (Transaction tx : block.getTxs()) {
+            if (entryMap.containsKey(tx.getHash().getDigestHex())) {
+                // 确认后输出已进入账本，花费记录同样由账本保证
+                // once confirmed the outputs are in the ledger, the spends are guarded by the ledger as well
+                removeTx(tx);
+                continue;
+            }
+            Set<Transaction> conflictSet = getConflictTxs(getConflictKeys(tx, processorList));
+            if (!conflictSet.isEmpty()) {
+                dropConflicts(conflictSet);
+            }
+            if (tx.isSystemTx() || null == tx.getCoinData()) {
+                continue;
+            }
+            for (Coin from : tx.getCoinData().getFrom()) {
+                if (fromSet.contains(LedgerUtil.asString(from.getOwner()))) {
+                    spent = true;
+                    break;
+                }
+            }
+            if (spent) {
+                break;
+            }
+        }
+        return !spent;
+    }
+
+    /**
+     * 移除与已确认交易冲突的模板交易及其后代交易，基于最新状态仍然有效的放回内存池，其余丢弃
+     * Remove the template transactions conflicting with a confirmed transaction together with their descendants,
+     * those still valid on the latest state go back to the memory pool, the others are dropped.
+     */
+    private void dropConflicts(Set<Transaction> conflictSet) {
+        List<Transaction> dropList = new ArrayList<>();
+        for (Transaction tx : conflictSet) {
+            TemplateEntry root = entryMap.get(tx.getHash().getDigestHex());
+            if (null == root) {
+                continue;
+            }
+            for (TemplateEntry member : getPackage(root)) {
+                if (entryMap.containsKey(member.hash)) {
+                    removeTx(member.tx);
+                    dropList.add(member.tx);
+                }
+            }
+        }
+        for (Transaction tx : dropList) {
+            if (tx.verify().isSuccess()) {
+                txMemoryPool.add(tx, false);
+            }
+        }
+    }
+
+    /**
+     * 模板已满时，新交易的手续费率高于模板中手续费率最低的交易包（交易及其在模板中的后代交易）时替换这些交易包，
+     * 被替换的交易放回内存池。新交易验证失败时恢复被替换的交易
+     * When the template is full and the new transaction has a higher fee rate than the package with the lowest fee rate
+     * (a transaction and its descendants in the template), those packages are replaced and their transactions go back
+     * to the memory pool. The replaced transactions are restored when the new transaction fails verification.
+     *
+     * @return 替换后加入的结果，不值得替换时返回FULL/the result of adding after the replacement, FULL if not worth replacing
+     */
+    private int tryReplace(Transaction tx) {
+        if (tx.isSystemTx() || entryMap.containsKey(tx.getHash().getDigestHex())) {
+            return FULL;
+        }
+        long txSize = tx.size();
+        long txFee = tx.getFee().getValue();
+        long freeSize = ProtocolConstant.MAX_BLOCK_SIZE - totalSize;
+        long evictFee = 0L;
+        Set<TemplateEntry> evictSet = new HashSet<>();
+        Iterator<TemplateEntry> it = packageSet.iterator();
+        while (freeSize < txSize) {
+            TemplateEntry lowest = null;
+            while (it.hasNext()) {
+                TemplateEntry entry = it.next();
+                if (!evictSet.contains(entry)) {
+                    lowest = entry;
+                    break;
+                }
+            }
+            if (null == lowest || txFee * (double) lowest.packageSize <= lowest.packageFee * (double) txSize) {
+                return FULL;
+            }
+            for (TemplateEntry member : getPackage(lowest)) {
+                if (evictSet.add(member)) {
+                    freeSize += member.size;
+                    evictFee += member.fee;
+                }
+            }
+        }
+        if (evictFee >= txFee) {
+            return FULL;
+        }
+        List<TemplateEntry> evictList = new ArrayList<>(evictSet);
+        evictList.sort((o1, o2) -> Long.compare(o1.sequence, o2.sequence));
+        // 后代交易先移除，祖先交易包的统计只需减去自身
+        // descendants are removed first, so the ancestor packages only subtract the removed transaction itself
+        for (int i = evictList.size() - 1; i >= 0; i--) {
+            removeTx(evictList.get(i).tx);
+        }
+        int result = tryAdd(tx);
+        if (result == ADDED) {
+            for (TemplateEntry member : evictList) {
+                txMemoryPool.add(member.tx, false);
+            }
+            return ADDED;
+        }
+        for (TemplateEntry member : evictList) {
+            tryAdd(member.tx);
+        }
+        return result;
+    }
+
+    /**
+     * 交易及其在模板中的所有后代交易，父交易在前
+     * The transaction and all of its descendants in the template, parents first.
+     */
+    private List<TemplateEntry> getPackage(TemplateEntry root) {
+        List<TemplateEntry> pkg = new ArrayList<>();
+        Set<TemplateEntry> seen = new HashSet<>();
+        LinkedList<TemplateEntry> queue = new LinkedList<>();
+        queue.add(root);
+        seen.add(root);
+        while (!queue.isEmpty()) {
+            TemplateEntry entry = queue.poll();
+            pkg.add(entry);
+            for (TemplateEntry child : entry.children) {
+                if (seen.add(child)) {
+                    queue.add(child);
+                }
+            }
+        }
+        return pkg;
+    }
+
+    /**
+     * 交易在模板中的所有祖先交易，不含自身
+     * All ancestors of the transaction in the template, itself excluded.
+     */
+    private Set<TemplateEntry> getAncestors(TemplateEntry entry) {
+        Set<TemplateEntry> ancestors = new HashSet<>();
+        LinkedList<TemplateEntry> queue = new LinkedList<>(entry.parents);
+        while (!queue.isEmpty()) {
+            TemplateEntry parent = queue.poll();
+            if (ancestors.add(parent)) {
+                queue.addAll(parent.parents);
+            }
+        }
+        return ancestors;
+    }
+
+    /**
+     * 修改交易包的统计前先移出有序集合，之后再放回
+     * The entry leaves the ordered set before its package totals change and is put back afterwards.
+     */
+    private void updatePackage(TemplateEntry entry, long fee, long size) {
+        boolean ordered = packageSet.remove(entry);
+        entry.packageFee += fee;
+        entry.packageSize += size;
+        if (ordered) {
+            packageSet.add(entry);
+        }
+    }
+
+    private void resetPackage(TemplateEntry entry) {
+        long fee = 0L;
+        long size = 0L;
+        for (TemplateEntry member : getPackage(entry)) {
+            fee += member.fee;
+            size += member.size;
+        }
+        updatePackage(entry, fee - entry.packageFee, size - entry.packageSize);
+    }
+
+    private List<Transaction> getTxList() {
+        List<Transaction> txList = new ArrayList<>(entryMap.size());
+        for (TemplateEntry entry : entryMap.values()) {
+            txList.add(entry.tx);
+        }
+        return txList;
+    }
+
+    /**
+     * 基于最新区块重新验证模板中的所有交易
+     * Verify all transactions of the template again on top of the best block.
+     */
+    private void rebuild() {
+        List<Transaction> oldTxList = getTxList();
+        resetTemplate();
+        for (Transaction tx : oldTxList) {
+            tryAdd(tx);
+        }
+    }
+
+    private void resetTemplate() {
+        entryMap = new LinkedHashMap<>();
+        packageSet = new TreeSet<>(PACKAGE_COMPARATOR);
+        toMap = new HashMap<>();
+        fromSet = new HashSet<>();
+        totalSize = 0L;
+        txKeyMap = new HashMap<>();
+        keyHolderMap = new HashMap<>();
+        exclusiveKeySet = new HashSet<>();
+    }
+
+    private int tryAdd(Transaction tx) {
+        if (entryMap.containsKey(tx.getHash().getDigestHex())) {
+            return DROPPED;
+        }
+        long txSize = tx.size();
+        if (totalSize + txSize > ProtocolConstant.MAX_BLOCK_SIZE) {
+            return FULL;
+        }
+        if (null != ledgerService.getTx(tx.getHash())) {
+            return DROPPED;
+        }
+        List<ConflictKey> keys = getConflictKeys(tx, TransactionManager.getAllProcessorList());
+        if (!getConflictTxs(keys).isEmpty()) {
+            return DROPPED;
+        }
+        if (!tx.isSystemTx()) {
+            List<String> newFromList = new ArrayList<>();
+            if (null != tx.getCoinData()) {
+                for (Coin from : tx.getCoinData().getFrom()) {
+                    String key = LedgerUtil.asString(from.getOwner());
+                    if (!fromSet.contains(key)) {
+                        newFromList.add(key);
+                    }
+                }
+            }
+            ValidateResult result = ledgerService.verifyCoinData(tx, toMap, fromSet);
+            if (result.isFailed()) {
+                // 验证失败时撤销这笔交易已写入的临时数据
+                // undo the temporary data already written by the failed transaction
+                fromSet.removeAll(newFromList);
+                removeTo(tx);
+                if (TransactionErrorCode.ORPHAN_TX.equals(result.getErrorCode())) {
+                    txMemoryPool.add(tx, true);
+                }
+                return DROPPED;
+            }
+        }
+        TemplateEntry entry = new TemplateEntry(tx, tx.getHash().getDigestHex(), sequence++);
+        entryMap.put(entry.hash, entry);
+        totalSize += entry.size;
+        takeKeys(tx, keys);
+        if (!tx.isSystemTx() && null != tx.getCoinData()) {
+            for (Coin from : tx.getCoinData().getFrom()) {
+                TemplateEntry parent = entryMap.get(LedgerUtil.getTxHash(from.getOwner()));
+                if (null != parent && parent != entry) {
+                    parent.children.add(entry);
+                    entry.parents.add(parent);
+                }
+            }
+        }
+        // 新交易在模板中还没有后代，只需计入各祖先交易包
+        // a new transaction has no descendants in the template yet, it is only added to the packages of its ancestors
+        for (TemplateEntry ancestor : getAncestors(entry)) {
+            updatePackage(ancestor, entry.fee, entry.size);
+        }
+        if (!tx.isSystemTx()) {
+            packageSet.add(entry);
+        }
+        return ADDED;
+    }
+
+    private void removeTx(Transaction tx) {
+        TemplateEntry entry = entryMap.remove(tx.getHash().getDigestHex());
+        if (null == entry) {
+            return;
+        }
+        totalSize -= entry.size;
+        removeOverlay(tx);
+        releaseKeys(tx);
+        packageSet.remove(entry);
+        Set<TemplateEntry> ancestors = getAncestors(entry);
+        for (TemplateEntry parent : entry.parents) {
+            parent.children.remove(entry);
+        }
+        for (TemplateEntry child : entry.children) {
+            child.parents.remove(entry);
+        }
+        // 没有后代时祖先交易包只需减去自身，否则重新统计
+        // without descendants the ancestor packages only subtract the transaction itself, otherwise they are counted again
+        boolean leaf = entry.children.isEmpty();
+        for (TemplateEntry ancestor : ancestors) {
+            if (leaf) {
+                updatePackage(ancestor, -entry.fee, -entry.size);
+            } else {
+                resetPackage(ancestor);
+            }
+        }
+    }
+
+    private List<ConflictKey> getConflictKeys(Transaction tx, List<TransactionProcessor> processorList) {
+        List<ConflictKey> keyList = new ArrayList<>();
+        for (TransactionProcessor processor : processorList) {
+            List<ConflictKey> keys = processor.getConflictKeys(tx);
+            if (null != keys) {
+                keyList.addAll(keys);
+            }
+        }
+        return keyList;
+    }
+
+    /**
+     * 占用与给定键冲突的键的模板交易，独占的键与任何已占用的同名键冲突，共享的键只与独占的同名键冲突
+     * The template transactions taking a key conflicting with the given keys, an exclusive key conflicts with
+     * any taken key of the same name, a shared key only with an exclusive one.
+     */
+    private Set<Transaction> getConflictTxs(List<ConflictKey> keys) {
+        Set<Transaction> conflictSet = new HashSet<>();
+        for (ConflictKey key : keys) {
+            Set<Transaction> holders = keyHolderMap.get(key.getKey());
+            if (null != holders && (key.isExclusive() || exclusiveKeySet.contains(key.getKey()))) {
+                conflictSet.addAll(holders);
+            }
+        }
+        return conflictSet;
+    }
+
+    private void takeKeys(Transaction tx, List<ConflictKey> keys) {
+        if (keys.isEmpty()) {
+            return;
+        }
+        txKeyMap.put(tx.getHash(), keys);
+        for (ConflictKey key : keys) {
+            keyHolderMap.computeIfAbsent(key.getKey(), k -> new HashSet<>()).add(tx);
+            if (key.isExclusive()) {
+                exclusiveKeySet.add(key.getKey());
+            }
+        }
+    }
+
+    private void releaseKeys(Transaction tx) {
+        List<ConflictKey> keys = txKeyMap.remove(tx.getHash());
+        if (null == keys) {
+            return;
+        }
+        for (ConflictKey key : keys) {
+            Set<Transaction> holders = keyHolderMap.get(key.getKey());
+            if (null != holders) {
+                holders.remove(tx);
+                if (holders.isEmpty()) {
+                    keyHolderMap.remove(key.getKey());
+                }
+            }
+            // 独占的键只有一个持有者
+            // an exclusive key has a single holder
+            if (key.isExclusive()) {
+                exclusiveKeySet.remove(key.getKey());
+            }
+        }
+    }
+
+    private void removeOverlay(Transaction tx) {
+        if (null == tx.getCoinData()) {
+            return;
+        }
+        for (Coin from : tx.getCoinData().getFrom()) {
+            fromSet.remove(LedgerUtil.asString(from.getOwner()));
+        }
+        removeTo(tx);
+    }
+
+    private void removeTo(Transaction tx) {
+        if (null == tx.getCoinData() || null == tx.getCoinData().getTo()) {
+            return;
+        }
+        try {
+            byte[] txBytes = tx.getHash().serialize();
+            for (int i = 0; i < tx.getCoinData().getTo().size(); i++) {
+                toMap.remove(LedgerUtil.asString(ArraysTool.concatenate(txBytes, new VarInt(i).encode())));
+            }
+        } catch (IOException e) {
+            Log.error(e);
+        }
+    }
+
+    private static final class TemplateEntry {
+
+        private final Transaction tx;
+
+        private final String hash;
+
+        private final long sequence;
+
+        private final long fee;
+
+        private final long size;
+
+        /**
+         * 自身及所有在模板中的后代交易的手续费与字节数之和
+         * Sum of the fee and size of itself and all its descendants in the template.
+         */
+        private long packageFee;
+
+        private long packageSize;
+
+        private final Set<TemplateEntry> parents = new HashSet<>();
+
+        private final Set<TemplateEntry> children = new HashSet<>();
+
+        private TemplateEntry(Transaction tx, String hash, long sequence) {
+            this.tx = tx;
+            this.hash = hash;
+            this.sequence = sequence;
+            this.fee = tx.getFee().getValue();
+            this.size = tx.size();
+            this.packageFee = fee;
+            this.packageSize = size;
+        }
+
+        private double packageFeeRate() {
+            return (double) packageFee / Math.max(1, packageSize);
+        }
+    }
+}
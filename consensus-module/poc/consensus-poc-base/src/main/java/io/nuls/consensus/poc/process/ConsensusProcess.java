@@ -35,6 +35,7 @@ import io.nuls.consensus.poc.context.ConsensusStatusContext;
 import io.nuls.consensus.poc.manager.ChainManager;
 import io.nuls.consensus.poc.model.BlockData;
 import io.nuls.consensus.poc.model.BlockExtendsData;
+import io.nuls.consensus.poc.model.BlockTemplate;
 import io.nuls.consensus.poc.model.MeetingMember;
 import io.nuls.consensus.poc.model.MeetingRound;
 import io.nuls.consensus.poc.protocol.constant.PunishReasonEnum;
@@ -75,6 +76,8 @@ public class ConsensusProcess {
 
     private ChainManager chainManager;
 
+    private BlockTemplateProcess blockTemplateProcess;
+
     private TxMemoryPool txMemoryPool = TxMemoryPool.getInstance();
     private BlockQueueProvider blockQueueProvider = BlockQueueProvider.getInstance();
 
@@ -90,8 +93,9 @@ public class ConsensusProcess {
     private boolean hasPacking;
     private long memoryPoolLastClearTime;
 
-    public ConsensusProcess(ChainManager chainManager) {
+    public ConsensusProcess(ChainManager chainManager, BlockTemplateProcess blockTemplateProcess) {
         this.chainManager = chainManager;
+        this.blockTemplateProcess = blockTemplateProcess;
     }
 
     public void process() {
@@ -349,7 +353,35 @@ public class ConsensusProcess {
         header.setTime(bd.getTime());
         tempBlock.setHeader(header);
         List<ContractResult> contractResultList = new ArrayList<>();
-        while (true) {
+        // 后台持续组装的区块模板已验证且无冲突，等到封装时间直接取出，模板不可用时才逐笔从内存池取交易
+        // The block template assembled in the background is verified and conflict free, it is taken at the seal time,
+        // transactions are taken from the memory pool one by one only when the template is unavailable.
+        BlockTemplate template = null;
+        if (null != blockTemplateProcess) {
+            template = blockTemplateProcess.waitTemplate(bestBlock.getHeader().getHash(), self.getPackEndTime() - 500L);
+        }
+        if (null != template) {
+            start = System.nanoTime();
+            toMaps.putAll(template.getToMap());
+            fromSet.addAll(template.getFromSet());
+            totalSize = template.getSize();
+            for (Transaction tx : template.getTxList()) {
+                outHashSet.add(tx.getHash());
+                // 合约的执行依赖区块高度和时间，仍在封装时执行
+                // contract execution depends on the block height and time, so it still runs at seal time
+                if (ContractUtil.isContractTransaction(tx)) {
+                    contractResult = contractService.batchPackageTx(tx, height, tempBlock, stateRoot, toMaps, contractUsedCoinMap).getData();
+                    if (contractResult != null) {
+                        contractResultList.add(contractResult);
+                    }
+                }
+                tx.setBlockHeight(bd.getHeight());
+                packingTxList.add(tx);
+            }
+            count = packingTxList.size();
+            addTime += (System.nanoTime() - start);
+        }
+        while (null == template) {
 
             if ((self.getPackEndTime() - TimeService.currentTimeMillis()) <= 500L) {
                 break;
@@ -446,28 +478,24 @@ public class ConsensusProcess {
         bd.setStateRoot(stateRoot);
 
         whileTime = System.currentTimeMillis() - startWhile;
-        ValidateResult validateResult = null;
-        int failedCount = 0;
         long failedUse = 0;
 
         start = System.nanoTime();
-        while (null == validateResult || validateResult.isFailed()) {
-            failedCount++;
-            validateResult = transactionService.conflictDetect(packingTxList);
-            if (validateResult.isFailed()) {
-                if (validateResult.getData() instanceof Transaction) {
-                    packingTxList.remove(validateResult.getData());
-                } else if (validateResult.getData() instanceof List) {
-                    List<Transaction> list = (List<Transaction>) validateResult.getData();
-                    if (list.size() == 2) {
-                        packingTxList.remove(list.get(1));
-                    } else {
-                        packingTxList.removeAll(list);
-                    }
-                } else if (validateResult.getData() == null) {
-                    Log.error("Cann't find the wrong transaction!");
-                }
+        // 单遍舍弃所有冲突的交易，保留一个极大的无冲突集合
+        // Discard all the conflicting transactions in a single pass, keeping a maximal conflict free set.
+        ValidateResult<List<Transaction>> validateResult = transactionService.resolveConflicts(packingTxList);
+        int failedCount = 0;
+        if (validateResult.isFailed()) {
+            List<Transaction> discardList = validateResult.getData();
+            failedCount = discardList.size();
+            if (discardList.isEmpty()) {
+                Log.error("Cann't find the wrong transaction!");
             }
+            // 交易没有重写equals，用按引用比较的集合一次性移除，避免removeAll逐笔扫描舍弃列表
+            // Transaction does not override equals, remove through an identity set in one pass instead of removeAll scanning the discard list per transaction.
+            Set<Transaction> discardSet = Collections.newSetFromMap(new IdentityHashMap<>());
+            discardSet.addAll(discardList);
+            packingTxList.removeIf(discardSet::contains);
         }
         // 组装CoinBase交易，另外合约调用退还剩余的Gas
         failedUse = System.nanoTime() - start;
@@ -27,6 +27,7 @@
 package io.nuls.consensus.poc.process;
 
 import com.google.common.primitives.UnsignedBytes;
+import io.nuls.consensus.constant.ConsensusConstant;
 import io.nuls.consensus.poc.constant.ConsensusStatus;
 import io.nuls.consensus.poc.constant.PocConsensusConstant;
 import io.nuls.consensus.poc.container.ChainContainer;
@@ -50,6 +51,8 @@ import io.nuls.kernel.context.NulsContext;
 import io.nuls.kernel.exception.NulsException;
 import io.nuls.kernel.func.TimeService;
 import io.nuls.kernel.model.*;
+import io.nuls.kernel.thread.manager.NulsThreadFactory;
+import io.nuls.kernel.thread.manager.TaskManager;
 import io.nuls.kernel.validate.ValidateResult;
 import io.nuls.ledger.service.LedgerService;
 import io.nuls.protocol.service.BlockService;
@@ -57,6 +60,9 @@ import io.nuls.protocol.service.TransactionService;
 
 import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 /**
  * @author ln
@@ -76,6 +82,8 @@ public class ForkChainProcess {
 
     private NulsProtocolProcess nulsProtocolProcess = NulsProtocolProcess.getInstance();
 
+    private ExecutorService signExecutor = TaskManager.createThreadPool(Runtime.getRuntime().availableProcessors(), Integer.MAX_VALUE, new NulsThreadFactory(ConsensusConstant.MODULE_ID_CONSENSUS, ""));
+
     public ForkChainProcess(ChainManager chainManager) {
         this.chainManager = chainManager;
     }
@@ -454,6 +462,17 @@ public class ForkChainProcess {
             Log.info("==========================================切换主链, 高度: {} 开始验证. + ", newBlock.getHeader().getHeight());
             newBlock.verifyWithException();
 
+            // 和BlockProcess一样在signExecutor中并行验证交易（包括签名），下面按顺序取结果并验证coinData
+            // Validate the transactions, signatures included, in parallel on signExecutor as BlockProcess does,
+            // the results are taken in order below together with the coinData validation.
+            List<Future<ValidateResult>> verifyFutures = new ArrayList<>();
+            for (Transaction tx : newBlock.getTxs()) {
+                if (!tx.isSystemTx()) {
+                    verifyFutures.add(signExecutor.submit(() -> tx.verify()));
+                }
+            }
+            Iterator<Future<ValidateResult>> verifyIterator = verifyFutures.iterator();
+
             Map<String, Coin> toMaps = new HashMap<>();
             Set<String> fromSet = new HashSet<>();
 
@@ -475,7 +494,14 @@ public class ForkChainProcess {
                     continue;
                 }
 
-                ValidateResult result = tx.verify();
+                ValidateResult result;
+                try {
+                    result = verifyIterator.next().get();
+                } catch (InterruptedException | ExecutionException e) {
+                    Log.error(e);
+                    changeSuccess = false;
+                    break;
+                }
                 if (result.isSuccess()) {
                     result = ledgerService.verifyCoinData(tx, toMaps, fromSet, bestHeight);
                     if (result.isFailed()) {
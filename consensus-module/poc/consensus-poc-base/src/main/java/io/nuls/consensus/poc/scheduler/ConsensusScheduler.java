@@ -77,13 +77,14 @@ public class ConsensusScheduler {
         PocConsensusContext.setChainManager(chainManager);
 
         cacheManager = new CacheManager(chainManager);
+        PocConsensusContext.setCacheManager(cacheManager);
         try {
             initDatas();
         } catch (Exception e) {
             Log.warn(e.getMessage());
         }
 
-        threadPool = TaskManager.createScheduledThreadPool(6,
+        threadPool = TaskManager.createScheduledThreadPool(8,
                 new NulsThreadFactory(ConsensusConstant.MODULE_ID_CONSENSUS, "consensus-poll-control"));
 
         BlockProcess blockProcess = new BlockProcess(chainManager, orphanBlockProvider);
@@ -92,7 +93,10 @@ public class ConsensusScheduler {
         ForkChainProcess forkChainProcess = new ForkChainProcess(chainManager);
         threadPool.scheduleAtFixedRate(new ForkChainProcessTask(forkChainProcess), 1000L, 1000L, TimeUnit.MILLISECONDS);
 
-        ConsensusProcess consensusProcess = new ConsensusProcess(chainManager);
+        BlockTemplateProcess blockTemplateProcess = new BlockTemplateProcess(chainManager);
+        threadPool.scheduleAtFixedRate(new BlockTemplateProcessTask(blockTemplateProcess), 1000L, 200L, TimeUnit.MILLISECONDS);
+
+        ConsensusProcess consensusProcess = new ConsensusProcess(chainManager, blockTemplateProcess);
         threadPool.scheduleAtFixedRate(new ConsensusProcessTask(consensusProcess), 1000L, 1000L, TimeUnit.MILLISECONDS);
 
         orphanBlockProcess = new OrphanBlockProcess(chainManager, orphanBlockProvider);
@@ -105,6 +109,8 @@ public class ConsensusScheduler {
         threadPool.scheduleAtFixedRate(new RewardCalculatorTask(NulsContext.getServiceBean(RewardStatisticsProcess.class)), ProtocolConstant.BLOCK_TIME_INTERVAL_SECOND, ProtocolConstant.BLOCK_TIME_INTERVAL_SECOND, TimeUnit.SECONDS);
 
         threadPool.scheduleAtFixedRate(new TxProcessTask(), 5, 1, TimeUnit.SECONDS);
+
+        threadPool.scheduleAtFixedRate(new CheckpointTask(cacheManager), 60, 60, TimeUnit.SECONDS);
         return true;
     }
 
@@ -32,7 +32,6 @@ import io.nuls.core.tools.log.Log;
 import io.nuls.kernel.constant.TransactionErrorCode;
 import io.nuls.kernel.context.NulsContext;
 import io.nuls.kernel.exception.NulsException;
-import io.nuls.kernel.func.TimeService;
 import io.nuls.kernel.model.Coin;
 import io.nuls.kernel.model.Result;
 import io.nuls.kernel.model.Transaction;
@@ -63,10 +62,14 @@ public class TxProcessTask implements Runnable {
     private Map<String, Coin> temporaryToMap = new HashMap<>();
     private Set<String> temporaryFromSet = new HashSet<>();
 
-    private List<Transaction> orphanTxList = new ArrayList<>();
-
     private static int maxOrphanSize = 200000;
 
+    /**
+     * 孤儿交易在内存池中等待父交易的最长时间
+     * The max time an orphan waits for its parent in the pool.
+     */
+    private static final long ORPHAN_EXPIRE_TIME = 3600000L;
+
 //    int count = 0;
 //    int size = 0;
 
@@ -87,28 +90,35 @@ public class TxProcessTask implements Runnable {
 
     private void doTask() {
 
-        if (TxMemoryPool.getInstance().getPoolSize() >= 1000000L) {
+        if (pool.getPoolSize() >= 1000000L) {
             return;
         }
 
         Transaction tx = null;
-        while ((tx = transactionQueueStorageService.pollTx()) != null && orphanTxList.size() < maxOrphanSize) {
+        while ((tx = transactionQueueStorageService.pollTx()) != null && pool.getOrphanPoolSize() < maxOrphanSize) {
 //            size++;
             processTx(tx, false);
         }
     }
 
 
+    /**
+     * 只重新验证父交易已到达的孤儿交易，不再定时扫描全部孤儿交易
+     * Only verify again the orphans whose parent has arrived, instead of rescanning all orphans periodically.
+     */
     private void doOrphanTxTask() {
-        orphanTxList.sort(txComparator);
-
-        Iterator<Transaction> it = orphanTxList.iterator();
-        while (it.hasNext()) {
-            Transaction tx = it.next();
-            boolean success = processTx(tx, true);
-            if (success) {
-                it.remove();
+        pool.removeExpiredOrphans(System.currentTimeMillis() - ORPHAN_EXPIRE_TIME);
+
+        List<Transaction> orphanTxList = pool.takeResolvedOrphans();
+        while (!orphanTxList.isEmpty()) {
+            orphanTxList = new ArrayList<>(orphanTxList);
+            orphanTxList.sort(txComparator);
+            for (Transaction tx : orphanTxList) {
+                processTx(tx, true);
             }
+            // 验证通过的孤儿交易可能又是其他孤儿交易的父交易
+            // an orphan that passed may be the parent of other orphans
+            orphanTxList = pool.takeResolvedOrphans();
         }
     }
 
@@ -127,7 +137,11 @@ public class TxProcessTask implements Runnable {
 
             ValidateResult validateResult = ledgerService.verifyCoinData(tx, temporaryToMap, temporaryFromSet);
             if (validateResult.isSuccess()) {
-                pool.add(tx, false);
+                // 与内存池中的交易双花或手续费率过低时不再缓存和转发
+                // not cached or forwarded when double spending a pool transaction or the fee rate is too low
+                if (!pool.add(tx, false)) {
+                    return false;
+                }
 
                 List<Coin> fromCoins = tx.getCoinData().getFrom();
                 for (Coin coin : fromCoins) {
@@ -141,10 +155,8 @@ public class TxProcessTask implements Runnable {
                 transactionService.forwardTx(tx, null);
 
                 return true;
-            } else if (validateResult.getErrorCode().equals(TransactionErrorCode.ORPHAN_TX) && !isOrphanTx) {
+            } else if (validateResult.getErrorCode().equals(TransactionErrorCode.ORPHAN_TX)) {
                 processOrphanTx(tx);
-            } else if (isOrphanTx) {
-                return tx.getTime() < (TimeService.currentTimeMillis() - 3600000L);
             }
         } catch (Exception e) {
             Log.error(e);
@@ -153,6 +165,6 @@ public class TxProcessTask implements Runnable {
     }
 
     private void processOrphanTx(Transaction tx) throws NulsException {
-        orphanTxList.add(tx);
+        pool.add(tx, true);
     }
 }
@@ -42,11 +42,13 @@ import io.nuls.kernel.lite.annotation.Component;
 import io.nuls.kernel.model.NulsDigestData;
 import io.nuls.kernel.model.Result;
 import io.nuls.kernel.model.Transaction;
+import io.nuls.kernel.processor.ConflictKey;
 import io.nuls.kernel.processor.TransactionProcessor;
 import io.nuls.kernel.utils.AddressTool;
 import io.nuls.kernel.validate.ValidateResult;
 import io.nuls.ledger.service.LedgerService;
 
+import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
@@ -57,6 +59,12 @@ import java.util.Set;
 @Component
 public class CancelDepositTxProcessor implements TransactionProcessor<CancelDepositTransaction> {
 
+    private static final String DEPOSIT_KEY_PREFIX = "cancel-deposit:";
+
+    private static final String AGENT_KEY_PREFIX = "cancel-deposit-agent:";
+
+    private static final String ADDRESS_KEY_PREFIX = "cancel-deposit-address:";
+
     @Autowired
     private DepositStorageService depositStorageService;
 
@@ -131,22 +139,47 @@ public class CancelDepositTxProcessor implements TransactionProcessor<CancelDepo
             if (tx.getType() == ConsensusConstant.TX_TYPE_CANCEL_DEPOSIT) {
                 CancelDepositTransaction transaction = (CancelDepositTransaction) tx;
                 if (!hashSet.add(transaction.getTxData().getJoinTxHash())) {
-                    return ValidateResult.getFailedResult(this.getClass().getName(), TransactionErrorCode.TRANSACTION_REPEATED);
+                    return (ValidateResult) ValidateResult.getFailedResult(this.getClass().getName(), TransactionErrorCode.TRANSACTION_REPEATED).setData(transaction);
                 }
                 if (agentHashSet.contains(transaction.getTxData().getJoinTxHash())) {
-                    return ValidateResult.getFailedResult(this.getClass().getName(), PocConsensusErrorCode.AGENT_STOPPED);
+                    return (ValidateResult) ValidateResult.getFailedResult(this.getClass().getName(), PocConsensusErrorCode.AGENT_STOPPED).setData(transaction);
                 }
                 DepositPo depositPo = depositStorageService.get(transaction.getTxData().getJoinTxHash());
                 AgentPo agentPo = agentStorageService.get(depositPo.getAgentHash());
                 if (null == agentPo) {
-                    return ValidateResult.getFailedResult(this.getClass().getName(), PocConsensusErrorCode.AGENT_NOT_EXIST);
+                    return (ValidateResult) ValidateResult.getFailedResult(this.getClass().getName(), PocConsensusErrorCode.AGENT_NOT_EXIST).setData(transaction);
                 }
                 if (addressSet.contains(AddressTool.getStringAddressByBytes(agentPo.getAgentAddress()))) {
-                    return ValidateResult.getFailedResult(this.getClass().getName(), PocConsensusErrorCode.AGENT_PUNISHED);
+                    return (ValidateResult) ValidateResult.getFailedResult(this.getClass().getName(), PocConsensusErrorCode.AGENT_PUNISHED).setData(transaction);
                 }
             }
         }
 
         return ValidateResult.getSuccessResult();
     }
+
+    @Override
+    public List<ConflictKey> getConflictKeys(Transaction tx) {
+        List<ConflictKey> keys = new ArrayList<>();
+        if (tx.getType() == ConsensusConstant.TX_TYPE_RED_PUNISH) {
+            RedPunishTransaction transaction = (RedPunishTransaction) tx;
+            keys.add(ConflictKey.exclusive(ADDRESS_KEY_PREFIX + AddressTool.getStringAddressByBytes(transaction.getTxData().getAddress()), PocConsensusErrorCode.AGENT_PUNISHED));
+        } else if (tx.getType() == ConsensusConstant.TX_TYPE_STOP_AGENT) {
+            StopAgentTransaction transaction = (StopAgentTransaction) tx;
+            keys.add(ConflictKey.exclusive(AGENT_KEY_PREFIX + transaction.getTxData().getCreateTxHash().getDigestHex(), PocConsensusErrorCode.AGENT_STOPPED));
+        } else if (tx.getType() == ConsensusConstant.TX_TYPE_CANCEL_DEPOSIT) {
+            CancelDepositTransaction transaction = (CancelDepositTransaction) tx;
+            NulsDigestData joinTxHash = transaction.getTxData().getJoinTxHash();
+            keys.add(ConflictKey.exclusive(DEPOSIT_KEY_PREFIX + joinTxHash.getDigestHex(), TransactionErrorCode.TRANSACTION_REPEATED));
+            keys.add(ConflictKey.shared(AGENT_KEY_PREFIX + joinTxHash.getDigestHex(), PocConsensusErrorCode.AGENT_STOPPED));
+            DepositPo depositPo = depositStorageService.get(joinTxHash);
+            AgentPo agentPo = null == depositPo ? null : agentStorageService.get(depositPo.getAgentHash());
+            if (null != agentPo) {
+                keys.add(ConflictKey.shared(ADDRESS_KEY_PREFIX + AddressTool.getStringAddressByBytes(agentPo.getAgentAddress()), PocConsensusErrorCode.AGENT_PUNISHED));
+            }
+        } else {
+            return null;
+        }
+        return keys;
+    }
 }
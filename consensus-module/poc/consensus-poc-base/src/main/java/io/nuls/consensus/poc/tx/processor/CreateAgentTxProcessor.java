@@ -47,9 +47,11 @@ import io.nuls.kernel.lite.core.bean.InitializingBean;
 import io.nuls.kernel.model.BlockHeader;
 import io.nuls.kernel.model.Result;
 import io.nuls.kernel.model.Transaction;
+import io.nuls.kernel.processor.ConflictKey;
 import io.nuls.kernel.processor.TransactionProcessor;
 import io.nuls.kernel.validate.ValidateResult;
 
+import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
@@ -60,6 +62,8 @@ import java.util.Set;
 @Component
 public class CreateAgentTxProcessor implements TransactionProcessor<CreateAgentTransaction> {
 
+    private static final String ADDRESS_KEY_PREFIX = "create-agent-address:";
+
     @Autowired
     private AgentStorageService agentStorageService;
 
@@ -124,4 +128,22 @@ public class CreateAgentTxProcessor implements TransactionProcessor<CreateAgentT
 
         return ValidateResult.getSuccessResult();
     }
-}
\ No newline at end of file
+
+    @Override
+    public List<ConflictKey> getConflictKeys(Transaction tx) {
+        // 委托人、打包人地址以及红牌惩罚的地址都只能出现一次
+        // The agent address, the packing address and the address of the red punish can only appear once.
+        List<ConflictKey> keys = new ArrayList<>();
+        if (tx.getType() == ConsensusConstant.TX_TYPE_REGISTER_AGENT) {
+            Agent agent = ((CreateAgentTransaction) tx).getTxData();
+            keys.add(ConflictKey.exclusive(ADDRESS_KEY_PREFIX + Hex.encode(agent.getAgentAddress()), PocConsensusErrorCode.AGENT_EXIST));
+            keys.add(ConflictKey.exclusive(ADDRESS_KEY_PREFIX + Hex.encode(agent.getPackingAddress()), PocConsensusErrorCode.AGENT_EXIST));
+        } else if (tx.getType() == ConsensusConstant.TX_TYPE_RED_PUNISH) {
+            RedPunishData redPunishData = ((RedPunishTransaction) tx).getTxData();
+            keys.add(ConflictKey.exclusive(ADDRESS_KEY_PREFIX + Hex.encode(redPunishData.getAddress()), PocConsensusErrorCode.LACK_OF_CREDIT));
+        } else {
+            return null;
+        }
+        return keys;
+    }
+}
@@ -44,6 +44,7 @@ import io.nuls.kernel.context.NulsContext;
 import io.nuls.kernel.lite.annotation.Autowired;
 import io.nuls.kernel.lite.annotation.Component;
 import io.nuls.kernel.model.*;
+import io.nuls.kernel.processor.ConflictKey;
 import io.nuls.kernel.processor.TransactionProcessor;
 import io.nuls.kernel.validate.ValidateResult;
 
@@ -55,6 +56,8 @@ import java.util.*;
 @Component
 public class DepositTxProcessor implements TransactionProcessor<DepositTransaction> {
 
+    private static final String AGENT_KEY_PREFIX = "deposit-agent:";
+
     @Autowired
     private DepositStorageService depositStorageService;
 
@@ -206,4 +209,32 @@ public class DepositTxProcessor implements TransactionProcessor<DepositTransacti
         }
         return na;
     }
+
+    @Override
+    public List<ConflictKey> getConflictKeys(Transaction tx) {
+        // 注销或被红牌惩罚的节点不能再接受委托
+        // An agent that is stopped or red punished can no longer accept deposits.
+        List<ConflictKey> keys = new ArrayList<>();
+        switch (tx.getType()) {
+            case ConsensusConstant.TX_TYPE_STOP_AGENT:
+                StopAgentTransaction stopAgentTransaction = (StopAgentTransaction) tx;
+                keys.add(ConflictKey.exclusive(AGENT_KEY_PREFIX + stopAgentTransaction.getTxData().getCreateTxHash().getDigestHex(), PocConsensusErrorCode.AGENT_STOPPED));
+                break;
+            case ConsensusConstant.TX_TYPE_JOIN_CONSENSUS:
+                DepositTransaction depositTransaction = (DepositTransaction) tx;
+                keys.add(ConflictKey.shared(AGENT_KEY_PREFIX + depositTransaction.getTxData().getAgentHash().getDigestHex(), PocConsensusErrorCode.AGENT_STOPPED));
+                break;
+            case ConsensusConstant.TX_TYPE_RED_PUNISH:
+                RedPunishTransaction redPunishTransaction = (RedPunishTransaction) tx;
+                AgentPo agent = this.getAgentByAddress(redPunishTransaction.getTxData().getAddress());
+                if (null == agent) {
+                    return null;
+                }
+                keys.add(ConflictKey.exclusive(AGENT_KEY_PREFIX + agent.getHash().getDigestHex(), PocConsensusErrorCode.AGENT_STOPPED));
+                break;
+            default:
+                return null;
+        }
+        return keys;
+    }
 }
@@ -47,6 +47,7 @@ import io.nuls.kernel.model.BlockHeader;
 import io.nuls.kernel.model.NulsDigestData;
 import io.nuls.kernel.model.Result;
 import io.nuls.kernel.model.Transaction;
+import io.nuls.kernel.processor.ConflictKey;
 import io.nuls.kernel.processor.TransactionProcessor;
 import io.nuls.kernel.utils.AddressTool;
 import io.nuls.kernel.validate.ValidateResult;
@@ -63,6 +64,10 @@ import java.util.Set;
 @Component
 public class StopAgentTxProcessor implements TransactionProcessor<StopAgentTransaction> {
 
+    private static final String AGENT_KEY_PREFIX = "stop-agent:";
+
+    private static final String ADDRESS_KEY_PREFIX = "stop-agent-address:";
+
     @Autowired
     private AgentStorageService agentStorageService;
 
@@ -170,4 +175,29 @@ public class StopAgentTxProcessor implements TransactionProcessor<StopAgentTrans
         }
         return ValidateResult.getSuccessResult();
     }
+
+    @Override
+    public List<ConflictKey> getConflictKeys(Transaction tx) {
+        List<ConflictKey> keys = new ArrayList<>();
+        if (tx.getType() == ConsensusConstant.TX_TYPE_RED_PUNISH) {
+            RedPunishTransaction transaction = (RedPunishTransaction) tx;
+            keys.add(ConflictKey.exclusive(ADDRESS_KEY_PREFIX + AddressTool.getStringAddressByBytes(transaction.getTxData().getAddress()), PocConsensusErrorCode.AGENT_STOPPED));
+        } else if (tx.getType() == ConsensusConstant.TX_TYPE_STOP_AGENT) {
+            StopAgentTransaction transaction = (StopAgentTransaction) tx;
+            keys.add(ConflictKey.exclusive(AGENT_KEY_PREFIX + transaction.getTxData().getCreateTxHash().getDigestHex(), TransactionErrorCode.TRANSACTION_REPEATED));
+            if (transaction.getTxData().getAddress() == null) {
+                CreateAgentTransaction agentTransaction = (CreateAgentTransaction) ledgerService.getTx(transaction.getTxData().getCreateTxHash());
+                if (null == agentTransaction) {
+                    // 节点不存在的情况由conflictDetect报告
+                    // A missing agent is reported by conflictDetect.
+                    return keys;
+                }
+                transaction.getTxData().setAddress(agentTransaction.getTxData().getAgentAddress());
+            }
+            keys.add(ConflictKey.shared(ADDRESS_KEY_PREFIX + AddressTool.getStringAddressByBytes(transaction.getTxData().getAddress()), PocConsensusErrorCode.AGENT_STOPPED));
+        } else {
+            return null;
+        }
+        return keys;
+    }
 }
@@ -0,0 +1,118 @@
+/*
+ * *
+ *  * MIT License
+ *  *
+ *  * Copyright (c) 2017-2018 nuls.io
+ *  *
+ *  * Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  * of this software and associated documentation files (the "Software"), to deal
+ *  * in the Software without restriction, including without limitation the rights
+ *  * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  * copies of the Software, and to permit persons to whom the Software is
+ *  * furnished to do so, subject to the following conditions:
+ *  *
+ *  * The above copyright notice and this permission notice shall be included in all
+ *  * copies or substantial portions of the Software.
+ *  *
+ *  * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  * SOFTWARE.
+ *
+ */
+
+package io.nuls.consensus.poc.cache;
+
+import io.nuls.consensus.poc.TestTransaction;
+import io.nuls.core.tools.array.ArraysTool;
+import io.nuls.kernel.model.Coin;
+import io.nuls.kernel.model.CoinData;
+import io.nuls.kernel.model.Na;
+import io.nuls.kernel.model.NulsDigestData;
+import io.nuls.kernel.model.Transaction;
+import io.nuls.kernel.utils.VarInt;
+import org.junit.Before;
+import org.junit.Ignore;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 交易内存池入池、双花拒绝和按手续费率出池的耗时基准，不在常规单元测试中运行
+ * Benchmark of pool admission, double-spend rejection and fee-rate ordered draining, not part of the regular unit test run.
+ */
+@Ignore
+public class TxMemoryPoolPerformanceTest {
+
+    private TxMemoryPool txMemoryPool = TxMemoryPool.getInstance();
+
+    private long time = 1000L;
+
+    @Before
+    public void init() {
+        txMemoryPool.clear();
+    }
+
+    @Test
+    public void testAddAndGet() throws IOException {
+        int count = 100000;
+        List<Transaction> txList = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Transaction tx = createTx(fundingHash(i), 100000L + (i * 7919L) % 1000000L);
+            tx.size();
+            txList.add(tx);
+        }
+        long start = System.currentTimeMillis();
+        for (Transaction tx : txList) {
+            assertTrue(txMemoryPool.add(tx, false));
+        }
+        for (Transaction tx : txList) {
+            assertFalse(txMemoryPool.add(createTx(tx.getFee().getValue() + 1, tx.getCoinData().getFrom().get(0).getOwner()), false));
+        }
+        long addUse = System.currentTimeMillis() - start;
+        start = System.currentTimeMillis();
+        long lastFee = Long.MAX_VALUE;
+        Transaction tx;
+        while ((tx = txMemoryPool.get()) != null) {
+            assertTrue(tx.getFee().getValue() <= lastFee);
+            lastFee = tx.getFee().getValue();
+        }
+        long getUse = System.currentTimeMillis() - start;
+        System.out.println("add " + count + " txs and reject " + count + " double spends use : " + addUse + "ms , get all by fee rate use : " + getUse + "ms");
+    }
+
+    private NulsDigestData fundingHash(int i) {
+        return NulsDigestData.calcDigestData(new VarInt(i).encode());
+    }
+
+    private byte[] outpoint(NulsDigestData hash, int index) throws IOException {
+        return ArraysTool.concatenate(hash.serialize(), new VarInt(index).encode());
+    }
+
+    private Transaction createTx(NulsDigestData fromHash, long fee) throws IOException {
+        return createTx(fee, outpoint(fromHash, 0));
+    }
+
+    private Transaction createTx(long fee, byte[] outpoint) throws IOException {
+        Transaction tx = new TestTransaction();
+        tx.setTime(time++);
+        CoinData coinData = new CoinData();
+        List<Coin> from = new ArrayList<>();
+        from.add(new Coin(outpoint, Na.valueOf(100000000L), 0L));
+        coinData.setFrom(from);
+        List<Coin> to = new ArrayList<>();
+        to.add(new Coin(new byte[23], Na.valueOf(100000000L - fee), 0L));
+        coinData.setTo(to);
+        tx.setCoinData(coinData);
+        tx.setHash(NulsDigestData.calcDigestData(tx.serializeForHash()));
+        return tx;
+    }
+}
@@ -27,9 +27,19 @@
 package io.nuls.consensus.poc.cache;
 
 import io.nuls.consensus.poc.TestTransaction;
+import io.nuls.core.tools.array.ArraysTool;
+import io.nuls.kernel.model.CoinData;
+import io.nuls.kernel.model.Coin;
+import io.nuls.kernel.model.Na;
+import io.nuls.kernel.model.NulsDigestData;
 import io.nuls.kernel.model.Transaction;
+import io.nuls.kernel.utils.VarInt;
+import org.junit.Before;
 import org.junit.Test;
 
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 import static org.junit.Assert.*;
@@ -41,50 +51,33 @@ public class TxMemoryPoolTest {
 
     private TxMemoryPool txMemoryPool = TxMemoryPool.getInstance();
 
+    private long time = 1000L;
+
+    @Before
+    public void init() {
+        txMemoryPool.clear();
+    }
+
     @Test
-    public void test() {
+    public void test() throws IOException {
         assertNotNull(txMemoryPool);
 
-        Transaction tx = new TestTransaction();
+        Transaction tx = createTx(fundingHash(1), 100000L);
 
         boolean success = txMemoryPool.add(tx, false);
-
         assertTrue(success);
+        assertFalse(txMemoryPool.add(tx, false));
 
         Transaction tempTx = txMemoryPool.get();
-
         assertEquals(tx, tempTx);
 
         tempTx = txMemoryPool.get();
-
         assertNull(tempTx);
 
-//        tempTx = txMemoryPool.get(tx.getTx().getHash());
-//        assertNull(tempTx);
-//
-//        txMemoryPool.add(tx, false);
-//        tempTx = txMemoryPool.get(tx.getTx().getHash());
-//        assertEquals(tempTx, tx);
-//
-//        tempTx = txMemoryPool.get(tx.getTx().getHash());
-//        assertEquals(tempTx, tx);
-
-        Transaction tx2 = new TestTransaction();
+        Transaction tx2 = createTx(fundingHash(2), 100000L);
         txMemoryPool.add(tx2, true);
+        assertNull(txMemoryPool.get());
 
-        tempTx = txMemoryPool.get();
-
-        assertNotNull(tempTx);
-        assertEquals(tempTx, tx);
-        tempTx = txMemoryPool.get();
-
-        assertNotNull(tempTx);
-        assertEquals(tempTx, tx2);
-
-        tempTx = txMemoryPool.get();
-        assertNull(tempTx);
-
-        txMemoryPool.add(tx2, true);
         List<Transaction> list = txMemoryPool.getAll();
         assertEquals(list.size(), 0);
 
@@ -103,4 +96,169 @@ public class TxMemoryPoolTest {
         success = txMemoryPool.exist(tx2.getHash());
         assertFalse(success);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testDoubleSpend() throws IOException {
+        byte[] outpoint = outpoint(fundingHash(1), 0);
+        Transaction tx = createTx(100000L, outpoint);
+        Transaction doubleSpend = createTx(200000L, outpoint);
+
+        assertTrue(txMemoryPool.add(tx, false));
+        assertFalse(txMemoryPool.add(doubleSpend, false));
+        assertEquals(1, txMemoryPool.size());
+
+        assertEquals(tx, txMemoryPool.get());
+        // 取出打包后输出不再被占用
+        assertTrue(txMemoryPool.add(doubleSpend, false));
+    }
+
+    @Test
+    public void testFeeRateOrder() throws IOException {
+        Transaction low = createTx(fundingHash(1), 100000L);
+        Transaction high = createTx(fundingHash(2), 300000L);
+        Transaction middle = createTx(fundingHash(3), 200000L);
+        txMemoryPool.add(low, false);
+        txMemoryPool.add(high, false);
+        txMemoryPool.add(middle, false);
+
+        assertEquals(high, txMemoryPool.get());
+        assertEquals(middle, txMemoryPool.get());
+        assertEquals(low, txMemoryPool.get());
+        assertNull(txMemoryPool.get());
+    }
+
+    @Test
+    public void testAncestorPackage() throws IOException {
+        Transaction parent = createTx(fundingHash(1), 100000L);
+        Transaction child = createTx(parent.getHash(), 1000000L);
+        Transaction middle = createTx(fundingHash(2), 300000L);
+        txMemoryPool.add(parent, false);
+        txMemoryPool.add(middle, false);
+        txMemoryPool.add(child, false);
+
+        // 子交易带动父交易的手续费率超过middle，父交易必须先于子交易取出
+        assertEquals(parent, txMemoryPool.get());
+        assertEquals(child, txMemoryPool.get());
+        assertEquals(middle, txMemoryPool.get());
+    }
+
+    @Test
+    public void testEviction() throws IOException {
+        Transaction first = createTx(fundingHash(1), 200000L);
+        long maxBytes = first.size() * 3L;
+        TxMemoryPool pool = new TxMemoryPool(maxBytes, 10);
+
+        Transaction second = createTx(fundingHash(2), 300000L);
+        Transaction third = createTx(fundingHash(3), 400000L);
+        Transaction child = createTx(first.getHash(), 500000L);
+        assertTrue(pool.add(first, false));
+        assertTrue(pool.add(child, false));
+        assertTrue(pool.add(second, false));
+        assertTrue(pool.getPoolBytes() <= maxBytes);
+
+        // 手续费率最低的first连同它的子交易一起被淘汰
+        assertTrue(pool.add(third, false));
+        assertFalse(pool.exist(first.getHash()));
+        assertFalse(pool.exist(child.getHash()));
+        assertEquals(2, pool.size());
+
+        assertTrue(pool.add(createTx(fundingHash(4), 350000L), false));
+        Transaction lowest = createTx(fundingHash(5), 1000L);
+        assertFalse(pool.add(lowest, false));
+        assertEquals(3, pool.size());
+        assertTrue(pool.getPoolBytes() <= maxBytes);
+    }
+
+    @Test
+    public void testOrphanResolution() throws IOException {
+        Transaction parent = createTx(fundingHash(1), 100000L);
+        Transaction child = createTx(parent.getHash(), 100000L);
+
+        assertTrue(txMemoryPool.add(child, true));
+        assertEquals(1, txMemoryPool.getOrphanPoolSize());
+        assertTrue(txMemoryPool.takeResolvedOrphans().isEmpty());
+
+        assertTrue(txMemoryPool.add(parent, false));
+        assertEquals(0, txMemoryPool.getOrphanPoolSize());
+        assertEquals(Arrays.asList(child), txMemoryPool.takeResolvedOrphans());
+        assertTrue(txMemoryPool.takeResolvedOrphans().isEmpty());
+
+        Transaction orphan = createTx(fundingHash(2), 100000L);
+        txMemoryPool.add(orphan, true);
+        assertEquals(0, txMemoryPool.removeExpiredOrphans(System.currentTimeMillis() - 3600000L));
+        assertEquals(1, txMemoryPool.removeExpiredOrphans(System.currentTimeMillis() + 1));
+        assertEquals(0, txMemoryPool.getOrphanPoolSize());
+    }
+
+    @Test
+    public void testRemoveConfirmed() throws IOException {
+        Transaction parent = createTx(fundingHash(1), 100000L);
+        Transaction child = createTx(parent.getHash(), 100000L);
+        Transaction spender = createTx(fundingHash(2), 100000L);
+        Transaction orphan = createTx(spender.getHash(), 100000L);
+        txMemoryPool.add(parent, false);
+        txMemoryPool.add(child, false);
+        txMemoryPool.add(spender, false);
+        txMemoryPool.add(orphan, true);
+
+        // 区块确认了child以及与spender双花的另一笔交易
+        Transaction conflict = createTx(200000L, outpoint(fundingHash(2), 0));
+        List<Transaction> blockTxs = new ArrayList<>();
+        blockTxs.add(child);
+        blockTxs.add(conflict);
+        txMemoryPool.removeConfirmed(blockTxs);
+
+        assertEquals(0, txMemoryPool.size());
+        assertEquals(0, txMemoryPool.getPoolBytes());
+        assertEquals(1, txMemoryPool.getOrphanPoolSize());
+    }
+
+    @Test
+    public void testFeeOrderWithManyTxs() throws IOException {
+        int count = 2000;
+        List<Transaction> txList = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            txList.add(createTx(fundingHash(i), 100000L + (i * 7919L) % 1000000L));
+        }
+        for (Transaction tx : txList) {
+            assertTrue(txMemoryPool.add(tx, false));
+        }
+        for (Transaction tx : txList) {
+            assertFalse(txMemoryPool.add(createTx(tx.getFee().getValue() + 1, tx.getCoinData().getFrom().get(0).getOwner()), false));
+        }
+        assertEquals(count, txMemoryPool.size());
+        long lastFee = Long.MAX_VALUE;
+        Transaction tx;
+        while ((tx = txMemoryPool.get()) != null) {
+            assertTrue(tx.getFee().getValue() <= lastFee);
+            lastFee = tx.getFee().getValue();
+        }
+    }
+
+    private NulsDigestData fundingHash(int i) {
+        return NulsDigestData.calcDigestData(new VarInt(i).encode());
+    }
+
+    private byte[] outpoint(NulsDigestData hash, int index) throws IOException {
+        return ArraysTool.concatenate(hash.serialize(), new VarInt(index).encode());
+    }
+
+    private Transaction createTx(NulsDigestData fromHash, long fee) throws IOException {
+        return createTx(fee, outpoint(fromHash, 0));
+    }
+
+    private Transaction createTx(long fee, byte[] outpoint) throws IOException {
+        Transaction tx = new TestTransaction();
+        tx.setTime(time++);
+        CoinData coinData = new CoinData();
+        List<Coin> from = new ArrayList<>();
+        from.add(new Coin(outpoint, Na.valueOf(100000000L), 0L));
+        coinData.setFrom(from);
+        List<Coin> to = new ArrayList<>();
+        to.add(new Coin(new byte[23], Na.valueOf(100000000L - fee), 0L));
+        coinData.setTo(to);
+        tx.setCoinData(coinData);
+        tx.setHash(NulsDigestData.calcDigestData(tx.serializeForHash()));
+        return tx;
+    }
+}
@@ -0,0 +1,164 @@
+/*
+ * *
+ *  * MIT License
+ *  *
+ *  * Copyright (c) 2017-2018 nuls.io
+ *  *
+ *  * Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  * of this software and associated documentation files (the "Software"), to deal
+ *  * in the Software without restriction, including without limitation the rights
+ *  * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  * copies of the Software, and to permit persons to whom the Software is
+ *  * furnished to do so, subject to the following conditions:
+ *  *
+ *  * The above copyright notice and this permission notice shall be included in all
+ *  * copies or substantial portions of the Software.
+ *  *
+ *  * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  * SOFTWARE.
+ *
+ */
+package io.nuls.consensus.poc.customer;
+
+import io.nuls.core.tools.array.ArraysTool;
+import io.nuls.kernel.constant.TransactionErrorCode;
+import io.nuls.kernel.exception.NulsException;
+import io.nuls.kernel.model.*;
+import io.nuls.kernel.utils.VarInt;
+import io.nuls.kernel.validate.ValidateResult;
+import io.nuls.ledger.service.LedgerService;
+import io.nuls.ledger.util.LedgerUtil;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 内存中的简单账本，只保存未花费输出和已确认交易
+ * A simple in-memory ledger, keeping only the unspent outputs and the confirmed transactions.
+ */
+public class ConsensusLedgerServiceImpl implements LedgerService {
+
+    public static final Map<String, Coin> UTXO_MAP = new HashMap<>();
+
+    public static final Map<NulsDigestData, Transaction> TX_MAP = new HashMap<>();
+
+    public static final AtomicInteger VERIFY_COUNT = new AtomicInteger();
+
+    public static void reset() {
+        UTXO_MAP.clear();
+        TX_MAP.clear();
+        VERIFY_COUNT.set(0);
+    }
+
+    public static String outpoint(NulsDigestData hash, int index) {
+        try {
+            return LedgerUtil.asString(ArraysTool.concatenate(hash.serialize(), new VarInt(index).encode()));
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Override
+    public Result saveTx(Transaction tx) throws NulsException {
+        TX_MAP.put(tx.getHash(), tx);
+        if (null != tx.getCoinData()) {
+            for (Coin from : tx.getCoinData().getFrom()) {
+                UTXO_MAP.remove(LedgerUtil.asString(from.getOwner()));
+            }
+            List<Coin> tos = tx.getCoinData().getTo();
+            for (int i = 0; i < tos.size(); i++) {
+                UTXO_MAP.put(outpoint(tx.getHash(), i), tos.get(i));
+            }
+        }
+        return Result.getSuccess();
+    }
+
+    @Override
+    public Result rollbackTx(Transaction tx) throws NulsException {
+        return null;
+    }
+
+    @Override
+    public Transaction getTx(NulsDigestData hash) {
+        return TX_MAP.get(hash);
+    }
+
+    @Override
+    public Transaction getTx(byte[] txHashBytes) {
+        return null;
+    }
+
+    @Override
+    public ValidateResult verifyCoinData(Transaction transaction, Map<String, Coin> temporaryToMap, Set<String> temporaryFromSet) {
+        return verifyCoinData(transaction, temporaryToMap, temporaryFromSet, null);
+    }
+
+    @Override
+    public ValidateResult verifyCoinData(Transaction transaction, Map<String, Coin> temporaryToMap, Set<String> temporaryFromSet, Long bestHeight) {
+        VERIFY_COUNT.incrementAndGet();
+        for (Coin from : transaction.getCoinData().getFrom()) {
+            String key = LedgerUtil.asString(from.getOwner());
+            Coin coin = UTXO_MAP.get(key);
+            if (null == coin) {
+                coin = temporaryToMap.get(key);
+            }
+            if (null == coin) {
+                for (NulsDigestData hash : TX_MAP.keySet()) {
+                    if (hash.getDigestHex().equals(LedgerUtil.getTxHash(from.getOwner()))) {
+                        return ValidateResult.getFailedResult(getClass().getName(), TransactionErrorCode.TRANSACTION_REPEATED);
+                    }
+                }
+                return ValidateResult.getFailedResult(getClass().getName(), TransactionErrorCode.ORPHAN_TX);
+            }
+            if (!temporaryFromSet.add(key)) {
+                return ValidateResult.getFailedResult(getClass().getName(), TransactionErrorCode.TRANSACTION_REPEATED);
+            }
+        }
+        List<Coin> tos = transaction.getCoinData().getTo();
+        for (int i = 0; i < tos.size(); i++) {
+            temporaryToMap.put(outpoint(transaction.getHash(), i), tos.get(i));
+        }
+        return ValidateResult.getSuccessResult();
+    }
+
+    @Override
+    public ValidateResult<List<Transaction>> verifyDoubleSpend(Block block) {
+        return null;
+    }
+
+    @Override
+    public ValidateResult<List<Transaction>> verifyDoubleSpend(List<Transaction> txList) {
+        return null;
+    }
+
+    @Override
+    public Result unlockTxCoinData(Transaction tx, long newockTime) throws NulsException {
+        return null;
+    }
+
+    @Override
+    public Result rollbackUnlockTxCoinData(Transaction tx) throws NulsException {
+        return null;
+    }
+
+    @Override
+    public long getWholeUTXO() {
+        return 0;
+    }
+
+    @Override
+    public Coin getUtxo(byte[] owner) {
+        return UTXO_MAP.get(LedgerUtil.asString(owner));
+    }
+
+    @Override
+    public List<Coin> getAllUtxo(byte[] address) {
+        return new ArrayList<>();
+    }
+}
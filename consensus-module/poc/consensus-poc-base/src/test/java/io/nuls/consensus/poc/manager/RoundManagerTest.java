@@ -30,11 +30,18 @@ import io.nuls.consensus.constant.ConsensusConstant;
 import io.nuls.consensus.poc.BaseChainTest;
 import io.nuls.consensus.poc.model.Chain;
 import io.nuls.consensus.poc.model.MeetingRound;
+import io.nuls.consensus.poc.model.PersistentList;
+import io.nuls.consensus.poc.protocol.entity.Deposit;
+import io.nuls.kernel.exception.NulsRuntimeException;
+import io.nuls.kernel.model.NulsDigestData;
 import io.nuls.protocol.constant.ProtocolConstant;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import static org.junit.Assert.*;
 
 /**
@@ -156,4 +163,52 @@ public class RoundManagerTest extends BaseChainTest {
         assert(round.getStartTime() < round2.getStartTime());
         assertEquals("", 0d, round2.getTotalWeight(), 2200000d);
     }
-}
\ No newline at end of file
+
+    /**
+     * 分叉链回滚注销委托的区块后，计算轮次用到的委托列表与由同样数据新建的链一致，主链不受影响
+     * After a fork view rolls back a cancel deposit block, the deposits used to calculate rounds match a fresh chain
+     * built from the same data, and the master chain is unchanged.
+     */
+    @Test
+    public void testDepositListAfterForkRollback() {
+        NulsDigestData agentHash = NulsDigestData.calcDigestData(new byte[]{1});
+        Chain master = new Chain();
+        master.setDepositList(new ArrayList<>());
+        for (int i = 0; i < 200; i++) {
+            Deposit deposit = new Deposit();
+            deposit.setAgentHash(agentHash);
+            deposit.setTxHash(NulsDigestData.calcDigestData(new byte[]{2, (byte) i}));
+            deposit.setBlockHeight(i);
+            deposit.setDelHeight(-1L);
+            master.getDepositList().add(deposit);
+        }
+        // 高度150的区块注销了中间的一笔委托
+        master.getDepositList().get(100).setDelHeight(150L);
+
+        Chain fork = new Chain();
+        fork.setDepositList(master.getDepositList());
+        RoundManager forkRoundManager = new RoundManager(fork);
+        assertEquals(199, forkRoundManager.getDepositListByAgentId(agentHash, 250L).size());
+
+        // 与ChainContainer.rollback相同，复制借用的委托后恢复删除高度
+        PersistentList<Deposit> depositList = fork.getDepositList();
+        for (int i = depositList.size() - 1; i >= 0; i--) {
+            if (depositList.get(i).getDelHeight() == 150L) {
+                depositList.getForUpdate(i, deposit -> {
+                    try {
+                        return deposit.clone();
+                    } catch (CloneNotSupportedException e) {
+                        throw new NulsRuntimeException(e);
+                    }
+                }).setDelHeight(-1L);
+            }
+        }
+
+        Chain fresh = new Chain();
+        fresh.setDepositList(new ArrayList<>(depositList));
+        List<Deposit> expected = new RoundManager(fresh).getDepositListByAgentId(agentHash, 250L);
+        assertEquals(200, expected.size());
+        assertEquals(expected, forkRoundManager.getDepositListByAgentId(agentHash, 250L));
+        assertEquals(199, new RoundManager(master).getDepositListByAgentId(agentHash, 250L).size());
+    }
+}
@@ -0,0 +1,233 @@
+/*
+ * *
+ *  * MIT License
+ *  *
+ *  * Copyright (c) 2017-2018 nuls.io
+ *  *
+ *  * Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  * of this software and associated documentation files (the "Software"), to deal
+ *  * in the Software without restriction, including without limitation the rights
+ *  * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  * copies of the Software, and to permit persons to whom the Software is
+ *  * furnished to do so, subject to the following conditions:
+ *  *
+ *  * The above copyright notice and this permission notice shall be included in all
+ *  * copies or substantial portions of the Software.
+ *  *
+ *  * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  * SOFTWARE.
+ *
+ */
+
+package io.nuls.consensus.poc.model;
+
+import io.nuls.consensus.poc.protocol.entity.Deposit;
+import io.nuls.consensus.poc.storage.po.PunishLogPo;
+import io.nuls.kernel.exception.NulsRuntimeException;
+import io.nuls.kernel.model.BlockHeader;
+import io.nuls.kernel.model.NulsDigestData;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class ChainIndexTest {
+
+    private static final int ADDRESS_COUNT = 10;
+
+    private Chain chain;
+
+    private ChainIndex chainIndex;
+
+    private Random random = new Random(1L);
+
+    private long height = 0L;
+
+    @Before
+    public void init() {
+        chain = new Chain();
+        chain.setDepositList(new ArrayList<>());
+        chain.setYellowPunishList(new ArrayList<>());
+        chainIndex = new ChainIndex(chain);
+    }
+
+    @Test
+    public void testAddAndRollback() {
+        for (int i = 0; i < 500; i++) {
+            addBlock(i / 10);
+        }
+        checkCounts(0, 49);
+        checkCounts(10, 30);
+        checkDeposits();
+
+        // 回滚后再追加，窗口向前后移动
+        for (int i = 0; i < 35; i++) {
+            rollbackBlock();
+        }
+        checkCounts(5, 44);
+        for (int i = 0; i < 100; i++) {
+            addBlock(46 + i / 10);
+        }
+        checkCounts(20, 55);
+        checkCounts(0, 100);
+        checkDeposits();
+    }
+
+    @Test
+    public void testRebuild() {
+        for (int i = 0; i < 300; i++) {
+            addBlock(i / 10);
+        }
+        checkCounts(0, 29);
+
+        // 从头部裁剪、删除中间的元素后与链上一致
+        List<BlockHeader> headerList = chain.getBlockHeaderList();
+        chain.setBlockHeaderList(new ArrayList<>(headerList.subList(100, headerList.size())));
+        chain.getYellowPunishList().subList(0, 20).clear();
+        chain.getDepositList().remove(30);
+        checkCounts(0, 29);
+        checkDeposits();
+
+        BlockHeader extendsHeader = chain.getBlockHeaderList().get(10);
+        assertSame(chainIndex.getExtendsData(extendsHeader), chainIndex.getExtendsData(extendsHeader));
+        assertEquals(new BlockExtendsData(extendsHeader.getExtend()).getRoundIndex(), chainIndex.getExtendsData(extendsHeader).getRoundIndex());
+    }
+
+    @Test
+    public void testTrimHead() {
+        for (int i = 0; i < 3000; i++) {
+            addBlock(i / 10);
+        }
+        checkCounts(0, 299);
+        List<BlockHeader> headerList = chain.getBlockHeaderList();
+        BlockHeader kept = headerList.get(headerList.size() - 1000);
+        BlockExtendsData keptExtendsData = chainIndex.getExtendsData(kept);
+
+        // 与清理主链数据时相同，每次只保留最后2000个区块头，已解码的扩展数据继续沿用
+        for (int i = 0; i < 5; i++) {
+            addBlock(300);
+            headerList = chain.getBlockHeaderList();
+            chain.setBlockHeaderList(headerList.subList(headerList.size() - 2000, headerList.size()));
+            chain.getYellowPunishList().subList(0, 10).clear();
+            checkCounts(0, 300);
+        }
+        assertSame(keptExtendsData, chainIndex.getExtendsData(kept));
+        headerList = chain.getBlockHeaderList();
+        assertEquals(2000, chainIndex.getBlockHeaderList().size());
+        assertSame(headerList.get(0), chainIndex.getBlockHeaderList().get(0));
+    }
+
+    @Test
+    public void testRoundCalculationOnLongChain() {
+        for (int i = 0; i < 30000; i++) {
+            addBlock(i / 100);
+        }
+        chainIndex.sync();
+
+        for (long round = 100; round < 300; round++) {
+            for (int i = 0; i < ADDRESS_COUNT; i++) {
+                chainIndex.getBlockCount(address(i), round - 100, round - 1);
+                chainIndex.getYellowPunishCount(address(i), round - 100, round - 1);
+            }
+            addBlock(300 + round);
+        }
+        checkCounts(199, 298);
+    }
+
+    private void addBlock(long roundIndex) {
+        BlockHeader header = new BlockHeader();
+        header.setHeight(height);
+        header.setPackingAddress(address(random.nextInt(ADDRESS_COUNT)));
+        BlockExtendsData extendsData = new BlockExtendsData();
+        extendsData.setRoundIndex(roundIndex);
+        try {
+            header.setExtend(extendsData.serialize());
+        } catch (IOException e) {
+            throw new NulsRuntimeException(e);
+        }
+        chain.getBlockHeaderList().add(header);
+
+        if (random.nextInt(3) == 0) {
+            PunishLogPo punish = new PunishLogPo();
+            punish.setAddress(address(random.nextInt(ADDRESS_COUNT)));
+            punish.setHeight(height);
+            punish.setRoundIndex(roundIndex);
+            chain.getYellowPunishList().add(punish);
+        }
+        if (random.nextInt(2) == 0) {
+            Deposit deposit = new Deposit();
+            deposit.setAgentHash(agentHash(random.nextInt(ADDRESS_COUNT)));
+            deposit.setBlockHeight(height);
+            chain.getDepositList().add(deposit);
+        }
+        height++;
+    }
+
+    private void rollbackBlock() {
+        height--;
+        List<BlockHeader> headerList = chain.getBlockHeaderList();
+        headerList.remove(headerList.size() - 1);
+        List<PunishLogPo> punishList = chain.getYellowPunishList();
+        if (!punishList.isEmpty() && punishList.get(punishList.size() - 1).getHeight() == height) {
+            punishList.remove(punishList.size() - 1);
+        }
+        List<Deposit> depositList = chain.getDepositList();
+        if (!depositList.isEmpty() && depositList.get(depositList.size() - 1).getBlockHeight() == height) {
+            depositList.remove(depositList.size() - 1);
+        }
+    }
+
+    private void checkCounts(long roundStart, long roundEnd) {
+        for (int i = 0; i < ADDRESS_COUNT; i++) {
+            byte[] address = address(i);
+            int blockCount = 0;
+            for (BlockHeader header : chain.getBlockHeaderList()) {
+                long roundIndex = new BlockExtendsData(header.getExtend()).getRoundIndex();
+                if (roundIndex >= roundStart && roundIndex <= roundEnd && Arrays.equals(address, header.getPackingAddress())) {
+                    blockCount++;
+                }
+            }
+            int punishCount = 0;
+            for (PunishLogPo punish : chain.getYellowPunishList()) {
+                if (punish.getRoundIndex() >= roundStart && punish.getRoundIndex() <= roundEnd && Arrays.equals(address, punish.getAddress())) {
+                    punishCount++;
+                }
+            }
+            assertEquals(blockCount, chainIndex.getBlockCount(address, roundStart, roundEnd));
+            assertEquals(punishCount, chainIndex.getYellowPunishCount(address, roundStart, roundEnd));
+        }
+    }
+
+    private void checkDeposits() {
+        for (int i = 0; i < ADDRESS_COUNT; i++) {
+            List<Deposit> expected = new ArrayList<>();
+            for (Deposit deposit : chain.getDepositList()) {
+                if (deposit.getAgentHash().equals(agentHash(i))) {
+                    expected.add(deposit);
+                }
+            }
+            assertEquals(expected, chainIndex.getDepositList(agentHash(i)));
+        }
+    }
+
+    private static byte[] address(int i) {
+        byte[] address = new byte[23];
+        address[0] = (byte) i;
+        return address;
+    }
+
+    private static NulsDigestData agentHash(int i) {
+        return NulsDigestData.calcDigestData(address(i));
+    }
+}
@@ -0,0 +1,145 @@
+/*
+ * *
+ *  * MIT License
+ *  *
+ *  * Copyright (c) 2017-2018 nuls.io
+ *  *
+ *  * Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  * of this software and associated documentation files (the "Software"), to deal
+ *  * in the Software without restriction, including without limitation the rights
+ *  * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  * copies of the Software, and to permit persons to whom the Software is
+ *  * furnished to do so, subject to the following conditions:
+ *  *
+ *  * The above copyright notice and this permission notice shall be included in all
+ *  * copies or substantial portions of the Software.
+ *  *
+ *  * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  * SOFTWARE.
+ *
+ */
+
+package io.nuls.consensus.poc.model;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class PersistentListTest {
+
+    @Test
+    public void testForkIsolation() {
+        PersistentList<Integer> master = new PersistentList<>();
+        List<Integer> expected = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            master.add(i);
+            expected.add(i);
+        }
+        PersistentList<Integer> fork = master.fork();
+        List<Integer> forkExpected = new ArrayList<>(expected);
+
+        master.add(300);
+        expected.add(300);
+        master.set(10, -10);
+        expected.set(10, -10);
+        master.remove(200);
+        expected.remove(200);
+
+        fork.remove(299);
+        forkExpected.remove(299);
+        fork.add(0, -1);
+        forkExpected.add(0, -1);
+        fork.set(150, -150);
+        forkExpected.set(150, -150);
+
+        assertEquals(expected, master);
+        assertEquals(forkExpected, fork);
+
+        PersistentList<Integer> second = fork.fork();
+        List<Integer> secondExpected = new ArrayList<>(forkExpected);
+        second.subList(20, 100).clear();
+        secondExpected.subList(20, 100).clear();
+        fork.clear();
+        forkExpected.clear();
+
+        assertEquals(expected, master);
+        assertEquals(forkExpected, fork);
+        assertEquals(secondExpected, second);
+    }
+
+    @Test
+    public void testGetForUpdate() {
+        PersistentList<int[]> master = new PersistentList<>();
+        for (int i = 0; i < 100; i++) {
+            master.add(new int[]{i});
+        }
+        PersistentList<int[]> fork = master.fork();
+
+        // 分叉的副本修改元素前先复制，原列表看不到修改
+        int[] copied = fork.getForUpdate(70, int[]::clone);
+        copied[0] = -70;
+        assertNotSame(master.get(70), fork.get(70));
+        assertEquals(70, master.get(70)[0]);
+        assertEquals(-70, fork.get(70)[0]);
+        assertSame(copied, fork.getForUpdate(70, int[]::clone));
+        assertSame(master.get(71), fork.get(71));
+
+        // 移动后仍然是副本独有的元素，不会再次复制
+        fork.remove(0);
+        assertSame(copied, fork.getForUpdate(69, int[]::clone));
+
+        // 复制元素时换成新的版本，只复制过一次，原列表的版本不变
+        assertNotEquals(master.getVersion(), fork.getVersion());
+        long version = fork.getVersion();
+        fork.getForUpdate(69, int[]::clone);
+        assertEquals(version, fork.getVersion());
+        assertEquals(version, fork.fork().getVersion());
+
+        // 原列表原地修改元素
+        long masterVersion = master.getVersion();
+        int[] original = master.get(5);
+        assertSame(original, master.getForUpdate(5, int[]::clone));
+        assertEquals(masterVersion, master.getVersion());
+
+        // 接管后副本也原地修改元素
+        fork.claimElements();
+        int[] borrowed = fork.get(4);
+        assertSame(borrowed, fork.getForUpdate(4, int[]::clone));
+    }
+
+    @Test
+    public void testCopyOf() {
+        assertNull(PersistentList.copyOf(null));
+        List<String> list = Arrays.asList("a", "b", "c");
+        PersistentList<String> copy = PersistentList.copyOf(list);
+        assertEquals(list, copy);
+        PersistentList<String> forked = PersistentList.copyOf(copy);
+        forked.add("d");
+        assertEquals(3, copy.size());
+        assertEquals(4, forked.size());
+    }
+
+    @Test
+    public void testManyForks() {
+        PersistentList<Long> master = new PersistentList<>();
+        for (long i = 0; i < 1000000; i++) {
+            master.add(i);
+        }
+        for (int i = 0; i < 10000; i++) {
+            PersistentList<Long> fork = master.fork();
+            fork.add((long) i);
+            fork.remove(fork.size() - 1);
+        }
+        assertEquals(1000000, master.size());
+        assertEquals(Long.valueOf(999999L), master.get(999999));
+    }
+}
@@ -0,0 +1,380 @@
+/*
+ * *
+ *  * MIT License
+ *  *
+ *  * Copyright (c) 2017-2018 nuls.io
+ *  *
+ *  * Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  * of this software and associated documentation files (the "Software"), to deal
+ *  * in the Software without restriction, including without limitation the rights
+ *  * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  * copies of the Software, and to permit persons to whom the Software is
+ *  * furnished to do so, subject to the following conditions:
+ *  *
+ *  * The above copyright notice and this permission notice shall be included in all
+ *  * copies or substantial portions of the Software.
+ *  *
+ *  * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  * SOFTWARE.
+ *
+ */
+package io.nuls.consensus.poc.process;
+
+import io.nuls.consensus.poc.BaseTest;
+import io.nuls.consensus.poc.TestTransaction;
+import io.nuls.consensus.poc.cache.TxMemoryPool;
+import io.nuls.consensus.poc.customer.ConsensusLedgerServiceImpl;
+import io.nuls.consensus.poc.model.BlockTemplate;
+import io.nuls.core.tools.array.ArraysTool;
+import io.nuls.kernel.constant.KernelErrorCode;
+import io.nuls.kernel.lite.core.SpringLiteContext;
+import io.nuls.kernel.model.*;
+import io.nuls.kernel.processor.ConflictKey;
+import io.nuls.kernel.processor.TransactionProcessor;
+import io.nuls.kernel.utils.VarInt;
+import io.nuls.kernel.validate.NulsDataValidator;
+import io.nuls.kernel.validate.ValidateResult;
+import io.nuls.kernel.validate.ValidatorManager;
+import io.nuls.ledger.service.LedgerService;
+import io.nuls.protocol.constant.ProtocolConstant;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.*;
+
+public class BlockTemplateProcessTest extends BaseTest {
+
+    private TxMemoryPool txMemoryPool = TxMemoryPool.getInstance();
+
+    private BlockTemplateProcess blockTemplateProcess;
+
+    private long time = 1000L;
+
+    /**
+     * 已确认的别名，模拟别名交易确认后的状态
+     * Confirmed aliases, simulating the state after alias transactions are confirmed.
+     */
+    private static final Set<String> CONFIRMED_ALIAS_SET = new HashSet<>();
+
+    @BeforeClass
+    public static void initLedger() throws Exception {
+        try {
+            SpringLiteContext.getBean(LedgerService.class);
+        } catch (Exception e) {
+            SpringLiteContext.putBean(ConsensusLedgerServiceImpl.class, false);
+        }
+        SpringLiteContext.putBean(AliasKeyProcessor.class, false);
+        ValidatorManager.addValidator(TestTransaction.class, new AliasValidator());
+    }
+
+    @Before
+    public void init() {
+        CONFIRMED_ALIAS_SET.clear();
+        ConsensusLedgerServiceImpl.reset();
+        txMemoryPool.clear();
+        // 不限制取交易的时间，结果与机器快慢无关
+        blockTemplateProcess = new BlockTemplateProcess(null, 0L, System::currentTimeMillis);
+    }
+
+    @Test
+    public void testFillAndTake() throws Exception {
+        Block genesis = createBlock(null);
+        Transaction tx1 = createTx(fund(1, 100000000L), 100000L);
+        Transaction child = createTx(outpointOf(tx1), 100000L);
+        Transaction doubleSpend = createTx(tx1.getCoinData().getFrom().get(0).getOwner(), 200000L);
+        Transaction orphan = createTx(outpointOf(createTx(fund(2, 0L), 1L)), 100000L);
+        txMemoryPool.add(tx1, false);
+        txMemoryPool.add(child, false);
+        txMemoryPool.add(orphan, false);
+
+        assertNull(blockTemplateProcess.waitTemplate(genesis.getHeader().getHash(), 0L));
+        blockTemplateProcess.update(genesis);
+        assertTrue(blockTemplateProcess.isActive());
+        txMemoryPool.add(doubleSpend, false);
+        blockTemplateProcess.update(genesis);
+
+        BlockTemplate template = blockTemplateProcess.getTemplate(genesis.getHeader().getHash());
+        assertNotNull(template);
+        assertEquals(2, template.getTxList().size());
+        assertEquals(tx1, template.getTxList().get(0));
+        assertEquals(child, template.getTxList().get(1));
+        assertEquals(tx1.size() + child.size(), template.getSize());
+        assertTrue(template.getToMap().containsKey(ConsensusLedgerServiceImpl.outpoint(child.getHash(), 0)));
+        assertEquals(2, template.getFromSet().size());
+        // 缺少父交易的交易进入孤儿池，双花交易被丢弃
+        assertEquals(1, txMemoryPool.getOrphanPoolSize());
+        assertEquals(0, txMemoryPool.size());
+
+        assertNull(blockTemplateProcess.getTemplate(NulsDigestData.calcDigestData(new byte[1])));
+        // 取出的是副本
+        template.getTxList().clear();
+        assertEquals(2, blockTemplateProcess.size());
+    }
+
+    @Test
+    public void testConnectBlock() throws Exception {
+        Block genesis = createBlock(null);
+        Transaction tx1 = createTx(fund(1, 100000000L), 100000L);
+        Transaction tx2 = createTx(fund(2, 100000000L), 100000L);
+        Transaction tx3 = createTx(fund(3, 100000000L), 100000L);
+        txMemoryPool.add(tx1, false);
+        txMemoryPool.add(tx2, false);
+        txMemoryPool.add(tx3, false);
+        blockTemplateProcess.update(genesis);
+        assertEquals(3, blockTemplateProcess.size());
+
+        // 区块只确认了模板中的交易，增量移除而不重新验证
+        Block block1 = createBlock(genesis, tx1);
+        int verifyCount = ConsensusLedgerServiceImpl.VERIFY_COUNT.get();
+        blockTemplateProcess.update(block1);
+        assertEquals(verifyCount, ConsensusLedgerServiceImpl.VERIFY_COUNT.get());
+        BlockTemplate template = blockTemplateProcess.getTemplate(block1.getHeader().getHash());
+        assertEquals(2, template.getTxList().size());
+        assertEquals(tx2.size() + tx3.size(), template.getSize());
+        assertNull(blockTemplateProcess.getTemplate(genesis.getHeader().getHash()));
+
+        // 区块中的交易与模板中的tx2双花，重新验证后移除tx2
+        Transaction conflict = createTx(tx2.getCoinData().getFrom().get(0).getOwner(), 300000L);
+        Block block2 = createBlock(block1, conflict);
+        blockTemplateProcess.update(block2);
+        template = blockTemplateProcess.getTemplate(block2.getHeader().getHash());
+        assertEquals(1, template.getTxList().size());
+        assertEquals(tx3, template.getTxList().get(0));
+        assertEquals(1, template.getFromSet().size());
+
+        blockTemplateProcess.clear();
+        assertFalse(blockTemplateProcess.isActive());
+        assertEquals(1, txMemoryPool.size());
+    }
+
+    @Test
+    public void testReplaceLowestFee() throws Exception {
+        Block genesis = createBlock(null);
+        int bigSize = 600 * 1024;
+        Transaction low = createTx(fund(1, 100000000L), 100000L, bigSize);
+        Transaction lowChild = createTx(outpointOf(low), 100000L);
+        Transaction middle = createTx(fund(2, 100000000L), 200000L, bigSize);
+        Transaction high = createTx(fund(3, 100000000L), 300000L, bigSize);
+        txMemoryPool.add(low, false);
+        txMemoryPool.add(lowChild, false);
+        txMemoryPool.add(middle, false);
+        txMemoryPool.add(high, false);
+        blockTemplateProcess.update(genesis);
+        assertEquals(4, blockTemplateProcess.size());
+
+        // 模板已满，手续费率更高的交易替换手续费率最低的交易包（交易及其子交易），被替换的交易回到内存池
+        Transaction better = createTx(fund(4, 100000000L), 400000L, bigSize);
+        txMemoryPool.add(better, false);
+        blockTemplateProcess.update(genesis);
+        List<Transaction> txList = blockTemplateProcess.getTemplate(genesis.getHeader().getHash()).getTxList();
+        assertEquals(3, txList.size());
+        assertTrue(txList.containsAll(Arrays.asList(middle, high, better)));
+        assertEquals(2, txMemoryPool.size());
+        BlockTemplate template = blockTemplateProcess.getTemplate(genesis.getHeader().getHash());
+        assertEquals(middle.size() + high.size() + better.size(), template.getSize());
+        assertFalse(template.getToMap().containsKey(ConsensusLedgerServiceImpl.outpoint(low.getHash(), 0)));
+        assertEquals(3, template.getFromSet().size());
+
+        // 手续费率不够高的交易不替换模板中的交易
+        Transaction worse = createTx(fund(5, 100000000L), 150000L, bigSize);
+        txMemoryPool.add(worse, false);
+        blockTemplateProcess.update(genesis);
+        assertEquals(3, blockTemplateProcess.size());
+        txList = blockTemplateProcess.getTemplate(genesis.getHeader().getHash()).getTxList();
+        assertTrue(txList.containsAll(Arrays.asList(middle, high, better)));
+        // 内存池可能先取出已与父交易断开的子交易，该交易转入孤儿池，交易总数不变
+        assertTrue(txMemoryPool.getAll().containsAll(Arrays.asList(worse, low)));
+        assertEquals(3, txMemoryPool.size() + txMemoryPool.getOrphanPoolSize());
+    }
+
+    @Test
+    public void testConflictKeys() throws Exception {
+        Block genesis = createBlock(null);
+        Transaction aliasA = createAliasTx(fund(1, 100000000L), "a");
+        Transaction aliasB = createAliasTx(fund(2, 100000000L), "b");
+        Transaction child = createTx(outpointOf(aliasB), 100000L);
+        txMemoryPool.add(aliasA, false);
+        txMemoryPool.add(aliasB, false);
+        txMemoryPool.add(child, false);
+        blockTemplateProcess.update(genesis);
+        assertEquals(3, blockTemplateProcess.size());
+
+        // 与模板交易占用同一别名的交易不进入模板
+        txMemoryPool.add(createAliasTx(fund(3, 100000000L), "a"), false);
+        blockTemplateProcess.update(genesis);
+        assertEquals(3, blockTemplateProcess.size());
+        assertEquals(0, txMemoryPool.size());
+
+        // 区块确认了同一别名的其他交易，模板中的别名交易及其子交易被移除，不再有效的交易被丢弃
+        Transaction other = createAliasTx(fund(4, 100000000L), "b");
+        CONFIRMED_ALIAS_SET.add("b");
+        Block block1 = createBlock(genesis, other);
+        blockTemplateProcess.update(block1);
+        List<Transaction> txList = blockTemplateProcess.getTemplate(block1.getHeader().getHash()).getTxList();
+        assertEquals(Collections.singletonList(aliasA), txList);
+        assertEquals(1, txMemoryPool.getOrphanPoolSize());
+        assertEquals(0, txMemoryPool.size());
+    }
+
+    @Test
+    public void testTakeIndependentOfPoolSize() throws Exception {
+        Block genesis = createBlock(null);
+        int count = 6000;
+        for (int i = 0; i < count; i++) {
+            txMemoryPool.add(createTx(fund(i, 100000000L), 100000L + i), false);
+        }
+        while (txMemoryPool.size() > 0 && blockTemplateProcess.size() < count) {
+            int size = blockTemplateProcess.size();
+            blockTemplateProcess.update(genesis);
+            if (size == blockTemplateProcess.size()) {
+                break;
+            }
+        }
+        int templateSize = blockTemplateProcess.size();
+        assertTrue(templateSize > 0);
+
+        BlockTemplate template = blockTemplateProcess.getTemplate(genesis.getHeader().getHash());
+        assertEquals(templateSize, template.getTxList().size());
+        assertTrue(template.getSize() <= io.nuls.protocol.constant.ProtocolConstant.MAX_BLOCK_SIZE);
+    }
+
+    @Test
+    public void testFillTimeLimit() throws Exception {
+        Block genesis = createBlock(null);
+        int count = 100;
+        for (int i = 0; i < count; i++) {
+            txMemoryPool.add(createTx(fund(i, 100000000L), 100000L + i), false);
+        }
+        // 每次读取时钟前进1毫秒，10毫秒的限制只够取出少量交易
+        AtomicLong now = new AtomicLong();
+        blockTemplateProcess = new BlockTemplateProcess(null, 10L, now::incrementAndGet);
+        blockTemplateProcess.update(genesis);
+        int templateSize = blockTemplateProcess.size();
+        assertTrue(templateSize > 0);
+        assertTrue(templateSize < 10);
+        assertEquals(count - templateSize, txMemoryPool.size());
+
+        // 下一轮继续从内存池补充
+        blockTemplateProcess.update(genesis);
+        assertTrue(blockTemplateProcess.size() > templateSize);
+        assertEquals(count - blockTemplateProcess.size(), txMemoryPool.size());
+    }
+
+    private byte[] fund(int i, long na) throws IOException {
+        NulsDigestData hash = NulsDigestData.calcDigestData(new VarInt(i).encode());
+        byte[] outpoint = ArraysTool.concatenate(hash.serialize(), new VarInt(0).encode());
+        if (na > 0) {
+            ConsensusLedgerServiceImpl.UTXO_MAP.put(ConsensusLedgerServiceImpl.outpoint(hash, 0), new Coin(new byte[23], Na.valueOf(na), 0L));
+        }
+        return outpoint;
+    }
+
+    private byte[] outpointOf(Transaction tx) throws IOException {
+        return ArraysTool.concatenate(tx.getHash().serialize(), new VarInt(0).encode());
+    }
+
+    private Transaction createTx(byte[] outpoint, long fee) throws IOException {
+        return createTx(outpoint, fee, 0);
+    }
+
+    private Transaction createTx(byte[] outpoint, long fee, int remarkSize) throws IOException {
+        Transaction tx = new TestTransaction();
+        tx.setTime(time++);
+        if (remarkSize > 0) {
+            tx.setRemark(new byte[remarkSize]);
+        }
+        CoinData coinData = new CoinData();
+        List<Coin> from = new ArrayList<>();
+        from.add(new Coin(outpoint, Na.valueOf(100000000L), 0L));
+        coinData.setFrom(from);
+        List<Coin> to = new ArrayList<>();
+        to.add(new Coin(new byte[23], Na.valueOf(100000000L - fee), 0L));
+        coinData.setTo(to);
+        tx.setCoinData(coinData);
+        tx.setHash(NulsDigestData.calcDigestData(tx.serializeForHash()));
+        return tx;
+    }
+
+    private Transaction createAliasTx(byte[] outpoint, String alias) throws IOException {
+        Transaction tx = createTx(outpoint, 100000L);
+        tx.setRemark((AliasKeyProcessor.PREFIX + alias).getBytes(StandardCharsets.UTF_8));
+        tx.setHash(NulsDigestData.calcDigestData(tx.serializeForHash()));
+        return tx;
+    }
+
+    private Block createBlock(Block preBlock, Transaction... txs) throws Exception {
+        Block block = new Block();
+        BlockHeader header = new BlockHeader();
+        header.setHeight(null == preBlock ? 0 : preBlock.getHeader().getHeight() + 1);
+        header.setPreHash(null == preBlock ? null : preBlock.getHeader().getHash());
+        header.setHash(NulsDigestData.calcDigestData(new VarInt(header.getHeight() + 1000000).encode()));
+        block.setHeader(header);
+        List<Transaction> txList = new ArrayList<>();
+        for (Transaction tx : txs) {
+            txList.add(tx);
+            SpringLiteContext.getBean(LedgerService.class).saveTx(tx);
+        }
+        block.setTxs(txList);
+        return block;
+    }
+
+    /**
+     * 备注以别名前缀开头的交易占用该别名
+     * A transaction whose remark starts with the alias prefix takes that alias.
+     */
+    public static class AliasKeyProcessor implements TransactionProcessor<Transaction> {
+
+        static final String PREFIX = "alias:";
+
+        @Override
+        public Result onRollback(Transaction tx, Object secondaryData) {
+            return Result.getSuccess();
+        }
+
+        @Override
+        public Result onCommit(Transaction tx, Object secondaryData) {
+            return Result.getSuccess();
+        }
+
+        @Override
+        public ValidateResult conflictDetect(List<Transaction> txList) {
+            return ValidateResult.getSuccessResult();
+        }
+
+        @Override
+        public List<ConflictKey> getConflictKeys(Transaction tx) {
+            if (null == tx.getRemark() || tx.getRemark().length > 64) {
+                return null;
+            }
+            String remark = new String(tx.getRemark(), StandardCharsets.UTF_8);
+            if (!remark.startsWith(PREFIX)) {
+                return null;
+            }
+            return Collections.singletonList(ConflictKey.exclusive(remark, KernelErrorCode.DATA_ERROR));
+        }
+    }
+
+    static class AliasValidator implements NulsDataValidator<TestTransaction> {
+
+        @Override
+        public ValidateResult validate(TestTransaction tx) {
+            for (String alias : CONFIRMED_ALIAS_SET) {
+                if (Arrays.equals((AliasKeyProcessor.PREFIX + alias).getBytes(StandardCharsets.UTF_8), tx.getRemark())) {
+                    return ValidateResult.getFailedResult(getClass().getName(), KernelErrorCode.DATA_ERROR);
+                }
+            }
+            return ValidateResult.getSuccessResult();
+        }
+    }
+}
@@ -33,6 +33,7 @@ import io.nuls.account.model.MultiSigAccount;
 import io.nuls.account.service.AccountService;
 import io.nuls.consensus.poc.constant.PocConsensusConstant;
 import io.nuls.consensus.poc.context.PocConsensusContext;
+import io.nuls.consensus.poc.manager.CacheManager;
 import io.nuls.consensus.poc.model.MeetingMember;
 import io.nuls.consensus.poc.model.MeetingRound;
 import io.nuls.consensus.poc.protocol.constant.PocConsensusErrorCode;
@@ -1130,6 +1131,24 @@ public class PocConsensusResource {
         return Result.getSuccess().setData(rs).toRpcClientResult();
     }
 
+    @GET
+    @Path("/cache/load")
+    @Produces(MediaType.APPLICATION_JSON)
+    @ApiOperation(value = "查询节点启动时加载共识缓存的耗时 Get the time used to load the consensus caches on startup")
+    @ApiResponses(value = {
+            @ApiResponse(code = 200, message = "success", response = Map.class)
+    })
+    public RpcClientResult getCacheLoadInfo() {
+        CacheManager cacheManager = PocConsensusContext.getCacheManager();
+        if (null == cacheManager) {
+            return Result.getFailed(KernelErrorCode.DATA_NOT_FOUND).toRpcClientResult();
+        }
+        Map<String, Object> map = new HashMap<>();
+        map.put("loadTime", cacheManager.getLoadTime());
+        map.put("fromCheckpoint", cacheManager.isLoadedFromCheckpoint());
+        return Result.getSuccess().setData(map).toRpcClientResult();
+    }
+
     @GET
     @Path("/multiAccount/Agent/fee")
     @Produces(MediaType.APPLICATION_JSON)
@@ -32,5 +32,7 @@ public interface ConsensusStorageConstant {
     String DB_NAME_CONSENSUS_PUNISH_LOG = "consensus_punish_log";
     String DB_NAME_CONSENSUS_BIFURCATION_EVIDENCE = "consensus_bifurcation_evidence";
     String DB_BIFURCATION_EVIDENCE_KEY = "bifurcation_evidence_key";
+    String DB_NAME_CONSENSUS_CHECKPOINT = "consensus_checkpoint";
+    String DB_CHECKPOINT_KEY = "checkpoint_key";
 
 }
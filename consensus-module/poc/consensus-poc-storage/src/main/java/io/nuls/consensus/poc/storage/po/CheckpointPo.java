@@ -0,0 +1,199 @@
+/*
+ * *
+ *  * MIT License
+ *  *
+ *  * Copyright (c) 2017-2018 nuls.io
+ *  *
+ *  * Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  * of this software and associated documentation files (the "Software"), to deal
+ *  * in the Software without restriction, including without limitation the rights
+ *  * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  * copies of the Software, and to permit persons to whom the Software is
+ *  * furnished to do so, subject to the following conditions:
+ *  *
+ *  * The above copyright notice and this permission notice shall be included in all
+ *  * copies or substantial portions of the Software.
+ *  *
+ *  * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  * SOFTWARE.
+ *
+ */
+
+package io.nuls.consensus.poc.storage.po;
+
+import io.nuls.kernel.exception.NulsException;
+import io.nuls.kernel.model.BaseNulsData;
+import io.nuls.kernel.model.BlockHeader;
+import io.nuls.kernel.model.NulsDigestData;
+import io.nuls.kernel.utils.NulsByteBuffer;
+import io.nuls.kernel.utils.NulsOutputStreamBuffer;
+import io.nuls.kernel.utils.SerializeUtils;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 共识缓存检查点，保存主链在某一高度的区块头窗口、代理节点、委托和惩罚记录，用于节点重启时快速恢复缓存
+ * The consensus cache checkpoint, keeps the block header window, agents, deposits and punish logs of the master chain
+ * at one height, used to restore the caches quickly when the node restarts.
+ */
+public class CheckpointPo extends BaseNulsData {
+
+    /**
+     * 检查点格式版本，格式变化后旧的检查点直接丢弃
+     * The format version, a checkpoint of an older format is discarded.
+     */
+    public static final byte VERSION = 1;
+
+    private byte version = VERSION;
+
+    private long height;
+
+    private NulsDigestData hash;
+
+    private List<BlockHeader> blockHeaderList = new ArrayList<>();
+
+    private List<AgentPo> agentList = new ArrayList<>();
+
+    private List<DepositPo> depositList = new ArrayList<>();
+
+    private List<PunishLogPo> yellowPunishList = new ArrayList<>();
+
+    private List<PunishLogPo> redPunishList = new ArrayList<>();
+
+    @Override
+    protected void serializeToStream(NulsOutputStreamBuffer stream) throws IOException {
+        stream.write(version);
+        stream.writeVarInt(height);
+        stream.writeNulsData(hash);
+        writeList(stream, blockHeaderList);
+        writeList(stream, agentList);
+        writeList(stream, depositList);
+        writeList(stream, yellowPunishList);
+        writeList(stream, redPunishList);
+    }
+
+    @Override
+    public void parse(NulsByteBuffer byteBuffer) throws NulsException {
+        this.version = byteBuffer.readByte();
+        if (version != VERSION) {
+            return;
+        }
+        this.height = byteBuffer.readVarInt();
+        this.hash = byteBuffer.readHash();
+        int count = (int) byteBuffer.readVarInt();
+        for (int i = 0; i < count; i++) {
+            blockHeaderList.add(byteBuffer.readNulsData(new BlockHeader()));
+        }
+        count = (int) byteBuffer.readVarInt();
+        for (int i = 0; i < count; i++) {
+            agentList.add(byteBuffer.readNulsData(new AgentPo()));
+        }
+        count = (int) byteBuffer.readVarInt();
+        for (int i = 0; i < count; i++) {
+            depositList.add(byteBuffer.readNulsData(new DepositPo()));
+        }
+        count = (int) byteBuffer.readVarInt();
+        for (int i = 0; i < count; i++) {
+            yellowPunishList.add(byteBuffer.readNulsData(new PunishLogPo()));
+        }
+        count = (int) byteBuffer.readVarInt();
+        for (int i = 0; i < count; i++) {
+            redPunishList.add(byteBuffer.readNulsData(new PunishLogPo()));
+        }
+    }
+
+    @Override
+    public int size() {
+        int size = 1;
+        size += SerializeUtils.sizeOfVarInt(height);
+        size += SerializeUtils.sizeOfNulsData(hash);
+        size += sizeOfList(blockHeaderList);
+        size += sizeOfList(agentList);
+        size += sizeOfList(depositList);
+        size += sizeOfList(yellowPunishList);
+        size += sizeOfList(redPunishList);
+        return size;
+    }
+
+    private void writeList(NulsOutputStreamBuffer stream, List<? extends BaseNulsData> list) throws IOException {
+        stream.writeVarInt(list.size());
+        for (BaseNulsData data : list) {
+            stream.writeNulsData(data);
+        }
+    }
+
+    private int sizeOfList(List<? extends BaseNulsData> list) {
+        int size = SerializeUtils.sizeOfVarInt(list.size());
+        for (BaseNulsData data : list) {
+            size += SerializeUtils.sizeOfNulsData(data);
+        }
+        return size;
+    }
+
+    public byte getVersion() {
+        return version;
+    }
+
+    public long getHeight() {
+        return height;
+    }
+
+    public void setHeight(long height) {
+        this.height = height;
+    }
+
+    public NulsDigestData getHash() {
+        return hash;
+    }
+
+    public void setHash(NulsDigestData hash) {
+        this.hash = hash;
+    }
+
+    public List<BlockHeader> getBlockHeaderList() {
+        return blockHeaderList;
+    }
+
+    public void setBlockHeaderList(List<BlockHeader> blockHeaderList) {
+        this.blockHeaderList = blockHeaderList;
+    }
+
+    public List<AgentPo> getAgentList() {
+        return agentList;
+    }
+
+    public void setAgentList(List<AgentPo> agentList) {
+        this.agentList = agentList;
+    }
+
+    public List<DepositPo> getDepositList() {
+        return depositList;
+    }
+
+    public void setDepositList(List<DepositPo> depositList) {
+        this.depositList = depositList;
+    }
+
+    public List<PunishLogPo> getYellowPunishList() {
+        return yellowPunishList;
+    }
+
+    public void setYellowPunishList(List<PunishLogPo> yellowPunishList) {
+        this.yellowPunishList = yellowPunishList;
+    }
+
+    public List<PunishLogPo> getRedPunishList() {
+        return redPunishList;
+    }
+
+    public void setRedPunishList(List<PunishLogPo> redPunishList) {
+        this.redPunishList = redPunishList;
+    }
+}
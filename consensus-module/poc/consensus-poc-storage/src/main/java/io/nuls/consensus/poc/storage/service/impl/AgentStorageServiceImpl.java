@@ -30,6 +30,7 @@ import io.nuls.consensus.poc.storage.constant.ConsensusStorageConstant;
 import io.nuls.consensus.poc.storage.po.AgentPo;
 import io.nuls.consensus.poc.storage.service.AgentStorageService;
 import io.nuls.core.tools.log.Log;
+import io.nuls.db.model.CacheConfig;
 import io.nuls.db.model.Entry;
 import io.nuls.db.service.DBService;
 import io.nuls.kernel.exception.NulsException;
@@ -153,6 +154,6 @@ public class AgentStorageServiceImpl implements AgentStorageService, Initializin
 
     @Override
     public void afterPropertiesSet() throws NulsException {
-        dbService.createArea(ConsensusStorageConstant.DB_NAME_CONSENSUS_AGENT);
+        dbService.createArea(ConsensusStorageConstant.DB_NAME_CONSENSUS_AGENT, new CacheConfig(1024));
     }
 }
\ No newline at end of file
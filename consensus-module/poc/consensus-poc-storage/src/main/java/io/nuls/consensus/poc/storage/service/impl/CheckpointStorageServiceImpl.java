@@ -0,0 +1,92 @@
+/*
+ * *
+ *  * MIT License
+ *  *
+ *  * Copyright (c) 2017-2018 nuls.io
+ *  *
+ *  * Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  * of this software and associated documentation files (the "Software"), to deal
+ *  * in the Software without restriction, including without limitation the rights
+ *  * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  * copies of the Software, and to permit persons to whom the Software is
+ *  * furnished to do so, subject to the following conditions:
+ *  *
+ *  * The above copyright notice and this permission notice shall be included in all
+ *  * copies or substantial portions of the Software.
+ *  *
+ *  * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  * SOFTWARE.
+ *
+ */
+
+package io.nuls.consensus.poc.storage.service.impl;
+
+import io.nuls.consensus.poc.storage.constant.ConsensusStorageConstant;
+import io.nuls.consensus.poc.storage.po.CheckpointPo;
+import io.nuls.consensus.poc.storage.service.CheckpointStorageService;
+import io.nuls.core.tools.log.Log;
+import io.nuls.db.service.DBService;
+import io.nuls.kernel.exception.NulsException;
+import io.nuls.kernel.lite.annotation.Autowired;
+import io.nuls.kernel.lite.annotation.Component;
+import io.nuls.kernel.lite.core.bean.InitializingBean;
+import io.nuls.kernel.model.Result;
+
+import java.io.IOException;
+
+@Component
+public class CheckpointStorageServiceImpl implements CheckpointStorageService, InitializingBean {
+
+    @Autowired
+    private DBService dbService;
+
+    @Override
+    public CheckpointPo get() {
+        byte[] body = dbService.get(ConsensusStorageConstant.DB_NAME_CONSENSUS_CHECKPOINT, ConsensusStorageConstant.DB_CHECKPOINT_KEY.getBytes());
+        if (body == null) {
+            return null;
+        }
+        CheckpointPo checkpointPo = new CheckpointPo();
+        try {
+            checkpointPo.parse(body, 0);
+        } catch (Exception e) {
+            Log.error(e);
+            return null;
+        }
+        if (checkpointPo.getVersion() != CheckpointPo.VERSION) {
+            return null;
+        }
+        return checkpointPo;
+    }
+
+    @Override
+    public boolean save(CheckpointPo checkpointPo) {
+        if (checkpointPo == null || checkpointPo.getHash() == null) {
+            return false;
+        }
+        Result result;
+        try {
+            result = dbService.put(ConsensusStorageConstant.DB_NAME_CONSENSUS_CHECKPOINT, ConsensusStorageConstant.DB_CHECKPOINT_KEY.getBytes(), checkpointPo.serialize());
+        } catch (IOException e) {
+            Log.error(e);
+            return false;
+        }
+        return result.isSuccess();
+    }
+
+    @Override
+    public boolean delete() {
+        Result result = dbService.delete(ConsensusStorageConstant.DB_NAME_CONSENSUS_CHECKPOINT, ConsensusStorageConstant.DB_CHECKPOINT_KEY.getBytes());
+        return result.isSuccess();
+    }
+
+    @Override
+    public void afterPropertiesSet() throws NulsException {
+        dbService.createArea(ConsensusStorageConstant.DB_NAME_CONSENSUS_CHECKPOINT);
+    }
+}
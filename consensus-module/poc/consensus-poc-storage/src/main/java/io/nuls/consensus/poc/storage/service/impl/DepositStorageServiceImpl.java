@@ -29,6 +29,7 @@ import io.nuls.consensus.poc.storage.constant.ConsensusStorageConstant;
 import io.nuls.consensus.poc.storage.po.DepositPo;
 import io.nuls.consensus.poc.storage.service.DepositStorageService;
 import io.nuls.core.tools.log.Log;
+import io.nuls.db.model.CacheConfig;
 import io.nuls.db.model.Entry;
 import io.nuls.db.service.DBService;
 import io.nuls.kernel.exception.NulsException;
@@ -152,6 +153,6 @@ public class DepositStorageServiceImpl implements DepositStorageService, Initial
 
     @Override
     public void afterPropertiesSet() throws NulsException {
-        dbService.createArea(ConsensusStorageConstant.DB_NAME_CONSENSUS_DEPOSIT);
+        dbService.createArea(ConsensusStorageConstant.DB_NAME_CONSENSUS_DEPOSIT, new CacheConfig(8192));
     }
 }
@@ -0,0 +1,123 @@
+/*
+ * *
+ *  * MIT License
+ *  *
+ *  * Copyright (c) 2017-2018 nuls.io
+ *  *
+ *  * Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  * of this software and associated documentation files (the "Software"), to deal
+ *  * in the Software without restriction, including without limitation the rights
+ *  * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  * copies of the Software, and to permit persons to whom the Software is
+ *  * furnished to do so, subject to the following conditions:
+ *  *
+ *  * The above copyright notice and this permission notice shall be included in all
+ *  * copies or substantial portions of the Software.
+ *  *
+ *  * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  * SOFTWARE.
+ *
+ */
+
+package io.nuls.consensus.poc.storage.po;
+
+import io.nuls.kernel.model.BlockHeader;
+import io.nuls.kernel.model.Na;
+import io.nuls.kernel.model.NulsDigestData;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class CheckpointPoTest {
+
+    @Test
+    public void testSerialize() throws Exception {
+        CheckpointPo checkpoint = new CheckpointPo();
+        List<BlockHeader> headerList = new ArrayList<>();
+        NulsDigestData preHash = NulsDigestData.calcDigestData(new byte[32]);
+        for (int i = 0; i < 1000; i++) {
+            BlockHeader header = new BlockHeader();
+            header.setHeight(i);
+            header.setPreHash(preHash);
+            header.setMerkleHash(NulsDigestData.calcDigestData(new byte[]{(byte) i}));
+            header.setTime(1000L * i);
+            header.setTxCount(1);
+            header.setExtend(new byte[]{(byte) i, 1, 2, 3});
+            headerList.add(header);
+            preHash = header.getHash();
+        }
+        checkpoint.setBlockHeaderList(headerList);
+        checkpoint.setHeight(999);
+        checkpoint.setHash(preHash);
+
+        byte[] address = new byte[23];
+        for (int i = 0; i < 100; i++) {
+            address[0] = (byte) i;
+            AgentPo agent = new AgentPo();
+            agent.setHash(NulsDigestData.calcDigestData(address));
+            agent.setAgentAddress(address.clone());
+            agent.setPackingAddress(address.clone());
+            agent.setRewardAddress(address.clone());
+            agent.setDeposit(Na.valueOf(20000L + i));
+            agent.setCommissionRate(10.5);
+            agent.setBlockHeight(i);
+            agent.setDelHeight(i % 3 == 0 ? i + 10 : -1L);
+            checkpoint.getAgentList().add(agent);
+
+            DepositPo deposit = new DepositPo();
+            deposit.setTxHash(NulsDigestData.calcDigestData(new byte[]{(byte) i, 1}));
+            deposit.setAgentHash(agent.getHash());
+            deposit.setAddress(address.clone());
+            deposit.setDeposit(Na.valueOf(2000L + i));
+            deposit.setBlockHeight(i);
+            checkpoint.getDepositList().add(deposit);
+
+            PunishLogPo punish = new PunishLogPo();
+            punish.setType((byte) 1);
+            punish.setAddress(address.clone());
+            punish.setHeight(i);
+            punish.setRoundIndex(i / 10);
+            checkpoint.getYellowPunishList().add(punish);
+        }
+
+        byte[] bytes = checkpoint.serialize();
+        assertEquals(checkpoint.size(), bytes.length);
+
+        CheckpointPo restored = new CheckpointPo();
+        restored.parse(bytes, 0);
+        assertEquals(CheckpointPo.VERSION, restored.getVersion());
+        assertEquals(999L, restored.getHeight());
+        assertEquals(checkpoint.getHash(), restored.getHash());
+        assertEquals(1000, restored.getBlockHeaderList().size());
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(headerList.get(i).getHash(), restored.getBlockHeaderList().get(i).getHash());
+        }
+        assertEquals(100, restored.getAgentList().size());
+        for (int i = 0; i < 100; i++) {
+            AgentPo agent = checkpoint.getAgentList().get(i);
+            AgentPo restoredAgent = restored.getAgentList().get(i);
+            assertEquals(agent.getHash(), restoredAgent.getHash());
+            assertEquals(agent.getDelHeight(), restoredAgent.getDelHeight());
+            assertEquals(agent.getDeposit(), restoredAgent.getDeposit());
+            assertEquals(checkpoint.getDepositList().get(i).getTxHash(), restored.getDepositList().get(i).getTxHash());
+            assertEquals(checkpoint.getYellowPunishList().get(i).getRoundIndex(), restored.getYellowPunishList().get(i).getRoundIndex());
+        }
+        assertTrue(restored.getRedPunishList().isEmpty());
+    }
+
+    @Test
+    public void testOtherVersion() throws Exception {
+        CheckpointPo restored = new CheckpointPo();
+        restored.parse(new byte[]{(byte) (CheckpointPo.VERSION + 1), 1, 2, 3}, 0);
+        assertNotEquals(CheckpointPo.VERSION, restored.getVersion());
+        assertTrue(restored.getBlockHeaderList().isEmpty());
+    }
+}
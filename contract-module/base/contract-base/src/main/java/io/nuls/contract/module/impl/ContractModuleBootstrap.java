@@ -27,6 +27,7 @@ package io.nuls.contract.module.impl;
 import io.nuls.consensus.constant.ConsensusConstant;
 import io.nuls.contract.entity.tx.CallContractTransaction;
 import io.nuls.contract.entity.tx.processor.CreateContractTxProcessor;
+import io.nuls.contract.helper.VMHelper;
 import io.nuls.contract.ledger.manager.ContractBalanceManager;
 import io.nuls.contract.module.AbstractContractModule;
 import io.nuls.contract.util.VMContext;
@@ -87,6 +88,7 @@ public class ContractModuleBootstrap extends AbstractContractModule {
         ContractBalanceManager balanceManager = NulsContext.getServiceBean(ContractBalanceManager.class);
         balanceManager.initContractBalance();
         balanceManager.initAllTokensForAllAccounts();
+        NulsContext.getServiceBean(VMHelper.class).compactState();
     }
 
     @Override
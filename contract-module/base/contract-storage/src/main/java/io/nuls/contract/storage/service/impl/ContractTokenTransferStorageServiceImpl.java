@@ -27,13 +27,15 @@ package io.nuls.contract.storage.service.impl;
 import io.nuls.contract.storage.constant.ContractStorageConstant;
 import io.nuls.contract.dto.ContractTokenTransferInfoPo;
 import io.nuls.contract.storage.service.ContractTokenTransferStorageService;
+import io.nuls.core.tools.array.ArraysTool;
 import io.nuls.db.constant.DBErrorCode;
+import io.nuls.db.model.ScanRange;
 import io.nuls.db.service.DBService;
+import io.nuls.db.service.EntryIterator;
 import io.nuls.kernel.exception.NulsRuntimeException;
 import io.nuls.kernel.lite.annotation.Autowired;
 import io.nuls.kernel.lite.annotation.Component;
 import io.nuls.kernel.lite.core.bean.InitializingBean;
-import io.nuls.kernel.model.Address;
 import io.nuls.kernel.model.Result;
 
 import java.util.ArrayList;
@@ -66,68 +68,34 @@ public class ContractTokenTransferStorageServiceImpl implements ContractTokenTra
 
     @Override
     public List<ContractTokenTransferInfoPo> getTokenTransferInfoListByAddress(byte[] address) {
-        List<ContractTokenTransferInfoPo> infoPoList = new ArrayList<>();
-        List<byte[]> keyList = dbService.keyList(this.area);
-        if (keyList == null || keyList.isEmpty()) {
-            return infoPoList;
-        }
-
-        ContractTokenTransferInfoPo tokenTransferInfoPo;
-        byte[] values;
-        for (byte[] key : keyList) {
-            if (isAddressEquals(key, address)) {
-                tokenTransferInfoPo = dbService.getModel(this.area, key, ContractTokenTransferInfoPo.class);
-                infoPoList.add(tokenTransferInfoPo);
-            }
-        }
-        return infoPoList;
-    }
-
-    private boolean isAddressEquals(byte[] key, byte[] address) {
-        int length = Address.ADDRESS_LENGTH;
-        for(int i = 0; i < length; i++) {
-            if(key[i] != address[i]) {
-                return false;
-            }
-        }
-        return true;
+        return getTokenTransferInfoListByPrefix(address);
     }
 
     @Override
     public List<ContractTokenTransferInfoPo> getTokenTransferInfoListByAddress(byte[] address, byte[] txHash) {
+        return getTokenTransferInfoListByPrefix(ArraysTool.concatenate(address, txHash));
+    }
+
+    /**
+     * key为地址+交易hash+序号，按前缀遍历，key和value来自同一个快照，不会读到并发删除的记录
+     * The key is address + tx hash + index, scan by the prefix, keys and values come from the same snapshot so concurrently deleted records are never read.
+     */
+    private List<ContractTokenTransferInfoPo> getTokenTransferInfoListByPrefix(byte[] prefix) {
         List<ContractTokenTransferInfoPo> infoPoList = new ArrayList<>();
-        List<byte[]> keyList = dbService.keyList(this.area);
-        if (keyList == null || keyList.isEmpty()) {
+        EntryIterator<ContractTokenTransferInfoPo> iterator = dbService.iterator(this.area, ScanRange.prefix(prefix), ContractTokenTransferInfoPo.class);
+        if (iterator == null) {
             return infoPoList;
         }
-
-        ContractTokenTransferInfoPo tokenTransferInfoPo;
-        byte[] values;
-        for (byte[] key : keyList) {
-            if (isAddressAndHashEquals(key, address, txHash)) {
-                tokenTransferInfoPo = dbService.getModel(this.area, key, ContractTokenTransferInfoPo.class);
-                infoPoList.add(tokenTransferInfoPo);
+        try {
+            while (iterator.hasNext()) {
+                infoPoList.add(iterator.next().getValue());
             }
+        } finally {
+            iterator.close();
         }
         return infoPoList;
     }
 
-    private boolean isAddressAndHashEquals(byte[] key, byte[] address, byte[] txHash) {
-        int length = Address.ADDRESS_LENGTH + txHash.length;
-        for(int i = 0, k = 0; i < length; i++) {
-            if(i < Address.ADDRESS_LENGTH) {
-                if(key[i] != address[i]) {
-                    return false;
-                }
-            } else {
-                if(key[i] != txHash[k++]) {
-                    return false;
-                }
-            }
-        }
-        return true;
-    }
-
     @Override
     public Result deleteTokenTransferInfo(byte[] infoKey) {
         return dbService.delete(this.area, infoKey);
@@ -89,6 +89,7 @@ public class CallContractTxProcessor implements TransactionProcessor<CallContrac
 
     @Override
     public Result onRollback(CallContractTransaction tx, Object secondaryData) {
+        vmHelper.onBlockRolledBack((BlockHeader) secondaryData);
         try {
             // 回滚代币转账交易
             byte[] txHashBytes = null;
@@ -184,6 +185,10 @@ public class CallContractTxProcessor implements TransactionProcessor<CallContrac
 
     @Override
     public Result onCommit(CallContractTransaction tx, Object secondaryData) {
+        Result committedResult = vmHelper.onBlockCommitted((BlockHeader) secondaryData);
+        if (committedResult.isFailed()) {
+            return committedResult;
+        }
         try {
             // 保存合约执行结果
             ContractResult contractResult = tx.getContractResult();
@@ -92,6 +92,7 @@ public class CreateContractTxProcessor implements TransactionProcessor<CreateCon
 
     @Override
     public Result onRollback(CreateContractTransaction tx, Object secondaryData) {
+        vmHelper.onBlockRolledBack((BlockHeader) secondaryData);
         CreateContractData txData = tx.getTxData();
         byte[] contractAddress = txData.getContractAddress();
         contractCollectionStorageService.deleteContractAddress(contractAddress);
@@ -102,6 +103,10 @@ public class CreateContractTxProcessor implements TransactionProcessor<CreateCon
 
     @Override
     public Result onCommit(CreateContractTransaction tx, Object secondaryData) {
+        Result committedResult = vmHelper.onBlockCommitted((BlockHeader) secondaryData);
+        if (committedResult.isFailed()) {
+            return committedResult;
+        }
         ContractResult contractResult = tx.getContractResult();
         contractService.saveContractExecuteResult(tx.getHash(), contractResult);
 
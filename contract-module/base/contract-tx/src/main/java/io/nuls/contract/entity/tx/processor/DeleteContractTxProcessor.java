@@ -25,9 +25,11 @@ package io.nuls.contract.entity.tx.processor;
 
 import io.nuls.contract.dto.ContractResult;
 import io.nuls.contract.entity.tx.DeleteContractTransaction;
+import io.nuls.contract.helper.VMHelper;
 import io.nuls.contract.service.ContractService;
 import io.nuls.kernel.lite.annotation.Autowired;
 import io.nuls.kernel.lite.annotation.Component;
+import io.nuls.kernel.model.BlockHeader;
 import io.nuls.kernel.model.Result;
 import io.nuls.kernel.model.Transaction;
 import io.nuls.kernel.processor.TransactionProcessor;
@@ -46,14 +48,22 @@ public class DeleteContractTxProcessor implements TransactionProcessor<DeleteCon
     @Autowired
     private ContractService contractService;
 
+    @Autowired
+    private VMHelper vmHelper;
+
     @Override
     public Result onRollback(DeleteContractTransaction tx, Object secondaryData) {
+        vmHelper.onBlockRolledBack((BlockHeader) secondaryData);
         contractService.deleteContractExecuteResult(tx.getHash());
         return Result.getSuccess();
     }
 
     @Override
     public Result onCommit(DeleteContractTransaction tx, Object secondaryData) {
+        Result committedResult = vmHelper.onBlockCommitted((BlockHeader) secondaryData);
+        if (committedResult.isFailed()) {
+            return committedResult;
+        }
         ContractResult contractResult = tx.getContractResult();
         contractService.saveContractExecuteResult(tx.getHash(), contractResult);
         return Result.getSuccess();
@@ -41,12 +41,16 @@ import io.nuls.contract.vm.program.ProgramCall;
 import io.nuls.contract.vm.program.ProgramExecutor;
 import io.nuls.contract.vm.program.ProgramMethod;
 import io.nuls.contract.vm.program.ProgramResult;
+import io.nuls.contract.vm.program.impl.KeyValueSource;
 import io.nuls.contract.vm.program.impl.ProgramExecutorImpl;
+import io.nuls.contract.vm.program.impl.StatePruner;
 import io.nuls.core.tools.array.ArraysTool;
+import io.nuls.core.tools.cfg.IniEntity;
 import io.nuls.core.tools.log.Log;
 import io.nuls.core.tools.map.MapUtil;
 import io.nuls.core.tools.str.StringUtils;
 import io.nuls.db.service.DBService;
+import io.nuls.kernel.cfg.NulsConfig;
 import io.nuls.kernel.context.NulsContext;
 import io.nuls.kernel.exception.NulsException;
 import io.nuls.kernel.lite.annotation.Autowired;
@@ -55,10 +59,14 @@ import io.nuls.kernel.lite.core.bean.InitializingBean;
 import io.nuls.kernel.model.BlockHeader;
 import io.nuls.kernel.model.Result;
 import io.nuls.kernel.model.Transaction;
+import io.nuls.kernel.thread.manager.NulsThreadFactory;
+import io.nuls.kernel.thread.manager.TaskManager;
 import io.nuls.kernel.utils.AddressTool;
 import io.nuls.kernel.utils.VarInt;
+import io.nuls.protocol.service.BlockService;
 
 import java.math.BigInteger;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -79,9 +87,21 @@ public class VMHelper implements InitializingBean {
     private ContractBalanceManager contractBalanceManager;
     @Autowired
     private ContractTokenTransferStorageService contractTokenTransferStorageService;
+    @Autowired
+    private BlockService blockService;
 
     private ProgramExecutor programExecutor;
 
+    private KeyValueSource stateSource;
+
+    private StatePruner statePruner;
+
+    private boolean statePrune;
+
+    private boolean stateCompact;
+
+    private long retainedStateBlocks;
+
     private ConcurrentHashMap<String, Long> accountLastedPriceMap = MapUtil.createConcurrentHashMap(4);
 
     private static final BigInteger MAXIMUM_DECIMALS = BigInteger.valueOf(18L);
@@ -89,7 +109,80 @@ public class VMHelper implements InitializingBean {
 
     @Override
     public void afterPropertiesSet() throws NulsException {
-        programExecutor = new ProgramExecutorImpl(vmContext, dbService);
+        KeyValueSource source = stateSource = new KeyValueSource(dbService);
+        IniEntity config = NulsConfig.MODULES_CONFIG;
+        if (config != null) {
+            statePrune = config.getCfgValue(CFG_CONTRACT_SECTION, CFG_STATE_PRUNE, false);
+            stateCompact = config.getCfgValue(CFG_CONTRACT_SECTION, CFG_STATE_COMPACT, false);
+            retainedStateBlocks = config.getCfgValue(CFG_CONTRACT_SECTION, CFG_STATE_PRUNE_KEEP_BLOCKS, DEFAULT_STATE_PRUNE_KEEP_BLOCKS)
+                    + config.getCfgValue(CFG_CONTRACT_SECTION, CFG_STATE_PRUNE_FORK_DEPTH, DEFAULT_STATE_PRUNE_FORK_DEPTH);
+        }
+        // 整理数据也需要从启动开始记录写入的节点
+        if (statePrune || stateCompact) {
+            statePruner = new StatePruner(source, retainedStateBlocks, statePrune ?
+                    TaskManager.createThreadPool(1, 1, new NulsThreadFactory(MODULE_ID_CONTRACT, "contract-state-prune")) : null);
+        }
+        programExecutor = new ProgramExecutorImpl(vmContext, source);
+    }
+
+    /**
+     * 区块保存时确保合约状态已经写入数据库并记录该区块的合约状态，开启清理时定期删除超出保留范围的状态
+     * Make sure the contract state is written to the database when a block is saved and record the contract state of the block,
+     * the state beyond the retained blocks is deleted periodically when pruning is on.
+     * 合约状态写入失败时返回失败，区块保存随之失败
+     * A failure is returned when the contract state cannot be written, so the block save fails as well.
+     */
+    public Result onBlockCommitted(BlockHeader header) {
+        if (!stateSource.awaitFlush()) {
+            Log.error("contract state of block {} is not written to the database.", header.getHeight());
+            return Result.getFailed(ContractErrorCode.IO_ERROR);
+        }
+        if (statePrune) {
+            statePruner.blockCommitted(header.getHeight(), ContractUtil.getStateRoot(header));
+        }
+        return Result.getSuccess();
+    }
+
+    /**
+     * 区块回滚后丢弃该区块的合约状态记录
+     * Drop the contract state record of a rolled back block.
+     */
+    public void onBlockRolledBack(BlockHeader header) {
+        if (statePrune) {
+            statePruner.blockRolledBack(header.getHeight());
+        }
+    }
+
+    /**
+     * 删除合约状态数据区中从最近区块的状态根都不可达的节点，开启配置后在启动时执行一次
+     * Delete the nodes of the contract state area unreachable from the state roots of the recent blocks,
+     * runs once at startup when configured.
+     */
+    public void compactState() {
+        if (!stateCompact) {
+            return;
+        }
+        stateCompact = false;
+        try {
+            long bestHeight = NulsContext.getInstance().getBestHeight();
+            List<byte[]> stateRoots = new ArrayList<>();
+            for (long height = Math.max(0L, bestHeight - retainedStateBlocks); height <= bestHeight; height++) {
+                Result<BlockHeader> result = blockService.getBlockHeader(height);
+                if (result.isFailed() || result.getData() == null) {
+                    Log.warn("compact contract state skipped, block header not found, height: {}", height);
+                    return;
+                }
+                stateRoots.add(ContractUtil.getStateRoot(result.getData()));
+            }
+            statePruner.compact(stateRoots);
+        } catch (Exception e) {
+            Log.error("compact contract state error.", e);
+        } finally {
+            if (!statePrune) {
+                statePruner.detach();
+                statePruner = null;
+            }
+        }
     }
 
     public ProgramExecutor getProgramExecutor() {
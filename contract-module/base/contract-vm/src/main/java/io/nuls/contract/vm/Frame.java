@@ -25,6 +25,7 @@
 package io.nuls.contract.vm;
 
 import io.nuls.contract.vm.code.MethodCode;
+import io.nuls.contract.vm.code.MethodInstructions;
 import io.nuls.contract.vm.code.VariableType;
 import io.nuls.contract.vm.instructions.references.Athrow;
 import org.objectweb.asm.tree.*;
@@ -49,6 +50,10 @@ public class Frame {
 
     public final Result result;
 
+    private final MethodInstructions methodInstructions;
+
+    private int currentIndex;
+
     private AbstractInsnNode currentInsnNode;
 
     private OpCode currentOpCode;
@@ -65,32 +70,51 @@ public class Frame {
         this.operandStack = new OperandStack(this.maxStack);
         this.localVariables = new LocalVariables(this.maxLocals, args);
         this.result = new Result(this.methodCode.returnVariableType);
+        this.methodInstructions = this.methodCode.getMethodInstructions();
         this.currentInsnNode = this.methodCode.instructions.getFirst();
+        if (this.currentInsnNode != null && this.currentInsnNode.getOpcode() < 0) {
+            // 与跳转一样先停在开头的标签上，保持每个栈帧第一次step的行为不变
+            this.currentIndex = -1;
+        }
     }
 
     public void step() {
         if (this.currentInsnNode != null) {
-            this.currentInsnNode = this.currentInsnNode.getNext();
+            this.currentIndex++;
+            this.currentInsnNode = this.methodInstructions.getInsnNode(this.currentIndex);
         }
     }
 
     public void jump() {
-        this.currentInsnNode = jumpInsnNode().label;
+        jump(jumpInsnNode().label, this.methodInstructions.getJumpIndex(this.currentIndex));
     }
 
     public void jump(LabelNode label) {
+        jump(label, this.methodInstructions.labelIndex(label));
+    }
+
+    /**
+     * 跳转后停在标签上，下一次step执行标签之后的第一条指令
+     * After a jump the frame stays on the label, the next step moves to the first instruction after it.
+     */
+    private void jump(LabelNode label, int index) {
         this.currentInsnNode = label;
+        this.currentIndex = index - 1;
     }
 
     public OpCode currentOpCode() {
-        if (this.currentInsnNode != null) {
-            this.currentOpCode = OpCode.valueOf(this.currentInsnNode.getOpcode());
+        if (this.currentInsnNode != null && this.currentInsnNode.getOpcode() >= 0) {
+            this.currentOpCode = this.methodInstructions.getOpCode(this.currentIndex);
         } else {
             this.currentOpCode = null;
         }
         return this.currentOpCode;
     }
 
+    public int gasCost() {
+        return this.methodInstructions.getGasCost(this.currentIndex);
+    }
+
     public int getLine(LabelNode labelNode) {
         AbstractInsnNode abstractInsnNode = labelNode;
         while (!(abstractInsnNode instanceof LineNumberNode)) {
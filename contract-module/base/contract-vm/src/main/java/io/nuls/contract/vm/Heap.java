@@ -34,6 +34,7 @@ import io.nuls.contract.vm.natives.io.nuls.contract.sdk.NativeAddress;
 import io.nuls.contract.vm.util.CloneUtils;
 import io.nuls.contract.vm.util.Constants;
 import io.nuls.contract.vm.util.JsonUtils;
+import io.nuls.contract.vm.util.StateUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.ethereum.core.Repository;
 import org.ethereum.vm.DataWord;
@@ -50,9 +51,9 @@ public class Heap {
 
     private VM vm;
 
-    public final HeapMap<ObjectRef, Map<String, Object>> objects = new HeapMap<>(1024);
+    public final HeapMap<ObjectRef, Map<String, Object>> objects;
 
-    public final HeapMap<String, Object> arrays = new HeapMap<>(1024);
+    public final HeapMap<String, Object> arrays;
 
     private final Set<ObjectRef> changes = new HashSet<>(1024);
 
@@ -69,9 +70,22 @@ public class Heap {
     private static final DataWord OBJECT_REF_COUNT = new DataWord("objectRefCount");
 
     public Heap(BigInteger objectRefCount) {
+        this.objects = new HeapMap<>(1024);
+        this.arrays = new HeapMap<>(1024);
         this.objectRefCount = new BigInteger(objectRefCount.toString());
     }
 
+    public Heap(Heap heap) {
+        this.objects = new HeapMap<>(heap.objects, CloneUtils::clone);
+        this.arrays = new HeapMap<>(heap.arrays, CloneUtils::cloneObject);
+        this.changes.addAll(heap.changes);
+        this.classNames.putAll(heap.classNames);
+        this.contract = heap.contract;
+        this.address = heap.address;
+        this.repository = heap.repository;
+        this.objectRefCount = heap.objectRefCount;
+    }
+
     public void setVm(VM vm) {
         this.vm = vm;
     }
@@ -172,7 +186,7 @@ public class Heap {
             return null;
         }
         byte[] value = dataWord.getNoLeadZeroesData();
-        Map<String, Object> map = (Map<String, Object>) JsonUtils.decode(new String(value), classNames);
+        Map<String, Object> map = StateUtils.decodeFields(value, classNames);
         return map;
     }
 
@@ -287,7 +301,7 @@ public class Heap {
         if (!arrayRef.getVariableType().getComponentType().isPrimitive()) {
             clazz = ObjectRef.class;
         }
-        Object object = JsonUtils.decodeArray(new String(value), clazz, classNames);
+        Object object = StateUtils.decodeArray(value, clazz, classNames);
         return object;
     }
 
@@ -545,6 +559,7 @@ public class Heap {
 
     public Map<DataWord, DataWord> contractState() {
         Map<DataWord, DataWord> contractState = new HashMap<>(1024);
+        boolean binary = StateUtils.isBinaryEnabled();
         contractState.put(OBJECT_REF_COUNT, new DataWord(this.objectRefCount));
         Set<ObjectRef> stateObjectRefs = new HashSet<>(1024);
         String className = this.contract.getVariableType().getType();
@@ -560,8 +575,7 @@ public class Heap {
                 continue;
             }
             String key = JsonUtils.encode(objectRef, classNames);
-            String value = JsonUtils.encode(fields, classNames);
-            contractState.put(new DataWord(key), new DataWord(value));
+            contractState.put(new DataWord(key), StateUtils.encodeFields(fields, classNames, binary));
             if (objectRef.isArray()) {
                 for (String k : fields.keySet()) {
                     Integer i = Integer.valueOf(k);
@@ -575,8 +589,7 @@ public class Heap {
                         if (!objectRef.getVariableType().getComponentType().isPrimitive()) {
                             clazz = ObjectRef.class;
                         }
-                        String arrayValue = JsonUtils.encodeArray(object, clazz, classNames);
-                        contractState.put(new DataWord(arrayKey), new DataWord(arrayValue));
+                        contractState.put(new DataWord(arrayKey), StateUtils.encodeArray(object, clazz, classNames, binary));
                     }
                 }
             }
@@ -26,6 +26,7 @@ package io.nuls.contract.vm;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.function.Function;
 
 public class HeapMap<K, V> extends HashMap<K, V> {
 
@@ -36,6 +37,16 @@ public class HeapMap<K, V> extends HashMap<K, V> {
         cache = new HashMap<>(initialCapacity);
     }
 
+    public HeapMap(HeapMap<K, V> heapMap, Function<V, V> copier) {
+        this(Math.max(heapMap.size() + heapMap.cache.size(), 16));
+        for (Map.Entry<K, V> entry : heapMap.entrySet()) {
+            super.put(entry.getKey(), copier.apply(entry.getValue()));
+        }
+        for (Map.Entry<K, V> entry : heapMap.cache.entrySet()) {
+            cache.put(entry.getKey(), copier.apply(entry.getValue()));
+        }
+    }
+
     @Override
     public V get(Object key) {
         V v = cache.get(key);
@@ -24,15 +24,34 @@
  */
 package io.nuls.contract.vm;
 
+/**
+ * 局部变量表，与操作数栈一样把基本类型的值存放在long数组里，避免每次存取装箱
+ * The local variable table, like the operand stack it keeps primitive values in a long array to avoid boxing on every access.
+ */
 public class LocalVariables {
 
+    private static final Object INT = new Object();
+
+    private static final Object LONG = new Object();
+
+    private static final Object FLOAT = new Object();
+
+    private static final Object DOUBLE = new Object();
+
     private int maxLocals;
 
+    /**
+     * 引用或装箱的参数，基本类型的槽位存放类型标记
+     * References or boxed arguments, a primitive slot holds its type marker.
+     */
     private Object[] localVariables;
 
+    private long[] values;
+
     public LocalVariables(int maxLocals, Object[] args) {
         this.maxLocals = maxLocals;
         this.localVariables = new Object[maxLocals];
+        this.values = new long[maxLocals];
         if (args != null) {
             System.arraycopy(args, 0, this.localVariables, 0, args.length);
         }
@@ -40,7 +59,9 @@ public class LocalVariables {
 
     public int getInt(int index) {
         Object object = this.localVariables[index];
-        if (object instanceof Boolean) {
+        if (object == INT) {
+            return (int) this.values[index];
+        } else if (object instanceof Boolean) {
             return (boolean) object ? 1 : 0;
         } else if (object instanceof Byte) {
             return (byte) object;
@@ -54,31 +75,43 @@ public class LocalVariables {
     }
 
     public void setInt(int index, int value) {
-        this.localVariables[index] = value;
+        set(index, INT, value);
     }
 
     public long getLong(int index) {
-        return (long) this.localVariables[index];
+        Object object = this.localVariables[index];
+        if (object == LONG) {
+            return this.values[index];
+        }
+        return (long) object;
     }
 
     public void setLong(int index, long value) {
-        this.localVariables[index] = value;
+        set(index, LONG, value);
     }
 
     public float getFloat(int index) {
-        return (float) this.localVariables[index];
+        Object object = this.localVariables[index];
+        if (object == FLOAT) {
+            return Float.intBitsToFloat((int) this.values[index]);
+        }
+        return (float) object;
     }
 
     public void setFloat(int index, float value) {
-        this.localVariables[index] = value;
+        set(index, FLOAT, Float.floatToRawIntBits(value));
     }
 
     public double getDouble(int index) {
-        return (double) this.localVariables[index];
+        Object object = this.localVariables[index];
+        if (object == DOUBLE) {
+            return Double.longBitsToDouble(this.values[index]);
+        }
+        return (double) object;
     }
 
     public void setDouble(int index, double value) {
-        this.localVariables[index] = value;
+        set(index, DOUBLE, Double.doubleToRawLongBits(value));
     }
 
     public ObjectRef getRef(int index) {
@@ -89,4 +122,9 @@ public class LocalVariables {
         this.localVariables[index] = value;
     }
 
+    private void set(int index, Object type, long value) {
+        this.localVariables[index] = type;
+        this.values[index] = value;
+    }
+
 }
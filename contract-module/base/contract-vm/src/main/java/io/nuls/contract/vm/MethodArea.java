@@ -49,6 +49,11 @@ public class MethodArea {
     public MethodArea() {
     }
 
+    public MethodArea(MethodArea methodArea) {
+        this.classCodes.putAll(methodArea.classCodes);
+        this.methodCodes.putAll(methodArea.methodCodes);
+    }
+
     public void setVm(VM vm) {
         this.vm = vm;
     }
@@ -27,20 +27,47 @@ package io.nuls.contract.vm;
 import io.nuls.contract.vm.code.Descriptors;
 import io.nuls.contract.vm.code.VariableType;
 
-import java.util.Stack;
+import java.util.Arrays;
+import java.util.EmptyStackException;
 
-public class OperandStack extends Stack {
+/**
+ * 操作数栈，基本类型的值直接存放在long数组里，只在按Object取出时才装箱，栈只属于一个栈帧因此不加锁
+ * The operand stack, primitive values are stored in a long array and only boxed when taken out as an Object,
+ * the stack belongs to a single frame so it is not synchronized.
+ */
+public class OperandStack {
+
+    private static final Object INT = new Object();
+
+    private static final Object LONG = new Object();
+
+    private static final Object FLOAT = new Object();
+
+    private static final Object DOUBLE = new Object();
 
     private final int maxStack;
 
+    /**
+     * 引用或装箱的值，基本类型的槽位存放类型标记
+     * References or boxed values, a primitive slot holds its type marker.
+     */
+    private Object[] refs;
+
+    private long[] values;
+
+    private int size;
+
     public OperandStack(int maxStack) {
-        super();
         this.maxStack = maxStack;
+        int capacity = Math.max(maxStack, 2);
+        this.refs = new Object[capacity];
+        this.values = new long[capacity];
     }
 
-    @Override
     public Object push(Object value) {
-        return super.push(value);
+        ensureCapacity(1);
+        refs[size++] = value;
+        return value;
     }
 
     public Object push(Object value, VariableType variableType) {
@@ -80,49 +107,75 @@ public class OperandStack extends Stack {
         return value;
     }
 
-    @Override
-    public synchronized Object pop() {
-        return super.pop();
+    public Object pop() {
+        Object ref = popSlot();
+        if (ref == INT) {
+            return (int) values[size];
+        } else if (ref == LONG) {
+            return values[size];
+        } else if (ref == FLOAT) {
+            return Float.intBitsToFloat((int) values[size]);
+        } else if (ref == DOUBLE) {
+            return Double.longBitsToDouble(values[size]);
+        } else {
+            return ref;
+        }
     }
 
     public int pushInt(int value) {
-        push(value);
+        pushPrimitive(INT, value);
         return value;
     }
 
     public int popInt() {
-        return (int) pop();
+        Object ref = popSlot();
+        if (ref == INT) {
+            return (int) values[size];
+        }
+        return (int) ref;
     }
 
     public long pushLong(long value) {
-        push(value);
+        pushPrimitive(LONG, value);
         push(null);
         return value;
     }
 
     public long popLong() {
-        pop();
-        return (long) pop();
+        popSlot();
+        Object ref = popSlot();
+        if (ref == LONG) {
+            return values[size];
+        }
+        return (long) ref;
     }
 
     public float pushFloat(float value) {
-        push(value);
+        pushPrimitive(FLOAT, Float.floatToRawIntBits(value));
         return value;
     }
 
     public float popFloat() {
-        return (float) pop();
+        Object ref = popSlot();
+        if (ref == FLOAT) {
+            return Float.intBitsToFloat((int) values[size]);
+        }
+        return (float) ref;
     }
 
     public double pushDouble(double value) {
-        push(value);
+        pushPrimitive(DOUBLE, Double.doubleToRawLongBits(value));
         push(null);
         return value;
     }
 
     public double popDouble() {
-        pop();
-        return (double) pop();
+        popSlot();
+        Object ref = popSlot();
+        if (ref == DOUBLE) {
+            return Double.longBitsToDouble(values[size]);
+        }
+        return (double) ref;
     }
 
     public int pushBoolean(boolean value) {
@@ -166,4 +219,86 @@ public class OperandStack extends Stack {
         return (ObjectRef) pop();
     }
 
+    /**
+     * 丢弃栈顶的count个槽位
+     * Discard the top count slots.
+     */
+    public void discard(int count) {
+        for (int i = 0; i < count; i++) {
+            popSlot();
+        }
+    }
+
+    /**
+     * 复制栈顶的count个槽位，插到其下depth个槽位的下面，对应dup系列指令
+     * Duplicate the top count slots and insert the copies below the next depth slots, as the dup instructions do.
+     */
+    public void dup(int count, int depth) {
+        if (size < count + depth) {
+            throw new EmptyStackException();
+        }
+        ensureCapacity(count);
+        int base = size - count - depth;
+        System.arraycopy(refs, base, refs, base + count, count + depth);
+        System.arraycopy(values, base, values, base + count, count + depth);
+        System.arraycopy(refs, size, refs, base, count);
+        System.arraycopy(values, size, values, base, count);
+        size += count;
+    }
+
+    public void swap() {
+        if (size < 2) {
+            throw new EmptyStackException();
+        }
+        int top = size - 1;
+        Object ref = refs[top];
+        refs[top] = refs[top - 1];
+        refs[top - 1] = ref;
+        long value = values[top];
+        values[top] = values[top - 1];
+        values[top - 1] = value;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void clear() {
+        Arrays.fill(refs, 0, size, null);
+        size = 0;
+    }
+
+    private void pushPrimitive(Object type, long value) {
+        ensureCapacity(1);
+        refs[size] = type;
+        values[size] = value;
+        size++;
+    }
+
+    /**
+     * 弹出一个槽位，返回其引用或类型标记，基本类型的值留在values[size]
+     * Pop a slot and return its reference or type marker, a primitive value is left at values[size].
+     */
+    private Object popSlot() {
+        if (size == 0) {
+            throw new EmptyStackException();
+        }
+        size--;
+        Object ref = refs[size];
+        refs[size] = null;
+        return ref;
+    }
+
+    private void ensureCapacity(int count) {
+        if (size + count > refs.length) {
+            int capacity = Math.max(refs.length << 1, size + count);
+            refs = Arrays.copyOf(refs, capacity);
+            values = Arrays.copyOf(values, capacity);
+        }
+    }
+
 }
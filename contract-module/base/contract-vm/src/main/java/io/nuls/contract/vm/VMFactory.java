@@ -24,6 +24,8 @@
  */
 package io.nuls.contract.vm;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import io.nuls.contract.vm.code.ClassCode;
 import io.nuls.contract.vm.code.ClassCodeLoader;
 import io.nuls.contract.vm.program.impl.ProgramConstants;
@@ -31,6 +33,7 @@ import org.apache.commons.lang3.ArrayUtils;
 
 import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 public class VMFactory {
 
@@ -38,6 +41,15 @@ public class VMFactory {
 
     public static VM VM;
 
+    /**
+     * 已加载合约类的虚拟机，key是ClassCodeLoader按代码hash缓存的类集合，代码被移出缓存后随之失效
+     */
+    private static final Cache<Map<String, ClassCode>, VM> CONTRACT_VM_CACHE = CacheBuilder.newBuilder()
+            .weakKeys()
+            .maximumSize(1024)
+            .expireAfterAccess(10 * 60, TimeUnit.SECONDS)
+            .build();
+
     private static final String[] IGNORE_CLINIT = new String[]{
             "java/io/File",
             "java/io/FileDescriptor",
@@ -106,6 +118,32 @@ public class VMFactory {
         return new VM(VM);
     }
 
+    /**
+     * 创建已加载合约类的虚拟机，同一份代码第一次加载后保存类加载完成时的虚拟机，
+     * 之后复制其方法区和堆，不再重复执行合约类的静态初始化，gas和堆的状态与重新加载一致
+     */
+    public static VM createVM(Map<String, ClassCode> classCodes) {
+        VM vm = CONTRACT_VM_CACHE.getIfPresent(classCodes);
+        if (vm != null) {
+            return vm.copy();
+        }
+        vm = createVM();
+        vm.heap.loadClassCodes(classCodes);
+        vm.methodArea.loadClassCodes(classCodes);
+        if (isReusable(vm)) {
+            CONTRACT_VM_CACHE.put(classCodes, vm.copy());
+        }
+        return vm;
+    }
+
+    private static boolean isReusable(VM vm) {
+        return vm.isEmptyFrame()
+                && !vm.getResult().isError()
+                && !vm.getResult().isException()
+                && vm.getTransfers().isEmpty()
+                && vm.getEvents().isEmpty();
+    }
+
     public static VM newVM() {
         VM vm = new VM();
         for (String key : VM_INIT_CLASS_CODES.keySet()) {
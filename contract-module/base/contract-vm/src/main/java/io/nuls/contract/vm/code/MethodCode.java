@@ -215,6 +215,8 @@ public class MethodCode {
 
     public final String normalDesc;
 
+    private volatile MethodInstructions methodInstructions;
+
     public MethodCode(ClassCode classCode, MethodNode methodNode) {
         access = methodNode.access;
         name = methodNode.name;
@@ -345,6 +347,19 @@ public class MethodCode {
         return this.className.equals(className);
     }
 
+    /**
+     * 第一次执行时解码指令，之后所有栈帧共享
+     * The instructions are decoded on the first run and shared by all frames afterwards.
+     */
+    public MethodInstructions getMethodInstructions() {
+        MethodInstructions methodInstructions = this.methodInstructions;
+        if (methodInstructions == null) {
+            methodInstructions = new MethodInstructions(instructions);
+            this.methodInstructions = methodInstructions;
+        }
+        return methodInstructions;
+    }
+
     public boolean isMethod(String name, String desc) {
         return this.name.equals(name) && this.desc.equals(desc);
     }
@@ -0,0 +1,122 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017-2018 nuls.io
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+package io.nuls.contract.vm.code;
+
+import io.nuls.contract.vm.GasCost;
+import io.nuls.contract.vm.OpCode;
+import org.objectweb.asm.tree.AbstractInsnNode;
+import org.objectweb.asm.tree.InsnList;
+import org.objectweb.asm.tree.JumpInsnNode;
+import org.objectweb.asm.tree.LabelNode;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 预先解码的方法指令：去掉标签、行号、栈帧等伪指令后按下标存放，并预先解析操作码、跳转目标和固定的gas消耗，
+ * 解释器按下标执行，不再逐个遍历链表节点、查找操作码和计算gas
+ * The pre-decoded instructions of a method: the instructions without labels, line numbers and frames are stored by index,
+ * with their opcodes, jump targets and fixed gas costs resolved up front, so the interpreter steps by index
+ * instead of walking the linked nodes, looking up the opcode and computing the gas on every step.
+ */
+public class MethodInstructions {
+
+    private final AbstractInsnNode[] insnNodes;
+
+    private final OpCode[] opCodes;
+
+    private final int[] gasCosts;
+
+    /**
+     * 跳转指令的目标下标，即目标标签之后的第一条指令，其他指令为-1
+     * The target index of a jump instruction, that is the first instruction after the target label, -1 for other instructions.
+     */
+    private final int[] jumpIndexes;
+
+    private final Map<LabelNode, Integer> labelIndexes;
+
+    public MethodInstructions(InsnList instructions) {
+        List<AbstractInsnNode> nodes = new ArrayList<>(instructions.size());
+        this.labelIndexes = new IdentityHashMap<>();
+        for (AbstractInsnNode node = instructions.getFirst(); node != null; node = node.getNext()) {
+            if (node.getOpcode() >= 0) {
+                nodes.add(node);
+            } else if (node instanceof LabelNode) {
+                this.labelIndexes.put((LabelNode) node, nodes.size());
+            }
+        }
+        int size = nodes.size();
+        this.insnNodes = nodes.toArray(new AbstractInsnNode[size]);
+        this.opCodes = new OpCode[size];
+        this.gasCosts = new int[size];
+        this.jumpIndexes = new int[size];
+        for (int i = 0; i < size; i++) {
+            AbstractInsnNode node = this.insnNodes[i];
+            OpCode opCode = OpCode.valueOf(node.getOpcode());
+            this.opCodes[i] = opCode;
+            this.gasCosts[i] = opCode == null ? 0 : GasCost.gasCost(opCode, node);
+            this.jumpIndexes[i] = node instanceof JumpInsnNode ? labelIndex(((JumpInsnNode) node).label) : -1;
+        }
+    }
+
+    public int size() {
+        return insnNodes.length;
+    }
+
+    /**
+     * 下标超出范围时返回null，表示方法已经执行完
+     * Returns null when the index is out of range, which means the method has run to its end.
+     */
+    public AbstractInsnNode getInsnNode(int index) {
+        return index < insnNodes.length ? insnNodes[index] : null;
+    }
+
+    public OpCode getOpCode(int index) {
+        return opCodes[index];
+    }
+
+    /**
+     * 固定的gas消耗，取决于操作数栈的指令返回{@link GasCost#DYNAMIC}
+     * The fixed gas cost, {@link GasCost#DYNAMIC} for an instruction depending on the operand stack.
+     */
+    public int getGasCost(int index) {
+        return gasCosts[index];
+    }
+
+    public int getJumpIndex(int index) {
+        return jumpIndexes[index];
+    }
+
+    public int labelIndex(LabelNode labelNode) {
+        Integer index = labelIndexes.get(labelNode);
+        if (index == null) {
+            throw new RuntimeException("unknown label");
+        }
+        return index;
+    }
+
+}
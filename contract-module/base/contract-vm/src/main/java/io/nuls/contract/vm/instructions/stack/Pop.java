@@ -30,16 +30,15 @@ import io.nuls.contract.vm.util.Log;
 public class Pop {
 
     public static void pop(final Frame frame) {
-        Object value = frame.operandStack.pop();
+        frame.operandStack.discard(1);
 
-        //Log.opcode(frame.getCurrentOpCode(), value);
+        //Log.opcode(frame.getCurrentOpCode());
     }
 
     public static void pop2(final Frame frame) {
-        Object value1 = frame.operandStack.pop();
-        Object value2 = frame.operandStack.pop();
+        frame.operandStack.discard(2);
 
-        //Log.opcode(frame.getCurrentOpCode(), value1, value2);
+        //Log.opcode(frame.getCurrentOpCode());
     }
 
 }
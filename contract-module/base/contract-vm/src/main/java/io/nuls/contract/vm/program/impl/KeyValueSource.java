@@ -26,21 +26,55 @@ package io.nuls.contract.vm.program.impl;
 
 import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import io.nuls.db.model.ScanRange;
+import io.nuls.db.service.BatchOperation;
 import io.nuls.db.service.DBService;
+import io.nuls.db.service.EntryIterator;
 import org.apache.commons.lang3.ArrayUtils;
 import org.ethereum.datasource.Source;
 import org.ethereum.db.ByteArrayWrapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
-import java.util.concurrent.TimeUnit;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.*;
 
 public class KeyValueSource implements Source<byte[], byte[]> {
 
+    private static final Logger log = LoggerFactory.getLogger(KeyValueSource.class);
+
     public static final String AREA = "contract";
 
+    private static final int FLUSH_QUEUE_SIZE = 4;
+
     private DBService dbService;
 
     private final Cache<ByteArrayWrapper, byte[]> cache;
 
+    private volatile StatePruner pruner;
+
+    // 已提交但还没有写入数据库的节点
+    private final ConcurrentHashMap<ByteArrayWrapper, byte[]> overlay = new ConcurrentHashMap<>();
+
+    // 当前线程正在收集的批量写入
+    private final ThreadLocal<Map<ByteArrayWrapper, byte[]>> batchWrites = new ThreadLocal<>();
+
+    // 队列满时由提交的线程自己写入
+    private final ThreadPoolExecutor flushExecutor = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(FLUSH_QUEUE_SIZE),
+            new ThreadFactoryBuilder().setNameFormat("contract-state-flush").setDaemon(true).build(),
+            new ThreadPoolExecutor.CallerRunsPolicy());
+
+    private final Object flushLock = new Object();
+
+    private int flushing;
+
+    // 写入失败的批量，节点仍在内存中，由awaitFlush重试
+    private final ConcurrentLinkedQueue<Map<ByteArrayWrapper, byte[]>> failedBatches = new ConcurrentLinkedQueue<>();
+
     public KeyValueSource(DBService dbService) {
         this.dbService = dbService;
         String[] areas = dbService.listArea();
@@ -56,21 +90,159 @@ public class KeyValueSource implements Source<byte[], byte[]> {
 
     @Override
     public void put(byte[] key, byte[] val) {
-        cache.put(new ByteArrayWrapper(key), val);
-        dbService.put(AREA, key, val);
+        StatePruner pruner = this.pruner;
+        if (pruner == null) {
+            write(key, val);
+            return;
+        }
+        // 记录和写入在同一个锁内，清理时不会删除刚写入的节点
+        synchronized (pruner) {
+            pruner.touch(key);
+            write(key, val);
+        }
+    }
+
+    private void write(byte[] key, byte[] val) {
+        ByteArrayWrapper wrapper = new ByteArrayWrapper(key);
+        cache.put(wrapper, val);
+        Map<ByteArrayWrapper, byte[]> writes = batchWrites.get();
+        if (writes == null) {
+            dbService.put(AREA, key, val);
+        } else {
+            overlay.put(wrapper, val);
+            writes.put(wrapper, val);
+        }
     }
 
     @Override
     public byte[] get(byte[] key) {
-        byte[] bytes = cache.getIfPresent(new ByteArrayWrapper(key));
+        ByteArrayWrapper wrapper = new ByteArrayWrapper(key);
+        byte[] bytes = cache.getIfPresent(wrapper);
+        if (bytes == null) {
+            bytes = overlay.get(wrapper);
+        }
         if (bytes == null) {
             bytes = dbService.get(AREA, key);
         }
         return bytes;
     }
 
+    /**
+     * 当前线程之后的写入先收集起来，调用{@link #commitBatch()}后一次写入数据库
+     */
+    public void beginBatch() {
+        batchWrites.set(new HashMap<>());
+    }
+
+    /**
+     * 在后台线程中把收集的写入作为一个批量写入数据库，完成之前从内存中读取
+     */
+    public void commitBatch() {
+        Map<ByteArrayWrapper, byte[]> entries = batchWrites.get();
+        batchWrites.remove();
+        if (entries == null || entries.isEmpty()) {
+            return;
+        }
+        synchronized (flushLock) {
+            flushing++;
+        }
+        flushExecutor.execute(() -> {
+            try {
+                if (!flush(entries)) {
+                    failedBatches.add(entries);
+                }
+            } finally {
+                synchronized (flushLock) {
+                    flushing--;
+                    flushLock.notifyAll();
+                }
+            }
+        });
+    }
+
+    private boolean flush(Map<ByteArrayWrapper, byte[]> entries) {
+        try {
+            BatchOperation batch = dbService.createWriteBatch(AREA);
+            for (Map.Entry<ByteArrayWrapper, byte[]> entry : entries.entrySet()) {
+                batch.put(entry.getKey().getData(), entry.getValue());
+            }
+            if (batch.executeBatch().isFailed()) {
+                // 写入失败的节点留在内存中
+                log.error("flush contract state error, size: {}", entries.size());
+                return false;
+            }
+        } catch (RuntimeException e) {
+            log.error("flush contract state error", e);
+            return false;
+        }
+        for (Map.Entry<ByteArrayWrapper, byte[]> entry : entries.entrySet()) {
+            overlay.remove(entry.getKey(), entry.getValue());
+        }
+        return true;
+    }
+
+    /**
+     * 等待已提交的批量写入完成，并在当前线程重试之前写入失败的批量
+     *
+     * @return 所有已提交的节点都已写入数据库时返回true
+     */
+    public boolean awaitFlush() {
+        synchronized (flushLock) {
+            while (flushing > 0) {
+                try {
+                    flushLock.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+            }
+        }
+        // 按提交顺序重试，仍然失败的放回队列，下次再试
+        synchronized (failedBatches) {
+            int size = failedBatches.size();
+            for (int i = 0; i < size; i++) {
+                Map<ByteArrayWrapper, byte[]> entries = failedBatches.poll();
+                if (!flush(entries)) {
+                    failedBatches.add(entries);
+                }
+            }
+            return failedBatches.isEmpty();
+        }
+    }
+
     @Override
     public void delete(byte[] key) {
+        // 旧的状态根仍然引用该节点，这里只记录，是否删除由StatePruner确认不可达后决定
+        StatePruner pruner = this.pruner;
+        if (pruner != null) {
+            synchronized (pruner) {
+                pruner.touch(key);
+            }
+        }
+    }
+
+    void setPruner(StatePruner pruner) {
+        this.pruner = pruner;
+    }
+
+    void remove(Collection<byte[]> keys) {
+        if (keys.isEmpty()) {
+            return;
+        }
+        BatchOperation batch = dbService.createWriteBatch(AREA);
+        for (byte[] key : keys) {
+            ByteArrayWrapper wrapper = new ByteArrayWrapper(key);
+            if (overlay.containsKey(wrapper)) {
+                continue;
+            }
+            cache.invalidate(wrapper);
+            batch.delete(key);
+        }
+        batch.executeBatch();
+    }
+
+    EntryIterator<byte[]> iterator() {
+        return dbService.iterator(AREA, ScanRange.all());
     }
 
     @Override
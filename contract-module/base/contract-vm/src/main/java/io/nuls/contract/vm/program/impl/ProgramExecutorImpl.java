@@ -66,8 +66,6 @@ public class ProgramExecutorImpl implements ProgramExecutor {
 
     private final byte[] prevStateRoot;
 
-    private final Map<String, VM> vmCache;
-
     private final Map<String, VM> commitVms;
 
     private final long beginTime;
@@ -89,16 +87,19 @@ public class ProgramExecutorImpl implements ProgramExecutor {
     }
 
     public ProgramExecutorImpl(VMContext vmContext, DBService dbService) {
-        this(vmContext, new KeyValueSource(dbService), null, null, null, null, null);
+        this(vmContext, new KeyValueSource(dbService));
+    }
+
+    public ProgramExecutorImpl(VMContext vmContext, KeyValueSource source) {
+        this(vmContext, source, null, null, null, null);
     }
 
-    private ProgramExecutorImpl(VMContext vmContext, KeyValueSource source, Repository repository, byte[] prevStateRoot, Map<String, VM> vmCache, Map<String, VM> commitVms, Thread thread) {
+    private ProgramExecutorImpl(VMContext vmContext, KeyValueSource source, Repository repository, byte[] prevStateRoot, Map<String, VM> commitVms, Thread thread) {
         this.vmContext = vmContext;
         this.source = source;
         this.repository = repository;
         this.prevStateRoot = prevStateRoot;
         this.beginTime = this.currentTime = System.currentTimeMillis();
-        this.vmCache = vmCache;
         this.commitVms = commitVms;
         this.thread = thread;
     }
@@ -109,8 +110,12 @@ public class ProgramExecutorImpl implements ProgramExecutor {
             log.debug("begin vm root: {}", Hex.toHexString(prevStateRoot));
         }
         //source.begin();
+        if (!source.awaitFlush()) {
+            // 写入失败的节点仍在内存中，可以继续执行，保存区块时再次重试
+            log.warn("contract state is not written to the database yet");
+        }
         Repository repository = new RepositoryRoot(source, prevStateRoot);
-        return new ProgramExecutorImpl(vmContext, source, repository, prevStateRoot, new HashMap<>(1024), new LinkedHashMap<>(1024), Thread.currentThread());
+        return new ProgramExecutorImpl(vmContext, source, repository, prevStateRoot, new LinkedHashMap<>(1024), Thread.currentThread());
     }
 
     @Override
@@ -120,7 +125,7 @@ public class ProgramExecutorImpl implements ProgramExecutor {
             log.debug("startTracking");
         }
         Repository track = repository.startTracking();
-        return new ProgramExecutorImpl(vmContext, source, track, null, vmCache, commitVms, thread);
+        return new ProgramExecutorImpl(vmContext, source, track, null, commitVms, thread);
     }
 
     @Override
@@ -153,7 +158,17 @@ public class ProgramExecutorImpl implements ProgramExecutor {
             }
             commitVms.clear();
             //}
-            repository.commit();
+            if (repository instanceof RepositoryRoot) {
+                // 整个区块的状态树节点作为一个批量异步写入
+                source.beginBatch();
+                try {
+                    repository.commit();
+                } finally {
+                    source.commitBatch();
+                }
+            } else {
+                repository.commit();
+            }
             //if (prevStateRoot != null) {
             //    source.commit();
             //}
@@ -227,6 +242,7 @@ public class ProgramExecutorImpl implements ProgramExecutor {
         }
 
         logTime("start");
+        long setupStartTime = this.currentTime;
 
         try {
             Map<String, ClassCode> classCodes;
@@ -264,28 +280,9 @@ public class ProgramExecutorImpl implements ProgramExecutor {
             }
 
             contractAddress = NativeAddress.toString(programInvoke.getContractAddress());
-            VM vm;
-            if (vmCache == null) {
-                vm = VMFactory.createVM();
-            } else {
-                vm = vmCache.get(contractAddress);
-                if (vm == null) {
-                    vm = VMFactory.createVM();
-                } else {
-                    //vm.heap.objects.clearCache();
-                    //vm.heap.arrays.clearCache();
-                    //vm = new VM(vm.heap, vm.methodArea);
-                    vm = VMFactory.createVM();
-                }
-                vmCache.put(contractAddress, vm);
-            }
-
-            logTime("load vm");
-
-            vm.heap.loadClassCodes(classCodes);
-            vm.methodArea.loadClassCodes(classCodes);
+            VM vm = VMFactory.createVM(classCodes);
 
-            logTime("load classes");
+            logTime("load vm and classes");
 
             ClassCode contractClassCode = getContractClassCode(classCodes);
             String methodDesc = ProgramDescriptors.parseDesc(programInvoke.getMethodDesc());
@@ -333,6 +330,7 @@ public class ProgramExecutorImpl implements ProgramExecutor {
             vm.addGasUsed(programInvoke.getData() == null ? 0 : programInvoke.getData().length);
 
             logTime("load end");
+            logSetupTime(setupStartTime);
 
             vm.run(objectRef, methodCode, vmContext, programInvoke);
 
@@ -580,15 +578,30 @@ public class ProgramExecutorImpl implements ProgramExecutor {
                 .collect(Collectors.toList());
     }
 
+    /**
+     * 从开始执行到虚拟机、合约类和合约对象准备完成的耗时
+     */
+    private void logSetupTime(long setupStartTime) {
+        if (log.isDebugEnabled()) {
+            long setup = this.currentTime - setupStartTime;
+            ProgramTime time = addTime("setup", setup);
+            log.debug("[setup] setup: {}ms, {}", setup, time);
+        }
+    }
+
+    private static ProgramTime addTime(String message, long time) {
+        ProgramTime programTime = ProgramTime.cache.computeIfAbsent(message, key -> new ProgramTime());
+        programTime.add(time);
+        return programTime;
+    }
+
     public void logTime(String message) {
         if (log.isDebugEnabled()) {
             long currentTime = System.currentTimeMillis();
             long step = currentTime - this.currentTime;
             long runtime = currentTime - this.beginTime;
             this.currentTime = currentTime;
-            ProgramTime.cache.putIfAbsent(message, new ProgramTime());
-            ProgramTime time = ProgramTime.cache.get(message);
-            time.add(step);
+            ProgramTime time = addTime(message, step);
             log.debug("[{}] runtime: {}ms, step: {}ms, {}", message, runtime, step, time);
         }
 //        if (step > 100) {
@@ -0,0 +1,294 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017-2018 nuls.io
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+package io.nuls.contract.vm.program.impl;
+
+import io.nuls.db.service.EntryIterator;
+import org.ethereum.core.AccountState;
+import org.ethereum.datasource.NodeKeyCompositor;
+import org.ethereum.datasource.Source;
+import org.ethereum.datasource.SourceCodec;
+import org.ethereum.db.ByteArrayWrapper;
+import org.ethereum.trie.TrieImpl;
+import org.ethereum.util.FastByteComparisons;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.*;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.ethereum.crypto.HashUtil.EMPTY_DATA_HASH;
+import static org.ethereum.crypto.HashUtil.EMPTY_TRIE_HASH;
+
+/**
+ * 合约状态树的清理
+ * 每个区块写入或释放的节点记录在该区块的日志中，区块超出保留范围后，
+ * 日志中从保留的状态根都不可达的节点才会被删除
+ */
+public class StatePruner {
+
+    private static final Logger log = LoggerFactory.getLogger(StatePruner.class);
+
+    private static final int PRUNE_INTERVAL = 100;
+
+    private static final int BATCH_SIZE = 10000;
+
+    private static final TrieImpl.ScanAction NOOP_ACTION = new TrieImpl.ScanAction() {
+        @Override
+        public void doOnNode(byte[] hash, TrieImpl.Node node) {
+        }
+
+        @Override
+        public void doOnValue(byte[] nodeHash, TrieImpl.Node node, byte[] key, byte[] value) {
+        }
+    };
+
+    private final KeyValueSource source;
+
+    private final long retainedBlocks;
+
+    private final Executor executor;
+
+    private final TreeMap<Long, Journal> journals = new TreeMap<>();
+
+    private final AtomicBoolean pruning = new AtomicBoolean();
+
+    private final Object sweepLock = new Object();
+
+    // 还没有归属到已确认区块的节点
+    private Set<ByteArrayWrapper> pending = new HashSet<>();
+
+    // 清理开始后写入或释放的节点，不会被本次清理删除
+    private Set<ByteArrayWrapper> recent;
+
+    private byte[] finalStateRoot;
+
+    private long lastPruneHeight = -1;
+
+    /**
+     * @param retainedBlocks 保留状态的区块数，包括分叉回滚的深度
+     * @param executor       执行清理的线程，为null时只能手动调用{@link #prune()}
+     */
+    public StatePruner(KeyValueSource source, long retainedBlocks, Executor executor) {
+        this.source = source;
+        this.retainedBlocks = retainedBlocks;
+        this.executor = executor;
+        source.setPruner(this);
+    }
+
+    /**
+     * 不再记录写入的节点
+     */
+    public void detach() {
+        source.setPruner(null);
+    }
+
+    void touch(byte[] key) {
+        ByteArrayWrapper wrapper = new ByteArrayWrapper(key);
+        pending.add(wrapper);
+        if (recent != null) {
+            recent.add(wrapper);
+        }
+    }
+
+    public synchronized void blockCommitted(long height, byte[] stateRoot) {
+        Journal journal = journals.get(height);
+        if (journal == null) {
+            journal = new Journal();
+            journals.put(height, journal);
+        }
+        journal.stateRoot = stateRoot;
+        journal.keys.addAll(pending);
+        pending = new HashSet<>();
+
+        if (executor != null && height - retainedBlocks - lastPruneHeight >= PRUNE_INTERVAL && pruning.compareAndSet(false, true)) {
+            executor.execute(() -> {
+                try {
+                    prune();
+                } finally {
+                    pruning.set(false);
+                }
+            });
+        }
+    }
+
+    public synchronized void blockRolledBack(long height) {
+        // 回滚区块的节点交给下一个确认的区块，不可达时随之清理
+        Journal journal = journals.remove(height);
+        if (journal != null) {
+            pending.addAll(journal.keys);
+        }
+    }
+
+    /**
+     * 删除超出保留范围的区块日志中不可达的节点
+     *
+     * @return 删除的节点数
+     */
+    public int prune() {
+        synchronized (sweepLock) {
+            long startTime = System.currentTimeMillis();
+            long finalHeight;
+            Set<ByteArrayWrapper> candidates = new HashSet<>();
+            List<byte[]> stateRoots = new ArrayList<>();
+            synchronized (this) {
+                if (journals.isEmpty()) {
+                    return 0;
+                }
+                finalHeight = journals.lastKey() - retainedBlocks;
+                lastPruneHeight = finalHeight;
+                SortedMap<Long, Journal> finalJournals = journals.headMap(finalHeight, true);
+                if (finalJournals.isEmpty()) {
+                    return 0;
+                }
+                for (Journal journal : finalJournals.values()) {
+                    candidates.addAll(journal.keys);
+                    finalStateRoot = journal.stateRoot;
+                }
+                finalJournals.clear();
+                stateRoots.add(finalStateRoot);
+                for (Journal journal : journals.values()) {
+                    stateRoots.add(journal.stateRoot);
+                }
+                recent = new HashSet<>(pending);
+            }
+            try {
+                candidates.removeAll(mark(stateRoots));
+                int removed = sweep(candidates);
+                log.info("prune contract state, final height: {}, removed: {}, use: {}ms", finalHeight, removed, System.currentTimeMillis() - startTime);
+                return removed;
+            } catch (RuntimeException e) {
+                log.error("prune contract state error", e);
+                return 0;
+            } finally {
+                synchronized (this) {
+                    recent = null;
+                }
+            }
+        }
+    }
+
+    /**
+     * 删除整个数据区中从给定状态根和保留区块都不可达的节点，用于开启清理之前积累的数据
+     *
+     * @return 删除的节点数
+     */
+    public int compact(Collection<byte[]> stateRoots) {
+        synchronized (sweepLock) {
+            long startTime = System.currentTimeMillis();
+            List<byte[]> roots = new ArrayList<>(stateRoots);
+            synchronized (this) {
+                if (finalStateRoot != null) {
+                    roots.add(finalStateRoot);
+                }
+                recent = new HashSet<>(pending);
+                for (Journal journal : journals.values()) {
+                    roots.add(journal.stateRoot);
+                    recent.addAll(journal.keys);
+                }
+            }
+            try {
+                Set<ByteArrayWrapper> marked = mark(roots);
+                int removed = 0;
+                List<ByteArrayWrapper> garbage = new ArrayList<>();
+                try (EntryIterator<byte[]> iterator = source.iterator()) {
+                    while (iterator.hasNext()) {
+                        ByteArrayWrapper key = new ByteArrayWrapper(iterator.next().getKey());
+                        if (!marked.contains(key)) {
+                            garbage.add(key);
+                        }
+                        if (garbage.size() >= BATCH_SIZE) {
+                            removed += sweep(garbage);
+                            garbage.clear();
+                        }
+                    }
+                }
+                removed += sweep(garbage);
+                log.info("compact contract state, kept: {}, removed: {}, use: {}ms", marked.size(), removed, System.currentTimeMillis() - startTime);
+                return removed;
+            } finally {
+                synchronized (this) {
+                    recent = null;
+                }
+            }
+        }
+    }
+
+    private Set<ByteArrayWrapper> mark(Collection<byte[]> stateRoots) {
+        Set<ByteArrayWrapper> marked = new HashSet<>();
+        TrieImpl stateTrie = new TrieImpl(source);
+        TrieImpl.ScanAction accountAction = new TrieImpl.ScanAction() {
+            @Override
+            public void doOnNode(byte[] hash, TrieImpl.Node node) {
+            }
+
+            @Override
+            public void doOnValue(byte[] nodeHash, TrieImpl.Node node, byte[] key, byte[] value) {
+                markAccount(key, new AccountState(value), marked);
+            }
+        };
+        for (byte[] stateRoot : stateRoots) {
+            stateTrie.setRoot(stateRoot);
+            // 已经标记的节点，其子树也已经标记过
+            stateTrie.scanTree(accountAction, hash -> marked.add(new ByteArrayWrapper(hash)));
+        }
+        return marked;
+    }
+
+    private void markAccount(byte[] addrHash, AccountState accountState, Set<ByteArrayWrapper> marked) {
+        byte[] codeHash = accountState.getCodeHash();
+        if (!FastByteComparisons.equal(codeHash, EMPTY_DATA_HASH)) {
+            marked.add(new ByteArrayWrapper(NodeKeyCompositor.compose(codeHash, addrHash)));
+        }
+        byte[] storageRoot = accountState.getStateRoot();
+        if (!FastByteComparisons.equal(storageRoot, EMPTY_TRIE_HASH)) {
+            Source<byte[], byte[]> storageSource = new SourceCodec.KeyOnly<>(source, new NodeKeyCompositor(addrHash));
+            TrieImpl storageTrie = new TrieImpl(storageSource, storageRoot);
+            storageTrie.scanTree(NOOP_ACTION, hash -> marked.add(new ByteArrayWrapper(NodeKeyCompositor.compose(hash, addrHash))));
+        }
+    }
+
+    private int sweep(Collection<ByteArrayWrapper> garbage) {
+        List<byte[]> keys = new ArrayList<>();
+        synchronized (this) {
+            for (ByteArrayWrapper key : garbage) {
+                if (!recent.contains(key)) {
+                    keys.add(key.getData());
+                }
+            }
+            source.remove(keys);
+        }
+        return keys.size();
+    }
+
+    private static class Journal {
+
+        private byte[] stateRoot;
+
+        private final Set<ByteArrayWrapper> keys = new HashSet<>();
+
+    }
+
+}
@@ -0,0 +1,500 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017-2018 nuls.io
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+package io.nuls.contract.vm.util;
+
+import com.google.common.collect.BiMap;
+import io.nuls.contract.vm.ObjectRef;
+import io.nuls.kernel.context.NulsContext;
+import org.ethereum.vm.DataWord;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static io.nuls.contract.vm.util.Utils.hashMapInitialCapacity;
+
+/**
+ * 合约状态中对象字段和数组分块的编码
+ * 二进制格式以版本号开头，JSON格式以'{'或'['开头，读取时按第一个字节区分，已有的JSON格式状态仍然可以读取
+ */
+public class StateUtils {
+
+    /**
+     * 主网协议升级到该版本后才以二进制格式写入状态，之前的区块仍然写入JSON，保证各节点的状态根一致
+     */
+    public static final int BINARY_MAIN_NET_VERSION = 3;
+
+    public static final byte BINARY_VERSION = 1;
+
+    private static final byte NULL = 0;
+    private static final byte INT = 1;
+    private static final byte LONG = 2;
+    private static final byte FLOAT = 3;
+    private static final byte DOUBLE = 4;
+    private static final byte BOOLEAN = 5;
+    private static final byte BYTE = 6;
+    private static final byte CHAR = 7;
+    private static final byte SHORT = 8;
+    private static final byte STRING = 9;
+    private static final byte REF = 10;
+    private static final byte INT_ARRAY = 11;
+    private static final byte LONG_ARRAY = 12;
+    private static final byte FLOAT_ARRAY = 13;
+    private static final byte DOUBLE_ARRAY = 14;
+    private static final byte BOOLEAN_ARRAY = 15;
+    private static final byte BYTE_ARRAY = 16;
+    private static final byte CHAR_ARRAY = 17;
+    private static final byte SHORT_ARRAY = 18;
+    private static final byte REF_ARRAY = 19;
+
+    public static boolean isBinaryEnabled() {
+        return NulsContext.MAIN_NET_VERSION >= BINARY_MAIN_NET_VERSION;
+    }
+
+    public static boolean isBinary(byte[] value) {
+        return value.length > 0 && value[0] == BINARY_VERSION;
+    }
+
+    public static DataWord encodeFields(Map<String, Object> fields, BiMap<String, String> classNames, boolean binary) {
+        if (!binary) {
+            return new DataWord(JsonUtils.encode(fields, classNames));
+        }
+        Writer writer = new Writer(64);
+        writer.writeByte(BINARY_VERSION);
+        writer.writeVarInt(fields.size());
+        for (Map.Entry<String, Object> entry : fields.entrySet()) {
+            writer.writeString(entry.getKey());
+            writeValue(writer, entry.getValue(), classNames);
+        }
+        return DataWord.of(writer.toByteArray());
+    }
+
+    public static DataWord encodeArray(Object array, Class<?> elementType, BiMap<String, String> classNames, boolean binary) {
+        if (!binary) {
+            return new DataWord(JsonUtils.encodeArray(array, elementType, classNames));
+        }
+        Writer writer = new Writer(64);
+        writer.writeByte(BINARY_VERSION);
+        writeValue(writer, array, classNames);
+        return DataWord.of(writer.toByteArray());
+    }
+
+    public static Map<String, Object> decodeFields(byte[] value, BiMap<String, String> classNames) {
+        if (!isBinary(value)) {
+            return (Map<String, Object>) JsonUtils.decode(new String(value), classNames);
+        }
+        Reader reader = new Reader(value);
+        int size = reader.readVarInt();
+        Map<String, Object> fields = new LinkedHashMap<>(hashMapInitialCapacity(size));
+        for (int i = 0; i < size; i++) {
+            String key = reader.readString();
+            fields.put(key, readValue(reader, classNames));
+        }
+        reader.checkEnd();
+        return fields;
+    }
+
+    public static Object decodeArray(byte[] value, Class<?> elementType, BiMap<String, String> classNames) {
+        if (!isBinary(value)) {
+            return JsonUtils.decodeArray(new String(value), elementType, classNames);
+        }
+        Reader reader = new Reader(value);
+        Object array = readValue(reader, classNames);
+        reader.checkEnd();
+        if (array == null || array.getClass().getComponentType() != elementType) {
+            throw new IllegalArgumentException("unknown array");
+        }
+        return array;
+    }
+
+    private static void writeValue(Writer writer, Object value, BiMap<String, String> classNames) {
+        if (value == null) {
+            writer.writeByte(NULL);
+        } else if (value instanceof Integer) {
+            writer.writeByte(INT);
+            writer.writeVarLong((Integer) value);
+        } else if (value instanceof Long) {
+            writer.writeByte(LONG);
+            writer.writeVarLong((Long) value);
+        } else if (value instanceof Float) {
+            writer.writeByte(FLOAT);
+            writer.writeFixed(Float.floatToIntBits((Float) value), 4);
+        } else if (value instanceof Double) {
+            writer.writeByte(DOUBLE);
+            writer.writeFixed(Double.doubleToLongBits((Double) value), 8);
+        } else if (value instanceof Boolean) {
+            writer.writeByte(BOOLEAN);
+            writer.writeByte((Boolean) value ? 1 : 0);
+        } else if (value instanceof Byte) {
+            writer.writeByte(BYTE);
+            writer.writeByte((Byte) value);
+        } else if (value instanceof Character) {
+            writer.writeByte(CHAR);
+            writer.writeVarInt((Character) value);
+        } else if (value instanceof Short) {
+            writer.writeByte(SHORT);
+            writer.writeVarLong((Short) value);
+        } else if (value instanceof String) {
+            writer.writeByte(STRING);
+            writer.writeString((String) value);
+        } else if (value instanceof ObjectRef) {
+            writer.writeByte(REF);
+            writeObjectRef(writer, (ObjectRef) value, classNames);
+        } else if (value instanceof int[]) {
+            int[] array = (int[]) value;
+            writer.writeByte(INT_ARRAY);
+            writer.writeVarInt(array.length);
+            for (int item : array) {
+                writer.writeVarLong(item);
+            }
+        } else if (value instanceof long[]) {
+            long[] array = (long[]) value;
+            writer.writeByte(LONG_ARRAY);
+            writer.writeVarInt(array.length);
+            for (long item : array) {
+                writer.writeVarLong(item);
+            }
+        } else if (value instanceof float[]) {
+            float[] array = (float[]) value;
+            writer.writeByte(FLOAT_ARRAY);
+            writer.writeVarInt(array.length);
+            for (float item : array) {
+                writer.writeFixed(Float.floatToIntBits(item), 4);
+            }
+        } else if (value instanceof double[]) {
+            double[] array = (double[]) value;
+            writer.writeByte(DOUBLE_ARRAY);
+            writer.writeVarInt(array.length);
+            for (double item : array) {
+                writer.writeFixed(Double.doubleToLongBits(item), 8);
+            }
+        } else if (value instanceof boolean[]) {
+            boolean[] array = (boolean[]) value;
+            writer.writeByte(BOOLEAN_ARRAY);
+            writer.writeVarInt(array.length);
+            for (boolean item : array) {
+                writer.writeByte(item ? 1 : 0);
+            }
+        } else if (value instanceof byte[]) {
+            byte[] array = (byte[]) value;
+            writer.writeByte(BYTE_ARRAY);
+            writer.writeVarInt(array.length);
+            writer.writeBytes(array);
+        } else if (value instanceof char[]) {
+            char[] array = (char[]) value;
+            writer.writeByte(CHAR_ARRAY);
+            writer.writeVarInt(array.length);
+            for (char item : array) {
+                writer.writeVarInt(item);
+            }
+        } else if (value instanceof short[]) {
+            short[] array = (short[]) value;
+            writer.writeByte(SHORT_ARRAY);
+            writer.writeVarInt(array.length);
+            for (short item : array) {
+                writer.writeVarLong(item);
+            }
+        } else if (value instanceof ObjectRef[]) {
+            ObjectRef[] array = (ObjectRef[]) value;
+            writer.writeByte(REF_ARRAY);
+            writer.writeVarInt(array.length);
+            for (ObjectRef item : array) {
+                if (item == null) {
+                    writer.writeByte(NULL);
+                } else {
+                    writer.writeByte(REF);
+                    writeObjectRef(writer, item, classNames);
+                }
+            }
+        } else {
+            throw new IllegalArgumentException("unknown value");
+        }
+    }
+
+    private static Object readValue(Reader reader, BiMap<String, String> classNames) {
+        byte type = reader.readByte();
+        switch (type) {
+            case NULL:
+                return null;
+            case INT:
+                return (int) reader.readVarLong();
+            case LONG:
+                return reader.readVarLong();
+            case FLOAT:
+                return Float.intBitsToFloat((int) reader.readFixed(4));
+            case DOUBLE:
+                return Double.longBitsToDouble(reader.readFixed(8));
+            case BOOLEAN:
+                return reader.readByte() != 0;
+            case BYTE:
+                return reader.readByte();
+            case CHAR:
+                return (char) reader.readVarInt();
+            case SHORT:
+                return (short) reader.readVarLong();
+            case STRING:
+                return reader.readString();
+            case REF:
+                return readObjectRef(reader, classNames);
+            case INT_ARRAY: {
+                int[] array = new int[reader.readLength()];
+                for (int i = 0; i < array.length; i++) {
+                    array[i] = (int) reader.readVarLong();
+                }
+                return array;
+            }
+            case LONG_ARRAY: {
+                long[] array = new long[reader.readLength()];
+                for (int i = 0; i < array.length; i++) {
+                    array[i] = reader.readVarLong();
+                }
+                return array;
+            }
+            case FLOAT_ARRAY: {
+                float[] array = new float[reader.readLength()];
+                for (int i = 0; i < array.length; i++) {
+                    array[i] = Float.intBitsToFloat((int) reader.readFixed(4));
+                }
+                return array;
+            }
+            case DOUBLE_ARRAY: {
+                double[] array = new double[reader.readLength()];
+                for (int i = 0; i < array.length; i++) {
+                    array[i] = Double.longBitsToDouble(reader.readFixed(8));
+                }
+                return array;
+            }
+            case BOOLEAN_ARRAY: {
+                boolean[] array = new boolean[reader.readLength()];
+                for (int i = 0; i < array.length; i++) {
+                    array[i] = reader.readByte() != 0;
+                }
+                return array;
+            }
+            case BYTE_ARRAY:
+                return reader.readBytes(reader.readLength());
+            case CHAR_ARRAY: {
+                char[] array = new char[reader.readLength()];
+                for (int i = 0; i < array.length; i++) {
+                    array[i] = (char) reader.readVarInt();
+                }
+                return array;
+            }
+            case SHORT_ARRAY: {
+                short[] array = new short[reader.readLength()];
+                for (int i = 0; i < array.length; i++) {
+                    array[i] = (short) reader.readVarLong();
+                }
+                return array;
+            }
+            case REF_ARRAY: {
+                ObjectRef[] array = new ObjectRef[reader.readLength()];
+                for (int i = 0; i < array.length; i++) {
+                    if (reader.readByte() != NULL) {
+                        array[i] = readObjectRef(reader, classNames);
+                    }
+                }
+                return array;
+            }
+            default:
+                throw new IllegalArgumentException("unknown value type " + type);
+        }
+    }
+
+    private static void writeObjectRef(Writer writer, ObjectRef objectRef, BiMap<String, String> classNames) {
+        String desc = objectRef.getDesc();
+        String name = classNames.inverse().get(desc);
+        writer.writeString(objectRef.getRef());
+        writer.writeString(name != null ? name : desc);
+        int[] dimensions = objectRef.getDimensions();
+        writer.writeVarInt(dimensions.length);
+        for (int dimension : dimensions) {
+            writer.writeVarInt(dimension);
+        }
+    }
+
+    private static ObjectRef readObjectRef(Reader reader, BiMap<String, String> classNames) {
+        String ref = reader.readString();
+        String desc = reader.readString();
+        String className = classNames.get(desc);
+        int[] dimensions = new int[reader.readLength()];
+        for (int i = 0; i < dimensions.length; i++) {
+            dimensions[i] = reader.readVarInt();
+        }
+        return new ObjectRef(ref, className != null ? className : desc, dimensions);
+    }
+
+    private static final class Writer {
+
+        private byte[] bytes;
+
+        private int length;
+
+        private Writer(int capacity) {
+            this.bytes = new byte[capacity];
+        }
+
+        private void ensureCapacity(int size) {
+            if (length + size > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(bytes.length << 1, length + size));
+            }
+        }
+
+        private void writeByte(int value) {
+            ensureCapacity(1);
+            bytes[length++] = (byte) value;
+        }
+
+        private void writeBytes(byte[] value) {
+            ensureCapacity(value.length);
+            System.arraycopy(value, 0, bytes, length, value.length);
+            length += value.length;
+        }
+
+        private void writeVarInt(int value) {
+            ensureCapacity(5);
+            while ((value & ~0x7F) != 0) {
+                bytes[length++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            bytes[length++] = (byte) value;
+        }
+
+        /**
+         * zigzag编码的有符号整数，绝对值小的负数也只占很少的字节
+         */
+        private void writeVarLong(long value) {
+            ensureCapacity(10);
+            long zigzag = (value << 1) ^ (value >> 63);
+            while ((zigzag & ~0x7FL) != 0) {
+                bytes[length++] = (byte) ((zigzag & 0x7F) | 0x80);
+                zigzag >>>= 7;
+            }
+            bytes[length++] = (byte) zigzag;
+        }
+
+        private void writeFixed(long value, int size) {
+            ensureCapacity(size);
+            for (int i = size - 1; i >= 0; i--) {
+                bytes[length++] = (byte) (value >>> (i * 8));
+            }
+        }
+
+        private void writeString(String value) {
+            byte[] data = value.getBytes(StandardCharsets.UTF_8);
+            writeVarInt(data.length);
+            writeBytes(data);
+        }
+
+        private byte[] toByteArray() {
+            return Arrays.copyOf(bytes, length);
+        }
+    }
+
+    private static final class Reader {
+
+        private final byte[] bytes;
+
+        /**
+         * 跳过开头的版本号
+         */
+        private int position = 1;
+
+        private Reader(byte[] bytes) {
+            this.bytes = bytes;
+        }
+
+        private byte readByte() {
+            if (position >= bytes.length) {
+                throw new IllegalArgumentException("unexpected end of state");
+            }
+            return bytes[position++];
+        }
+
+        private byte[] readBytes(int size) {
+            if (size > bytes.length - position) {
+                throw new IllegalArgumentException("unexpected end of state");
+            }
+            byte[] data = Arrays.copyOfRange(bytes, position, position + size);
+            position += size;
+            return data;
+        }
+
+        private int readVarInt() {
+            int value = 0;
+            for (int shift = 0; shift < 35; shift += 7) {
+                byte b = readByte();
+                value |= (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new IllegalArgumentException("malformed varint");
+        }
+
+        private int readLength() {
+            int length = readVarInt();
+            if (length < 0 || length > bytes.length - position) {
+                throw new IllegalArgumentException("malformed length " + length);
+            }
+            return length;
+        }
+
+        private long readVarLong() {
+            long zigzag = 0;
+            for (int shift = 0; shift < 70; shift += 7) {
+                byte b = readByte();
+                zigzag |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return (zigzag >>> 1) ^ -(zigzag & 1);
+                }
+            }
+            throw new IllegalArgumentException("malformed varlong");
+        }
+
+        private long readFixed(int size) {
+            long value = 0;
+            for (int i = 0; i < size; i++) {
+                value = (value << 8) | (readByte() & 0xFF);
+            }
+            return value;
+        }
+
+        private String readString() {
+            int size = readLength();
+            String value = new String(bytes, position, size, StandardCharsets.UTF_8);
+            position += size;
+            return value;
+        }
+
+        private void checkEnd() {
+            if (position != bytes.length) {
+                throw new IllegalArgumentException("unexpected data at the end of state");
+            }
+        }
+    }
+
+}
@@ -34,6 +34,7 @@ import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.function.Predicate;
 
 import static org.apache.commons.lang3.concurrent.ConcurrentUtils.constantFuture;
 import static org.ethereum.crypto.HashUtil.EMPTY_TRIE_HASH;
@@ -752,10 +753,25 @@ public class TrieImpl implements Trie<byte[]> {
     }
 
     public void scanTree(Node node, TrieKey k, ScanAction scanAction) {
+        scanTree(node, k, scanAction, null);
+    }
+
+    /**
+     * Same as {@link #scanTree(ScanAction)} but skips the nodes (with their subtrees)
+     * for which nodeFilter returns false
+     */
+    public void scanTree(ScanAction scanAction, Predicate<byte[]> nodeFilter) {
+        scanTree(root, TrieKey.empty(false), scanAction, nodeFilter);
+    }
+
+    private void scanTree(Node node, TrieKey k, ScanAction scanAction, Predicate<byte[]> nodeFilter) {
         if (node == null) {
             return;
         }
         if (node.hash != null) {
+            if (nodeFilter != null && !nodeFilter.test(node.hash)) {
+                return;
+            }
             scanAction.doOnNode(node.hash, node);
         }
         if (node.getType() == NodeType.BranchNode) {
@@ -763,10 +779,10 @@ public class TrieImpl implements Trie<byte[]> {
                 scanAction.doOnValue(node.hash, node, k.toNormal(), node.branchNodeGetValue());
             }
             for (int i = 0; i < 16; i++) {
-                scanTree(node.branchNodeGetChild(i), k.concat(TrieKey.singleHex(i)), scanAction);
+                scanTree(node.branchNodeGetChild(i), k.concat(TrieKey.singleHex(i)), scanAction, nodeFilter);
             }
         } else if (node.getType() == NodeType.KVNodeNode) {
-            scanTree(node.kvNodeGetChildNode(), k.concat(node.kvNodeGetKey()), scanAction);
+            scanTree(node.kvNodeGetChildNode(), k.concat(node.kvNodeGetKey()), scanAction, nodeFilter);
         } else {
             scanAction.doOnValue(node.hash, node, k.concat(node.kvNodeGetKey()).toNormal(), node.kvNodeGetValue());
         }
@@ -0,0 +1,65 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017-2018 nuls.io
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+package io.nuls.contract.vm;
+
+import io.nuls.contract.vm.code.VariableType;
+import org.junit.Test;
+
+import java.math.BigInteger;
+
+import static org.junit.Assert.*;
+
+public class HeapTest {
+
+    @Test
+    public void testCopy() {
+        Heap heap = new Heap(BigInteger.TEN);
+        ObjectRef committed = heap.newObjectRef(VariableType.OBJECT_TYPE.getDesc());
+        heap.putField(committed, "count", 1);
+        heap.objects.commit();
+        ObjectRef objectRef = heap.newObjectRef(VariableType.OBJECT_TYPE.getDesc());
+        heap.putField(objectRef, "count", 2);
+        ObjectRef arrayRef = heap.newArray(VariableType.INT_ARRAY_TYPE, 2000);
+        heap.putArray(arrayRef, 1500, 3);
+
+        Heap copy = new Heap(heap);
+        copy.putField(committed, "count", 10);
+        copy.putField(objectRef, "count", 20);
+        copy.putArray(arrayRef, 1500, 30);
+
+        // 副本的修改不影响原来的堆
+        assertEquals(1, heap.getField(committed, "count"));
+        assertEquals(2, heap.getField(objectRef, "count"));
+        assertEquals(3, heap.getArray(arrayRef, 1500));
+        assertEquals(10, copy.getField(committed, "count"));
+        assertEquals(20, copy.getField(objectRef, "count"));
+        assertEquals(30, copy.getArray(arrayRef, 1500));
+
+        // 新对象的引用编号从相同的位置继续
+        assertEquals(heap.getObjectRefCount(), copy.getObjectRefCount());
+        assertEquals(heap.newObjectRef(VariableType.OBJECT_TYPE.getDesc()), copy.newObjectRef(VariableType.OBJECT_TYPE.getDesc()));
+    }
+
+}
@@ -0,0 +1,153 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017-2018 nuls.io
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+package io.nuls.contract.vm;
+
+import io.nuls.contract.vm.code.MethodInstructions;
+import org.junit.Test;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.tree.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class OperandStackTest {
+
+    @Test
+    public void testPrimitiveSlots() {
+        OperandStack operandStack = new OperandStack(1);
+        operandStack.pushInt(-7);
+        operandStack.pushLong(Long.MIN_VALUE);
+        operandStack.pushFloat(Float.NaN);
+        operandStack.pushDouble(-0.0D);
+        operandStack.pushBoolean(true);
+        operandStack.push(null);
+        assertEquals(8, operandStack.size());
+
+        assertNull(operandStack.popRef());
+        assertTrue(operandStack.popBoolean());
+        assertEquals(Double.doubleToRawLongBits(-0.0D), Double.doubleToRawLongBits(operandStack.popDouble()));
+        assertTrue(Float.isNaN(operandStack.popFloat()));
+        assertEquals(Long.MIN_VALUE, operandStack.popLong());
+        // 按Object取出时与装箱后的值一致
+        operandStack.pushInt(operandStack.popInt());
+        assertEquals(-7, operandStack.pop());
+        assertTrue(operandStack.isEmpty());
+
+        // 装箱压入的值仍可按基本类型取出
+        operandStack.push(3L);
+        operandStack.push(null);
+        operandStack.push(5);
+        assertEquals(5, operandStack.popInt());
+        assertEquals(3L, operandStack.popLong());
+    }
+
+    @Test
+    public void testDupAndSwap() {
+        int[][] dups = {{1, 0}, {1, 1}, {1, 2}, {2, 0}, {2, 1}, {2, 2}};
+        for (int[] dup : dups) {
+            OperandStack operandStack = new OperandStack(4);
+            List<Object> expected = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                operandStack.pushInt(i);
+                expected.add(i);
+            }
+            operandStack.dup(dup[0], dup[1]);
+            int size = expected.size();
+            expected.addAll(size - dup[0] - dup[1], new ArrayList<>(expected.subList(size - dup[0], size)));
+            assertEquals(expected, popAll(operandStack));
+        }
+
+        OperandStack operandStack = new OperandStack(2);
+        operandStack.pushInt(1);
+        operandStack.push("a");
+        operandStack.swap();
+        assertEquals(1, operandStack.popInt());
+        assertEquals("a", operandStack.pop());
+    }
+
+    @Test
+    public void testMethodInstructions() {
+        LabelNode loop = new LabelNode();
+        LabelNode end = new LabelNode();
+        InsnList instructions = new InsnList();
+        instructions.add(new LabelNode());
+        instructions.add(new LineNumberNode(1, loop));
+        instructions.add(new InsnNode(Opcodes.ICONST_0));
+        instructions.add(loop);
+        instructions.add(new FrameNode(Opcodes.F_SAME, 0, null, 0, null));
+        instructions.add(new JumpInsnNode(Opcodes.IFEQ, end));
+        instructions.add(new LdcInsnNode("abc"));
+        instructions.add(new IntInsnNode(Opcodes.BIPUSH, 3));
+        instructions.add(new IntInsnNode(Opcodes.NEWARRAY, Opcodes.T_INT));
+        instructions.add(new JumpInsnNode(Opcodes.GOTO, loop));
+        instructions.add(end);
+        instructions.add(new InsnNode(Opcodes.RETURN));
+
+        MethodInstructions methodInstructions = new MethodInstructions(instructions);
+        assertEquals(7, methodInstructions.size());
+        assertEquals(OpCode.IFEQ, methodInstructions.getOpCode(1));
+        assertEquals(6, methodInstructions.getJumpIndex(1));
+        assertEquals(1, methodInstructions.getJumpIndex(5));
+        assertEquals(-1, methodInstructions.getJumpIndex(0));
+        assertEquals(1, methodInstructions.labelIndex(loop));
+        assertNull(methodInstructions.getInsnNode(7));
+
+        assertEquals(GasCost.CONSTANT, methodInstructions.getGasCost(0));
+        assertEquals(GasCost.COMPARISON, methodInstructions.getGasCost(1));
+        assertEquals(3 * GasCost.LDC, methodInstructions.getGasCost(2));
+        assertEquals(GasCost.DYNAMIC, methodInstructions.getGasCost(4));
+        assertEquals(GasCost.CONTROL, methodInstructions.getGasCost(6));
+    }
+
+    @Test
+    public void testManyLongAdds() {
+        int count = 100000;
+        OperandStack operandStack = new OperandStack(4);
+        long sum = 0;
+        for (int i = 0; i < count; i++) {
+            operandStack.pushLong(i);
+            operandStack.pushLong(sum);
+            sum = operandStack.popLong() + operandStack.popLong();
+            operandStack.pushInt(i);
+            operandStack.dup(1, 0);
+            operandStack.discard(1);
+            sum += operandStack.popInt();
+        }
+        assertEquals((long) count * (count - 1), sum);
+    }
+
+    private List<Object> popAll(OperandStack operandStack) {
+        List<Object> list = new ArrayList<>();
+        while (!operandStack.isEmpty()) {
+            list.add(operandStack.pop());
+        }
+        Collections.reverse(list);
+        return list;
+    }
+
+}
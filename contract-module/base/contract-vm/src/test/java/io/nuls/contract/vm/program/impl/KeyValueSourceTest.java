@@ -0,0 +1,113 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017-2018 nuls.io
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+package io.nuls.contract.vm.program.impl;
+
+import io.nuls.db.service.BatchOperation;
+import io.nuls.db.service.DBService;
+import io.nuls.db.service.impl.LevelDBServiceImpl;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class KeyValueSourceTest {
+
+    private DBService dbService;
+
+    private KeyValueSource source;
+
+    @Before
+    public void setUp() {
+        dbService = new LevelDBServiceImpl();
+        dbService.clearArea(KeyValueSource.AREA);
+        source = new KeyValueSource(dbService);
+    }
+
+    @Test
+    public void testBatch() {
+        for (int round = 0; round < 10; round++) {
+            source.beginBatch();
+            for (int i = 0; i < 1000; i++) {
+                source.put(key(round, i), value(round, i));
+            }
+            // 提交前只在内存中
+            assertNull(dbService.get(KeyValueSource.AREA, key(round, 0)));
+            assertArrayEquals(value(round, 0), source.get(key(round, 0)));
+            source.commitBatch();
+            for (int i = 0; i < 1000; i++) {
+                assertArrayEquals(value(round, i), source.get(key(round, i)));
+            }
+        }
+        assertTrue(source.awaitFlush());
+        for (int round = 0; round < 10; round++) {
+            for (int i = 0; i < 1000; i++) {
+                assertArrayEquals(value(round, i), dbService.get(KeyValueSource.AREA, key(round, i)));
+            }
+        }
+
+        // 不在批量写入中时直接写入
+        source.put(key(10, 0), value(10, 0));
+        assertArrayEquals(value(10, 0), dbService.get(KeyValueSource.AREA, key(10, 0)));
+    }
+
+    @Test
+    public void testFlushFailed() {
+        AtomicInteger failures = new AtomicInteger(2);
+        KeyValueSource source = new KeyValueSource(new LevelDBServiceImpl() {
+            @Override
+            public BatchOperation createWriteBatch(String area) {
+                // 前两次写入失败
+                return failures.getAndDecrement() > 0 ? null : super.createWriteBatch(area);
+            }
+        });
+        source.beginBatch();
+        source.put(key(0, 0), value(0, 0));
+        source.commitBatch();
+
+        // 后台写入失败，重试也失败，节点仍可从内存中读取
+        assertFalse(source.awaitFlush());
+        assertNull(dbService.get(KeyValueSource.AREA, key(0, 0)));
+        assertArrayEquals(value(0, 0), source.get(key(0, 0)));
+
+        // 再次等待时重试成功
+        assertTrue(source.awaitFlush());
+        assertArrayEquals(value(0, 0), dbService.get(KeyValueSource.AREA, key(0, 0)));
+    }
+
+    private static byte[] key(int round, int i) {
+        byte[] key = new byte[32];
+        key[0] = (byte) round;
+        key[1] = (byte) (i >>> 8);
+        key[2] = (byte) i;
+        return key;
+    }
+
+    private static byte[] value(int round, int i) {
+        return ("value-" + round + "-" + i).getBytes();
+    }
+
+}
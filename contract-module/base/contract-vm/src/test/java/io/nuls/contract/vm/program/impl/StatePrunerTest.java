@@ -0,0 +1,167 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017-2018 nuls.io
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+package io.nuls.contract.vm.program.impl;
+
+import io.nuls.db.model.ScanRange;
+import io.nuls.db.service.DBService;
+import io.nuls.db.service.EntryIterator;
+import io.nuls.db.service.impl.LevelDBServiceImpl;
+import org.ethereum.core.Repository;
+import org.ethereum.db.RepositoryRoot;
+import org.ethereum.vm.DataWord;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class StatePrunerTest {
+
+    private static final int ACCOUNT_COUNT = 5;
+
+    private static final int RETAINED_BLOCKS = 5;
+
+    private DBService dbService;
+
+    private KeyValueSource source;
+
+    private Random random = new Random(1L);
+
+    @Before
+    public void setUp() {
+        dbService = new LevelDBServiceImpl();
+        dbService.clearArea(KeyValueSource.AREA);
+        source = new KeyValueSource(dbService);
+    }
+
+    @Test
+    public void testPrune() {
+        StatePruner pruner = new StatePruner(source, RETAINED_BLOCKS, null);
+        Map<Long, byte[]> roots = new HashMap<>();
+        Map<Long, Map<Integer, Map<Integer, Integer>>> states = new HashMap<>();
+        byte[] root = null;
+        Map<Integer, Map<Integer, Integer>> state = new HashMap<>();
+        for (long height = 0; height < 40; height++) {
+            root = commitBlock(root, state);
+            pruner.blockCommitted(height, root);
+            roots.put(height, root);
+            states.put(height, copy(state));
+        }
+        // 回滚两个区块后在另一条链上继续
+        for (long height = 39; height >= 38; height--) {
+            pruner.blockRolledBack(height);
+        }
+        root = roots.get(37L);
+        state = copy(states.get(37L));
+        for (long height = 38; height < 45; height++) {
+            root = commitBlock(root, state);
+            pruner.blockCommitted(height, root);
+            roots.put(height, root);
+            states.put(height, copy(state));
+        }
+
+        int before = countKeys();
+        int removed = pruner.prune();
+        assertTrue(removed > 0);
+        assertEquals(before - removed, countKeys());
+        for (long height = 44 - RETAINED_BLOCKS; height < 45; height++) {
+            checkState(roots.get(height), states.get(height));
+        }
+        assertEquals(0, pruner.prune());
+    }
+
+    @Test
+    public void testCompact() {
+        byte[] root = null;
+        Map<Integer, Map<Integer, Integer>> state = new HashMap<>();
+        for (int i = 0; i < 30; i++) {
+            root = commitBlock(root, state);
+        }
+        StatePruner pruner = new StatePruner(source, RETAINED_BLOCKS, null);
+        int before = countKeys();
+        int removed = pruner.compact(Collections.singletonList(root));
+        assertTrue(removed > 0);
+        assertEquals(before - removed, countKeys());
+        checkState(root, state);
+    }
+
+    private byte[] commitBlock(byte[] root, Map<Integer, Map<Integer, Integer>> state) {
+        Repository repository = new RepositoryRoot(source, root);
+        for (int i = 0; i < 3; i++) {
+            int account = random.nextInt(ACCOUNT_COUNT);
+            byte[] address = address(account);
+            if (!state.containsKey(account)) {
+                repository.createAccount(address, address(ACCOUNT_COUNT));
+                repository.saveCode(address, ("code" + account).getBytes());
+                state.put(account, new HashMap<>());
+            }
+            for (int j = 0; j < 4; j++) {
+                int key = random.nextInt(20);
+                int value = random.nextInt(1000) + 1;
+                repository.addStorageRow(address, DataWord.of(key), DataWord.of(value));
+                state.get(account).put(key, value);
+            }
+        }
+        repository.commit();
+        return repository.getRoot();
+    }
+
+    private void checkState(byte[] root, Map<Integer, Map<Integer, Integer>> state) {
+        Repository repository = new RepositoryRoot(source, root);
+        for (Map.Entry<Integer, Map<Integer, Integer>> account : state.entrySet()) {
+            byte[] address = address(account.getKey());
+            assertEquals("code" + account.getKey(), new String(repository.getCode(address)));
+            for (Map.Entry<Integer, Integer> entry : account.getValue().entrySet()) {
+                assertEquals(DataWord.of(entry.getValue()), repository.getStorageValue(address, DataWord.of(entry.getKey())));
+            }
+        }
+    }
+
+    private int countKeys() {
+        int count = 0;
+        try (EntryIterator<byte[]> iterator = dbService.iterator(KeyValueSource.AREA, ScanRange.all())) {
+            while (iterator.hasNext()) {
+                iterator.next();
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static Map<Integer, Map<Integer, Integer>> copy(Map<Integer, Map<Integer, Integer>> state) {
+        Map<Integer, Map<Integer, Integer>> copy = new HashMap<>();
+        state.forEach((account, storage) -> copy.put(account, new HashMap<>(storage)));
+        return copy;
+    }
+
+    private static byte[] address(int i) {
+        byte[] address = new byte[23];
+        address[0] = (byte) i;
+        return address;
+    }
+
+}
@@ -0,0 +1,140 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017-2018 nuls.io
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+package io.nuls.contract.vm.util;
+
+import com.google.common.collect.BiMap;
+import com.google.common.collect.HashBiMap;
+import io.nuls.contract.vm.ObjectRef;
+import io.nuls.contract.vm.code.VariableType;
+import org.ethereum.vm.DataWord;
+import org.junit.Test;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class StateUtilsTest {
+
+    private final BiMap<String, String> classNames = classNames();
+
+    @Test
+    public void testFields() {
+        Map<String, Object> fields = new LinkedHashMap<>();
+        fields.put("int", -123456);
+        fields.put("long", Long.MIN_VALUE);
+        fields.put("float", 1.5F);
+        fields.put("double", -0.1D);
+        fields.put("boolean", true);
+        fields.put("byte", (byte) -1);
+        fields.put("char", 'c');
+        fields.put("short", (short) -300);
+        fields.put("string", "1");
+        fields.put("null", null);
+        fields.put("ref", new ObjectRef("12", "Ltestcontract/Token;"));
+        fields.put("array", new ObjectRef("13", "[[I", 3, 4));
+        fields.put("0", new int[]{0, -1, Integer.MAX_VALUE});
+
+        Map<String, Object> binary = roundTrip(fields, true);
+        Map<String, Object> json = roundTrip(fields, false);
+        assertFields(fields, binary);
+        assertFields(fields, json);
+        assertArrayEquals(fields.keySet().toArray(), binary.keySet().toArray());
+
+        // 二进制格式的字符串固定使用UTF-8
+        fields.put("char", '中');
+        fields.put("string", "合约");
+        assertFields(fields, roundTrip(fields, true));
+    }
+
+    @Test
+    public void testArrays() {
+        Object[] arrays = new Object[]{
+                new long[]{Long.MAX_VALUE, -2}, new float[]{Float.MIN_VALUE}, new double[]{Double.NaN, 2},
+                new boolean[]{true, false}, new byte[]{0, 127, -128}, new char[]{'a', 0}, new short[]{Short.MIN_VALUE},
+                new ObjectRef[]{null, new ObjectRef("5", "Ljava/lang/String;")}};
+        for (Object array : arrays) {
+            Class<?> elementType = array.getClass().getComponentType();
+            for (boolean binary : new boolean[]{true, false}) {
+                byte[] value = StateUtils.encodeArray(array, elementType, classNames, binary).getNoLeadZeroesData();
+                assertEquals(binary, StateUtils.isBinary(value));
+                Object decoded = StateUtils.decodeArray(value, elementType, classNames);
+                assertEquals(JsonUtils.encode(array, classNames), JsonUtils.encode(decoded, classNames));
+            }
+        }
+    }
+
+    @Test
+    public void testSize() {
+        // 与代币合约中HashMap节点、字符串和BigInteger相近的对象
+        Map<String, Object> node = new LinkedHashMap<>();
+        node.put("hash", 1848937751);
+        node.put("key", new ObjectRef("1024", "Ljava/lang/String;"));
+        node.put("value", new ObjectRef("1025", "Ljava/math/BigInteger;"));
+        node.put("next", null);
+        Map<String, Object> bigInteger = new LinkedHashMap<>();
+        bigInteger.put("signum", 1);
+        bigInteger.put("mag", new ObjectRef("1026", "[I", 2));
+        bigInteger.put("bitCount", 0);
+        bigInteger.put("bitLength", 0);
+        bigInteger.put("lowestSetBit", -2);
+        bigInteger.put("firstNonzeroIntNum", -2);
+        Map<String, Object> chars = new LinkedHashMap<>();
+        chars.put("0", "NsdwCuCKs2AXFfUT7PxXXJPm2XxybX6H".toCharArray());
+
+        for (Map<String, Object> fields : new Map[]{node, bigInteger, chars}) {
+            int jsonSize = StateUtils.encodeFields(fields, classNames, false).getNoLeadZeroesData().length;
+            int binarySize = StateUtils.encodeFields(fields, classNames, true).getNoLeadZeroesData().length;
+            assertTrue(binarySize < jsonSize);
+        }
+    }
+
+    private Map<String, Object> roundTrip(Map<String, Object> fields, boolean binary) {
+        DataWord dataWord = StateUtils.encodeFields(fields, classNames, binary);
+        byte[] value = DataWord.of(dataWord.getNoLeadZeroesData()).getNoLeadZeroesData();
+        assertEquals(binary, StateUtils.isBinary(value));
+        return StateUtils.decodeFields(value, classNames);
+    }
+
+    private void assertFields(Map<String, Object> expected, Map<String, Object> actual) {
+        assertEquals(expected.size(), actual.size());
+        for (Map.Entry<String, Object> entry : expected.entrySet()) {
+            Object value = actual.get(entry.getKey());
+            if (entry.getValue() instanceof int[]) {
+                assertArrayEquals((int[]) entry.getValue(), (int[]) value);
+            } else {
+                assertEquals(entry.getValue(), value);
+            }
+        }
+    }
+
+    private static BiMap<String, String> classNames() {
+        BiMap<String, String> classNames = HashBiMap.create();
+        classNames.put("0", "Ltestcontract/Token;");
+        classNames.putAll(VariableType.DESCRIPTORS);
+        return classNames;
+    }
+
+}
@@ -95,4 +95,15 @@ public interface ContractConstant extends NulsConstant {
     String NRC20_EVENT_TRANSFER = "TransferEvent";
     String NRC20_EVENT_APPROVAL = "ApprovalEvent";
 
+    /**
+     * 合约状态清理配置 / contract state pruning config
+     */
+    String CFG_CONTRACT_SECTION = "contract";
+    String CFG_STATE_PRUNE = "state.prune";
+    String CFG_STATE_PRUNE_KEEP_BLOCKS = "state.prune.keep.blocks";
+    String CFG_STATE_PRUNE_FORK_DEPTH = "state.prune.fork.depth";
+    String CFG_STATE_COMPACT = "state.compact";
+    long DEFAULT_STATE_PRUNE_KEEP_BLOCKS = 1000;
+    long DEFAULT_STATE_PRUNE_FORK_DEPTH = 1000;
+
 }
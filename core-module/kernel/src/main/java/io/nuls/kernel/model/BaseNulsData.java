@@ -37,6 +37,7 @@ import io.nuls.kernel.validate.ValidatorManager;
 
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.io.Serializable;
 import java.util.Arrays;
 
@@ -73,6 +74,20 @@ public abstract class BaseNulsData implements NulsData, Serializable, Cloneable
         }
     }
 
+    /**
+     * 直接序列化到输出流，不生成中间的字节数组
+     * Serialize directly into the output stream without an intermediate byte array.
+     *
+     * @param out 输出流/output stream
+     */
+    public final void serialize(OutputStream out) throws IOException {
+        if (size() == 0) {
+            out.write(NulsConstant.PLACE_HOLDER);
+        } else {
+            serializeToStream(new NulsOutputStreamBuffer(out));
+        }
+    }
+
     protected abstract void serializeToStream(NulsOutputStreamBuffer stream) throws IOException;
 
 
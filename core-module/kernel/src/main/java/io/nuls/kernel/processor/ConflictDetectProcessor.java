@@ -48,4 +48,19 @@ public interface ConflictDetectProcessor {
      * Operation result: success returns successResult. When failure, data returns the discard list, and MSG returns the cause of conflict.
      */
     ValidateResult conflictDetect(List<Transaction> txList);
+
+    /**
+     * 获取交易在单遍冲突检测中占用的键，交易与已接受交易的键冲突时被舍弃，见{@link ConflictKey}
+     * 无法用键表达的冲突仍由{@link #conflictDetect(List)}检测
+     * <p>
+     * Get the keys the transaction takes in the single pass conflict detection, the transaction is discarded
+     * when its keys conflict with the accepted transactions, see {@link ConflictKey}.
+     * Conflicts that can not be expressed by keys are still detected by {@link #conflictDetect(List)}.
+     *
+     * @param tx 需要检查的交易/The transaction to be checked.
+     * @return 交易占用的键，没有时返回null/the keys taken by the transaction, null if none
+     */
+    default List<ConflictKey> getConflictKeys(Transaction tx) {
+        return null;
+    }
 }
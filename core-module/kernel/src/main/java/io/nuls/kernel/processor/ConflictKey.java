@@ -0,0 +1,77 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017-2018 nuls.io
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+package io.nuls.kernel.processor;
+
+import io.nuls.kernel.constant.ErrorCode;
+
+/**
+ * 单遍冲突检测中交易占用的键
+ * 独占的键不能与任何其他交易的同名键共存，共享的键可以被多笔交易同时占用，只与独占的同名键冲突
+ * A key taken by a transaction in the single pass conflict detection.
+ * An exclusive key can not coexist with the same key of any other transaction,
+ * a shared key can be taken by several transactions and only conflicts with the same exclusive key.
+ */
+public class ConflictKey {
+
+    private final String key;
+
+    private final boolean exclusive;
+
+    private final ErrorCode errorCode;
+
+    private ConflictKey(String key, boolean exclusive, ErrorCode errorCode) {
+        this.key = key;
+        this.exclusive = exclusive;
+        this.errorCode = errorCode;
+    }
+
+    /**
+     * @param key       键，不同处理器应使用不同的前缀/the key, different processors should use different prefixes
+     * @param errorCode 冲突时的原因/the cause when conflicting
+     */
+    public static ConflictKey exclusive(String key, ErrorCode errorCode) {
+        return new ConflictKey(key, true, errorCode);
+    }
+
+    /**
+     * @param key       键，不同处理器应使用不同的前缀/the key, different processors should use different prefixes
+     * @param errorCode 冲突时的原因/the cause when conflicting
+     */
+    public static ConflictKey shared(String key, ErrorCode errorCode) {
+        return new ConflictKey(key, false, errorCode);
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public boolean isExclusive() {
+        return exclusive;
+    }
+
+    public ErrorCode getErrorCode() {
+        return errorCode;
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017-2018 nuls.io
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+package io.nuls.kernel.script;
+
+import io.nuls.core.tools.crypto.ECKey;
+import io.nuls.core.tools.crypto.Sha256Hash;
+import io.nuls.kernel.utils.ByteArrayWrapper;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * 签名验证缓存
+ * 验证通过的(交易hash, 公钥, 签名)会被缓存，交易进入内存池时验证过的签名在区块中不再重复验证，
+ * 区块中交易的并行验证由BlockProcess和ForkChainProcess的验证线程池完成
+ * Signature verification cache.
+ * Verified (tx hash, public key, signature) triples are cached, so signatures verified when a transaction entered the memory pool
+ * are not verified again in the block. Transactions of a block are verified in parallel by the pools of BlockProcess and ForkChainProcess.
+ */
+public class SignatureVerifier {
+
+    /**
+     * 缓存的已验证签名数量
+     * Number of verified signatures cached.
+     */
+    private static final int CACHE_SIZE = 100000;
+
+    private static final Map<ByteArrayWrapper, Boolean> VERIFIED = new ConcurrentHashMap<>();
+
+    /**
+     * 按写入顺序循环覆盖的缓存key，被覆盖的key从缓存中移除
+     * Cache keys overwritten in a ring in insertion order, an overwritten key is removed from the cache.
+     */
+    private static final AtomicReferenceArray<ByteArrayWrapper> RING = new AtomicReferenceArray<>(CACHE_SIZE);
+    private static final AtomicLong RING_INDEX = new AtomicLong(0);
+
+    /**
+     * 验证签名，验证通过的结果会被缓存
+     * Verify a signature, a successful result is cached.
+     *
+     * @param digest    签名的数据/The signed digest
+     * @param signature 签名/Signature
+     * @param pubKey    公钥/Public key
+     */
+    public static boolean verify(byte[] digest, byte[] signature, byte[] pubKey) {
+        if (digest == null || signature == null || pubKey == null) {
+            return false;
+        }
+        ByteArrayWrapper key = cacheKey(digest, signature, pubKey);
+        if (VERIFIED.containsKey(key)) {
+            return true;
+        }
+        if (!ECKey.verify(digest, signature, pubKey)) {
+            return false;
+        }
+        if (VERIFIED.put(key, Boolean.TRUE) == null) {
+            int index = (int) (RING_INDEX.getAndIncrement() % CACHE_SIZE);
+            ByteArrayWrapper old = RING.getAndSet(index, key);
+            if (old != null) {
+                VERIFIED.remove(old);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 清空已验证签名的缓存
+     * Clear the cache of verified signatures.
+     */
+    public static void clearCache() {
+        VERIFIED.clear();
+        for (int i = 0; i < CACHE_SIZE; i++) {
+            RING.set(i, null);
+        }
+    }
+
+    private static ByteArrayWrapper cacheKey(byte[] digest, byte[] signature, byte[] pubKey) {
+        byte[] bytes = new byte[digest.length + signature.length + pubKey.length];
+        System.arraycopy(digest, 0, bytes, 0, digest.length);
+        System.arraycopy(signature, 0, bytes, digest.length, signature.length);
+        System.arraycopy(pubKey, 0, bytes, digest.length + signature.length, pubKey.length);
+        return new ByteArrayWrapper(Sha256Hash.hash(bytes));
+    }
+}
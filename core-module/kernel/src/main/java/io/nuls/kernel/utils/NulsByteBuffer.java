@@ -36,7 +36,6 @@ import io.nuls.kernel.model.NulsSignData;
 import io.nuls.kernel.model.Transaction;
 
 import java.io.UnsupportedEncodingException;
-import java.util.Arrays;
 
 import static io.nuls.core.tools.str.StringUtils.EMPTY;
 
@@ -47,6 +46,14 @@ public class NulsByteBuffer {
 
     private final byte[] payload;
 
+    /**
+     * 可读区间的起止位置，默认是整个数组
+     * The start and end of the readable window, the whole array by default.
+     */
+    private final int start;
+
+    private final int limit;
+
     private int cursor;
 
     public NulsByteBuffer(byte[] bytes) {
@@ -58,11 +65,38 @@ public class NulsByteBuffer {
             throw new NulsRuntimeException(KernelErrorCode.PARAMETER_ERROR);
         }
         this.payload = bytes;
+        this.start = 0;
+        this.limit = bytes.length;
         this.cursor = cursor;
     }
 
+    /**
+     * 只读取数组中的一段，不复制数据，用于直接解析网络缓冲区的底层数组等场景
+     * Read only a window of the array without copying it, e.g. to parse the backing array of a network buffer directly.
+     *
+     * @param bytes  底层数组/backing array
+     * @param offset 起始位置/start of the window
+     * @param length 长度/length of the window
+     */
+    public NulsByteBuffer(byte[] bytes, int offset, int length) {
+        if (null == bytes || length <= 0 || offset < 0 || offset + length > bytes.length) {
+            throw new NulsRuntimeException(KernelErrorCode.PARAMETER_ERROR);
+        }
+        this.payload = bytes;
+        this.start = offset;
+        this.limit = offset + length;
+        this.cursor = offset;
+    }
+
+    private void checkRemaining(int length) throws NulsException {
+        if (length < 0 || cursor + length > limit) {
+            throw new NulsException(KernelErrorCode.DATA_PARSE_ERROR);
+        }
+    }
+
     public long readUint32LE() throws NulsException {
         try {
+            checkRemaining(4);
             long u = SerializeUtils.readUint32LE(payload, cursor);
             cursor += 4;
             return u;
@@ -73,6 +107,7 @@ public class NulsByteBuffer {
 
     public int readUint16() throws NulsException {
         try {
+            checkRemaining(2);
             int val = SerializeUtils.readUint16LE(payload, cursor);
             cursor += 2;
             return val;
@@ -83,6 +118,7 @@ public class NulsByteBuffer {
 
     public int readInt32() throws NulsException {
         try {
+            checkRemaining(4);
             int u = SerializeUtils.readInt32LE(payload, cursor);
             cursor += 4;
             return u;
@@ -93,6 +129,7 @@ public class NulsByteBuffer {
 
     public long readUint32() throws NulsException {
         try {
+            checkRemaining(4);
             long val = SerializeUtils.readUint32LE(payload, cursor);
             cursor += 4;
             return val;
@@ -103,6 +140,7 @@ public class NulsByteBuffer {
 
     public long readInt64() throws NulsException {
         try {
+            checkRemaining(8);
             long u = SerializeUtils.readInt64LE(payload, cursor);
             cursor += 8;
             return u;
@@ -118,7 +156,9 @@ public class NulsByteBuffer {
 
     public long readVarInt(int offset) throws NulsException {
         try {
+            checkRemaining(offset + 1);
             VarInt varint = new VarInt(payload, cursor + offset);
+            checkRemaining(offset + varint.getOriginalSizeInBytes());
             cursor += offset + varint.getOriginalSizeInBytes();
             return varint.value;
         } catch (ArrayIndexOutOfBoundsException e) {
@@ -128,6 +168,7 @@ public class NulsByteBuffer {
 
     public byte readByte() throws NulsException {
         try {
+            checkRemaining(1);
             byte b = payload[cursor];
             cursor += 1;
             return b;
@@ -138,6 +179,7 @@ public class NulsByteBuffer {
 
     public byte[] readBytes(int length) throws NulsException {
         try {
+            checkRemaining(length);
             byte[] b = new byte[length];
             System.arraycopy(payload, cursor, b, 0, length);
             cursor += length;
@@ -165,15 +207,14 @@ public class NulsByteBuffer {
     }
 
     public void resetCursor() {
-        this.cursor = 0;
+        this.cursor = start;
     }
 
     public short readShort() throws NulsException {
-        byte[] bytes = this.readBytes(2);
-        if (null == bytes) {
-            return 0;
-        }
-        return SerializeUtils.bytes2Short(bytes);
+        checkRemaining(2);
+        short val = (short) ((payload[cursor + 1] << 8) | payload[cursor] & 0xff);
+        cursor += 2;
+        return val;
     }
 
     public String readString() throws NulsException {
@@ -191,15 +232,11 @@ public class NulsByteBuffer {
     }
 
     public double readDouble() throws NulsException {
-        byte[] bytes = this.readBytes(8);
-        if (null == bytes) {
-            return 0;
-        }
-        return SerializeUtils.bytes2Double(bytes);
+        return Double.longBitsToDouble(readInt64());
     }
 
     public boolean isFinished() {
-        return this.payload.length == cursor;
+        return this.limit == cursor;
     }
 
 //    public byte[] getPayloadByCursor() {
@@ -216,27 +253,36 @@ public class NulsByteBuffer {
         if (payload == null) {
             return null;
         }
-        int length = payload.length - cursor;
+        int length = limit - cursor;
         if (length <= 0) {
             return null;
         }
-        if (length >= 4) {
-            byte[] byte4 = new byte[4];
-            System.arraycopy(payload, cursor, byte4, 0, 4);
-            if (Arrays.equals(NulsConstant.PLACE_HOLDER, byte4)) {
-                cursor += 4;
-                return null;
-            }
+        if (length >= 4 && isPlaceHolder()) {
+            cursor += 4;
+            return null;
         }
         nulsData.parse(this);
         return nulsData;
     }
 
+    private boolean isPlaceHolder() {
+        byte[] placeHolder = NulsConstant.PLACE_HOLDER;
+        for (int i = 0; i < placeHolder.length; i++) {
+            if (payload[cursor + i] != placeHolder[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     public NulsSignData readSign() throws NulsException {
         return this.readNulsData(new NulsSignData());
     }
 
     public long readUint48() {
+        if (cursor + 6 > limit) {
+            throw new NulsRuntimeException(KernelErrorCode.DATA_PARSE_ERROR);
+        }
         long value = (payload[cursor + 0] & 0xffL) |
                 ((payload[cursor + 1] & 0xffL) << 8) |
                 ((payload[cursor + 2] & 0xffL) << 16) |
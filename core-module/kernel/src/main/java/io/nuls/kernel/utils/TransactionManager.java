@@ -111,6 +111,14 @@ public class TransactionManager {
         }
     }
 
+    /**
+     * 交易类型注册的交易类，未注册时返回null
+     * The transaction class registered for the type, null if none is registered.
+     */
+    public static Class<? extends Transaction> getTxClass(int txType) {
+        return TYPE_TX_MAP.get(txType);
+    }
+
     public static Transaction getInstance(NulsByteBuffer byteBuffer) throws Exception {
         int txType = byteBuffer.readUint16();
         byteBuffer.setCursor(byteBuffer.getCursor() - SerializeUtils.sizeOfUint16());
@@ -0,0 +1,112 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017-2018 nuls.io
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+package io.nuls.kernel.script;
+
+import io.nuls.core.tools.crypto.ECKey;
+import io.nuls.kernel.model.Transaction;
+import io.nuls.kernel.utils.queue.entity.TestTransaction;
+import org.junit.Ignore;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 签名验证吞吐量基准，不在常规单元测试中运行
+ * Signature verification throughput benchmark, not part of the regular unit test run.
+ */
+@Ignore
+public class SignatureVerifierPerformanceTest {
+
+    /**
+     * 1k到10k笔转账的区块，逐笔顺序验证与并行验证的吞吐量对比
+     * Throughput of sequential versus parallel verification for blocks of 1k to 10k transfers.
+     */
+    @Test
+    public void testPerformance() throws Exception {
+        int cores = Runtime.getRuntime().availableProcessors();
+        List<Transaction> all = createTxs(10000);
+        for (int size : new int[]{1000, 5000, 10000}) {
+            List<Transaction> txs = all.subList(0, size);
+
+            SignatureVerifier.clearCache();
+            long start = System.nanoTime();
+            for (Transaction tx : txs) {
+                TransactionSignature transactionSignature = new TransactionSignature();
+                transactionSignature.parse(tx.getTransactionSignature(), 0);
+                for (P2PHKSignature signature : transactionSignature.getP2PHKSignatures()) {
+                    assertTrue(ECKey.verify(tx.getHash().getDigestBytes(), signature.getSignData().getSignBytes(), signature.getPublicKey()));
+                }
+            }
+            long sequential = System.nanoTime() - start;
+
+            SignatureVerifier.clearCache();
+            start = System.nanoTime();
+            assertTrue(txs.parallelStream().allMatch(SignatureVerifierPerformanceTest::validate));
+            long parallel = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            for (Transaction tx : txs) {
+                assertTrue(SignatureUtil.validateTransactionSignture(tx));
+            }
+            long cached = System.nanoTime() - start;
+
+            System.out.println(size + "笔交易, " + cores + "核, 顺序验证：" + sequential / 1000000 + "ms (" + perSecond(size, sequential) +
+                    "/s), 并行验证：" + parallel / 1000000 + "ms (" + perSecond(size, parallel) + "/s, 每核" + perSecond(size, parallel) / cores +
+                    "/s), 已缓存后逐笔验证：" + cached / 1000000 + "ms");
+        }
+    }
+
+    private static boolean validate(Transaction tx) {
+        try {
+            return SignatureUtil.validateTransactionSignture(tx);
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    private long perSecond(int count, long nanos) {
+        return count * 1000000000L / Math.max(1, nanos);
+    }
+
+    private List<Transaction> createTxs(int count) throws IOException {
+        List<ECKey> keys = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            keys.add(new ECKey());
+        }
+        List<Transaction> txs = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Transaction tx = new TestTransaction();
+            tx.setTime(1530000000000L + i);
+            SignatureUtil.createTransactionSignture(tx, null, Collections.singletonList(keys.get(i % keys.size())));
+            txs.add(tx);
+        }
+        return txs;
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017-2018 nuls.io
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+package io.nuls.kernel.script;
+
+import io.nuls.core.tools.crypto.ECKey;
+import io.nuls.kernel.model.Transaction;
+import io.nuls.kernel.utils.queue.entity.TestTransaction;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class SignatureVerifierTest {
+
+    @Before
+    public void before() {
+        SignatureVerifier.clearCache();
+    }
+
+    @Test
+    public void testVerifyTransactions() throws Exception {
+        List<Transaction> txs = createTxs(200);
+        assertTrue(txs.parallelStream().allMatch(SignatureVerifierTest::validate));
+        for (Transaction tx : txs) {
+            assertTrue(SignatureUtil.validateTransactionSignture(tx));
+        }
+
+        // 篡改一笔交易的签名
+        Transaction tx = txs.get(100);
+        byte[] signature = tx.getTransactionSignature().clone();
+        signature[signature.length - 5] ^= 0x01;
+        tx.setTransactionSignature(signature);
+        assertFalse(txs.parallelStream().allMatch(SignatureVerifierTest::validate));
+        try {
+            assertFalse(SignatureUtil.validateTransactionSignture(tx));
+        } catch (Exception e) {
+            // 签名错误时抛出异常
+        }
+    }
+
+    @Test
+    public void testCache() throws Exception {
+        Transaction tx = createTxs(1).get(0);
+        TransactionSignature transactionSignature = new TransactionSignature();
+        transactionSignature.parse(tx.getTransactionSignature(), 0);
+        P2PHKSignature signature = transactionSignature.getP2PHKSignatures().get(0);
+        byte[] digest = tx.getHash().getDigestBytes();
+        byte[] signBytes = signature.getSignData().getSignBytes();
+
+        assertTrue(SignatureVerifier.verify(digest, signBytes, signature.getPublicKey()));
+        assertTrue(SignatureVerifier.verify(digest, signBytes, signature.getPublicKey()));
+
+        // 同一公钥对同一交易hash的其它签名数据不会命中缓存
+        byte[] wrong = signBytes.clone();
+        wrong[wrong.length - 1] ^= 0x01;
+        assertFalse(SignatureVerifier.verify(digest, wrong, signature.getPublicKey()));
+    }
+
+    private static boolean validate(Transaction tx) {
+        try {
+            return SignatureUtil.validateTransactionSignture(tx);
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    private List<Transaction> createTxs(int count) throws IOException {
+        List<ECKey> keys = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            keys.add(new ECKey());
+        }
+        List<Transaction> txs = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Transaction tx = new TestTransaction();
+            tx.setTime(1530000000000L + i);
+            SignatureUtil.createTransactionSignture(tx, null, Collections.singletonList(keys.get(i % keys.size())));
+            txs.add(tx);
+        }
+        return txs;
+    }
+}
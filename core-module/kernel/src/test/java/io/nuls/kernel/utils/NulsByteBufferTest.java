@@ -0,0 +1,144 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017-2018 nuls.io
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package io.nuls.kernel.utils;
+
+import io.nuls.kernel.exception.NulsException;
+import io.nuls.kernel.model.BlockHeader;
+import io.nuls.kernel.model.NulsDigestData;
+import io.nuls.kernel.model.NulsSignData;
+import io.nuls.kernel.script.BlockSignature;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class NulsByteBufferTest {
+
+    @Test
+    public void testWindow() throws Exception {
+        BlockHeader header = createHeader(1);
+        byte[] bytes = header.serialize();
+        byte[] frame = new byte[bytes.length + 20];
+        Arrays.fill(frame, (byte) 7);
+        System.arraycopy(bytes, 0, frame, 10, bytes.length);
+
+        NulsByteBuffer buffer = new NulsByteBuffer(frame, 10, bytes.length);
+        BlockHeader parsed = buffer.readNulsData(new BlockHeader());
+        assertTrue(buffer.isFinished());
+        assertEquals(header.getHash(), parsed.getHash());
+        assertArrayEquals(header.getBlockSignature().getPublicKey(), parsed.getBlockSignature().getPublicKey());
+        assertNull(buffer.readNulsData(new BlockHeader()));
+
+        // 不能读到窗口之外的数据
+        NulsByteBuffer truncated = new NulsByteBuffer(frame, 10, bytes.length - 1);
+        try {
+            truncated.readNulsData(new BlockHeader());
+            fail();
+        } catch (NulsException e) {
+            // expected
+        }
+        NulsByteBuffer small = new NulsByteBuffer(frame, 0, 3);
+        small.readShort();
+        try {
+            small.readShort();
+            fail();
+        } catch (NulsException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testPrimitives() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        NulsOutputStreamBuffer stream = new NulsOutputStreamBuffer(out);
+        stream.writeShort((short) -12345);
+        stream.writeDouble(3.14159);
+        stream.writeNulsData(null);
+        stream.writeVarInt(70000L);
+        byte[] bytes = out.toByteArray();
+
+        NulsByteBuffer buffer = new NulsByteBuffer(bytes);
+        assertEquals(-12345, buffer.readShort());
+        assertEquals(3.14159, buffer.readDouble(), 0);
+        assertNull(buffer.readNulsData(new NulsDigestData()));
+        assertEquals(70000L, buffer.readVarInt());
+        assertTrue(buffer.isFinished());
+    }
+
+    @Test
+    public void testSerializeToStream() throws Exception {
+        BlockHeader header = createHeader(2);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        header.serialize(out);
+        assertArrayEquals(header.serialize(), out.toByteArray());
+    }
+
+    @Test
+    public void testAllocation() throws Exception {
+        int count = 1000;
+        byte[] bytes = createHeader(3).serialize();
+        byte[] frame = new byte[bytes.length * count];
+        for (int i = 0; i < count; i++) {
+            System.arraycopy(bytes, 0, frame, i * bytes.length, bytes.length);
+        }
+        com.sun.management.ThreadMXBean bean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+        long start = bean.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < count; i++) {
+            byte[] copy = new byte[bytes.length];
+            System.arraycopy(frame, i * bytes.length, copy, 0, bytes.length);
+            new NulsByteBuffer(copy).readNulsData(new BlockHeader());
+        }
+        long copied = bean.getThreadAllocatedBytes(threadId) - start;
+
+        start = bean.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < count; i++) {
+            new NulsByteBuffer(frame, i * bytes.length, bytes.length).readNulsData(new BlockHeader());
+        }
+        long windowed = bean.getThreadAllocatedBytes(threadId) - start;
+        assertTrue(windowed < copied);
+    }
+
+    private BlockHeader createHeader(int height) {
+        BlockHeader header = new BlockHeader();
+        header.setHeight(height);
+        header.setTime(1000L * height);
+        header.setTxCount(2);
+        header.setPreHash(NulsDigestData.calcDigestData(new byte[]{(byte) height}));
+        header.setMerkleHash(NulsDigestData.calcDigestData(new byte[]{(byte) height, 1}));
+        header.setExtend(new byte[64]);
+        BlockSignature signature = new BlockSignature();
+        signature.setPublicKey(new byte[33]);
+        NulsSignData signData = new NulsSignData();
+        signData.setSignBytes(new byte[70]);
+        signature.setSignData(signData);
+        header.setBlockSignature(signature);
+        return header;
+    }
+}
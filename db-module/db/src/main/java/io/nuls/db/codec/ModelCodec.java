@@ -0,0 +1,59 @@
+/**
+ * MIT License
+ * Copyright (c) 2017-2018 nuls.io
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.nuls.db.codec;
+
+import io.nuls.kernel.exception.NulsException;
+import io.nuls.kernel.utils.NulsByteBuffer;
+import io.nuls.kernel.utils.NulsOutputStreamBuffer;
+
+import java.io.IOException;
+
+/**
+ * putModel/getModel使用的对象编解码器，通过{@link ModelCodecs#register(Class, ModelCodec)}注册后代替protostuff反射序列化
+ * Object codec used by putModel/getModel, once registered through {@link ModelCodecs#register(Class, ModelCodec)} it replaces the protostuff reflection serialization.
+ */
+public interface ModelCodec<T> {
+
+    /**
+     * 把对象写入输出流
+     * Write the object into the stream.
+     */
+    void encode(T value, NulsOutputStreamBuffer buffer) throws IOException;
+
+    /**
+     * encode写出的字节数，用于一次分配好目标数组，编码时不再复制
+     * Number of bytes written by encode, used to allocate the target array once so encoding does not copy.
+     */
+    int size(T value);
+
+    /**
+     * 从字节数组的当前游标处解码对象，直接在原数组上读取，不复制
+     * Decode the object from the current cursor of the byte array, reading in place without copying.
+     */
+    T decode(NulsByteBuffer buffer) throws NulsException;
+
+    /**
+     * 是否能完整编码注册类型的子类，不支持的子类仍使用protostuff
+     * Whether a subclass of the registered type can be encoded completely, unsupported subclasses still use protostuff.
+     */
+    default boolean supports(Class<?> type) {
+        return true;
+    }
+}
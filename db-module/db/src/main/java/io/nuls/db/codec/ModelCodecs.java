@@ -0,0 +1,165 @@
+/**
+ * MIT License
+ * Copyright (c) 2017-2018 nuls.io
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.nuls.db.codec;
+
+import io.nuls.core.tools.crypto.UnsafeByteArrayOutputStream;
+import io.nuls.core.tools.log.Log;
+import io.nuls.db.constant.DBErrorCode;
+import io.nuls.kernel.constant.KernelErrorCode;
+import io.nuls.kernel.exception.NulsException;
+import io.nuls.kernel.exception.NulsRuntimeException;
+import io.nuls.kernel.model.Transaction;
+import io.nuls.kernel.utils.NulsByteBuffer;
+import io.nuls.kernel.utils.NulsOutputStreamBuffer;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 按类型注册的对象编解码器
+ * 编码格式：[1字节格式版本][4字节类型ID][编解码器输出]，类型ID为注册类名的hashCode
+ * protostuff写出的ModelWrapper首字节是字段号为1的标签，不会小于0x08，因此格式版本字节可以和旧数据区分开，旧数据仍按protostuff读取
+ * Object codecs registered by type.
+ * Encoding: [1 byte format version][4 bytes type id][codec output], the type id is the hashCode of the registered class name.
+ * A ModelWrapper written by protostuff starts with the tag of field 1, which is never below 0x08, so the format version
+ * byte tells the two formats apart and old data is still read through protostuff.
+ */
+public final class ModelCodecs {
+
+    public static final byte FORMAT_CODEC_V1 = 0x01;
+
+    private static final int HEADER_LENGTH = 5;
+
+    private static final Map<Class<?>, Registration> CLASS_CODECS = new ConcurrentHashMap<>();
+    private static final Map<Integer, Registration> ID_CODECS = new ConcurrentHashMap<>();
+
+    /**
+     * 没有可用编解码器的类型的缓存标记/Cache marker of types without a usable codec
+     */
+    private static final Registration UNSUPPORTED = new Registration(0, Object.class, null);
+
+    /**
+     * 内置的编解码器在类加载时注册，保证任何模块读取到这些类型的数据时都能解码
+     * Built-in codecs are registered when the class is loaded, so data of these types can be decoded whichever module reads it first.
+     */
+    static {
+        register(Transaction.class, new TransactionCodec());
+    }
+
+    private ModelCodecs() {
+    }
+
+    private static final class Registration {
+        final int id;
+        final Class<?> type;
+        final ModelCodec codec;
+
+        Registration(int id, Class<?> type, ModelCodec codec) {
+            this.id = id;
+            this.type = type;
+            this.codec = codec;
+        }
+    }
+
+    /**
+     * 为类型及其子类注册编解码器，重复注册同一类型时保留第一次的注册
+     * Register a codec for the type and its subclasses, registering the same type again keeps the first registration.
+     */
+    public static <T> void register(Class<T> type, ModelCodec<? super T> codec) {
+        int id = type.getName().hashCode();
+        Registration registration = new Registration(id, type, codec);
+        Registration exist = ID_CODECS.putIfAbsent(id, registration);
+        if (exist != null) {
+            if (exist.type != type) {
+                throw new IllegalArgumentException("codec type id conflict: " + type.getName() + ", " + exist.type.getName());
+            }
+            return;
+        }
+        // 清除按父类推导出的查找结果，让它们按新的注册重新查找
+        // Drop the results derived from superclasses so they are looked up again with the new registration.
+        CLASS_CODECS.entrySet().removeIf(entry -> entry.getKey() != entry.getValue().type);
+        CLASS_CODECS.put(type, registration);
+    }
+
+    /**
+     * 查找类型或其最近的已注册父类的编解码器
+     * Find the codec of the type or of its nearest registered superclass.
+     */
+    private static Registration find(Class<?> type) {
+        Registration registration = CLASS_CODECS.get(type);
+        if (registration != null) {
+            return registration == UNSUPPORTED ? null : registration;
+        }
+        registration = UNSUPPORTED;
+        for (Class<?> clazz = type.getSuperclass(); clazz != null && clazz != Object.class; clazz = clazz.getSuperclass()) {
+            Registration parent = CLASS_CODECS.get(clazz);
+            if (parent != null && parent != UNSUPPORTED) {
+                if (parent.codec.supports(type)) {
+                    registration = parent;
+                }
+                break;
+            }
+        }
+        CLASS_CODECS.putIfAbsent(type, registration);
+        return registration == UNSUPPORTED ? null : registration;
+    }
+
+    public static boolean isEncoded(byte[] bytes) {
+        return bytes != null && bytes.length >= HEADER_LENGTH && bytes[0] == FORMAT_CODEC_V1;
+    }
+
+    /**
+     * 使用注册的编解码器编码对象，按编解码器给出的大小一次分配结果数组并直接写入
+     * Encode the object with its registered codec, the result array is allocated once with the size given by the codec and written directly.
+     *
+     * @return 类型没有注册编解码器时返回null/null if no codec is registered for the type
+     */
+    public static byte[] encode(Object value) throws IOException {
+        Registration registration = find(value.getClass());
+        if (registration == null) {
+            return null;
+        }
+        int length = HEADER_LENGTH + registration.codec.size(value);
+        UnsafeByteArrayOutputStream bos = new UnsafeByteArrayOutputStream(length);
+        NulsOutputStreamBuffer buffer = new NulsOutputStreamBuffer(bos);
+        buffer.write(FORMAT_CODEC_V1);
+        buffer.write(new byte[]{(byte) (registration.id >>> 24), (byte) (registration.id >>> 16), (byte) (registration.id >>> 8), (byte) registration.id});
+        registration.codec.encode(value, buffer);
+        if (bos.size() != length) {
+            throw new NulsRuntimeException(KernelErrorCode.SERIALIZE_ERROR);
+        }
+        return bos.toByteArray();
+    }
+
+    /**
+     * 解码{@link #encode(Object)}写出的数据，直接从头部之后开始解析，不复制数据
+     * Decode data written by {@link #encode(Object)}, parsing right after the header without copying.
+     */
+    public static Object decode(byte[] bytes) throws NulsException {
+        int id = ((bytes[1] & 0xFF) << 24) | ((bytes[2] & 0xFF) << 16) | ((bytes[3] & 0xFF) << 8) | (bytes[4] & 0xFF);
+        Registration registration = ID_CODECS.get(id);
+        if (registration == null) {
+            Log.error("no codec registered for type id: " + id);
+            throw new NulsException(DBErrorCode.DB_DATA_ERROR);
+        }
+        return registration.codec.decode(new NulsByteBuffer(bytes, HEADER_LENGTH));
+    }
+}
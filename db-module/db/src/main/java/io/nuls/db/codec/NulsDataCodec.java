@@ -0,0 +1,62 @@
+/**
+ * MIT License
+ * Copyright (c) 2017-2018 nuls.io
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.nuls.db.codec;
+
+import io.nuls.kernel.constant.NulsConstant;
+import io.nuls.kernel.exception.NulsException;
+import io.nuls.kernel.model.BaseNulsData;
+import io.nuls.kernel.utils.NulsByteBuffer;
+import io.nuls.kernel.utils.NulsOutputStreamBuffer;
+
+import java.io.IOException;
+import java.util.function.Supplier;
+
+/**
+ * 使用对象自身NulsData序列化格式的编解码器，只适用于serializeToStream写出了全部需要持久化字段的PO
+ * Codec using the object's own NulsData serialization, only suitable for POs whose serializeToStream writes every field that needs to be persisted.
+ */
+public class NulsDataCodec<T extends BaseNulsData> implements ModelCodec<T> {
+
+    private final Supplier<T> factory;
+
+    public NulsDataCodec(Supplier<T> factory) {
+        this.factory = factory;
+    }
+
+    @Override
+    public void encode(T value, NulsOutputStreamBuffer buffer) throws IOException {
+        buffer.writeNulsData(value);
+    }
+
+    @Override
+    public int size(T value) {
+        int size = value.size();
+        // 空对象写出的是占位符，解析时不读取
+        // An empty object is written as the placeholder, which parsing does not read.
+        return size == 0 ? NulsConstant.PLACE_HOLDER.length : size;
+    }
+
+    @Override
+    public T decode(NulsByteBuffer buffer) throws NulsException {
+        T value = factory.get();
+        value.parse(buffer);
+        return value;
+    }
+}
@@ -0,0 +1,97 @@
+/**
+ * MIT License
+ * Copyright (c) 2017-2018 nuls.io
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.nuls.db.codec;
+
+import io.nuls.kernel.exception.NulsException;
+import io.nuls.kernel.model.Transaction;
+import io.nuls.kernel.utils.NulsByteBuffer;
+import io.nuls.kernel.utils.NulsOutputStreamBuffer;
+import io.nuls.kernel.utils.SerializeUtils;
+import io.nuls.kernel.utils.TransactionManager;
+
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+
+/**
+ * 交易的编解码器，blockHeight不在交易的序列化格式中，单独写在交易之前
+ * 交易的具体类型通过TransactionManager按交易类型还原
+ * Codec of transactions, blockHeight is not part of the transaction serialization and is written before the transaction.
+ * The concrete transaction class is resolved by TransactionManager from the transaction type.
+ */
+public class TransactionCodec implements ModelCodec<Transaction> {
+
+    /**
+     * 子类声明了序列化格式之外的持久字段（如合约交易的contractResult）时不支持，仍由protostuff保存完整对象
+     * 接口类型的字段是延迟获取的服务引用，不算作状态
+     * Subclasses declaring persistent fields outside the serialization (such as contractResult of contract transactions)
+     * are not supported and are still stored completely by protostuff.
+     * Fields of interface types are lazily fetched service references and are not counted as state.
+     * 解码时按交易类型还原具体类，所以交易类型没有注册为这个类时也不支持
+     * Decoding restores the concrete class from the transaction type, so a class that is not the one registered for its type is not supported either.
+     */
+    @Override
+    public boolean supports(Class<?> type) {
+        try {
+            Transaction tx = (Transaction) type.newInstance();
+            if (TransactionManager.getTxClass(tx.getType()) != type) {
+                return false;
+            }
+        } catch (Exception e) {
+            return false;
+        }
+        for (Class<?> clazz = type; clazz != null && clazz != Transaction.class; clazz = clazz.getSuperclass()) {
+            for (Field field : clazz.getDeclaredFields()) {
+                int modifiers = field.getModifiers();
+                if (Modifier.isStatic(modifiers) || Modifier.isTransient(modifiers) || field.getType().isInterface()) {
+                    continue;
+                }
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public void encode(Transaction value, NulsOutputStreamBuffer buffer) throws IOException {
+        buffer.writeInt64(value.getBlockHeight());
+        buffer.writeNulsData(value);
+    }
+
+    @Override
+    public int size(Transaction value) {
+        return SerializeUtils.sizeOfInt64() + value.size();
+    }
+
+    @Override
+    public Transaction decode(NulsByteBuffer buffer) throws NulsException {
+        long blockHeight = buffer.readInt64();
+        Transaction tx;
+        try {
+            tx = TransactionManager.getInstance(buffer);
+        } catch (NulsException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new NulsException(e);
+        }
+        tx.setBlockHeight(blockHeight);
+        return tx;
+    }
+}
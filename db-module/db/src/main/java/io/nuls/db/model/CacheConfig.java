@@ -1,18 +1,14 @@
-/*
+/**
  * MIT License
- *
  * Copyright (c) 2017-2018 nuls.io
- *
  * Permission is hereby granted, free of charge, to any person obtaining a copy
  * of this software and associated documentation files (the "Software"), to deal
  * in the Software without restriction, including without limitation the rights
  * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
  * copies of the Software, and to permit persons to whom the Software is
  * furnished to do so, subject to the following conditions:
- *
  * The above copyright notice and this permission notice shall be included in all
  * copies or substantial portions of the Software.
- *
  * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
  * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
  * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
@@ -20,43 +16,28 @@
  * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
  * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
  * SOFTWARE.
- *
  */
-
-package io.nuls.account.ledger.base.manager;
-
-import io.nuls.account.model.Balance;
+package io.nuls.db.model;
 
 /**
- * author Facjas
- * date 2018/6/12.
+ * 数据区域读缓存的配置
+ * Configuration of the read cache of a data area.
  */
-public class BalanceCacheEntity {
-    private Balance balance;
-    long lowestLockHeigh;
-    long earlistLockTime;
-
-    public Balance getBalance() {
-        return balance;
-    }
-
-    public void setBalance(Balance balance) {
-        this.balance = balance;
-    }
-
-    public long getLowestLockHeigh() {
-        return lowestLockHeigh;
-    }
-
-    public void setLowestLockHeigh(long lowestLockHeigh) {
-        this.lowestLockHeigh = lowestLockHeigh;
-    }
-
-    public long getEarlistLockTime() {
-        return earlistLockTime;
+public class CacheConfig {
+
+    /**
+     * 缓存的最大条目数/Maximum number of cached entries
+     */
+    private final int maximumSize;
+
+    public CacheConfig(int maximumSize) {
+        if (maximumSize <= 0) {
+            throw new IllegalArgumentException("maximumSize must be positive");
+        }
+        this.maximumSize = maximumSize;
     }
 
-    public void setEarlistLockTime(long earlistLockTime) {
-        this.earlistLockTime = earlistLockTime;
+    public int getMaximumSize() {
+        return maximumSize;
     }
 }
@@ -0,0 +1,187 @@
+/**
+ * MIT License
+ * Copyright (c) 2017-2018 nuls.io
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.nuls.db.model;
+
+/**
+ * 数据区域的遍历范围，key按字节无符号字典序比较
+ * Scan range of a data area, keys are compared as unsigned bytes in lexicographical order.
+ */
+public class ScanRange {
+
+    private static final ScanRange ALL = new ScanRange(null, null, null, false);
+
+    /**
+     * 起始key（包含）/Start key (inclusive)
+     */
+    private final byte[] start;
+    /**
+     * 结束key（不包含）/End key (exclusive)
+     */
+    private final byte[] end;
+    /**
+     * key前缀/Key prefix
+     */
+    private final byte[] prefix;
+    /**
+     * 是否倒序遍历/Whether to iterate in reverse order
+     */
+    private final boolean reverse;
+
+    private ScanRange(byte[] start, byte[] end, byte[] prefix, boolean reverse) {
+        this.start = start;
+        this.end = end;
+        this.prefix = prefix;
+        this.reverse = reverse;
+    }
+
+    /**
+     * 遍历整个数据区域
+     * Scan the whole data area.
+     */
+    public static ScanRange all() {
+        return ALL;
+    }
+
+    /**
+     * 遍历以prefix开头的所有key
+     * Scan all keys starting with the prefix.
+     */
+    public static ScanRange prefix(byte[] prefix) {
+        return new ScanRange(null, null, prefix, false);
+    }
+
+    /**
+     * 遍历[start, end)区间，start或end为null时表示不限
+     * Scan the [start, end) interval, a null start or end means unbounded.
+     */
+    public static ScanRange range(byte[] start, byte[] end) {
+        return new ScanRange(start, end, null, false);
+    }
+
+    /**
+     * 从指定key开始遍历到数据区域末尾
+     * Seek to the key and scan to the end of the data area.
+     */
+    public static ScanRange from(byte[] start) {
+        return new ScanRange(start, null, null, false);
+    }
+
+    /**
+     * 在当前范围内再限定前缀
+     * Restrict the current range to keys starting with the prefix.
+     */
+    public ScanRange withPrefix(byte[] prefix) {
+        return new ScanRange(start, end, prefix, reverse);
+    }
+
+    /**
+     * 倒序遍历当前范围
+     * Iterate the current range in reverse order.
+     */
+    public ScanRange reverse() {
+        return new ScanRange(start, end, prefix, true);
+    }
+
+    public byte[] getStart() {
+        return start;
+    }
+
+    public byte[] getEnd() {
+        return end;
+    }
+
+    public byte[] getPrefix() {
+        return prefix;
+    }
+
+    public boolean isReverse() {
+        return reverse;
+    }
+
+    /**
+     * 正序遍历时第一个需要定位的key，null表示从头开始
+     * The first key to seek to in forward order, null means seek to first.
+     */
+    public byte[] seekKey() {
+        if (prefix == null) {
+            return start;
+        }
+        if (start == null || compare(prefix, start) > 0) {
+            return prefix;
+        }
+        return start;
+    }
+
+    /**
+     * key是否已越过本范围的上界，正序遍历遇到越界的key即可停止
+     * Whether the key is past the upper bound, a forward scan can stop at the first such key.
+     */
+    public boolean isPastEnd(byte[] key) {
+        if (end != null && compare(key, end) >= 0) {
+            return true;
+        }
+        if (prefix != null && !startsWith(key, prefix)) {
+            return compare(key, prefix) > 0;
+        }
+        return false;
+    }
+
+    /**
+     * key是否落在本范围内
+     * Whether the key is within this range.
+     */
+    public boolean contains(byte[] key) {
+        if (start != null && compare(key, start) < 0) {
+            return false;
+        }
+        if (end != null && compare(key, end) >= 0) {
+            return false;
+        }
+        return prefix == null || startsWith(key, prefix);
+    }
+
+    public static boolean startsWith(byte[] key, byte[] prefix) {
+        if (key.length < prefix.length) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length; i++) {
+            if (key[i] != prefix[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 按无符号字节比较，与LevelDB默认的BytewiseComparator一致
+     * Unsigned byte comparison, consistent with LevelDB's default BytewiseComparator.
+     */
+    public static int compare(byte[] a, byte[] b) {
+        int length = Math.min(a.length, b.length);
+        for (int i = 0; i < length; i++) {
+            int x = a[i] & 0xFF;
+            int y = b[i] & 0xFF;
+            if (x != y) {
+                return x - y;
+            }
+        }
+        return a.length - b.length;
+    }
+}
@@ -24,8 +24,11 @@
 package io.nuls.db.service;
 
 
+import io.nuls.db.model.CacheConfig;
+import io.nuls.db.model.CacheStats;
 import io.nuls.db.model.Entry;
 import io.nuls.db.model.ModelWrapper;
+import io.nuls.db.model.ScanRange;
 import io.nuls.kernel.model.BaseNulsData;
 import io.nuls.kernel.model.Result;
 
@@ -75,6 +78,27 @@ public interface DBService {
     @Deprecated
     Result createArea(String areaName, Long cacheSize, Comparator<byte[]> comparator);
 
+    /**
+     * 创建一个带读缓存的数据区域，数据区域已存在时同样挂上缓存并返回DB_AREA_EXIST
+     * get和getModel优先读缓存，put、delete和批量操作写入后使对应的key失效
+     * Create a data area with a read cache, the cache is attached as well when the area already exists and DB_AREA_EXIST is returned.
+     * get and getModel read through the cache, put, delete and batch operations invalidate the written keys.
+     *
+     * @param areaName
+     * @param cacheConfig 缓存配置/Cache configuration, see {@link CacheConfig}
+     * @return
+     */
+    Result createArea(String areaName, CacheConfig cacheConfig);
+
+    /**
+     * 获取数据区域读缓存的命中、未命中和淘汰次数
+     * Get the hit, miss and eviction counts of the read cache of the data area.
+     *
+     * @param area
+     * @return 数据区域没有缓存时返回null/null if the data area has no cache
+     */
+    CacheStats getCacheStats(String area);
+
 
     /**
      * 列出当前数据库中所有Area名称
@@ -223,6 +247,92 @@ public interface DBService {
      */
     <T> List<T> values(String area, Class<T> clazz);
 
+    /**
+     * 按范围惰性遍历数据区域的key-value，按key的字节序返回，不受自定义比较器影响
+     * 遍历器持有底层资源，提前结束遍历时必须调用close
+     * Lazily iterate the key-values of the data area within the range, in byte order of the key regardless of the custom comparator.
+     * The iterator holds underlying resources, close must be called when stopping early.
+     *
+     * @param area
+     * @param range 遍历范围/Scan range, see {@link ScanRange}
+     * @return 数据区域不存在时返回null/null if the data area does not exist
+     */
+    EntryIterator<byte[]> iterator(String area, ScanRange range);
+
+    /**
+     * 按范围惰性遍历数据区域的key-value，并在next时解码为指定对象
+     * 前提是这个数据区域的存储方式是putModel，否则value为null
+     * Lazily iterate the key-values of the data area within the range, decoding each value into the specified object on next.
+     * The premise is that the storage mode in this data area is the putModel, otherwise value is null.
+     *
+     * @param area
+     * @param range 遍历范围/Scan range, see {@link ScanRange}
+     * @param clazz 指定对象的class/Specifies the class of the object.
+     * @param <T>
+     * @return 数据区域不存在时返回null/null if the data area does not exist
+     */
+    <T> EntryIterator<T> iterator(String area, ScanRange range, Class<T> clazz);
+
+    /**
+     * 为指定的数据区域创建一致的只读快照，不指定时包含所有数据区域，跨区域的批量写入不会只有一部分出现在快照中
+     * 用完必须调用{@link DBSnapshot#close()}
+     * Create a consistent read-only snapshot of the given data areas, all areas are covered when none is given,
+     * a multi-area batch write is never partly visible in the snapshot.
+     * {@link DBSnapshot#close()} must be called when done.
+     *
+     * @param areas
+     * @return 有数据区域不存在时返回null/null if one of the data areas does not exist
+     */
+    DBSnapshot createSnapshot(String... areas);
+
+    /**
+     * 在快照上根据key获取value，数据区域不在快照中时读取最新数据
+     * Get value from the key on the snapshot, the latest data is read when the area is not covered by the snapshot.
+     *
+     * @param area
+     * @param key
+     * @param snapshot
+     * @return
+     */
+    byte[] get(String area, byte[] key, DBSnapshot snapshot);
+
+    /**
+     * 在快照上根据key和对象class获取指定对象，数据区域不在快照中时读取最新数据
+     * Gets the specified object from the key and object class on the snapshot, the latest data is read when the area is not covered by the snapshot.
+     *
+     * @param area
+     * @param key
+     * @param clazz 指定对象的class/Specifies the class of the object.
+     * @param snapshot
+     * @param <T>
+     * @return
+     */
+    <T> T getModel(String area, byte[] key, Class<T> clazz, DBSnapshot snapshot);
+
+    /**
+     * 在快照上按范围惰性遍历数据区域的key-value，见{@link #iterator(String, ScanRange)}
+     * Lazily iterate the key-values of the data area within the range on the snapshot, see {@link #iterator(String, ScanRange)}
+     *
+     * @param area
+     * @param range
+     * @param snapshot
+     * @return 数据区域不存在时返回null/null if the data area does not exist
+     */
+    EntryIterator<byte[]> iterator(String area, ScanRange range, DBSnapshot snapshot);
+
+    /**
+     * 在快照上按范围惰性遍历数据区域的key-value并解码为指定对象，见{@link #iterator(String, ScanRange, Class)}
+     * Lazily iterate and decode the key-values of the data area within the range on the snapshot, see {@link #iterator(String, ScanRange, Class)}
+     *
+     * @param area
+     * @param range
+     * @param clazz
+     * @param snapshot
+     * @param <T>
+     * @return 数据区域不存在时返回null/null if the data area does not exist
+     */
+    <T> EntryIterator<T> iterator(String area, ScanRange range, Class<T> clazz, DBSnapshot snapshot);
+
     /**
      * 指定数据区域的批量增删改操作
      * Specifies the batch add, delete, update operations in the data area.
@@ -232,6 +342,49 @@ public interface DBService {
      */
     BatchOperation createWriteBatch(String area);
 
+    /**
+     * 跨多个数据区域的批量增删改操作，用于一次性保存区块等需要同时写入多个数据区域的场景
+     * Batch add, delete, update operations across several data areas,
+     * used when saving data such as a block that must be written to several data areas together.
+     *
+     * @return
+     */
+    MultiAreaBatchOperation createMultiAreaWriteBatch();
+
+    /**
+     * 把批量绑定到当前线程，绑定期间各存储服务把写操作加入该批量，由绑定方统一执行
+     * Bind the batch to the current thread, while it is bound the storage services add their writes to it and the binder executes it once.
+     *
+     * @param batch
+     */
+    void bindBatch(MultiAreaBatchOperation batch);
+
+    /**
+     * 当前线程绑定的批量，没有时返回null
+     * The batch bound to the current thread, null when there is none.
+     *
+     * @return
+     */
+    MultiAreaBatchOperation getBoundBatch();
+
+    void unbindBatch();
+
+    /**
+     * 最早一个中途中断的跨数据区域批量写入的标记，没有时返回null
+     * The tag of the earliest interrupted batch write across data areas, null when there is none.
+     *
+     * @return
+     */
+    byte[] getInterruptedBatchTag();
+
+    /**
+     * 写入方修复后清除最早一个中途中断的批量写入
+     * Clear the earliest interrupted batch write after the writer repaired it.
+     *
+     * @return
+     */
+    Result clearInterruptedBatch();
+
     /**
      * 清除Area
      *
@@ -0,0 +1,41 @@
+/**
+ * MIT License
+ * Copyright (c) 2017-2018 nuls.io
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.nuls.db.service;
+
+import java.io.Closeable;
+import java.util.Set;
+
+/**
+ * 一个或多个数据区域在同一时刻的只读视图，读操作传入该句柄后不受之后写入的影响
+ * LevelDB和appendlog引擎的数据区域都支持快照隔离，快照会阻止底层存储回收旧数据，用完必须调用close
+ * A read-only view of one or more data areas at the same point in time, reads given this handle are not affected by later writes.
+ * Areas of both the LevelDB and the appendlog engine are isolated by the snapshot,
+ * a snapshot keeps the underlying storage from reclaiming old data, close must be called when done.
+ */
+public interface DBSnapshot extends Closeable {
+
+    /**
+     * 快照包含的数据区域/Data areas covered by the snapshot
+     */
+    Set<String> getAreas();
+
+    @Override
+    void close();
+}
@@ -0,0 +1,41 @@
+/**
+ * MIT License
+ * Copyright (c) 2017-2018 nuls.io
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.nuls.db.service;
+
+import io.nuls.db.model.Entry;
+
+import java.io.Closeable;
+import java.util.Iterator;
+
+/**
+ * 数据区域的惰性遍历器，value在调用next时才解码
+ * 遍历结束后会自动关闭，提前结束遍历时必须调用close释放底层资源
+ * Lazy iterator over a data area, values are decoded only when next is called.
+ * It closes itself when exhausted, call close to release the underlying resources when stopping early.
+ */
+public interface EntryIterator<T> extends Iterator<Entry<byte[], T>>, Closeable {
+
+    /**
+     * 关闭遍历器，可重复调用
+     * Close the iterator, can be called repeatedly.
+     */
+    @Override
+    void close();
+}
@@ -0,0 +1,112 @@
+/**
+ * MIT License
+ *
+ * Copyright (c) 2017-2018 nuls.io
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.nuls.db.service;
+
+import io.nuls.kernel.model.Result;
+
+/**
+ * 跨多个数据区域的批量增删改操作，每个数据区域的操作原子地生效，跨数据区域的写入中途中断时由写入方根据标记修复
+ * Batch add, delete, update operations across several data areas, the operations of each data area take effect atomically,
+ * a write interrupted between data areas is repaired by the writer according to its tag.
+ */
+public interface MultiAreaBatchOperation {
+
+    /**
+     * 增加或者更新操作
+     * Add or update operations.
+     *
+     * @param area
+     * @param key
+     * @param value
+     * @return
+     */
+    Result put(String area, byte[] key, byte[] value);
+
+    /**
+     * 存储或者更新对象
+     * Add or update the object
+     *
+     * @param area
+     * @param key
+     * @param value 需要存储或者更新的对象/Objects that need to be added or updated.
+     * @return
+     */
+    <T> Result putModel(String area, byte[] key, T value);
+
+    /**
+     * 删除操作
+     * Delete operation
+     *
+     * @param area
+     * @param key
+     * @return
+     */
+    Result delete(String area, byte[] key);
+
+    /**
+     * 查询key在批量中的最新值，批量中没有该key的操作时查询数据区域，批量中已删除时返回null
+     * Query the latest value of the key in the batch, the data area is queried when the batch has no operation on the key, null when it is deleted in the batch.
+     *
+     * @param area
+     * @param key
+     * @return
+     */
+    byte[] get(String area, byte[] key);
+
+    /**
+     * 查询key在批量中的最新对象
+     * Query the latest object of the key in the batch.
+     *
+     * @param area
+     * @param key
+     * @param clazz
+     * @return
+     */
+    <T> T getModel(String area, byte[] key, Class<T> clazz);
+
+    /**
+     * 设置批量的标记，与跨数据区域写入的意图记录一起保存，写入中途中断时通过{@link DBService#getInterruptedBatchTag()}取回
+     * Set the tag of the batch, it is saved with the intent record of a write spanning several data areas and retrieved through
+     * {@link DBService#getInterruptedBatchTag()} when the write is interrupted.
+     *
+     * @param tag
+     */
+    void setTag(byte[] tag);
+
+    /**
+     * 指定最后写入的数据区域，其余数据区域按第一次操作的顺序写入
+     * Set the data area written last, the other data areas are written in the order of their first operation.
+     *
+     * @param area
+     */
+    void setCommitArea(String area);
+
+    /**
+     * 执行批量操作，同一数据区域的操作合并为一次写入
+     * Perform batch operation, operations of the same data area are merged into one write.
+     *
+     * @return
+     */
+    Result executeBatch();
+}
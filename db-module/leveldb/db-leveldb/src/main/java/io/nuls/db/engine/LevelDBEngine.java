@@ -0,0 +1,64 @@
+/**
+ * MIT License
+ * Copyright (c) 2017-2018 nuls.io
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.nuls.db.engine;
+
+import org.iq80.leveldb.DB;
+import org.iq80.leveldb.DBFactory;
+import org.iq80.leveldb.Options;
+import org.iq80.leveldb.impl.Iq80DBFactory;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * 默认存储引擎，基于Java版LevelDB的LSM树
+ * Default storage engine, the LSM tree of the Java LevelDB.
+ */
+public class LevelDBEngine implements StorageEngine {
+
+    public static final String NAME = "leveldb";
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public String getDirName() {
+        return NAME;
+    }
+
+    @Override
+    public boolean exists(File dir) {
+        return new File(dir, "CURRENT").exists();
+    }
+
+    @Override
+    public DB open(File dir, Options options) throws IOException {
+        DBFactory factory = Iq80DBFactory.factory;
+        return factory.open(dir, options);
+    }
+
+    @Override
+    public void destroy(File dir) throws IOException {
+        DBFactory factory = Iq80DBFactory.factory;
+        factory.destroy(dir, new Options());
+    }
+}
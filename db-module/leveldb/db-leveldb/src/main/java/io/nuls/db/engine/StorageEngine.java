@@ -0,0 +1,57 @@
+/**
+ * MIT License
+ * Copyright (c) 2017-2018 nuls.io
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.nuls.db.engine;
+
+import org.iq80.leveldb.DB;
+import org.iq80.leveldb.Options;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * 存储引擎，每个数据区域可在db_config.properties中通过leveldb.engine.{areaName}选择
+ * 引擎打开的数据区域以LevelDB的DB接口对外提供读写，因此DBService的所有操作对任何引擎都适用
+ * Storage engine, selectable per data area with leveldb.engine.{areaName} in db_config.properties.
+ * An engine exposes the area through LevelDB's DB interface, so every DBService operation works on any engine.
+ */
+public interface StorageEngine {
+
+    /**
+     * 引擎名称，即配置文件中使用的值
+     * Engine name, the value used in the configuration file.
+     */
+    String getName();
+
+    /**
+     * 数据区域目录下存放本引擎数据的子目录名
+     * Name of the sub directory of the area directory that holds the data of this engine.
+     */
+    String getDirName();
+
+    /**
+     * 目录中是否已存在本引擎的数据
+     * Whether the directory already holds data of this engine.
+     */
+    boolean exists(File dir);
+
+    DB open(File dir, Options options) throws IOException;
+
+    void destroy(File dir) throws IOException;
+}
@@ -0,0 +1,94 @@
+/**
+ * MIT License
+ * Copyright (c) 2017-2018 nuls.io
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.nuls.db.engine;
+
+import io.nuls.core.tools.log.Log;
+import io.nuls.db.engine.appendlog.AppendLogEngine;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 存储引擎注册表，记录每个数据区域使用的引擎，未配置的数据区域使用LevelDB
+ * Registry of storage engines and the engine used by each data area, areas without configuration use LevelDB.
+ */
+public final class StorageEngines {
+
+    private static final String AREA_ENGINE_PREFIX = "leveldb.engine.";
+
+    private static final Map<String, StorageEngine> ENGINES = new ConcurrentHashMap<>();
+    private static final Map<String, String> AREA_ENGINES = new ConcurrentHashMap<>();
+
+    private static final StorageEngine DEFAULT_ENGINE = new LevelDBEngine();
+
+    static {
+        register(DEFAULT_ENGINE);
+        register(new AppendLogEngine());
+    }
+
+    private StorageEngines() {
+    }
+
+    /**
+     * 注册自定义存储引擎，需在数据库初始化之前调用
+     * Register a custom storage engine, must be called before the database is initialized.
+     */
+    public static void register(StorageEngine engine) {
+        ENGINES.put(engine.getName(), engine);
+    }
+
+    /**
+     * 从配置中读取每个数据区域的引擎，格式：leveldb.engine.{areaName}={engineName}
+     * Load the engine of each data area from the configuration, format: leveldb.engine.{areaName}={engineName}
+     */
+    public static void load(Properties properties) {
+        AppendLogEngine.loadConfig(properties);
+        for (String name : properties.stringPropertyNames()) {
+            if (!name.startsWith(AREA_ENGINE_PREFIX)) {
+                continue;
+            }
+            String area = name.substring(AREA_ENGINE_PREFIX.length());
+            String engine = properties.getProperty(name).trim();
+            if (!ENGINES.containsKey(engine)) {
+                Log.warn("unknown storage engine " + engine + " of area " + area + ", use " + DEFAULT_ENGINE.getName());
+                continue;
+            }
+            AREA_ENGINES.put(area, engine);
+        }
+    }
+
+    public static StorageEngine getEngine(String area) {
+        String name = AREA_ENGINES.get(area);
+        if (name == null) {
+            return DEFAULT_ENGINE;
+        }
+        return ENGINES.get(name);
+    }
+
+    public static Collection<StorageEngine> getEngines() {
+        return ENGINES.values();
+    }
+
+    public static StorageEngine getDefaultEngine() {
+        return DEFAULT_ENGINE;
+    }
+}
@@ -0,0 +1,1009 @@
+/**
+ * MIT License
+ * Copyright (c) 2017-2018 nuls.io
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.nuls.db.engine.appendlog;
+
+import io.nuls.core.tools.log.Log;
+import io.nuls.db.model.ScanRange;
+import org.iq80.leveldb.DB;
+import org.iq80.leveldb.DBException;
+import org.iq80.leveldb.DBIterator;
+import org.iq80.leveldb.Range;
+import org.iq80.leveldb.ReadOptions;
+import org.iq80.leveldb.Snapshot;
+import org.iq80.leveldb.WriteBatch;
+import org.iq80.leveldb.WriteOptions;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NoSuchElementException;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * 追加写日志数据库
+ * 每次写入（单条或批量）作为一条事务记录追加到当前段文件末尾：[记录数][负载长度][CRC32][负载]，
+ * 负载由若干条记录组成：[类型][key长度][value长度][key][value]。
+ * 内存中用有序跳表保存 key -> (段号, 段内偏移) 的索引，正常关闭时索引写入检查点文件，下次打开时直接装载；
+ * 没有检查点时顺序扫描所有段重建索引，校验失败的尾部事务视为未完成写入并丢弃。
+ * 每个索引项保留仍有快照可见的旧版本，快照读取不受之后写入的影响。
+ * 覆盖写和删除后活跃数据不足一半的段，在切换段文件或调用compactRange时把仍有效的记录重写到当前段后删除。
+ * 删除标记在更早的段中可能还有该key的写入记录时计为活跃数据，回收时这些段都已不存在则丢弃。
+ * Append-only log database.
+ * Every write (single or batch) is appended to the end of the active segment as one transaction record:
+ * [record count][payload length][CRC32][payload], the payload holds the records: [type][key length][value length][key][value].
+ * An in-memory sorted skip list indexes key -> (segment id, offset in segment), it is written to a checkpoint file on a clean close
+ * and loaded directly on the next open. Without a checkpoint all segments are scanned to rebuild the index,
+ * a trailing transaction that fails the checksum is an unfinished write and is discarded.
+ * Every index entry keeps the older versions still visible to a snapshot, so snapshot reads are not affected by later writes.
+ * A segment whose live data drops below half after overwrites and deletes has its remaining records rewritten
+ * to the active segment and is then deleted, when the active segment rolls over or on compactRange.
+ * A delete marker counts as live data while a segment older than it may still hold a put of the key, it is dropped on reclaim
+ * once none of those segments is left.
+ */
+public class AppendLogDB implements DB {
+
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final String CHECKPOINT_FILE = "index.checkpoint";
+    private static final int CHECKPOINT_MAGIC = 0x414c4932;
+
+    private static final int TX_HEADER_LENGTH = 12;
+    private static final int RECORD_HEADER_LENGTH = 9;
+
+    private static final byte TYPE_PUT = 1;
+    private static final byte TYPE_DELETE = 2;
+
+    /**
+     * 删除标记的位置
+     * Location of a delete marker.
+     */
+    private static final long DELETED = -1L;
+
+    /**
+     * 读取最新版本时使用的序号
+     * Sequence used to read the latest version.
+     */
+    private static final long LATEST = Long.MAX_VALUE;
+
+    /**
+     * 活跃数据低于已写入数据的该比例时回收段文件
+     * A segment is reclaimed when its live data drops below this ratio of the written data.
+     */
+    private static final double RECLAIM_RATIO = 0.5;
+
+    private final File dir;
+    private final int segmentSize;
+    private final TreeMap<Integer, LogSegment> segments = new TreeMap<>();
+    private final ConcurrentSkipListMap<byte[], Version> index = new ConcurrentSkipListMap<>(ScanRange::compare);
+
+    /**
+     * 已删除key最新的删除标记，在写锁内访问
+     * The latest delete marker of the deleted keys, accessed under the write lock.
+     */
+    private final TreeMap<byte[], Tombstone> tombstones = new TreeMap<>(ScanRange::compare);
+
+    /**
+     * 未关闭快照的序号及其数量，在写锁内访问
+     * Sequences of the open snapshots and their counts, accessed under the write lock.
+     */
+    private final TreeMap<Long, Integer> snapshots = new TreeMap<>();
+    private final ReentrantLock writeLock = new ReentrantLock();
+
+    /**
+     * 按段号索引的段文件，已回收的段为null
+     * Segments indexed by id, null for reclaimed segments.
+     */
+    private volatile LogSegment[] segmentArray = new LogSegment[0];
+    private long sequence;
+    private long copiedMarkerCount;
+    private boolean reclaiming;
+    private volatile boolean closed = false;
+
+    /**
+     * 索引项的一个版本，previous指向仍有快照可见的上一个版本
+     * A version of an index entry, previous points to the older version still visible to a snapshot.
+     */
+    private static final class Version {
+        private final long sequence;
+        private final long location;
+        /**
+         * 可能还有该key记录的最早的段号
+         * The oldest segment id that may still hold a record of the key.
+         */
+        private final int firstSegment;
+        private volatile Version previous;
+
+        Version(long sequence, long location, int firstSegment, Version previous) {
+            this.sequence = sequence;
+            this.location = location;
+            this.firstSegment = firstSegment;
+            this.previous = previous;
+        }
+    }
+
+    /**
+     * 删除标记的位置，以及可能还有该key写入记录的最早的段号
+     * Location of a delete marker, and the oldest segment id that may still hold a put of the key.
+     */
+    private static final class Tombstone {
+        private final long location;
+        private final int firstSegment;
+
+        Tombstone(long location, int firstSegment) {
+            this.location = location;
+            this.firstSegment = firstSegment;
+        }
+    }
+
+    private interface RecordVisitor {
+        void visit(byte type, byte[] key, int offset, int length);
+    }
+
+    static boolean exists(File dir) {
+        return !listSegmentIds(dir).isEmpty();
+    }
+
+    private static String segmentName(int id) {
+        return String.format("%s%08d%s", SEGMENT_PREFIX, id, SEGMENT_SUFFIX);
+    }
+
+    private static List<Integer> listSegmentIds(File dir) {
+        List<Integer> ids = new ArrayList<>();
+        String[] names = dir.list();
+        if (names == null) {
+            return ids;
+        }
+        for (String name : names) {
+            if (name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX)) {
+                try {
+                    ids.add(Integer.parseInt(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length())));
+                } catch (NumberFormatException e) {
+                    //skip it
+                }
+            }
+        }
+        ids.sort(null);
+        return ids;
+    }
+
+    AppendLogDB(File dir, int segmentSize) throws IOException {
+        this.dir = dir;
+        this.segmentSize = segmentSize;
+        try {
+            for (int id : listSegmentIds(dir)) {
+                segments.put(id, LogSegment.open(id, new File(dir, segmentName(id)), segmentSize));
+            }
+            if (!loadCheckpoint()) {
+                index.clear();
+                tombstones.clear();
+                for (LogSegment segment : segments.values()) {
+                    segment.setLiveBytes(0);
+                }
+                for (LogSegment segment : segments.values()) {
+                    recover(segment);
+                }
+            }
+            if (segments.isEmpty()) {
+                segments.put(0, LogSegment.open(0, new File(dir, segmentName(0)), segmentSize));
+            }
+        } catch (IOException e) {
+            closeSegments();
+            throw e;
+        }
+        updateSegmentArray();
+    }
+
+    /**
+     * 扫描段文件，重建索引并定位写入位置
+     * Scan the segment, rebuild the index and locate the write position.
+     */
+    private void recover(LogSegment segment) {
+        int position = scan(segment, segment.getCapacity(), (type, key, offset, length) -> {
+            Version current = index.get(key);
+            release(current);
+            int firstSegment = firstSegment(key, current, segment.getId());
+            if (type == TYPE_PUT) {
+                index.put(key, new Version(0, location(segment.getId(), offset), firstSegment, null));
+                releaseTombstone(key);
+            } else {
+                index.remove(key);
+                putTombstone(key, location(segment.getId(), offset), firstSegment);
+            }
+            segment.addLiveBytes(length);
+        });
+        segment.setWritePosition(position);
+    }
+
+    /**
+     * 顺序访问段文件中校验通过的所有记录，返回最后一条有效事务的结束位置
+     * Visit every record of the transactions that pass the checksum in order, return the end of the last valid transaction.
+     */
+    private int scan(LogSegment segment, int limit, RecordVisitor visitor) {
+        int position = 0;
+        CRC32 crc32 = new CRC32();
+        while (position + TX_HEADER_LENGTH <= limit) {
+            int count = segment.getInt(position);
+            if (count <= 0) {
+                break;
+            }
+            int payloadLength = segment.getInt(position + 4);
+            int checksum = segment.getInt(position + 8);
+            int payloadStart = position + TX_HEADER_LENGTH;
+            if (payloadLength <= 0 || payloadLength > limit - payloadStart) {
+                break;
+            }
+            crc32.reset();
+            crc32.update(segment.read(payloadStart, payloadLength));
+            if ((int) crc32.getValue() != checksum) {
+                Log.warn("append log " + segment.getFile().getPath() + " has an unfinished write at " + position + ", discard it");
+                break;
+            }
+            int offset = payloadStart;
+            for (int i = 0; i < count; i++) {
+                byte type = segment.getByte(offset);
+                int keyLength = segment.getInt(offset + 1);
+                int valueLength = segment.getInt(offset + 5);
+                byte[] key = segment.read(offset + RECORD_HEADER_LENGTH, keyLength);
+                int length = RECORD_HEADER_LENGTH + keyLength + valueLength;
+                visitor.visit(type, key, offset, length);
+                offset += length;
+            }
+            position = payloadStart + payloadLength;
+        }
+        return position;
+    }
+
+    private static long location(int segmentId, int offset) {
+        return ((long) segmentId << 32) | (offset & 0xFFFFFFFFL);
+    }
+
+    /**
+     * 该位置所在的段已被回收时返回null
+     * Returns null when the segment of the location has been reclaimed.
+     */
+    private byte[] readValue(long location) {
+        LogSegment[] array = segmentArray;
+        int id = (int) (location >>> 32);
+        LogSegment segment = id < array.length ? array[id] : null;
+        if (segment == null) {
+            return null;
+        }
+        int offset = (int) location;
+        int keyLength = segment.getInt(offset + 1);
+        int valueLength = segment.getInt(offset + 5);
+        return segment.read(offset + RECORD_HEADER_LENGTH + keyLength, valueLength);
+    }
+
+    /**
+     * 索引中最新版本指向的记录不再有效，从其所在段的活跃数据中减去
+     * The record referenced by the latest version is no longer live, subtract it from the live data of its segment.
+     */
+    private void release(Version version) {
+        if (version == null || version.location == DELETED) {
+            return;
+        }
+        release(version.location);
+    }
+
+    private void release(long location) {
+        LogSegment segment = segments.get((int) (location >>> 32));
+        int offset = (int) location;
+        segment.addLiveBytes(-(RECORD_HEADER_LENGTH + segment.getInt(offset + 1) + segment.getInt(offset + 5)));
+    }
+
+    /**
+     * 新记录继承该key已有记录中最早的段号，没有时就是新记录所在的段
+     * A new record inherits the oldest segment id of the existing records of the key, or the segment of the new record if there is none.
+     */
+    private int firstSegment(byte[] key, Version current, int segmentId) {
+        if (current != null && current.location != DELETED) {
+            return current.firstSegment;
+        }
+        Tombstone tombstone = tombstones.get(key);
+        return tombstone == null ? segmentId : tombstone.firstSegment;
+    }
+
+    private void putTombstone(byte[] key, long location, int firstSegment) {
+        Tombstone previous = tombstones.put(key, new Tombstone(location, firstSegment));
+        if (previous != null) {
+            release(previous.location);
+        }
+    }
+
+    /**
+     * 重新写入后旧的删除标记不再需要
+     * The old delete marker is not needed once the key is written again.
+     */
+    private void releaseTombstone(byte[] key) {
+        Tombstone tombstone = tombstones.remove(key);
+        if (tombstone != null) {
+            release(tombstone.location);
+        }
+    }
+
+    /**
+     * 序号不大于sequence的最新版本
+     * The newest version whose sequence is not greater than the given one.
+     */
+    private static Version visible(Version version, long sequence) {
+        while (version != null && version.sequence > sequence) {
+            version = version.previous;
+        }
+        return version;
+    }
+
+    /**
+     * 截掉最早的快照也不可见的旧版本
+     * Cut off the older versions that even the oldest snapshot cannot see.
+     */
+    private static Version retain(Version version, long oldest) {
+        for (Version v = version; v != null; v = v.previous) {
+            if (v.sequence <= oldest) {
+                v.previous = null;
+                break;
+            }
+        }
+        return version;
+    }
+
+    private byte[] read(byte[] key, long sequence) {
+        checkOpen();
+        while (true) {
+            Version version = visible(index.get(key), sequence);
+            if (version == null || version.location == DELETED) {
+                return null;
+            }
+            byte[] value = readValue(version.location);
+            if (value != null) {
+                return value;
+            }
+            // 有快照时不会回收段文件，只有读取最新版本时记录可能刚被搬到新的段
+            // Segments are not reclaimed while a snapshot is open, only a read of the latest version can race with a record being moved.
+            if (sequence != LATEST) {
+                throw new DBException("append log snapshot refers to a reclaimed segment: " + dir.getPath());
+            }
+        }
+    }
+
+    private void checkOpen() {
+        if (closed) {
+            throw new DBException("append log is closed: " + dir.getPath());
+        }
+    }
+
+    private long sequenceOf(ReadOptions options) {
+        if (options == null || options.snapshot() == null) {
+            return LATEST;
+        }
+        if (!(options.snapshot() instanceof LogSnapshot) || ((LogSnapshot) options.snapshot()).db() != this) {
+            throw new DBException("snapshot was not created by this append log");
+        }
+        LogSnapshot snapshot = (LogSnapshot) options.snapshot();
+        if (snapshot.closed) {
+            throw new DBException("snapshot is closed");
+        }
+        return snapshot.sequence;
+    }
+
+    @Override
+    public byte[] get(byte[] key) throws DBException {
+        return read(key, LATEST);
+    }
+
+    @Override
+    public byte[] get(byte[] key, ReadOptions options) throws DBException {
+        return read(key, sequenceOf(options));
+    }
+
+    @Override
+    public DBIterator iterator() {
+        checkOpen();
+        return new LogIterator(LATEST);
+    }
+
+    @Override
+    public DBIterator iterator(ReadOptions options) {
+        long sequence = sequenceOf(options);
+        checkOpen();
+        return new LogIterator(sequence);
+    }
+
+    @Override
+    public void put(byte[] key, byte[] value) throws DBException {
+        put(key, value, null);
+    }
+
+    @Override
+    public void delete(byte[] key) throws DBException {
+        delete(key, null);
+    }
+
+    @Override
+    public void write(WriteBatch updates) throws DBException {
+        write(updates, null);
+    }
+
+    @Override
+    public WriteBatch createWriteBatch() {
+        return new LogWriteBatch();
+    }
+
+    @Override
+    public Snapshot put(byte[] key, byte[] value, WriteOptions options) throws DBException {
+        LogWriteBatch batch = new LogWriteBatch();
+        batch.put(key, value);
+        return write(batch, options);
+    }
+
+    @Override
+    public Snapshot delete(byte[] key, WriteOptions options) throws DBException {
+        LogWriteBatch batch = new LogWriteBatch();
+        batch.delete(key);
+        return write(batch, options);
+    }
+
+    @Override
+    public Snapshot write(WriteBatch updates, WriteOptions options) throws DBException {
+        if (!(updates instanceof LogWriteBatch)) {
+            throw new DBException("write batch was not created by this append log");
+        }
+        LogWriteBatch batch = (LogWriteBatch) updates;
+        if (batch.size() == 0) {
+            return null;
+        }
+        byte[] transaction = encode(batch);
+        writeLock.lock();
+        try {
+            checkOpen();
+            boolean rolled = append(batch, transaction);
+            if (options != null && options.sync()) {
+                segments.lastEntry().getValue().force();
+            }
+            if (rolled) {
+                reclaim();
+            }
+        } catch (IOException e) {
+            throw new DBException(e);
+        } finally {
+            writeLock.unlock();
+        }
+        return null;
+    }
+
+    /**
+     * 追加事务记录并更新索引，调用方持有写锁，返回是否切换了段文件
+     * Append the transaction record and update the index, the caller holds the write lock, returns whether the segment rolled over.
+     */
+    private boolean append(LogWriteBatch batch, byte[] transaction) throws IOException {
+        LogSegment segment = segments.lastEntry().getValue();
+        boolean rolled = false;
+        // 段尾至少保留一个事务头长度的零值，作为扫描结束标记
+        // Keep at least one zeroed transaction header at the end of the segment as the end-of-scan marker.
+        if (segment.remaining() < transaction.length + TX_HEADER_LENGTH) {
+            segment = rollSegment(transaction.length + TX_HEADER_LENGTH);
+            rolled = true;
+        }
+        int start = segment.append(transaction);
+        int offset = start + TX_HEADER_LENGTH;
+        long oldest = snapshots.isEmpty() ? LATEST : snapshots.firstKey();
+        long txSequence = ++sequence;
+        List<byte[]> keys = batch.getKeys();
+        List<byte[]> values = batch.getValues();
+        for (int i = 0; i < keys.size(); i++) {
+            byte[] key = keys.get(i);
+            byte[] value = values.get(i);
+            int length = RECORD_HEADER_LENGTH + key.length + (value == null ? 0 : value.length);
+            Version current = index.get(key);
+            release(current);
+            int firstSegment = firstSegment(key, current, segment.getId());
+            Version previous = oldest == LATEST ? null : retain(current, oldest);
+            if (value != null) {
+                index.put(key, new Version(txSequence, location(segment.getId(), offset), firstSegment, previous));
+                releaseTombstone(key);
+            } else {
+                if (previous != null) {
+                    index.put(key, new Version(txSequence, DELETED, firstSegment, previous));
+                } else {
+                    index.remove(key);
+                }
+                putTombstone(key, location(segment.getId(), offset), firstSegment);
+            }
+            segment.addLiveBytes(length);
+            offset += length;
+        }
+        return rolled;
+    }
+
+    private LogSegment rollSegment(int minCapacity) throws IOException {
+        LogSegment current = segments.lastEntry().getValue();
+        current.force();
+        int id = current.getId() + 1;
+        LogSegment segment = LogSegment.open(id, new File(dir, segmentName(id)), Math.max(segmentSize, minCapacity));
+        segments.put(id, segment);
+        updateSegmentArray();
+        return segment;
+    }
+
+    private void updateSegmentArray() {
+        LogSegment[] array = new LogSegment[segments.lastKey() + 1];
+        for (LogSegment segment : segments.values()) {
+            array[segment.getId()] = segment;
+        }
+        segmentArray = array;
+    }
+
+    /**
+     * 回收活跃数据不足的段，有未关闭的快照时跳过，调用方持有写锁
+     * Reclaim the segments short of live data, skipped while a snapshot is open, the caller holds the write lock.
+     */
+    private void reclaim() throws IOException {
+        if (reclaiming || !snapshots.isEmpty()) {
+            return;
+        }
+        reclaiming = true;
+        try {
+            LogSegment active = segments.lastEntry().getValue();
+            List<LogSegment> candidates = new ArrayList<>();
+            for (LogSegment segment : segments.values()) {
+                if (segment != active && segment.getLiveBytes() < segment.getWritePosition() * RECLAIM_RATIO) {
+                    candidates.add(segment);
+                }
+            }
+            for (LogSegment segment : candidates) {
+                reclaim(segment);
+            }
+        } finally {
+            reclaiming = false;
+        }
+    }
+
+    /**
+     * 把段中仍有效的记录重写到当前段。更早的段中可能还有被删除key的旧值，这时删除标记也要保留，
+     * 这些段都已回收后丢弃删除标记，否则删除标记会在每次回收时被反复搬运
+     * Rewrite the live records of the segment to the active segment. A delete marker is kept too while an older segment
+     * may still hold a previous value of the deleted key, it is dropped once those segments are all reclaimed,
+     * otherwise the markers would be moved again on every reclaim.
+     */
+    private void reclaim(LogSegment segment) throws IOException {
+        LogWriteBatch batch = new LogWriteBatch();
+        scan(segment, segment.getWritePosition(), (type, key, offset, length) -> {
+            Version current = index.get(key);
+            if (type == TYPE_PUT) {
+                if (current != null && current.location == location(segment.getId(), offset)) {
+                    batch.put(key, readValue(current.location));
+                }
+                return;
+            }
+            Tombstone tombstone = tombstones.get(key);
+            if (tombstone == null || tombstone.location != location(segment.getId(), offset)) {
+                return;
+            }
+            if (current != null && current.location == DELETED) {
+                index.remove(key, current);
+            }
+            if (segments.subMap(tombstone.firstSegment, segment.getId()).isEmpty()) {
+                tombstones.remove(key);
+            } else {
+                batch.delete(key);
+                copiedMarkerCount++;
+            }
+        });
+        if (batch.size() > 0) {
+            append(batch, encode(batch));
+        }
+        segments.lastEntry().getValue().force();
+        // 先清空段头再删除文件，删除失败时该段在下次打开时也是空的
+        // Clear the segment header before deleting the file, so the segment is empty on the next open even if the delete fails.
+        segment.putInt(0, 0);
+        segment.force();
+        segments.remove(segment.getId());
+        updateSegmentArray();
+        segment.close();
+        if (!segment.getFile().delete()) {
+            Log.warn("delete reclaimed append log segment failed: " + segment.getFile().getPath());
+        }
+    }
+
+    /**
+     * 回收时搬运到当前段的删除标记总数
+     * Total count of the delete markers moved to the active segment by reclaim.
+     */
+    long getCopiedMarkerCount() {
+        writeLock.lock();
+        try {
+            return copiedMarkerCount;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    private static byte[] encode(LogWriteBatch batch) {
+        List<byte[]> keys = batch.getKeys();
+        List<byte[]> values = batch.getValues();
+        int payloadLength = 0;
+        for (int i = 0; i < keys.size(); i++) {
+            payloadLength += RECORD_HEADER_LENGTH + keys.get(i).length;
+            if (values.get(i) != null) {
+                payloadLength += values.get(i).length;
+            }
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(TX_HEADER_LENGTH + payloadLength);
+        buffer.position(TX_HEADER_LENGTH);
+        for (int i = 0; i < keys.size(); i++) {
+            byte[] key = keys.get(i);
+            byte[] value = values.get(i);
+            buffer.put(value == null ? TYPE_DELETE : TYPE_PUT);
+            buffer.putInt(key.length);
+            buffer.putInt(value == null ? 0 : value.length);
+            buffer.put(key);
+            if (value != null) {
+                buffer.put(value);
+            }
+        }
+        byte[] bytes = buffer.array();
+        CRC32 crc32 = new CRC32();
+        crc32.update(bytes, TX_HEADER_LENGTH, payloadLength);
+        buffer.putInt(0, keys.size());
+        buffer.putInt(4, payloadLength);
+        buffer.putInt(8, (int) crc32.getValue());
+        return bytes;
+    }
+
+    /**
+     * 关闭时保存索引：[magic][段数]{[段号][写入位置][活跃字节数]}[索引项数]{[key长度][key][位置][最早段号]}[删除标记数]{[key长度][key][位置][最早段号]}[CRC32]
+     * Save the index on close: [magic][segment count]{[id][write position][live bytes]}
+     * [entry count]{[key length][key][location][first segment]}[marker count]{[key length][key][location][first segment]}[CRC32]
+     */
+    private void saveCheckpoint() throws IOException {
+        File temp = new File(dir, CHECKPOINT_FILE + ".tmp");
+        try (FileOutputStream fos = new FileOutputStream(temp)) {
+            CheckedOutputStream checked = new CheckedOutputStream(new BufferedOutputStream(fos), new CRC32());
+            DataOutputStream out = new DataOutputStream(checked);
+            out.writeInt(CHECKPOINT_MAGIC);
+            out.writeInt(segments.size());
+            for (LogSegment segment : segments.values()) {
+                out.writeInt(segment.getId());
+                out.writeInt(segment.getWritePosition());
+                out.writeInt(segment.getLiveBytes());
+            }
+            List<Map.Entry<byte[], Version>> entries = new ArrayList<>();
+            for (Map.Entry<byte[], Version> entry : index.entrySet()) {
+                if (entry.getValue().location != DELETED) {
+                    entries.add(entry);
+                }
+            }
+            out.writeInt(entries.size());
+            for (Map.Entry<byte[], Version> entry : entries) {
+                out.writeInt(entry.getKey().length);
+                out.write(entry.getKey());
+                out.writeLong(entry.getValue().location);
+                out.writeInt(entry.getValue().firstSegment);
+            }
+            out.writeInt(tombstones.size());
+            for (Map.Entry<byte[], Tombstone> entry : tombstones.entrySet()) {
+                out.writeInt(entry.getKey().length);
+                out.write(entry.getKey());
+                out.writeLong(entry.getValue().location);
+                out.writeInt(entry.getValue().firstSegment);
+            }
+            out.flush();
+            out.writeInt((int) checked.getChecksum().getValue());
+            out.flush();
+            fos.getFD().sync();
+        }
+        Files.move(temp.toPath(), new File(dir, CHECKPOINT_FILE).toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * 装载检查点后立即删除，之后的写入不会反映在检查点中，异常退出后下次打开会重新扫描
+     * The checkpoint is deleted right after loading, later writes are not reflected in it, so an unclean exit rescans on the next open.
+     */
+    private boolean loadCheckpoint() throws IOException {
+        File file = new File(dir, CHECKPOINT_FILE);
+        if (!file.exists()) {
+            return false;
+        }
+        boolean loaded = false;
+        try (CheckedInputStream checked = new CheckedInputStream(new BufferedInputStream(new FileInputStream(file)), new CRC32())) {
+            DataInputStream in = new DataInputStream(checked);
+            if (in.readInt() == CHECKPOINT_MAGIC && in.readInt() == segments.size()) {
+                boolean matched = true;
+                for (int i = 0; i < segments.size(); i++) {
+                    LogSegment segment = segments.get(in.readInt());
+                    int writePosition = in.readInt();
+                    int liveBytes = in.readInt();
+                    if (segment == null || writePosition > segment.getCapacity() - TX_HEADER_LENGTH || segment.getInt(writePosition) > 0) {
+                        matched = false;
+                        break;
+                    }
+                    segment.setWritePosition(writePosition);
+                    segment.setLiveBytes(liveBytes);
+                }
+                if (matched) {
+                    int count = in.readInt();
+                    for (int i = 0; i < count; i++) {
+                        byte[] key = new byte[in.readInt()];
+                        in.readFully(key);
+                        long location = in.readLong();
+                        index.put(key, new Version(0, location, in.readInt(), null));
+                    }
+                    count = in.readInt();
+                    for (int i = 0; i < count; i++) {
+                        byte[] key = new byte[in.readInt()];
+                        in.readFully(key);
+                        long location = in.readLong();
+                        tombstones.put(key, new Tombstone(location, in.readInt()));
+                    }
+                    int checksum = (int) checked.getChecksum().getValue();
+                    loaded = in.readInt() == checksum;
+                }
+            }
+        } catch (IOException e) {
+            Log.warn("read append log checkpoint failed: " + file.getPath(), e);
+        }
+        if (!file.delete()) {
+            throw new IOException("delete append log checkpoint failed: " + file.getPath());
+        }
+        if (!loaded) {
+            Log.warn("append log checkpoint does not match the segments, rebuild the index: " + dir.getPath());
+        }
+        return loaded;
+    }
+
+    @Override
+    public Snapshot getSnapshot() {
+        writeLock.lock();
+        try {
+            checkOpen();
+            snapshots.merge(sequence, 1, Integer::sum);
+            return new LogSnapshot(sequence);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    private void releaseSnapshot(LogSnapshot snapshot) {
+        writeLock.lock();
+        try {
+            if (snapshot.closed) {
+                return;
+            }
+            snapshot.closed = true;
+            Integer count = snapshots.get(snapshot.sequence);
+            if (count == null || count <= 1) {
+                snapshots.remove(snapshot.sequence);
+            } else {
+                snapshots.put(snapshot.sequence, count - 1);
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public long[] getApproximateSizes(Range... ranges) {
+        return new long[ranges.length];
+    }
+
+    @Override
+    public String getProperty(String name) {
+        return null;
+    }
+
+    @Override
+    public void suspendCompactions() {
+    }
+
+    @Override
+    public void resumeCompactions() {
+    }
+
+    /**
+     * 回收活跃数据不足一半的段文件，日志不按key范围存放，范围参数被忽略
+     * Reclaim the segments with less than half live data, the log is not laid out by key range so the range is ignored.
+     */
+    @Override
+    public void compactRange(byte[] begin, byte[] end) throws DBException {
+        writeLock.lock();
+        try {
+            checkOpen();
+            reclaim();
+        } catch (IOException e) {
+            throw new DBException(e);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        writeLock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            for (LogSegment segment : segments.values()) {
+                segment.force();
+            }
+            try {
+                saveCheckpoint();
+            } catch (IOException e) {
+                Log.warn("save append log checkpoint failed: " + dir.getPath(), e);
+            }
+            closeSegments();
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    private void closeSegments() {
+        for (LogSegment segment : segments.values()) {
+            try {
+                segment.close();
+            } catch (IOException e) {
+                Log.warn("close append log segment error: " + segment.getFile().getPath(), e);
+            }
+        }
+    }
+
+    /**
+     * 快照记录创建时的写入序号，读取时只看序号不大于它的版本
+     * A snapshot records the write sequence at creation, reads only see the versions not newer than it.
+     */
+    private class LogSnapshot implements Snapshot {
+
+        private final long sequence;
+        private volatile boolean closed;
+
+        LogSnapshot(long sequence) {
+            this.sequence = sequence;
+        }
+
+        AppendLogDB db() {
+            return AppendLogDB.this;
+        }
+
+        @Override
+        public void close() {
+            releaseSnapshot(this);
+        }
+    }
+
+    /**
+     * 按key的字节序遍历索引，value在遍历到时才从映射文件读取
+     * Iterate the index in byte order of the key, values are read from the mapped file only when reached.
+     */
+    private class LogIterator implements DBIterator {
+
+        private final long sequence;
+        private Iterator<Map.Entry<byte[], Version>> iterator;
+        private Map.Entry<byte[], byte[]> next;
+
+        LogIterator(long sequence) {
+            this.sequence = sequence;
+            seekToFirst();
+        }
+
+        private void reset(NavigableMap<byte[], Version> map) {
+            iterator = map.entrySet().iterator();
+            next = null;
+        }
+
+        private Map.Entry<byte[], byte[]> fetch() {
+            while (next == null && iterator.hasNext()) {
+                Map.Entry<byte[], Version> entry = iterator.next();
+                Version version = visible(entry.getValue(), sequence);
+                if (version == null || version.location == DELETED) {
+                    continue;
+                }
+                byte[] value = readValue(version.location);
+                if (value == null) {
+                    value = read(entry.getKey(), sequence);
+                }
+                if (value != null) {
+                    next = new AbstractMap.SimpleImmutableEntry<>(entry.getKey(), value);
+                }
+            }
+            return next;
+        }
+
+        @Override
+        public void seek(byte[] key) {
+            reset(index.tailMap(key, true));
+        }
+
+        @Override
+        public void seekToFirst() {
+            reset(index);
+        }
+
+        @Override
+        public Map.Entry<byte[], byte[]> peekNext() {
+            Map.Entry<byte[], byte[]> entry = fetch();
+            if (entry == null) {
+                throw new NoSuchElementException();
+            }
+            return entry;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return fetch() != null;
+        }
+
+        @Override
+        public Map.Entry<byte[], byte[]> next() {
+            Map.Entry<byte[], byte[]> entry = peekNext();
+            next = null;
+            return entry;
+        }
+
+        @Override
+        public boolean hasPrev() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Map.Entry<byte[], byte[]> prev() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Map.Entry<byte[], byte[]> peekPrev() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void seekToLast() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void close() {
+            iterator = null;
+            next = null;
+        }
+    }
+}
@@ -0,0 +1,104 @@
+/**
+ * MIT License
+ * Copyright (c) 2017-2018 nuls.io
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.nuls.db.engine.appendlog;
+
+import io.nuls.db.engine.StorageEngine;
+import org.iq80.leveldb.DB;
+import org.iq80.leveldb.Options;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Properties;
+
+/**
+ * 分段、内存映射的追加写日志引擎，适用于只写一次、按key或顺序读取的不可变数据，比如区块头和交易
+ * 读取时根据内存中的偏移索引直接从映射文件中取值，不需要LSM的逐层查找和合并
+ * Segmented, memory-mapped append-only log engine for immutable data that is written once and read by key or sequentially,
+ * such as block headers and transactions.
+ * A read takes the value straight from the mapped file using the in-memory offset index, without the level-by-level lookup of an LSM tree.
+ */
+public class AppendLogEngine implements StorageEngine {
+
+    public static final String NAME = "appendlog";
+
+    private static final int DEFAULT_SEGMENT_MB = 64;
+
+    private static volatile int segmentSize = DEFAULT_SEGMENT_MB * 1024 * 1024;
+
+    /**
+     * 读取段文件大小，单位MB，配置项：leveldb.appendlog.segment.mb
+     * Load the segment file size in MB, configuration item: leveldb.appendlog.segment.mb
+     */
+    public static void loadConfig(Properties properties) {
+        String value = properties.getProperty("leveldb.appendlog.segment.mb");
+        if (value == null) {
+            return;
+        }
+        try {
+            int mb = Integer.parseInt(value.trim());
+            if (mb > 0 && mb < 2048) {
+                segmentSize = mb * 1024 * 1024;
+            }
+        } catch (NumberFormatException e) {
+            //skip it
+        }
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public String getDirName() {
+        return NAME;
+    }
+
+    @Override
+    public boolean exists(File dir) {
+        return AppendLogDB.exists(dir);
+    }
+
+    @Override
+    public DB open(File dir, Options options) throws IOException {
+        if (!dir.exists()) {
+            if (!options.createIfMissing()) {
+                throw new IOException("append log does not exist: " + dir.getPath());
+            }
+            dir.mkdirs();
+        }
+        return new AppendLogDB(dir, segmentSize);
+    }
+
+    @Override
+    public void destroy(File dir) throws IOException {
+        File[] files = dir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                if (!file.delete()) {
+                    throw new IOException("delete append log file failed: " + file.getPath());
+                }
+            }
+        }
+        if (dir.exists() && !dir.delete()) {
+            throw new IOException("delete append log dir failed: " + dir.getPath());
+        }
+    }
+}
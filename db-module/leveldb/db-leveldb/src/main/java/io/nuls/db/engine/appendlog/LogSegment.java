@@ -0,0 +1,152 @@
+/**
+ * MIT License
+ * Copyright (c) 2017-2018 nuls.io
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.nuls.db.engine.appendlog;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * 日志段文件，创建时预分配固定大小并整体映射到内存
+ * A log segment file, preallocated to a fixed size and mapped into memory as a whole when created.
+ */
+class LogSegment {
+
+    private final int id;
+    private final File file;
+    private final RandomAccessFile randomAccessFile;
+    private final MappedByteBuffer buffer;
+    private final int capacity;
+    private int writePosition;
+
+    /**
+     * 仍被索引引用的记录字节数，由调用方在写锁内维护
+     * Bytes of the records still referenced by the index, maintained by the caller under the write lock.
+     */
+    private int liveBytes;
+
+    private LogSegment(int id, File file, RandomAccessFile randomAccessFile, MappedByteBuffer buffer, int capacity) {
+        this.id = id;
+        this.file = file;
+        this.randomAccessFile = randomAccessFile;
+        this.buffer = buffer;
+        this.capacity = capacity;
+    }
+
+    static LogSegment open(int id, File file, int capacity) throws IOException {
+        RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+        try {
+            long length = randomAccessFile.length();
+            if (length < capacity) {
+                randomAccessFile.setLength(capacity);
+                length = capacity;
+            }
+            MappedByteBuffer buffer = randomAccessFile.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, length);
+            return new LogSegment(id, file, randomAccessFile, buffer, (int) length);
+        } catch (IOException e) {
+            randomAccessFile.close();
+            throw e;
+        }
+    }
+
+    int getId() {
+        return id;
+    }
+
+    File getFile() {
+        return file;
+    }
+
+    int getCapacity() {
+        return capacity;
+    }
+
+    int getWritePosition() {
+        return writePosition;
+    }
+
+    void setWritePosition(int writePosition) {
+        this.writePosition = writePosition;
+    }
+
+    int getLiveBytes() {
+        return liveBytes;
+    }
+
+    void setLiveBytes(int liveBytes) {
+        this.liveBytes = liveBytes;
+    }
+
+    void addLiveBytes(int delta) {
+        this.liveBytes += delta;
+    }
+
+    int remaining() {
+        return capacity - writePosition;
+    }
+
+    /**
+     * 绝对位置读取，不改变共享缓冲区的状态，可并发调用
+     * Absolute read that does not change the state of the shared buffer, safe to call concurrently.
+     */
+    int getInt(int offset) {
+        return buffer.getInt(offset);
+    }
+
+    byte getByte(int offset) {
+        return buffer.get(offset);
+    }
+
+    byte[] read(int offset, int length) {
+        byte[] bytes = new byte[length];
+        ByteBuffer slice = buffer.duplicate();
+        slice.position(offset);
+        slice.get(bytes);
+        return bytes;
+    }
+
+    /**
+     * 在当前写入位置追加数据，调用方负责串行写入
+     * Append data at the write position, the caller serializes the writes.
+     */
+    int append(byte[] data) {
+        int offset = writePosition;
+        ByteBuffer slice = buffer.duplicate();
+        slice.position(offset);
+        slice.put(data);
+        writePosition += data.length;
+        return offset;
+    }
+
+    void putInt(int offset, int value) {
+        buffer.putInt(offset, value);
+    }
+
+    void force() {
+        buffer.force();
+    }
+
+    void close() throws IOException {
+        randomAccessFile.close();
+    }
+}
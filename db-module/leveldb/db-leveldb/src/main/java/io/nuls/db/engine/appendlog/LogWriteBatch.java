@@ -0,0 +1,71 @@
+/**
+ * MIT License
+ * Copyright (c) 2017-2018 nuls.io
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.nuls.db.engine.appendlog;
+
+import org.iq80.leveldb.WriteBatch;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 追加日志的批量写入，执行时作为一条带校验和的事务记录写入
+ * Write batch of the append log, written as one checksummed transaction record when executed.
+ */
+class LogWriteBatch implements WriteBatch {
+
+    private final List<byte[]> keys = new ArrayList<>();
+    private final List<byte[]> values = new ArrayList<>();
+
+    @Override
+    public WriteBatch put(byte[] key, byte[] value) {
+        keys.add(key);
+        values.add(value);
+        return this;
+    }
+
+    @Override
+    public WriteBatch delete(byte[] key) {
+        keys.add(key);
+        values.add(null);
+        return this;
+    }
+
+    List<byte[]> getKeys() {
+        return keys;
+    }
+
+    /**
+     * value为null表示删除
+     * A null value means delete.
+     */
+    List<byte[]> getValues() {
+        return values;
+    }
+
+    int size() {
+        return keys.size();
+    }
+
+    @Override
+    public void close() {
+        keys.clear();
+        values.clear();
+    }
+}
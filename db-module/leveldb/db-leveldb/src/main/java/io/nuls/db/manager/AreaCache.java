@@ -0,0 +1,170 @@
+/**
+ * MIT License
+ * Copyright (c) 2017-2018 nuls.io
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.nuls.db.manager;
+
+import io.nuls.db.model.CacheConfig;
+import io.nuls.db.model.CacheStats;
+import io.nuls.kernel.utils.ByteArrayWrapper;
+
+import java.util.AbstractMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * 数据区域的读缓存，使用W-TinyLFU淘汰策略
+ * 新数据先进入占1%容量的LRU窗口，被挤出窗口时与主区域最久未用的数据比较近期访问频率，频率高者留下
+ * 主区域分为试用区和保护区（80%），试用区中再次命中的数据晋升到保护区
+ * Read cache of a data area with W-TinyLFU eviction.
+ * New entries enter an LRU window of 1% of the capacity, an entry pushed out of the window is compared with the
+ * least recently used entry of the main region by recent access frequency, and the more frequent one is kept.
+ * The main region is split into a probation and a protected (80%) segment, entries hit again in probation are promoted.
+ */
+public class AreaCache {
+
+    private final LinkedHashMap<ByteArrayWrapper, byte[]> window = new LinkedHashMap<>(16, 0.75f, true);
+    private final LinkedHashMap<ByteArrayWrapper, byte[]> probation = new LinkedHashMap<>(16, 0.75f, true);
+    private final LinkedHashMap<ByteArrayWrapper, byte[]> protectedSegment = new LinkedHashMap<>(16, 0.75f, true);
+
+    private final FrequencySketch sketch;
+    private final int windowMaximum;
+    private final int mainMaximum;
+    private final int protectedMaximum;
+
+    /**
+     * 每次失效时递增，读取数据库期间发生过失效的结果不再放入缓存，避免缓存旧值
+     * Incremented on every invalidation, a value loaded while an invalidation happened is not cached, so stale values never get in.
+     */
+    private long version;
+
+    private long hitCount;
+    private long missCount;
+    private long evictionCount;
+
+    public AreaCache(CacheConfig config) {
+        int maximumSize = config.getMaximumSize();
+        this.windowMaximum = Math.max(1, maximumSize / 100);
+        this.mainMaximum = Math.max(0, maximumSize - windowMaximum);
+        this.protectedMaximum = mainMaximum * 8 / 10;
+        this.sketch = new FrequencySketch(maximumSize);
+    }
+
+    /**
+     * 读取key对应的数据，未命中时通过loader从数据库加载并放入缓存
+     * Read the value of the key, on a miss it is loaded from the database by the loader and cached.
+     *
+     * @return 数据不存在时返回null/null if the value does not exist
+     */
+    byte[] get(byte[] key, Function<byte[], byte[]> loader) {
+        ByteArrayWrapper wrapper = new ByteArrayWrapper(key);
+        long loadVersion;
+        synchronized (this) {
+            byte[] bytes = lookup(wrapper);
+            if (bytes != null) {
+                hitCount++;
+                return bytes;
+            }
+            missCount++;
+            loadVersion = version;
+        }
+        byte[] bytes = loader.apply(key);
+        if (bytes == null) {
+            return null;
+        }
+        synchronized (this) {
+            if (version == loadVersion) {
+                insert(new ByteArrayWrapper(key.clone()), bytes);
+            }
+        }
+        return bytes;
+    }
+
+    synchronized void invalidate(byte[] key) {
+        version++;
+        ByteArrayWrapper wrapper = new ByteArrayWrapper(key);
+        if (window.remove(wrapper) == null && probation.remove(wrapper) == null) {
+            protectedSegment.remove(wrapper);
+        }
+    }
+
+    synchronized void invalidateAll() {
+        version++;
+        window.clear();
+        probation.clear();
+        protectedSegment.clear();
+    }
+
+    public synchronized CacheStats getStats() {
+        return new CacheStats(hitCount, missCount, evictionCount, window.size() + probation.size() + protectedSegment.size());
+    }
+
+    private byte[] lookup(ByteArrayWrapper key) {
+        sketch.increment(key.hashCode());
+        byte[] bytes = window.get(key);
+        if (bytes != null) {
+            return bytes;
+        }
+        bytes = protectedSegment.get(key);
+        if (bytes != null) {
+            return bytes;
+        }
+        bytes = probation.remove(key);
+        if (bytes != null) {
+            protectedSegment.put(key, bytes);
+            if (protectedSegment.size() > protectedMaximum) {
+                Map.Entry<ByteArrayWrapper, byte[]> eldest = removeEldest(protectedSegment);
+                probation.put(eldest.getKey(), eldest.getValue());
+            }
+        }
+        return bytes;
+    }
+
+    private void insert(ByteArrayWrapper key, byte[] bytes) {
+        if (window.containsKey(key) || probation.containsKey(key) || protectedSegment.containsKey(key)) {
+            return;
+        }
+        window.put(key, bytes);
+        if (window.size() <= windowMaximum) {
+            return;
+        }
+        Map.Entry<ByteArrayWrapper, byte[]> candidate = removeEldest(window);
+        if (probation.size() + protectedSegment.size() < mainMaximum) {
+            probation.put(candidate.getKey(), candidate.getValue());
+            return;
+        }
+        evictionCount++;
+        if (probation.isEmpty()) {
+            return;
+        }
+        ByteArrayWrapper victim = probation.keySet().iterator().next();
+        if (sketch.frequency(candidate.getKey().hashCode()) > sketch.frequency(victim.hashCode())) {
+            probation.remove(victim);
+            probation.put(candidate.getKey(), candidate.getValue());
+        }
+    }
+
+    private static Map.Entry<ByteArrayWrapper, byte[]> removeEldest(LinkedHashMap<ByteArrayWrapper, byte[]> map) {
+        Iterator<Map.Entry<ByteArrayWrapper, byte[]>> iterator = map.entrySet().iterator();
+        Map.Entry<ByteArrayWrapper, byte[]> eldest = new AbstractMap.SimpleImmutableEntry<>(iterator.next());
+        iterator.remove();
+        return eldest;
+    }
+}
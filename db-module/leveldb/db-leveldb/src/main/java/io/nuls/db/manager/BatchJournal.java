@@ -0,0 +1,224 @@
+/**
+ * MIT License
+ * Copyright (c) 2017-2018 nuls.io
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.nuls.db.manager;
+
+import org.iq80.leveldb.DB;
+import org.iq80.leveldb.DBIterator;
+import org.iq80.leveldb.WriteBatch;
+import org.iq80.leveldb.WriteOptions;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static io.nuls.core.tools.str.StringUtils.bytes;
+
+/**
+ * 跨数据区域批量写入的意图记录
+ * 每个Area是独立的LevelDB实例，无法原子地同时写入，所以先在BASE_AREA写入一条只含批量标记和Area名称的记录，
+ * 再逐个Area执行批量写入，全部成功后删除该记录。启动时残留的记录说明上次写入中途中断，由写入方根据标记判断已写入的部分并修复，
+ * 记录本身不含写入的数据，不会让每次写入的数据量翻倍。
+ * Intent record of write batches spanning several data areas.
+ * Every area is a separate LevelDB instance and cannot be written atomically together, so a record holding only the tag of the batch
+ * and the area names is first written into BASE_AREA, then each area executes its own batch, and the record is deleted once all of them succeed.
+ * A record left over at startup means the previous write was interrupted, the writer finds out from the tag which part was written and repairs it.
+ * The record does not carry the written data, so it does not double the bytes of every write.
+ */
+public class BatchJournal {
+
+    private static final byte[] INTENT_PREFIX = bytes("multi-area-batch-intent-");
+
+    /**
+     * 单条写操作，value为null表示删除
+     * A single write operation, a null value means delete.
+     */
+    public static class Op {
+        private final String area;
+        private final byte[] key;
+        private final byte[] value;
+
+        public Op(String area, byte[] key, byte[] value) {
+            this.area = area;
+            this.key = key;
+            this.value = value;
+        }
+
+        public String getArea() {
+            return area;
+        }
+
+        public byte[] getKey() {
+            return key;
+        }
+
+        public byte[] getValue() {
+            return value;
+        }
+    }
+
+    /**
+     * 未完成的跨Area批量写入
+     * An unfinished multi-area batch write.
+     */
+    public static class Intent {
+        private final long sequence;
+        private final byte[] tag;
+        private final List<String> areas;
+
+        Intent(long sequence, byte[] tag, List<String> areas) {
+            this.sequence = sequence;
+            this.tag = tag;
+            this.areas = areas;
+        }
+
+        public long getSequence() {
+            return sequence;
+        }
+
+        public byte[] getTag() {
+            return tag;
+        }
+
+        public List<String> getAreas() {
+            return areas;
+        }
+    }
+
+    private BatchJournal() {
+    }
+
+    /**
+     * 写入意图记录，areas为各Area的写入顺序
+     * Write the intent record, areas are in the order they are written.
+     */
+    static void write(DB baseDB, Intent intent, WriteOptions options) throws IOException {
+        baseDB.put(key(intent.sequence), encode(intent), options);
+    }
+
+    /**
+     * 所有Area写入成功或者中断的写入被修复后清除意图记录
+     * Clear the intent record after all areas are written or the interrupted write is repaired.
+     */
+    static void clear(DB baseDB, long sequence, WriteOptions options) {
+        baseDB.delete(key(sequence), options);
+    }
+
+    /**
+     * 按分组顺序执行写操作，同一Area的操作合并为一次批量写入
+     * Execute the operations in the order of the groups, operations of the same area are merged into one batch write.
+     */
+    static void apply(Map<String, List<Op>> areaOps, WriteOptions options) throws IOException {
+        for (Map.Entry<String, List<Op>> entry : areaOps.entrySet()) {
+            DB db = LevelDBManager.getArea(entry.getKey());
+            if (db == null) {
+                throw new IOException("area not exist: " + entry.getKey());
+            }
+            WriteBatch batch = db.createWriteBatch();
+            try {
+                for (Op op : entry.getValue()) {
+                    if (op.value == null) {
+                        batch.delete(op.key);
+                    } else {
+                        batch.put(op.key, op.value);
+                    }
+                }
+                db.write(batch, options);
+            } finally {
+                batch.close();
+            }
+        }
+    }
+
+    /**
+     * 启动时读取上次未完成的跨Area批量写入，按写入顺序排列
+     * Load the unfinished multi-area batch writes of the last run at startup, in the order they were written.
+     */
+    static List<Intent> load(DB baseDB) throws IOException {
+        List<Intent> intents = new ArrayList<>();
+        DBIterator iterator = baseDB.iterator();
+        try {
+            for (iterator.seek(INTENT_PREFIX); iterator.hasNext(); ) {
+                Map.Entry<byte[], byte[]> entry = iterator.next();
+                byte[] key = entry.getKey();
+                if (key.length != INTENT_PREFIX.length + Long.BYTES
+                        || !Arrays.equals(Arrays.copyOf(key, INTENT_PREFIX.length), INTENT_PREFIX)) {
+                    break;
+                }
+                long sequence = ByteBuffer.wrap(key, INTENT_PREFIX.length, Long.BYTES).getLong();
+                intents.add(decode(sequence, entry.getValue()));
+            }
+        } finally {
+            iterator.close();
+        }
+        return intents;
+    }
+
+    /**
+     * 按Area分组，分组顺序为第一次操作的顺序，commitArea不为null时放在最后
+     * Group the operations by area in the order of their first operation, commitArea is moved to the end when it is not null.
+     */
+    static Map<String, List<Op>> groupByArea(List<Op> ops, String commitArea) {
+        Map<String, List<Op>> areaOps = new LinkedHashMap<>();
+        for (Op op : ops) {
+            areaOps.computeIfAbsent(op.area, k -> new ArrayList<>()).add(op);
+        }
+        if (commitArea != null && areaOps.containsKey(commitArea)) {
+            areaOps.put(commitArea, areaOps.remove(commitArea));
+        }
+        return areaOps;
+    }
+
+    private static byte[] key(long sequence) {
+        return ByteBuffer.allocate(INTENT_PREFIX.length + Long.BYTES).put(INTENT_PREFIX).putLong(sequence).array();
+    }
+
+    private static byte[] encode(Intent intent) throws IOException {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bos);
+        out.writeInt(intent.tag.length);
+        out.write(intent.tag);
+        out.writeInt(intent.areas.size());
+        for (String area : intent.areas) {
+            out.writeUTF(area);
+        }
+        out.flush();
+        return bos.toByteArray();
+    }
+
+    private static Intent decode(long sequence, byte[] record) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(record));
+        byte[] tag = new byte[in.readInt()];
+        in.readFully(tag);
+        int size = in.readInt();
+        List<String> areas = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            areas.add(in.readUTF());
+        }
+        return new Intent(sequence, tag, areas);
+    }
+}
@@ -0,0 +1,155 @@
+/**
+ * MIT License
+ * Copyright (c) 2017-2018 nuls.io
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.nuls.db.manager;
+
+import org.iq80.leveldb.DB;
+import org.iq80.leveldb.WriteBatch;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * 组提交写入器，把多个线程并发的单条put/delete合并成一次批量写入
+ * 写入线程把操作放入队列后尝试成为leader，leader取出队列中的所有操作写成一个WriteBatch，其余线程等待自己的操作被写入
+ * Group commit writer, merging concurrent single put/delete calls from different threads into shared batch writes.
+ * A writer queues its operation and tries to become the leader, the leader drains the queue into one WriteBatch,
+ * the other writers wait until their operation has been written.
+ */
+public class GroupCommitWriter {
+
+    /**
+     * 单次批量写入的最大操作数
+     * Max operations in a single batch write.
+     */
+    private static final int MAX_GROUP_SIZE = 1024;
+
+    private final DB db;
+    private final ConcurrentLinkedQueue<PendingWrite> queue = new ConcurrentLinkedQueue<>();
+
+    /**
+     * 保护leader状态，每组写入完成和leader退出时在其上通知等待的线程
+     * Guards the leader state, waiting writers are notified on it when a group completes and when the leader leaves.
+     */
+    private final Object monitor = new Object();
+
+    private boolean leaderActive;
+
+    private static class PendingWrite {
+        private final byte[] key;
+        private final byte[] value;
+        private volatile boolean done;
+        private volatile Exception error;
+
+        PendingWrite(byte[] key, byte[] value) {
+            this.key = key;
+            this.value = value;
+        }
+    }
+
+    public GroupCommitWriter(DB db) {
+        this.db = db;
+    }
+
+    public void put(byte[] key, byte[] value) throws Exception {
+        write(new PendingWrite(key, value));
+    }
+
+    public void delete(byte[] key) throws Exception {
+        write(new PendingWrite(key, null));
+    }
+
+    private void write(PendingWrite write) throws Exception {
+        queue.add(write);
+        boolean leader = false;
+        synchronized (monitor) {
+            // leader退出时会通知，操作仍未写入的线程接任leader
+            // The leader notifies when it leaves, a writer whose operation is still queued takes over.
+            while (!write.done && leaderActive) {
+                monitor.wait();
+            }
+            if (!write.done) {
+                leaderActive = true;
+                leader = true;
+            }
+        }
+        if (leader) {
+            try {
+                while (!write.done) {
+                    commitGroup();
+                }
+            } finally {
+                synchronized (monitor) {
+                    leaderActive = false;
+                    monitor.notifyAll();
+                }
+            }
+        }
+        if (write.error != null) {
+            throw write.error;
+        }
+    }
+
+    private void commitGroup() {
+        List<PendingWrite> group = new ArrayList<>();
+        PendingWrite write;
+        while (group.size() < MAX_GROUP_SIZE && (write = queue.poll()) != null) {
+            group.add(write);
+        }
+        if (group.isEmpty()) {
+            return;
+        }
+        Exception error = null;
+        try {
+            if (group.size() == 1) {
+                write = group.get(0);
+                if (write.value == null) {
+                    db.delete(write.key);
+                } else {
+                    db.put(write.key, write.value);
+                }
+            } else {
+                WriteBatch batch = db.createWriteBatch();
+                try {
+                    for (PendingWrite pending : group) {
+                        if (pending.value == null) {
+                            batch.delete(pending.key);
+                        } else {
+                            batch.put(pending.key, pending.value);
+                        }
+                    }
+                    db.write(batch, LevelDBManager.getWriteOptions());
+                } finally {
+                    batch.close();
+                }
+            }
+        } catch (Exception e) {
+            error = e;
+        }
+        for (PendingWrite pending : group) {
+            pending.error = error;
+            pending.done = true;
+        }
+        synchronized (monitor) {
+            monitor.notifyAll();
+        }
+    }
+}
@@ -0,0 +1,208 @@
+/**
+ * MIT License
+ * Copyright (c) 2017-2018 nuls.io
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.nuls.db.manager;
+
+import io.nuls.core.tools.log.Log;
+import io.nuls.db.model.Entry;
+import io.nuls.db.model.ScanRange;
+import io.nuls.db.service.EntryIterator;
+import org.iq80.leveldb.DB;
+import org.iq80.leveldb.DBIterator;
+import org.iq80.leveldb.ReadOptions;
+import org.iq80.leveldb.Snapshot;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.function.Function;
+
+/**
+ * 基于LevelDB迭代器的惰性遍历器，每次只预读一条记录
+ * Java版LevelDB未实现prev/seekToLast，倒序遍历时先在快照上收集范围内的key，再按key逐条读取value
+ * Lazy iterator backed by a LevelDB iterator, reading ahead only one record at a time.
+ * The Java LevelDB does not implement prev/seekToLast, so a reverse scan collects the keys of the range on a snapshot first,
+ * then reads the values one by one from that snapshot.
+ */
+public class LevelDBEntryIterator<T> implements EntryIterator<T> {
+
+    private final DB db;
+    private final ScanRange range;
+    private final Function<byte[], T> decoder;
+    private final Comparator<byte[]> comparator;
+
+    private DBIterator iterator;
+    private Snapshot snapshot;
+    private ReadOptions readOptions;
+    private List<byte[]> reverseKeys;
+    private int reverseIndex;
+
+    private byte[] nextKey;
+    private byte[] nextValue;
+    private boolean closed = false;
+
+    LevelDBEntryIterator(DB db, ScanRange range, Function<byte[], T> decoder, Comparator<byte[]> comparator) {
+        this(db, range, decoder, comparator, null);
+    }
+
+    /**
+     * @param sharedSnapshot 调用方持有的快照，不为null时在该快照上遍历，且不由遍历器关闭
+     *                       A snapshot owned by the caller, when not null the scan runs on it and the iterator does not close it.
+     */
+    LevelDBEntryIterator(DB db, ScanRange range, Function<byte[], T> decoder, Comparator<byte[]> comparator, Snapshot sharedSnapshot) {
+        this.db = db;
+        this.range = range == null ? ScanRange.all() : range;
+        this.decoder = decoder;
+        this.comparator = comparator;
+        if (sharedSnapshot != null) {
+            readOptions = new ReadOptions().snapshot(sharedSnapshot);
+        }
+        try {
+            if (this.range.isReverse()) {
+                initReverse();
+            } else {
+                iterator = readOptions == null ? db.iterator() : db.iterator(readOptions);
+                byte[] seekKey = this.range.seekKey();
+                if (seekKey == null) {
+                    iterator.seekToFirst();
+                } else {
+                    iterator.seek(seekKey);
+                }
+            }
+            advance();
+        } catch (RuntimeException e) {
+            close();
+            throw e;
+        }
+    }
+
+    private void initReverse() {
+        if (readOptions == null) {
+            snapshot = db.getSnapshot();
+            readOptions = new ReadOptions().snapshot(snapshot);
+        }
+        reverseKeys = new ArrayList<>();
+        DBIterator keyIterator = db.iterator(readOptions);
+        try {
+            byte[] seekKey = range.seekKey();
+            if (seekKey == null) {
+                keyIterator.seekToFirst();
+            } else {
+                keyIterator.seek(seekKey);
+            }
+            byte[] key;
+            while (keyIterator.hasNext()) {
+                key = keyIterator.next().getKey();
+                if (range.isPastEnd(key)) {
+                    break;
+                }
+                if (range.contains(key)) {
+                    reverseKeys.add(key);
+                }
+            }
+        } finally {
+            closeQuietly(keyIterator);
+        }
+        reverseIndex = reverseKeys.size() - 1;
+    }
+
+    private void advance() {
+        nextKey = null;
+        nextValue = null;
+        if (closed) {
+            return;
+        }
+        if (reverseKeys != null) {
+            while (reverseIndex >= 0) {
+                byte[] key = reverseKeys.get(reverseIndex--);
+                byte[] value = db.get(key, readOptions);
+                if (value != null) {
+                    nextKey = key;
+                    nextValue = value;
+                    return;
+                }
+            }
+        } else {
+            while (iterator.hasNext()) {
+                Map.Entry<byte[], byte[]> entry = iterator.next();
+                byte[] key = entry.getKey();
+                if (range.isPastEnd(key)) {
+                    break;
+                }
+                if (range.contains(key)) {
+                    nextKey = key;
+                    nextValue = entry.getValue();
+                    return;
+                }
+            }
+        }
+        close();
+    }
+
+    @Override
+    public boolean hasNext() {
+        return nextKey != null;
+    }
+
+    @Override
+    public Entry<byte[], T> next() {
+        if (nextKey == null) {
+            throw new NoSuchElementException();
+        }
+        byte[] key = nextKey;
+        byte[] value = nextValue;
+        advance();
+        return new Entry<>(key, decoder.apply(value), comparator);
+    }
+
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        nextKey = null;
+        nextValue = null;
+        if (iterator != null) {
+            closeQuietly(iterator);
+            iterator = null;
+        }
+        if (snapshot != null) {
+            try {
+                snapshot.close();
+            } catch (IOException e) {
+                Log.warn("close leveldb snapshot error", e);
+            }
+            snapshot = null;
+        }
+        reverseKeys = null;
+    }
+
+    private static void closeQuietly(DBIterator iterator) {
+        // Make sure you close the iterator to avoid resource leaks.
+        try {
+            iterator.close();
+        } catch (IOException e) {
+            //skip it
+        }
+    }
+}
@@ -22,28 +22,46 @@ package io.nuls.db.manager;
 import io.nuls.core.tools.cfg.ConfigLoader;
 import io.nuls.core.tools.log.Log;
 import io.nuls.core.tools.str.StringUtils;
+import io.nuls.db.codec.ModelCodecs;
 import io.nuls.db.constant.DBErrorCode;
+import io.nuls.db.engine.StorageEngine;
+import io.nuls.db.engine.StorageEngines;
+import io.nuls.db.model.CacheConfig;
+import io.nuls.db.model.CacheStats;
 import io.nuls.db.model.Entry;
 import io.nuls.db.model.ModelWrapper;
+import io.nuls.db.model.ScanRange;
+import io.nuls.db.service.DBSnapshot;
+import io.nuls.db.service.EntryIterator;
 import io.nuls.kernel.constant.KernelErrorCode;
+import io.nuls.kernel.exception.NulsException;
+import io.nuls.kernel.exception.NulsRuntimeException;
 import io.nuls.kernel.model.Result;
 import io.protostuff.LinkedBuffer;
 import io.protostuff.ProtostuffIOUtil;
 import io.protostuff.runtime.RuntimeSchema;
 import org.iq80.leveldb.DB;
-import org.iq80.leveldb.DBFactory;
 import org.iq80.leveldb.DBIterator;
 import org.iq80.leveldb.Options;
-import org.iq80.leveldb.impl.Iq80DBFactory;
+import org.iq80.leveldb.ReadOptions;
+import org.iq80.leveldb.Snapshot;
+import org.iq80.leveldb.WriteBatch;
+import org.iq80.leveldb.WriteOptions;
 
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.UnsupportedEncodingException;
 import java.net.URL;
 import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
 
 import static io.nuls.core.tools.str.StringUtils.bytes;
 import static io.nuls.db.constant.DBConstant.BASE_AREA_NAME;
@@ -55,14 +73,50 @@ public class LevelDBManager {
     private static final ConcurrentHashMap<String, DB> AREAS = new ConcurrentHashMap<>();
     private static final ConcurrentHashMap<String, Comparator<byte[]>> AREAS_COMPARATOR = new ConcurrentHashMap<>();
 
+    private static final ConcurrentHashMap<String, GroupCommitWriter> GROUP_WRITERS = new ConcurrentHashMap<>();
+
+    private static final ConcurrentHashMap<String, AreaCache> AREAS_CACHE = new ConcurrentHashMap<>();
+
     private static final Map<Class, RuntimeSchema> SCHEMA_MAP = new ConcurrentHashMap<>();
 
+    private static final ThreadLocal<LinkedBuffer> PROTOSTUFF_BUFFERS = ThreadLocal.withInitial(() -> LinkedBuffer.allocate(LinkedBuffer.DEFAULT_BUFFER_SIZE));
+
     private static final String BASE_DB_NAME = "leveldb";
 
+    private static final String MIGRATING_SUFFIX = ".migrating";
+
+    private static final String MIGRATED_SUFFIX = ".migrated";
+
     private static volatile boolean isInit = false;
 
     private static ReentrantLock lock = new ReentrantLock();
 
+    /**
+     * 跨Area批量写入的意图记录序号及中断的写入需串行维护
+     * Sequence of the intent records of multi-area batch writes and the interrupted writes are maintained serially.
+     */
+    private static ReentrantLock multiAreaLock = new ReentrantLock();
+
+    /**
+     * 是否开启组提交，开启后并发的单条put/delete会合并成批量写入
+     * Whether group commit is enabled, concurrent single put/delete calls are merged into batch writes when it is.
+     */
+    private static boolean groupCommit;
+
+    /**
+     * 写入后是否同步刷盘，开启后进程或系统崩溃都不会丢失已返回的写入
+     * Whether writes are synced to disk, when enabled no returned write is lost on a process or system crash.
+     */
+    private static volatile boolean writeSync;
+
+    private static long intentSequence;
+
+    /**
+     * 中途中断、等待写入方修复的跨Area批量写入
+     * Interrupted multi-area batch writes waiting to be repaired by their writers.
+     */
+    private static final LinkedList<BatchJournal.Intent> INTERRUPTED = new LinkedList<>();
+
     private static String dataPath;
 
     public static int getMax() {
@@ -95,8 +149,10 @@ public class LevelDBManager {
                         continue;
                     }
                     try {
-                        dbPath = areaFile.getPath() + File.separator + BASE_DB_NAME;
-                        db = initOpenDB(dbPath);
+                        StorageEngine engine = getEngine(areaFile.getName());
+                        dbPath = areaFile.getPath() + File.separator + engine.getDirName();
+                        migrateArea(areaFile, engine);
+                        db = initOpenDB(dbPath, engine);
                         if (db != null) {
                             AREAS.put(areaFile.getName(), db);
                         }
@@ -105,6 +161,14 @@ public class LevelDBManager {
                     }
 
                 }
+                DB baseDB = AREAS.get(BASE_AREA_NAME);
+                if (baseDB != null) {
+                    INTERRUPTED.addAll(BatchJournal.load(baseDB));
+                    if (!INTERRUPTED.isEmpty()) {
+                        intentSequence = INTERRUPTED.getLast().getSequence();
+                        Log.warn("interrupted multi-area batches found: " + INTERRUPTED.size());
+                    }
+                }
             }
         }
 
@@ -151,6 +215,9 @@ public class LevelDBManager {
             //skip it
             max = 50;
         }
+        groupCommit = Boolean.parseBoolean(properties.getProperty("leveldb.group.commit", "false"));
+        writeSync = Boolean.parseBoolean(properties.getProperty("leveldb.write.sync", "false"));
+        StorageEngines.load(properties);
         File dir = null;
         String pathSeparator = System.getProperty("path.separator");
         String unixPathSeparator = ":";
@@ -222,6 +289,18 @@ public class LevelDBManager {
         return createArea(areaName, null, comparator);
     }
 
+    /**
+     * 创建数据区域并为其挂上读缓存，数据区域已存在时同样挂上缓存并返回DB_AREA_EXIST
+     * Create a data area with a read cache, the cache is attached as well when the area already exists and DB_AREA_EXIST is returned.
+     */
+    public static Result createArea(String areaName, CacheConfig cacheConfig) {
+        Result result = createArea(areaName, null, null);
+        if (cacheConfig != null && AREAS.containsKey(areaName)) {
+            AREAS_CACHE.putIfAbsent(areaName, new AreaCache(cacheConfig));
+        }
+        return result;
+    }
+
     public static Result createArea(String areaName, Long cacheSize, Comparator<byte[]> comparator) {
         lock.lock();
         try {
@@ -244,7 +323,7 @@ public class LevelDBManager {
                 if (!dir.exists()) {
                     dir.mkdir();
                 }
-                String filePath = dataPath + File.separator + areaName + File.separator + BASE_DB_NAME;
+                String filePath = dataPath + File.separator + areaName + File.separator + getEngine(areaName).getDirName();
                 DB db = openDB(filePath, true, cacheSize, comparator);
                 AREAS.put(areaName, db);
                 result = Result.getSuccess();
@@ -262,6 +341,55 @@ public class LevelDBManager {
         return AREAS.get(areaName);
     }
 
+    public static boolean isGroupCommit() {
+        return groupCommit;
+    }
+
+    public static boolean isWriteSync() {
+        return writeSync;
+    }
+
+    public static void setWriteSync(boolean writeSync) {
+        LevelDBManager.writeSync = writeSync;
+    }
+
+    public static WriteOptions getWriteOptions() {
+        return new WriteOptions().sync(writeSync);
+    }
+
+    public static CacheStats getCacheStats(String area) {
+        AreaCache cache = AREAS_CACHE.get(area);
+        return cache == null ? null : cache.getStats();
+    }
+
+    public static boolean isCached(String area) {
+        return AREAS_CACHE.containsKey(area);
+    }
+
+    /**
+     * 写入数据库后使缓存中对应的key失效
+     * Invalidate the cached keys after they have been written to the database.
+     */
+    public static void invalidateCache(String area, Collection<byte[]> keys) {
+        AreaCache cache = AREAS_CACHE.get(area);
+        if (cache != null) {
+            for (byte[] key : keys) {
+                cache.invalidate(key);
+            }
+        }
+    }
+
+    private static void invalidateCache(String area, byte[] key) {
+        AreaCache cache = AREAS_CACHE.get(area);
+        if (cache != null) {
+            cache.invalidate(key);
+        }
+    }
+
+    private static GroupCommitWriter getGroupWriter(String area) {
+        return GROUP_WRITERS.computeIfAbsent(area, k -> new GroupCommitWriter(AREAS.get(k)));
+    }
+
     public static Result destroyArea(String areaName) {
         if (!baseCheckArea(areaName)) {
             return Result.getFailed(DBErrorCode.DB_AREA_NOT_EXIST);
@@ -272,13 +400,16 @@ public class LevelDBManager {
         Result result;
         try {
             DB db = AREAS.remove(areaName);
+            GROUP_WRITERS.remove(areaName);
+            AREAS_CACHE.remove(areaName);
             db.close();
             File dir = new File(dataPath + File.separator + areaName);
             if (!dir.exists()) {
                 return Result.getFailed(DBErrorCode.DB_AREA_NOT_EXIST);
             }
-            String filePath = dataPath + File.separator + areaName + File.separator + BASE_DB_NAME;
-            destroyDB(filePath);
+            StorageEngine engine = getEngine(areaName);
+            String filePath = dataPath + File.separator + areaName + File.separator + engine.getDirName();
+            engine.destroy(new File(filePath));
             AREAS_COMPARATOR.remove(areaName);
             delete(BASE_AREA_NAME, bytes(areaName + "-comparator"));
             delete(BASE_AREA_NAME, bytes(areaName + "-cacheSize"));
@@ -290,11 +421,88 @@ public class LevelDBManager {
         return result;
     }
 
-    private static void destroyDB(String dbPath) throws IOException {
-        File file = new File(dbPath);
-        Options options = new Options();
-        DBFactory factory = Iq80DBFactory.factory;
-        factory.destroy(file, options);
+    /**
+     * 数据区域使用的存储引擎，BASE_AREA固定使用LevelDB
+     * The storage engine of the area, BASE_AREA always uses LevelDB.
+     */
+    private static StorageEngine getEngine(String areaName) {
+        if (BASE_AREA_NAME.equals(areaName)) {
+            return StorageEngines.getDefaultEngine();
+        }
+        return StorageEngines.getEngine(areaName);
+    }
+
+    /**
+     * 数据区域更换了存储引擎时，把旧引擎中的数据复制到新引擎，完成后删除旧数据
+     * 先复制到临时目录，写入记录旧引擎的完成标记后再原子地重命名为目标目录，最后删除旧数据和标记，
+     * 中途中断时，没有标记则丢弃临时目录重新复制，有标记则继续完成重命名和删除
+     * When the storage engine of an area has changed, copy the data of the old engine into the new one and then delete the old data.
+     * The data is copied into a temporary directory, a completion marker naming the old engine is written,
+     * then the directory is atomically renamed to the target and finally the old data and the marker are deleted.
+     * If interrupted, without a marker the temporary directory is discarded and copied again,
+     * with a marker the rename and delete are completed.
+     */
+    private static void migrateArea(File areaFile, StorageEngine engine) throws IOException {
+        File target = new File(areaFile, engine.getDirName());
+        File temp = new File(areaFile, engine.getDirName() + MIGRATING_SUFFIX);
+        File marker = new File(areaFile, engine.getDirName() + MIGRATED_SUFFIX);
+        if (marker.exists()) {
+            finishMigration(areaFile, target, temp, marker);
+            return;
+        }
+        if (engine.exists(target)) {
+            return;
+        }
+        for (StorageEngine oldEngine : StorageEngines.getEngines()) {
+            File source = new File(areaFile, oldEngine.getDirName());
+            if (oldEngine == engine || !oldEngine.exists(source)) {
+                continue;
+            }
+            if (temp.exists()) {
+                engine.destroy(temp);
+            }
+            Log.info("migrate area " + areaFile.getName() + " from " + oldEngine.getName() + " to " + engine.getName());
+            long count = 0;
+            try (DB from = oldEngine.open(source, new Options().createIfMissing(false));
+                 DB to = engine.open(temp, new Options().createIfMissing(true));
+                 DBIterator iterator = from.iterator()) {
+                WriteBatch batch = to.createWriteBatch();
+                for (iterator.seekToFirst(); iterator.hasNext(); ) {
+                    Map.Entry<byte[], byte[]> entry = iterator.next();
+                    batch.put(entry.getKey(), entry.getValue());
+                    if (++count % 10000 == 0) {
+                        to.write(batch);
+                        batch.close();
+                        batch = to.createWriteBatch();
+                    }
+                }
+                to.write(batch, new WriteOptions().sync(true));
+                batch.close();
+            }
+            try (FileOutputStream out = new FileOutputStream(marker)) {
+                out.write(bytes(oldEngine.getName()));
+                out.getFD().sync();
+            }
+            finishMigration(areaFile, target, temp, marker);
+            Log.info("migrate area " + areaFile.getName() + " finished, records: " + count);
+            return;
+        }
+    }
+
+    private static void finishMigration(File areaFile, File target, File temp, File marker) throws IOException {
+        if (temp.exists()) {
+            Files.move(temp.toPath(), target.toPath(), StandardCopyOption.ATOMIC_MOVE);
+        }
+        String oldEngineName = new String(Files.readAllBytes(marker.toPath()), StandardCharsets.UTF_8);
+        for (StorageEngine oldEngine : StorageEngines.getEngines()) {
+            File source = new File(areaFile, oldEngine.getDirName());
+            if (oldEngine.getName().equals(oldEngineName) && source.exists()) {
+                oldEngine.destroy(source);
+            }
+        }
+        if (!marker.delete()) {
+            throw new IOException("delete migration marker failed: " + marker.getPath());
+        }
     }
 
     /**
@@ -307,6 +515,8 @@ public class LevelDBManager {
             try {
                 AREAS.remove(entry.getKey());
                 AREAS_COMPARATOR.remove(entry.getKey());
+                GROUP_WRITERS.remove(entry.getKey());
+                AREAS_CACHE.remove(entry.getKey());
                 entry.getValue().close();
             } catch (Exception e) {
                 Log.warn("close leveldb error", e);
@@ -321,6 +531,8 @@ public class LevelDBManager {
     public static void closeArea(String area) {
         try {
             AREAS_COMPARATOR.remove(area);
+            GROUP_WRITERS.remove(area);
+            AREAS_CACHE.remove(area);
             DB db = AREAS.remove(area);
             db.close();
         } catch (IOException e) {
@@ -334,9 +546,8 @@ public class LevelDBManager {
      * @return
      * @throws IOException
      */
-    private static DB initOpenDB(String dbPath) throws IOException {
-        File checkFile = new File(dbPath + File.separator + "CURRENT");
-        if (!checkFile.exists()) {
+    private static DB initOpenDB(String dbPath, StorageEngine engine) throws IOException {
+        if (!engine.exists(new File(dbPath))) {
             return null;
         }
         Options options = new Options().createIfMissing(false);
@@ -357,8 +568,7 @@ public class LevelDBManager {
             options.cacheSize(cacheSize);
         }
         File file = new File(dbPath);
-        DBFactory factory = Iq80DBFactory.factory;
-        return factory.open(file, options);
+        return engine.open(file, options);
     }
 
     /**
@@ -381,8 +591,7 @@ public class LevelDBManager {
             putModel(BASE_AREA_NAME, bytes(areaName + "-comparator"), comparator);
             AREAS_COMPARATOR.put(areaName, comparator);
         }
-        DBFactory factory = Iq80DBFactory.factory;
-        return factory.open(file, options);
+        return getEngine(areaName).open(file, options);
     }
 
     private static String getAreaNameFromDbPath(String dbPath) {
@@ -429,8 +638,12 @@ public class LevelDBManager {
             return Result.getFailed(KernelErrorCode.NULL_PARAMETER);
         }
         try {
-            DB db = AREAS.get(area);
-            db.put(key, value);
+            if (groupCommit) {
+                getGroupWriter(area).put(key, value);
+            } else {
+                AREAS.get(area).put(key, value, getWriteOptions());
+            }
+            invalidateCache(area, key);
             return Result.getSuccess();
         } catch (Exception e) {
             Log.error(e);
@@ -452,6 +665,7 @@ public class LevelDBManager {
         try {
             DB db = AREAS.get(area);
             db.put(bytes(key), bytes(value));
+            invalidateCache(area, bytes(key));
             return Result.getSuccess();
         } catch (Exception e) {
             Log.error(e);
@@ -473,6 +687,7 @@ public class LevelDBManager {
         try {
             DB db = AREAS.get(area);
             db.put(key, bytes(value));
+            invalidateCache(area, key);
             return Result.getSuccess();
         } catch (Exception e) {
             Log.error(e);
@@ -504,15 +719,130 @@ public class LevelDBManager {
         }
     }
 
+    /**
+     * 执行跨多个Area的写操作，同一Area的操作合并为一次批量写入，commitArea不为null时最后写入
+     * 涉及多个Area时先写入带tag的意图记录，写入中途中断时记录保留，通过{@link #getInterruptedBatchTag()}交给写入方修复
+     * Execute write operations across several areas, operations of the same area are merged into one batch write, commitArea is written last when it is not null.
+     * An intent record carrying the tag is written first when more than one area is involved, it is kept when the write is interrupted
+     * and handed to the writer through {@link #getInterruptedBatchTag()} for repair.
+     */
+    public static Result writeMultiArea(List<BatchJournal.Op> ops, byte[] tag, String commitArea) {
+        if (ops == null || ops.isEmpty()) {
+            return Result.getSuccess();
+        }
+        for (BatchJournal.Op op : ops) {
+            if (!baseCheckArea(op.getArea())) {
+                return Result.getFailed(DBErrorCode.DB_AREA_NOT_EXIST);
+            }
+        }
+        Map<String, List<BatchJournal.Op>> areaOps = BatchJournal.groupByArea(ops, commitArea);
+        WriteOptions options = getWriteOptions();
+        if (areaOps.size() == 1) {
+            try {
+                BatchJournal.apply(areaOps, options);
+                invalidateCache(ops);
+                return Result.getSuccess();
+            } catch (Exception e) {
+                Log.error(e);
+                return Result.getFailed(DBErrorCode.DB_UNKOWN_EXCEPTION);
+            }
+        }
+        DB baseDB = AREAS.get(BASE_AREA_NAME);
+        // 持锁写入，快照不会看到写了一半的批量
+        // Written under the lock so a snapshot never sees a half written batch.
+        multiAreaLock.lock();
+        try {
+            BatchJournal.Intent intent = new BatchJournal.Intent(++intentSequence, tag == null ? new byte[0] : tag, new ArrayList<>(areaOps.keySet()));
+            BatchJournal.write(baseDB, intent, options);
+            try {
+                BatchJournal.apply(areaOps, options);
+            } catch (Exception e) {
+                // 已写入的Area无法撤销，保留意图记录等待写入方修复
+                // Areas already written cannot be undone, keep the intent record for the writer to repair.
+                INTERRUPTED.add(intent);
+                throw e;
+            } finally {
+                invalidateCache(ops);
+            }
+            try {
+                // 数据已经落盘，删除记录不需要同步刷盘，丢失的删除在下次启动时由写入方确认
+                // The data is on disk already, so deleting the record is not synced, a lost delete is confirmed by the writer on the next start.
+                BatchJournal.clear(baseDB, intent.getSequence(), new WriteOptions());
+            } catch (Exception e) {
+                // 数据已全部写入，残留的记录在下次启动时交给写入方确认
+                // All data is written, the leftover record is handed to the writer for confirmation on the next start.
+                Log.warn("clear multi-area batch intent failed", e);
+            }
+            return Result.getSuccess();
+        } catch (Exception e) {
+            Log.error(e);
+            return Result.getFailed(DBErrorCode.DB_UNKOWN_EXCEPTION);
+        } finally {
+            multiAreaLock.unlock();
+        }
+    }
+
+    /**
+     * 最早一个中断的跨Area批量写入的tag，没有时返回null
+     * The tag of the earliest interrupted multi-area batch write, null when there is none.
+     */
+    public static byte[] getInterruptedBatchTag() {
+        multiAreaLock.lock();
+        try {
+            return INTERRUPTED.isEmpty() ? null : INTERRUPTED.getFirst().getTag();
+        } finally {
+            multiAreaLock.unlock();
+        }
+    }
+
+    /**
+     * 写入方修复后清除最早一个中断的跨Area批量写入
+     * Clear the earliest interrupted multi-area batch write after the writer repaired it.
+     */
+    public static Result clearInterruptedBatch() {
+        multiAreaLock.lock();
+        try {
+            if (INTERRUPTED.isEmpty()) {
+                return Result.getSuccess();
+            }
+            BatchJournal.clear(AREAS.get(BASE_AREA_NAME), INTERRUPTED.getFirst().getSequence(), getWriteOptions());
+            INTERRUPTED.removeFirst();
+            return Result.getSuccess();
+        } catch (Exception e) {
+            Log.error(e);
+            return Result.getFailed(DBErrorCode.DB_UNKOWN_EXCEPTION);
+        } finally {
+            multiAreaLock.unlock();
+        }
+    }
+
+    private static void invalidateCache(List<BatchJournal.Op> ops) {
+        for (BatchJournal.Op op : ops) {
+            invalidateCache(op.getArea(), op.getKey());
+        }
+    }
+
+    /**
+     * 类型注册了编解码器时使用{@link ModelCodecs}编码，否则使用protostuff包装为ModelWrapper
+     * Encode with {@link ModelCodecs} when a codec is registered for the type, otherwise wrap it in a ModelWrapper with protostuff.
+     */
     public static <T> byte[] getModelSerialize(T value) {
-        if (SCHEMA_MAP.get(ModelWrapper.class) == null) {
-            RuntimeSchema schema = RuntimeSchema.createFrom(ModelWrapper.class);
-            SCHEMA_MAP.put(ModelWrapper.class, schema);
+        try {
+            byte[] bytes = ModelCodecs.encode(value);
+            if (bytes != null) {
+                return bytes;
+            }
+        } catch (IOException e) {
+            throw new NulsRuntimeException(e);
         }
-        RuntimeSchema schema = SCHEMA_MAP.get(ModelWrapper.class);
+        RuntimeSchema schema = getModelWrapperSchema();
         ModelWrapper modelWrapper = new ModelWrapper(value);
-        byte[] bytes = ProtostuffIOUtil.toByteArray(modelWrapper, schema, LinkedBuffer.allocate(LinkedBuffer.DEFAULT_BUFFER_SIZE));
-        return bytes;
+        LinkedBuffer buffer = PROTOSTUFF_BUFFERS.get();
+        try {
+            return ProtostuffIOUtil.toByteArray(modelWrapper, schema, buffer);
+        } finally {
+            buffer.clear();
+        }
     }
 
     /**
@@ -529,6 +859,7 @@ public class LevelDBManager {
         try {
             DB db = AREAS.get(area);
             db.delete(bytes(key));
+            invalidateCache(area, bytes(key));
             return Result.getSuccess();
         } catch (Exception e) {
             Log.error(e);
@@ -544,8 +875,12 @@ public class LevelDBManager {
             return Result.getFailed(KernelErrorCode.NULL_PARAMETER);
         }
         try {
-            DB db = AREAS.get(area);
-            db.delete(key);
+            if (groupCommit) {
+                getGroupWriter(area).delete(key);
+            } else {
+                AREAS.get(area).delete(key, getWriteOptions());
+            }
+            invalidateCache(area, key);
             return Result.getSuccess();
         } catch (Exception e) {
             Log.error(e);
@@ -581,7 +916,12 @@ public class LevelDBManager {
         }
         try {
             DB db = AREAS.get(area);
-            return db.get(key);
+            AreaCache cache = AREAS_CACHE.get(area);
+            if (cache == null) {
+                return db.get(key);
+            }
+            byte[] bytes = cache.get(key, db::get);
+            return bytes == null ? null : bytes.clone();
         } catch (Exception e) {
             return null;
         }
@@ -616,187 +956,245 @@ public class LevelDBManager {
         }
         try {
             DB db = AREAS.get(area);
-            byte[] bytes = db.get(key);
+            AreaCache cache = AREAS_CACHE.get(area);
+            byte[] bytes = cache == null ? db.get(key) : cache.get(key, db::get);
             if (bytes == null) {
                 return null;
             }
-            RuntimeSchema schema = SCHEMA_MAP.get(ModelWrapper.class);
-            ModelWrapper model = new ModelWrapper();
-            ProtostuffIOUtil.mergeFrom(bytes, model, schema);
-            if (clazz != null && model.getT() != null) {
-                return clazz.cast(model.getT());
-            }
-            return (T) model.getT();
+            return getModelDeserialize(bytes, clazz);
+        } catch (NulsRuntimeException e) {
+            throw e;
         } catch (Exception e) {
             e.printStackTrace();
             return null;
         }
     }
 
-    public static Set<byte[]> keySet(String area) {
+    private static RuntimeSchema getModelWrapperSchema() {
+        return SCHEMA_MAP.computeIfAbsent(ModelWrapper.class, RuntimeSchema::createFrom);
+    }
+
+    /**
+     * 编解码器格式的数据无法解码（类型未注册或数据损坏）时抛出NulsRuntimeException，读取方法不会把它当作数据不存在返回null
+     * Data in the codec format that cannot be decoded (type not registered or corrupted) throws NulsRuntimeException,
+     * the read methods do not turn it into a null "not found".
+     */
+    public static <T> T getModelDeserialize(byte[] bytes, Class<T> clazz) {
+        if (ModelCodecs.isEncoded(bytes)) {
+            Object value;
+            try {
+                value = ModelCodecs.decode(bytes);
+            } catch (NulsException e) {
+                throw new NulsRuntimeException(DBErrorCode.DB_DATA_ERROR, e);
+            }
+            if (clazz != null && value != null) {
+                return clazz.cast(value);
+            }
+            return (T) value;
+        }
+        RuntimeSchema schema = getModelWrapperSchema();
+        ModelWrapper model = new ModelWrapper();
+        ProtostuffIOUtil.mergeFrom(bytes, model, schema);
+        if (clazz != null && model.getT() != null) {
+            return clazz.cast(model.getT());
+        }
+        return (T) model.getT();
+    }
+
+    public static EntryIterator<byte[]> iterator(String area, ScanRange range) {
+        return iterator(area, range, (DBSnapshot) null);
+    }
+
+    public static <T> EntryIterator<T> iterator(String area, ScanRange range, Class<T> clazz) {
+        return iterator(area, range, clazz, null);
+    }
+
+    public static EntryIterator<byte[]> iterator(String area, ScanRange range, DBSnapshot snapshot) {
         if (!baseCheckArea(area)) {
             return null;
         }
-        DBIterator iterator = null;
-        Set<byte[]> keySet = null;
+        return new LevelDBEntryIterator<>(AREAS.get(area), range, Function.identity(), AREAS_COMPARATOR.get(area), getSnapshot(snapshot, area));
+    }
+
+    public static <T> EntryIterator<T> iterator(String area, ScanRange range, Class<T> clazz, DBSnapshot snapshot) {
+        if (!baseCheckArea(area)) {
+            return null;
+        }
+        return new LevelDBEntryIterator<>(AREAS.get(area), range, bytes -> {
+            try {
+                return getModelDeserialize(bytes, clazz);
+            } catch (NulsRuntimeException e) {
+                throw e;
+            } catch (Exception e) {
+                Log.error(e);
+                return null;
+            }
+        }, AREAS_COMPARATOR.get(area), getSnapshot(snapshot, area));
+    }
+
+    /**
+     * 在跨区域写锁内为指定的数据区域创建快照，不指定时包含所有数据区域
+     * 多区域批量写入不会只有一部分出现在快照中
+     * Take snapshots of the given areas under the multi-area write lock, all areas are covered when none is given.
+     * A multi-area batch is never partly visible in the snapshot.
+     *
+     * @return 有数据区域不存在时返回null/null if one of the areas does not exist
+     */
+    public static DBSnapshot createSnapshot(String... areas) {
+        Collection<String> names = areas == null || areas.length == 0 ? AREAS.keySet() : Arrays.asList(areas);
+        Map<String, Snapshot> snapshots = new HashMap<>();
+        multiAreaLock.lock();
         try {
-            DB db = AREAS.get(area);
-            keySet = new HashSet<>();
-            iterator = db.iterator();
-            for (iterator.seekToFirst(); iterator.hasNext(); iterator.next()) {
-                keySet.add(iterator.peekNext().getKey());
+            for (String area : names) {
+                DB db = AREAS.get(area);
+                if (db == null) {
+                    new LevelDBSnapshot(snapshots).close();
+                    return null;
+                }
+                snapshots.put(area, db.getSnapshot());
             }
-            return keySet;
+        } finally {
+            multiAreaLock.unlock();
+        }
+        return new LevelDBSnapshot(snapshots);
+    }
+
+    /**
+     * 数据区域在快照中的LevelDB快照，未传入快照或数据区域不在快照中时返回null，即读取最新数据
+     * The LevelDB snapshot of the area, null when no snapshot is given or the area is not covered, that is reading the latest data.
+     */
+    private static Snapshot getSnapshot(DBSnapshot snapshot, String area) {
+        if (snapshot == null) {
+            return null;
+        }
+        return ((LevelDBSnapshot) snapshot).getSnapshot(area);
+    }
+
+    public static byte[] get(String area, byte[] key, DBSnapshot snapshot) {
+        Snapshot areaSnapshot = getSnapshot(snapshot, area);
+        if (areaSnapshot == null) {
+            return get(area, key);
+        }
+        if (!baseCheckArea(area) || key == null) {
+            return null;
+        }
+        try {
+            return AREAS.get(area).get(key, new ReadOptions().snapshot(areaSnapshot));
         } catch (Exception e) {
-            Log.error(e);
             return null;
-        } finally {
-            // Make sure you close the iterator to avoid resource leaks.
-            if (iterator != null) {
-                try {
-                    iterator.close();
-                } catch (IOException e) {
-                    //skip it
-                }
-            }
         }
     }
 
-    public static List<byte[]> keyList(String area) {
-        if (!baseCheckArea(area)) {
+    public static <T> T getModel(String area, byte[] key, Class<T> clazz, DBSnapshot snapshot) {
+        Snapshot areaSnapshot = getSnapshot(snapshot, area);
+        if (areaSnapshot == null) {
+            return getModel(area, key, clazz);
+        }
+        byte[] bytes = get(area, key, snapshot);
+        if (bytes == null) {
             return null;
         }
-        DBIterator iterator = null;
-        List<byte[]> keyList = null;
         try {
-            DB db = AREAS.get(area);
-            keyList = new ArrayList<>();
-            iterator = db.iterator();
-            String key;
-            for (iterator.seekToFirst(); iterator.hasNext(); iterator.next()) {
-                keyList.add(iterator.peekNext().getKey());
-            }
-            Comparator<byte[]> comparator = AREAS_COMPARATOR.get(area);
-            if (comparator != null) {
-                keyList.sort(comparator);
-            }
-            return keyList;
+            return getModelDeserialize(bytes, clazz);
+        } catch (NulsRuntimeException e) {
+            throw e;
         } catch (Exception e) {
             Log.error(e);
             return null;
-        } finally {
-            // Make sure you close the iterator to avoid resource leaks.
-            if (iterator != null) {
-                try {
-                    iterator.close();
-                } catch (IOException e) {
-                    //skip it
-                }
+        }
+    }
+
+    /**
+     * 遍历整个数据区域，把每条记录交给collector，遍历出错时返回false
+     * Scan the whole data area and hand every record to the collector, returns false if the scan fails.
+     */
+    private static <T> boolean scan(EntryIterator<T> iterator, Consumer<Entry<byte[], T>> collector) {
+        try {
+            while (iterator.hasNext()) {
+                collector.accept(iterator.next());
             }
+            return true;
+        } catch (NulsRuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            Log.error(e);
+            return false;
+        } finally {
+            iterator.close();
         }
     }
 
-    public static Set<Entry<byte[], byte[]>> entrySet(String area) {
+    public static Set<byte[]> keySet(String area) {
         if (!baseCheckArea(area)) {
             return null;
         }
-        DBIterator iterator = null;
-        Set<Entry<byte[], byte[]>> entrySet = null;
         try {
-            DB db = AREAS.get(area);
-            entrySet = new HashSet<>();
-            iterator = db.iterator();
-            byte[] key, bytes;
-            Map.Entry<byte[], byte[]> entry;
-            for (iterator.seekToFirst(); iterator.hasNext(); iterator.next()) {
-                entry = iterator.peekNext();
-                key = entry.getKey();
-                bytes = entry.getValue();
-                entrySet.add(new Entry<byte[], byte[]>(key, bytes));
+            Set<byte[]> keySet = new HashSet<>();
+            if (!scan(iterator(area, ScanRange.all()), entry -> keySet.add(entry.getKey()))) {
+                return null;
             }
+            return keySet;
         } catch (Exception e) {
             Log.error(e);
             return null;
-        } finally {
-            // Make sure you close the iterator to avoid resource leaks.
-            if (iterator != null) {
-                try {
-                    iterator.close();
-                } catch (IOException e) {
-                    //skip it
-                }
-            }
         }
-        return entrySet;
     }
 
-    public static List<Entry<byte[], byte[]>> entryList(String area) {
+    public static List<byte[]> keyList(String area) {
         if (!baseCheckArea(area)) {
             return null;
         }
-        DBIterator iterator = null;
-        List<Entry<byte[], byte[]>> entryList = null;
         try {
-            DB db = AREAS.get(area);
-            entryList = new ArrayList<>();
-            iterator = db.iterator();
-            byte[] key, bytes;
-            Map.Entry<byte[], byte[]> entry;
-            Comparator<byte[]> comparator = AREAS_COMPARATOR.get(area);
-            for (iterator.seekToFirst(); iterator.hasNext(); iterator.next()) {
-                entry = iterator.peekNext();
-                key = entry.getKey();
-                bytes = entry.getValue();
-                entryList.add(new Entry<byte[], byte[]>(key, bytes, comparator));
+            List<byte[]> keyList = new ArrayList<>();
+            if (!scan(iterator(area, ScanRange.all()), entry -> keyList.add(entry.getKey()))) {
+                return null;
             }
-            // 如果自定义了比较器，则执行排序
+            Comparator<byte[]> comparator = AREAS_COMPARATOR.get(area);
             if (comparator != null) {
-                entryList.sort(new Comparator<Entry<byte[], byte[]>>() {
-                    @Override
-                    public int compare(Entry<byte[], byte[]> o1, Entry<byte[], byte[]> o2) {
-                        return o1.compareTo(o2.getKey());
-                    }
-                });
+                keyList.sort(comparator);
             }
+            return keyList;
         } catch (Exception e) {
             Log.error(e);
             return null;
-        } finally {
-            // Make sure you close the iterator to avoid resource leaks.
-            if (iterator != null) {
-                try {
-                    iterator.close();
-                } catch (IOException e) {
-                    //skip it
-                }
+        }
+    }
+
+    public static Set<Entry<byte[], byte[]>> entrySet(String area) {
+        if (!baseCheckArea(area)) {
+            return null;
+        }
+        try {
+            Set<Entry<byte[], byte[]>> entrySet = new HashSet<>();
+            if (!scan(iterator(area, ScanRange.all()), entry -> entrySet.add(entry))) {
+                return null;
             }
+            return entrySet;
+        } catch (Exception e) {
+            Log.error(e);
+            return null;
         }
-        return entryList;
+    }
+
+    public static List<Entry<byte[], byte[]>> entryList(String area) {
+        return entryList(area, iterator(area, ScanRange.all()));
     }
 
     public static <T> List<Entry<byte[], T>> entryList(String area, Class<T> clazz) {
-        if (!baseCheckArea(area)) {
+        return entryList(area, iterator(area, ScanRange.all(), clazz));
+    }
+
+    private static <T> List<Entry<byte[], T>> entryList(String area, EntryIterator<T> iterator) {
+        if (iterator == null) {
             return null;
         }
-        DBIterator iterator = null;
-        List<Entry<byte[], T>> entryList = null;
         try {
-            DB db = AREAS.get(area);
-            entryList = new ArrayList<>();
-            iterator = db.iterator();
-            byte[] key, bytes;
-            Map.Entry<byte[], byte[]> entry;
-            Comparator<byte[]> comparator = AREAS_COMPARATOR.get(area);
-            T t = null;
-            for (iterator.seekToFirst(); iterator.hasNext(); iterator.next()) {
-                t = null;
-                entry = iterator.peekNext();
-                key = entry.getKey();
-                t = getModel(area, entry.getKey(), clazz);
-                entryList.add(new Entry<byte[], T>(key, t, comparator));
+            List<Entry<byte[], T>> entryList = new ArrayList<>();
+            if (!scan(iterator, entry -> entryList.add(entry))) {
+                return null;
             }
             // 如果自定义了比较器，则执行排序
-            if (comparator != null) {
+            if (AREAS_COMPARATOR.get(area) != null) {
                 entryList.sort(new Comparator<Entry<byte[], T>>() {
                     @Override
                     public int compare(Entry<byte[], T> o1, Entry<byte[], T> o2) {
@@ -804,20 +1202,13 @@ public class LevelDBManager {
                     }
                 });
             }
+            return entryList;
+        } catch (NulsRuntimeException e) {
+            throw e;
         } catch (Exception e) {
             Log.error(e);
             return null;
-        } finally {
-            // Make sure you close the iterator to avoid resource leaks.
-            if (iterator != null) {
-                try {
-                    iterator.close();
-                } catch (IOException e) {
-                    //skip it
-                }
-            }
         }
-        return entryList;
     }
 
     public static <T> List<T> values(String area, Class<T> clazz) {
@@ -836,6 +1227,8 @@ public class LevelDBManager {
                 }
                 return resultList;
             }
+        } catch (NulsRuntimeException e) {
+            throw e;
         } catch (Exception e) {
             Log.error(e);
             return null;
@@ -846,64 +1239,34 @@ public class LevelDBManager {
         if (!baseCheckArea(area)) {
             return null;
         }
-        DBIterator iterator = null;
-        List<T> list = null;
         try {
-            DB db = AREAS.get(area);
-            list = new ArrayList<>();
-            iterator = db.iterator();
-            byte[] key, bytes;
-            Map.Entry<byte[], byte[]> entry;
-            T t = null;
-            for (iterator.seekToFirst(); iterator.hasNext(); iterator.next()) {
-                t = null;
-                entry = iterator.peekNext();
-                t = getModel(area, entry.getKey(), clazz);
-                list.add(t);
+            List<T> list = new ArrayList<>();
+            if (!scan(iterator(area, ScanRange.all(), clazz), entry -> list.add(entry.getValue()))) {
+                return null;
             }
+            return list;
+        } catch (NulsRuntimeException e) {
+            throw e;
         } catch (Exception e) {
             Log.error(e);
             return null;
-        } finally {
-            // Make sure you close the iterator to avoid resource leaks.
-            if (iterator != null) {
-                try {
-                    iterator.close();
-                } catch (IOException e) {
-                    //skip it
-                }
-            }
         }
-        return list;
     }
 
     public static List<byte[]> valueListInner(String area) {
         if (!baseCheckArea(area)) {
             return null;
         }
-        DBIterator iterator = null;
-        List<byte[]> list = null;
         try {
-            DB db = AREAS.get(area);
-            list = new ArrayList<>();
-            iterator = db.iterator();
-            for (iterator.seekToFirst(); iterator.hasNext(); iterator.next()) {
-                list.add(iterator.peekNext().getValue());
+            List<byte[]> list = new ArrayList<>();
+            if (!scan(iterator(area, ScanRange.all()), entry -> list.add(entry.getValue()))) {
+                return null;
             }
+            return list;
         } catch (Exception e) {
             Log.error(e);
             return null;
-        } finally {
-            // Make sure you close the iterator to avoid resource leaks.
-            if (iterator != null) {
-                try {
-                    iterator.close();
-                } catch (IOException e) {
-                    //skip it
-                }
-            }
         }
-        return list;
     }
 
     public static List<byte[]> valueList(String area) {
@@ -0,0 +1,74 @@
+/**
+ * MIT License
+ * Copyright (c) 2017-2018 nuls.io
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.nuls.db.manager;
+
+import io.nuls.core.tools.log.Log;
+import io.nuls.db.service.DBSnapshot;
+import org.iq80.leveldb.Snapshot;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 持有每个数据区域的LevelDB快照，这些快照在跨区域写锁内一起创建，因此互相一致
+ * Holds a LevelDB snapshot of every covered area, they are taken together under the multi-area write lock and are therefore consistent with each other.
+ */
+public class LevelDBSnapshot implements DBSnapshot {
+
+    private final Map<String, Snapshot> snapshots;
+    private volatile boolean closed = false;
+
+    LevelDBSnapshot(Map<String, Snapshot> snapshots) {
+        this.snapshots = snapshots;
+    }
+
+    /**
+     * 获取数据区域的快照，数据区域不在快照中时返回null
+     * Get the snapshot of the area, null if the area is not covered.
+     */
+    Snapshot getSnapshot(String area) {
+        if (closed) {
+            throw new IllegalStateException("snapshot closed");
+        }
+        return snapshots.get(area);
+    }
+
+    @Override
+    public Set<String> getAreas() {
+        return Collections.unmodifiableSet(snapshots.keySet());
+    }
+
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        for (Map.Entry<String, Snapshot> entry : snapshots.entrySet()) {
+            try {
+                entry.getValue().close();
+            } catch (IOException e) {
+                Log.warn("close leveldb snapshot error: " + entry.getKey(), e);
+            }
+        }
+    }
+}
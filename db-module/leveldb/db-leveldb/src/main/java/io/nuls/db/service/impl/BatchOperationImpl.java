@@ -28,6 +28,8 @@ import org.iq80.leveldb.DB;
 import org.iq80.leveldb.WriteBatch;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 
 public class BatchOperationImpl implements BatchOperation {
 
@@ -37,6 +39,11 @@ public class BatchOperationImpl implements BatchOperation {
     private String area;
     private DB db;
     private WriteBatch batch;
+    /**
+     * 数据区域有读缓存时记录写入的key，提交后使其失效
+     * Written keys are recorded when the area has a read cache, they are invalidated after the batch is written.
+     */
+    private List<byte[]> keys;
     private volatile boolean isClose = false;
 
     BatchOperationImpl(String area) {
@@ -45,6 +52,9 @@ public class BatchOperationImpl implements BatchOperation {
         if(db != null) {
             batch = db.createWriteBatch();
         }
+        if(LevelDBManager.isCached(area)) {
+            keys = new ArrayList<>();
+        }
     }
 
     public Result checkBatch() {
@@ -63,6 +73,9 @@ public class BatchOperationImpl implements BatchOperation {
             return FAILED_NULL;
         }
         batch.put(key, value);
+        if(keys != null) {
+            keys.add(key);
+        }
         return SUCCESS;
     }
 
@@ -81,6 +94,9 @@ public class BatchOperationImpl implements BatchOperation {
             return FAILED_NULL;
         }
         batch.delete(key);
+        if(keys != null) {
+            keys.add(key);
+        }
         return SUCCESS;
     }
 
@@ -99,7 +115,10 @@ public class BatchOperationImpl implements BatchOperation {
             return FAILED_BATCH_CLOSE;
         }
         try {
-            db.write(batch);
+            db.write(batch, LevelDBManager.getWriteOptions());
+            if(keys != null) {
+                LevelDBManager.invalidateCache(area, keys);
+            }
         } catch (Exception e) {
             Log.error(e);
             return Result.getFailed(DBErrorCode.DB_UNKOWN_EXCEPTION);
@@ -22,9 +22,15 @@ package io.nuls.db.service.impl;
 import io.nuls.core.tools.log.Log;
 import io.nuls.core.tools.str.StringUtils;
 import io.nuls.db.manager.LevelDBManager;
+import io.nuls.db.model.CacheConfig;
+import io.nuls.db.model.CacheStats;
 import io.nuls.db.model.Entry;
+import io.nuls.db.model.ScanRange;
 import io.nuls.db.service.BatchOperation;
 import io.nuls.db.service.DBService;
+import io.nuls.db.service.DBSnapshot;
+import io.nuls.db.service.EntryIterator;
+import io.nuls.db.service.MultiAreaBatchOperation;
 import io.nuls.kernel.lite.annotation.Service;
 import io.nuls.kernel.model.Result;
 
@@ -35,6 +41,8 @@ import java.util.Set;
 @Service
 public class LevelDBServiceImpl implements DBService {
 
+    private static final ThreadLocal<MultiAreaBatchOperation> BOUND_BATCH = new ThreadLocal<>();
+
     public LevelDBServiceImpl() {
         try {
             LevelDBManager.init();
@@ -63,6 +71,16 @@ public class LevelDBServiceImpl implements DBService {
         return LevelDBManager.createArea(areaName, cacheSize, comparator);
     }
 
+    @Override
+    public Result createArea(String areaName, CacheConfig cacheConfig) {
+        return LevelDBManager.createArea(areaName, cacheConfig);
+    }
+
+    @Override
+    public CacheStats getCacheStats(String area) {
+        return LevelDBManager.getCacheStats(area);
+    }
+
     @Override
     public String[] listArea() {
         return LevelDBManager.listArea();
@@ -133,6 +151,41 @@ public class LevelDBServiceImpl implements DBService {
         return LevelDBManager.values(area, clazz);
     }
 
+    @Override
+    public EntryIterator<byte[]> iterator(String area, ScanRange range) {
+        return LevelDBManager.iterator(area, range);
+    }
+
+    @Override
+    public <T> EntryIterator<T> iterator(String area, ScanRange range, Class<T> clazz) {
+        return LevelDBManager.iterator(area, range, clazz);
+    }
+
+    @Override
+    public DBSnapshot createSnapshot(String... areas) {
+        return LevelDBManager.createSnapshot(areas);
+    }
+
+    @Override
+    public byte[] get(String area, byte[] key, DBSnapshot snapshot) {
+        return LevelDBManager.get(area, key, snapshot);
+    }
+
+    @Override
+    public <T> T getModel(String area, byte[] key, Class<T> clazz, DBSnapshot snapshot) {
+        return LevelDBManager.getModel(area, key, clazz, snapshot);
+    }
+
+    @Override
+    public EntryIterator<byte[]> iterator(String area, ScanRange range, DBSnapshot snapshot) {
+        return LevelDBManager.iterator(area, range, snapshot);
+    }
+
+    @Override
+    public <T> EntryIterator<T> iterator(String area, ScanRange range, Class<T> clazz, DBSnapshot snapshot) {
+        return LevelDBManager.iterator(area, range, clazz, snapshot);
+    }
+
     @Override
     public BatchOperation createWriteBatch(String area) {
         if(StringUtils.isBlank(area)) {
@@ -147,6 +200,36 @@ public class LevelDBServiceImpl implements DBService {
         return batchOperation;
     }
 
+    @Override
+    public MultiAreaBatchOperation createMultiAreaWriteBatch() {
+        return new MultiAreaBatchOperationImpl();
+    }
+
+    @Override
+    public void bindBatch(MultiAreaBatchOperation batch) {
+        BOUND_BATCH.set(batch);
+    }
+
+    @Override
+    public MultiAreaBatchOperation getBoundBatch() {
+        return BOUND_BATCH.get();
+    }
+
+    @Override
+    public void unbindBatch() {
+        BOUND_BATCH.remove();
+    }
+
+    @Override
+    public byte[] getInterruptedBatchTag() {
+        return LevelDBManager.getInterruptedBatchTag();
+    }
+
+    @Override
+    public Result clearInterruptedBatch() {
+        return LevelDBManager.clearInterruptedBatch();
+    }
+
     @Override
     public Result destroyArea(String area) {
         return LevelDBManager.destroyArea(area);
@@ -0,0 +1,127 @@
+/**
+ * MIT License
+ * Copyright (c) 2017-2018 nuls.io
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.nuls.db.service.impl;
+
+import io.nuls.core.tools.str.StringUtils;
+import io.nuls.db.constant.DBErrorCode;
+import io.nuls.db.manager.BatchJournal;
+import io.nuls.db.manager.LevelDBManager;
+import io.nuls.db.model.ScanRange;
+import io.nuls.db.service.MultiAreaBatchOperation;
+import io.nuls.kernel.model.Result;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+public class MultiAreaBatchOperationImpl implements MultiAreaBatchOperation {
+
+    private static final Result FAILED_NULL = Result.getFailed(DBErrorCode.NULL_PARAMETER);
+    private static final Result SUCCESS = Result.getSuccess();
+    private static final Result FAILED_BATCH_CLOSE = Result.getFailed(DBErrorCode.DB_BATCH_CLOSE);
+    private final List<BatchJournal.Op> ops = new ArrayList<>();
+    /**
+     * 每个数据区域中每个key的最新操作，用于查询批量中尚未写入的值
+     * The latest operation of every key in every data area, used to query values in the batch that are not written yet.
+     */
+    private final Map<String, TreeMap<byte[], BatchJournal.Op>> latestOps = new HashMap<>();
+    private byte[] tag;
+    private String commitArea;
+    private volatile boolean isClose = false;
+
+    MultiAreaBatchOperationImpl() {
+    }
+
+    @Override
+    public Result put(String area, byte[] key, byte[] value) {
+        if (StringUtils.isBlank(area) || key == null || value == null) {
+            return FAILED_NULL;
+        }
+        addOp(new BatchJournal.Op(area, key, value));
+        return SUCCESS;
+    }
+
+    @Override
+    public <T> Result putModel(String area, byte[] key, T value) {
+        if (key == null || value == null) {
+            return FAILED_NULL;
+        }
+        byte[] bytes = LevelDBManager.getModelSerialize(value);
+        return put(area, key, bytes);
+    }
+
+    @Override
+    public Result delete(String area, byte[] key) {
+        if (StringUtils.isBlank(area) || key == null) {
+            return FAILED_NULL;
+        }
+        addOp(new BatchJournal.Op(area, key, null));
+        return SUCCESS;
+    }
+
+    private void addOp(BatchJournal.Op op) {
+        ops.add(op);
+        latestOps.computeIfAbsent(op.getArea(), k -> new TreeMap<>(ScanRange::compare)).put(op.getKey(), op);
+    }
+
+    @Override
+    public byte[] get(String area, byte[] key) {
+        if (StringUtils.isBlank(area) || key == null) {
+            return null;
+        }
+        TreeMap<byte[], BatchJournal.Op> areaOps = latestOps.get(area);
+        BatchJournal.Op op = areaOps == null ? null : areaOps.get(key);
+        if (op != null) {
+            return op.getValue();
+        }
+        return LevelDBManager.get(area, key);
+    }
+
+    @Override
+    public <T> T getModel(String area, byte[] key, Class<T> clazz) {
+        byte[] bytes = get(area, key);
+        if (bytes == null) {
+            return null;
+        }
+        return LevelDBManager.getModelDeserialize(bytes, clazz);
+    }
+
+    @Override
+    public void setTag(byte[] tag) {
+        this.tag = tag;
+    }
+
+    @Override
+    public void setCommitArea(String area) {
+        this.commitArea = area;
+    }
+
+    @Override
+    public Result executeBatch() {
+        // 检查逻辑关闭
+        if (isClose) {
+            return FAILED_BATCH_CLOSE;
+        }
+        this.isClose = true;
+        return LevelDBManager.writeMultiArea(ops, tag, commitArea);
+    }
+}
@@ -0,0 +1,123 @@
+/**
+ * MIT License
+ * Copyright (c) 2017-2018 nuls.io
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.nuls.db.codec;
+
+import io.nuls.db.constant.DBErrorCode;
+import io.nuls.db.entity.TestTransaction;
+import io.nuls.db.manager.LevelDBManager;
+import io.nuls.db.model.ModelWrapper;
+import io.nuls.kernel.exception.NulsRuntimeException;
+import io.nuls.kernel.model.Coin;
+import io.nuls.kernel.model.Na;
+import io.nuls.kernel.model.Transaction;
+import io.nuls.kernel.utils.TransactionManager;
+import io.protostuff.LinkedBuffer;
+import io.protostuff.ProtostuffIOUtil;
+import io.protostuff.runtime.RuntimeSchema;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.*;
+
+public class ModelCodecsTest {
+
+    @BeforeClass
+    public static void init() {
+        TransactionManager.putTx(TestTransaction.class, null);
+        ModelCodecs.register(TestTransaction.class, new TransactionCodec());
+        ModelCodecs.register(Coin.class, new NulsDataCodec<>(Coin::new));
+    }
+
+    private static TestTransaction newTransaction() {
+        TestTransaction tx = new TestTransaction();
+        tx.setTime(1530000000000L);
+        tx.setRemark("codec".getBytes(StandardCharsets.UTF_8));
+        tx.setBlockHeight(12345L);
+        return tx;
+    }
+
+    @Test
+    public void testTransactionCodec() throws Exception {
+        TestTransaction tx = newTransaction();
+        byte[] bytes = LevelDBManager.getModelSerialize(tx);
+        assertTrue(ModelCodecs.isEncoded(bytes));
+
+        Transaction decoded = LevelDBManager.getModelDeserialize(bytes, Transaction.class);
+        assertTrue(decoded instanceof TestTransaction);
+        assertEquals(12345L, decoded.getBlockHeight());
+        assertEquals(tx.getTime(), decoded.getTime());
+        assertArrayEquals(tx.serialize(), decoded.serialize());
+    }
+
+    @Test
+    public void testNulsDataCodec() throws Exception {
+        Coin coin = new Coin(new byte[23], Na.valueOf(100L), 10L);
+        byte[] bytes = LevelDBManager.getModelSerialize(coin);
+        assertTrue(ModelCodecs.isEncoded(bytes));
+        Coin decoded = LevelDBManager.getModelDeserialize(bytes, Coin.class);
+        assertArrayEquals(coin.serialize(), decoded.serialize());
+    }
+
+    public static class StatefulTransaction extends TestTransaction {
+        private String state;
+    }
+
+    @Test
+    public void testTransactionCodecSupports() {
+        TransactionCodec codec = new TransactionCodec();
+        assertTrue(codec.supports(TestTransaction.class));
+        assertFalse(codec.supports(StatefulTransaction.class));
+    }
+
+    @Test
+    public void testUnregisteredType() throws Exception {
+        Coin coin = new Coin(new byte[23], Na.valueOf(100L), 10L);
+        byte[] bytes = LevelDBManager.getModelSerialize(coin);
+        // 改写类型ID，模拟读取未注册类型的数据
+        // Rewrite the type id to read data of a type that is not registered.
+        bytes[1] ^= 0x5A;
+        try {
+            LevelDBManager.getModelDeserialize(bytes, Coin.class);
+            fail("decoding an unregistered type must fail");
+        } catch (NulsRuntimeException e) {
+            assertEquals(DBErrorCode.DB_DATA_ERROR, e.getErrorCode());
+        }
+    }
+
+    @Test
+    public void testLegacyFormat() throws Exception {
+        // 注册编解码器之前写入的数据仍按protostuff读取
+        // Data written before a codec was registered is still read through protostuff.
+        TestTransaction tx = newTransaction();
+        RuntimeSchema<ModelWrapper> schema = RuntimeSchema.createFrom(ModelWrapper.class);
+        byte[] legacy = ProtostuffIOUtil.toByteArray(new ModelWrapper(tx), schema, LinkedBuffer.allocate(LinkedBuffer.DEFAULT_BUFFER_SIZE));
+        assertFalse(ModelCodecs.isEncoded(legacy));
+        Transaction decoded = LevelDBManager.getModelDeserialize(legacy, Transaction.class);
+        assertEquals(12345L, decoded.getBlockHeight());
+        assertArrayEquals(tx.serialize(), decoded.serialize());
+
+        byte[] bytes = LevelDBManager.getModelSerialize("legacy");
+        assertFalse(ModelCodecs.isEncoded(bytes));
+        assertTrue(bytes[0] >= 0x08);
+        assertEquals("legacy", LevelDBManager.getModelDeserialize(bytes, String.class));
+    }
+}
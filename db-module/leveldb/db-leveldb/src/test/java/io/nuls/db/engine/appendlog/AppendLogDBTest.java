@@ -0,0 +1,282 @@
+/**
+ * MIT License
+ * Copyright (c) 2017-2018 nuls.io
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.nuls.db.engine.appendlog;
+
+import org.iq80.leveldb.DB;
+import org.iq80.leveldb.DBIterator;
+import org.iq80.leveldb.ReadOptions;
+import org.iq80.leveldb.Snapshot;
+import org.iq80.leveldb.WriteBatch;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class AppendLogDBTest {
+
+    private static final int SEGMENT_SIZE = 4096;
+
+    private File dir;
+
+    @Before
+    public void before() throws IOException {
+        dir = new File("./data/appendlog-test");
+        new AppendLogEngine().destroy(dir);
+        dir.mkdirs();
+    }
+
+    @After
+    public void after() throws IOException {
+        new AppendLogEngine().destroy(dir);
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String string(byte[] value) {
+        return value == null ? null : new String(value, StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void testPutGetDelete() throws IOException {
+        try (DB db = new AppendLogDB(dir, SEGMENT_SIZE)) {
+            db.put(bytes("k1"), bytes("v1"));
+            db.put(bytes("k2"), bytes("v2"));
+            db.put(bytes("k1"), bytes("v1-new"));
+            db.delete(bytes("k2"));
+            assertEquals("v1-new", string(db.get(bytes("k1"))));
+            assertNull(db.get(bytes("k2")));
+
+            WriteBatch batch = db.createWriteBatch();
+            batch.put(bytes("k3"), bytes("v3"));
+            batch.delete(bytes("k1"));
+            db.write(batch);
+            assertNull(db.get(bytes("k1")));
+            assertEquals("v3", string(db.get(bytes("k3"))));
+        }
+    }
+
+    @Test
+    public void testIterator() throws IOException {
+        try (DB db = new AppendLogDB(dir, SEGMENT_SIZE)) {
+            for (int i = 9; i >= 0; i--) {
+                db.put(bytes("key-" + i), bytes("value-" + i));
+            }
+            List<String> keys = new ArrayList<>();
+            try (DBIterator iterator = db.iterator()) {
+                for (iterator.seek(bytes("key-5")); iterator.hasNext(); ) {
+                    Map.Entry<byte[], byte[]> entry = iterator.next();
+                    keys.add(string(entry.getKey()));
+                    assertEquals("value" + string(entry.getKey()).substring(3), string(entry.getValue()));
+                }
+            }
+            assertEquals(5, keys.size());
+            assertEquals("key-5", keys.get(0));
+            assertEquals("key-9", keys.get(4));
+        }
+    }
+
+    @Test
+    public void testRecoverAndRollSegment() throws IOException {
+        byte[] value = new byte[500];
+        try (DB db = new AppendLogDB(dir, SEGMENT_SIZE)) {
+            for (int i = 0; i < 40; i++) {
+                value[0] = (byte) i;
+                db.put(bytes("block-" + i), value);
+            }
+            db.delete(bytes("block-0"));
+        }
+        assertTrue(new File(dir, "segment-00000002.log").exists());
+
+        try (DB db = new AppendLogDB(dir, SEGMENT_SIZE)) {
+            assertNull(db.get(bytes("block-0")));
+            for (int i = 1; i < 40; i++) {
+                byte[] stored = db.get(bytes("block-" + i));
+                assertEquals(500, stored.length);
+                assertEquals((byte) i, stored[0]);
+            }
+            db.put(bytes("block-40"), value);
+            assertNotNull(db.get(bytes("block-40")));
+        }
+    }
+
+    @Test
+    public void testRecoverWithoutCheckpoint() throws IOException {
+        try (DB db = new AppendLogDB(dir, SEGMENT_SIZE)) {
+            for (int i = 0; i < 20; i++) {
+                db.put(bytes("key-" + i), bytes("value-" + i));
+            }
+            db.put(bytes("key-3"), bytes("value-3-new"));
+            db.delete(bytes("key-4"));
+        }
+        // 模拟异常退出，没有检查点时扫描段文件重建索引
+        assertTrue(new File(dir, "index.checkpoint").delete());
+        try (DB db = new AppendLogDB(dir, SEGMENT_SIZE)) {
+            assertEquals("value-3-new", string(db.get(bytes("key-3"))));
+            assertNull(db.get(bytes("key-4")));
+            assertEquals("value-19", string(db.get(bytes("key-19"))));
+        }
+        assertTrue(new File(dir, "index.checkpoint").exists());
+        try (DB db = new AppendLogDB(dir, SEGMENT_SIZE)) {
+            assertFalse(new File(dir, "index.checkpoint").exists());
+            assertEquals("value-3-new", string(db.get(bytes("key-3"))));
+            assertNull(db.get(bytes("key-4")));
+        }
+    }
+
+    @Test
+    public void testSnapshot() throws IOException {
+        try (DB db = new AppendLogDB(dir, SEGMENT_SIZE)) {
+            db.put(bytes("k1"), bytes("v1"));
+            db.put(bytes("k2"), bytes("v2"));
+            Snapshot snapshot = db.getSnapshot();
+            db.put(bytes("k1"), bytes("v1-new"));
+            db.delete(bytes("k2"));
+            db.put(bytes("k3"), bytes("v3"));
+
+            ReadOptions options = new ReadOptions().snapshot(snapshot);
+            assertEquals("v1", string(db.get(bytes("k1"), options)));
+            assertEquals("v2", string(db.get(bytes("k2"), options)));
+            assertNull(db.get(bytes("k3"), options));
+            List<String> keys = new ArrayList<>();
+            try (DBIterator iterator = db.iterator(options)) {
+                for (iterator.seekToFirst(); iterator.hasNext(); ) {
+                    keys.add(string(iterator.next().getKey()));
+                }
+            }
+            assertEquals(2, keys.size());
+
+            assertEquals("v1-new", string(db.get(bytes("k1"))));
+            assertNull(db.get(bytes("k2")));
+            keys.clear();
+            try (DBIterator iterator = db.iterator()) {
+                for (iterator.seekToFirst(); iterator.hasNext(); ) {
+                    keys.add(string(iterator.next().getKey()));
+                }
+            }
+            assertEquals(2, keys.size());
+            assertEquals("k3", keys.get(1));
+            snapshot.close();
+        }
+    }
+
+    @Test
+    public void testReclaim() throws IOException {
+        byte[] value = new byte[500];
+        try (DB db = new AppendLogDB(dir, SEGMENT_SIZE)) {
+            for (int i = 0; i < 10; i++) {
+                db.put(bytes("block-" + i), value);
+            }
+            db.delete(bytes("block-1"));
+            // 有未关闭的快照时不回收段文件
+            Snapshot snapshot = db.getSnapshot();
+            // 反复覆盖同一批key，旧段中的数据失效
+            for (int round = 0; round < 5; round++) {
+                for (int i = 2; i < 10; i++) {
+                    value[0] = (byte) round;
+                    db.put(bytes("block-" + i), value);
+                }
+            }
+            db.compactRange(null, null);
+            assertTrue(new File(dir, "segment-00000000.log").exists());
+            snapshot.close();
+            db.compactRange(null, null);
+            assertFalse(new File(dir, "segment-00000000.log").exists());
+            assertNull(db.get(bytes("block-1")));
+            assertEquals(0, db.get(bytes("block-0"))[0]);
+            assertEquals(4, db.get(bytes("block-9"))[0]);
+        }
+        int segmentCount = dir.list((d, name) -> name.endsWith(".log")).length;
+        assertTrue(segmentCount < 12);
+        assertTrue(new File(dir, "index.checkpoint").delete());
+        try (DB db = new AppendLogDB(dir, SEGMENT_SIZE)) {
+            assertNull(db.get(bytes("block-1")));
+            assertEquals(0, db.get(bytes("block-0"))[0]);
+            for (int i = 2; i < 10; i++) {
+                assertEquals(4, db.get(bytes("block-" + i))[0]);
+            }
+        }
+    }
+
+    @Test
+    public void testReclaimDropsMarkers() throws IOException {
+        byte[] value = new byte[500];
+        try (AppendLogDB db = new AppendLogDB(dir, SEGMENT_SIZE)) {
+            // 第一个段一直有效，不会被回收
+            for (int i = 0; i < 7; i++) {
+                db.put(bytes("base-" + i), value);
+            }
+            // keep与tmp写在同一个段，tmp删除后该段在keep被覆盖前仍然有效
+            for (int i = 0; i < 4; i++) {
+                db.put(bytes("keep-" + i), value);
+            }
+            for (int i = 0; i < 20; i++) {
+                db.put(bytes("tmp-" + i), bytes("value-" + i));
+            }
+            churn(db, value, 5);
+            for (int i = 0; i < 20; i++) {
+                db.delete(bytes("tmp-" + i));
+            }
+            // 还有段保存着tmp的旧值，删除标记随回收搬运
+            churn(db, value, 10);
+            assertTrue(db.getCopiedMarkerCount() > 0);
+
+            // 旧值所在的段回收后删除标记被丢弃，之后的回收不再搬运
+            for (int i = 0; i < 4; i++) {
+                db.put(bytes("keep-" + i), value);
+            }
+            churn(db, value, 10);
+            long copied = db.getCopiedMarkerCount();
+            churn(db, value, 30);
+            assertEquals(copied, db.getCopiedMarkerCount());
+            assertNull(db.get(bytes("tmp-0")));
+        }
+        // 重新扫描段文件后被删除的key也不会恢复
+        assertTrue(new File(dir, "index.checkpoint").delete());
+        try (DB db = new AppendLogDB(dir, SEGMENT_SIZE)) {
+            for (int i = 0; i < 20; i++) {
+                assertNull(db.get(bytes("tmp-" + i)));
+            }
+            assertNotNull(db.get(bytes("base-0")));
+            assertNotNull(db.get(bytes("keep-3")));
+        }
+    }
+
+    /**
+     * 反复覆盖同一批key，每轮大约写满一个段
+     */
+    private void churn(DB db, byte[] value, int rounds) {
+        for (int round = 0; round < rounds; round++) {
+            for (int i = 0; i < 8; i++) {
+                db.put(bytes("churn-" + i % 4), value);
+            }
+        }
+    }
+}
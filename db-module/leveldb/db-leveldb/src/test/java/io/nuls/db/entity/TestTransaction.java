@@ -25,6 +25,7 @@
 
 package io.nuls.db.entity;
 
+import io.nuls.kernel.constant.NulsConstant;
 import io.nuls.kernel.exception.NulsException;
 import io.nuls.kernel.model.Transaction;
 import io.nuls.kernel.model.TransactionLogicData;
@@ -42,6 +43,9 @@ public class TestTransaction extends Transaction {
 
     @Override
     protected TransactionLogicData parseTxData(NulsByteBuffer byteBuffer) throws NulsException {
+        // txData为空，序列化时写入的是占位符
+        // txData is null, a place holder was written when serializing
+        byteBuffer.readBytes(NulsConstant.PLACE_HOLDER.length);
         return null;
     }
 
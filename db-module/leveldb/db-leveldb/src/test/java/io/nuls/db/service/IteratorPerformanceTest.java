@@ -0,0 +1,125 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017-2018 nuls.io
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package io.nuls.db.service;
+
+import io.nuls.db.model.Entry;
+import io.nuls.db.model.ScanRange;
+import io.nuls.db.service.impl.LevelDBServiceImpl;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Ignore;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.ByteBuffer;
+import java.util.List;
+
+/**
+ * 对比100万条记录的数据区域全量遍历时，一次性加载列表与惰性遍历器的耗时和堆内存峰值，需手动运行
+ * Compare latency and peak heap of a full scan over a 1M-entry area, whole-list loading against the lazy iterator. Run by hand.
+ */
+@Ignore
+public class IteratorPerformanceTest {
+
+    private static DBService dbService;
+
+    private static String areaName = "iterator-performance";
+
+    private static final int COUNT = 1000000;
+
+    @BeforeClass
+    public static void init() {
+        dbService = new LevelDBServiceImpl();
+        dbService.destroyArea(areaName);
+        dbService.createArea(areaName);
+        BatchOperation batch = dbService.createWriteBatch(areaName);
+        byte[] value = new byte[100];
+        for (int i = 0; i < COUNT; i++) {
+            batch.put(ByteBuffer.allocate(4).putInt(i).array(), value);
+            if ((i + 1) % 10000 == 0) {
+                batch.executeBatch();
+                batch = dbService.createWriteBatch(areaName);
+            }
+        }
+        batch.executeBatch();
+    }
+
+    @AfterClass
+    public static void after() {
+        dbService.destroyArea(areaName);
+    }
+
+    @Test
+    public void testEntryList() {
+        resetPeakHeap();
+        long start = System.currentTimeMillis();
+        List<Entry<byte[], byte[]>> list = dbService.entryList(areaName);
+        long total = 0;
+        for (Entry<byte[], byte[]> entry : list) {
+            total += entry.getValue().length;
+        }
+        System.out.println("entryList遍历" + list.size() + "条用时：" + (System.currentTimeMillis() - start) + "ms, 堆内存峰值：" + peakHeap() / 1024 / 1024 + "MB");
+        Assert.assertEquals(COUNT * 100L, total);
+    }
+
+    @Test
+    public void testIterator() {
+        resetPeakHeap();
+        long start = System.currentTimeMillis();
+        int count = 0;
+        long total = 0;
+        try (EntryIterator<byte[]> iterator = dbService.iterator(areaName, ScanRange.all())) {
+            while (iterator.hasNext()) {
+                total += iterator.next().getValue().length;
+                count++;
+            }
+        }
+        System.out.println("iterator遍历" + count + "条用时：" + (System.currentTimeMillis() - start) + "ms, 堆内存峰值：" + peakHeap() / 1024 / 1024 + "MB");
+        Assert.assertEquals(COUNT * 100L, total);
+    }
+
+    private static void resetPeakHeap() {
+        System.gc();
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                pool.resetPeakUsage();
+            }
+        }
+    }
+
+    private static long peakHeap() {
+        long peak = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                peak += pool.getPeakUsage().getUsed();
+            }
+        }
+        return peak;
+    }
+}
@@ -30,8 +30,12 @@ import io.nuls.core.tools.crypto.ECKey;
 import io.nuls.core.tools.log.Log;
 import io.nuls.db.constant.DBErrorCode;
 import io.nuls.db.entity.DBTestEntity;
+import io.nuls.db.manager.GroupCommitWriter;
 import io.nuls.db.manager.LevelDBManager;
+import io.nuls.db.model.CacheConfig;
+import io.nuls.db.model.CacheStats;
 import io.nuls.db.model.Entry;
+import io.nuls.db.model.ScanRange;
 import io.nuls.db.service.impl.LevelDBServiceImpl;
 import io.nuls.kernel.cfg.NulsConfig;
 import io.nuls.kernel.context.NulsContext;
@@ -645,6 +649,278 @@ public class LevelDBServiceTest {
         destroyArea(area);
     }
 
+    @Test
+    public void testMultiAreaBatch() {
+        String area1 = "testMultiAreaBatch1";
+        String area2 = "testMultiAreaBatch2";
+        dbService.createArea(area1);
+        dbService.createArea(area2);
+        dbService.put(area2, bytes("London"), bytes("red"));
+        MultiAreaBatchOperation batch = dbService.createMultiAreaWriteBatch();
+        batch.put(area1, bytes("Tampa"), bytes("green"));
+        batch.put(area2, bytes("Tampa"), bytes("blue"));
+        batch.delete(area2, bytes("London"));
+        Assert.assertTrue(batch.executeBatch().isSuccess());
+
+        Assert.assertEquals("green", asString(dbService.get(area1, bytes("Tampa"))));
+        Assert.assertEquals("blue", asString(dbService.get(area2, bytes("Tampa"))));
+        Assert.assertNull(dbService.get(area2, bytes("London")));
+
+        // 校验重复执行，期望失败
+        Result result = batch.executeBatch();
+        Assert.assertTrue(result.isFailed());
+        Assert.assertEquals(DBErrorCode.DB_BATCH_CLOSE.getCode(), result.getErrorCode().getCode());
+
+        // 任一数据区域不存在时，所有操作都不生效
+        batch = dbService.createMultiAreaWriteBatch();
+        batch.put(area1, bytes("Qweqwe"), bytes("blue"));
+        batch.put("testMultiAreaBatchNotExist", bytes("Qweqwe"), bytes("blue"));
+        Assert.assertTrue(batch.executeBatch().isFailed());
+        Assert.assertNull(dbService.get(area1, bytes("Qweqwe")));
+        dbService.destroyArea(area1);
+        dbService.destroyArea(area2);
+    }
+
+    @Test
+    public void testMultiAreaBatchRead() {
+        String area1 = "testMultiAreaBatchRead1";
+        String area2 = "testMultiAreaBatchRead2";
+        dbService.createArea(area1);
+        dbService.createArea(area2);
+        dbService.put(area1, bytes("London"), bytes("red"));
+        dbService.put(area2, bytes("Tampa"), bytes("red"));
+        MultiAreaBatchOperation batch = dbService.createMultiAreaWriteBatch();
+        batch.put(area1, bytes("Tampa"), bytes("green"));
+        batch.put(area1, bytes("Tampa"), bytes("blue"));
+        batch.delete(area2, bytes("Tampa"));
+        batch.putModel(area2, bytes("model"), "staged");
+
+        // 批量中的最新操作优先，没有操作的key读取数据区域
+        Assert.assertEquals("blue", asString(batch.get(area1, bytes("Tampa"))));
+        Assert.assertEquals("red", asString(batch.get(area1, bytes("London"))));
+        Assert.assertNull(batch.get(area2, bytes("Tampa")));
+        Assert.assertEquals("staged", batch.getModel(area2, bytes("model"), String.class));
+        Assert.assertNull(dbService.get(area1, bytes("Tampa")));
+        Assert.assertEquals("red", asString(dbService.get(area2, bytes("Tampa"))));
+
+        Assert.assertTrue(batch.executeBatch().isSuccess());
+        Assert.assertEquals("blue", asString(dbService.get(area1, bytes("Tampa"))));
+        Assert.assertNull(dbService.get(area2, bytes("Tampa")));
+        Assert.assertNull(dbService.getInterruptedBatchTag());
+        dbService.destroyArea(area1);
+        dbService.destroyArea(area2);
+    }
+
+    @Test
+    public void testMultiAreaBatchInterrupted() {
+        String area1 = "testMultiAreaBatchInterrupted1";
+        String area2 = "testMultiAreaBatchInterrupted2";
+        dbService.createArea(area1);
+        dbService.createArea(area2);
+        MultiAreaBatchOperation first = dbService.createMultiAreaWriteBatch();
+        first.setTag(bytes("first"));
+        first.put(area1, bytes("Tampa"), bytes("green"));
+        first.put(area2, bytes("Tampa"), bytes("green"));
+        MultiAreaBatchOperation second = dbService.createMultiAreaWriteBatch();
+        second.setTag(bytes("second"));
+        second.put(area1, bytes("London"), bytes("blue"));
+        second.put(area2, bytes("London"), bytes("blue"));
+        second.setCommitArea(area1);
+
+        // 第二个数据区域写入失败，批量中途中断
+        try {
+            LevelDBManager.getArea(area2).close();
+        } catch (IOException e) {
+            Assert.fail(e.getMessage());
+        }
+        Assert.assertTrue(first.executeBatch().isFailed());
+        Assert.assertTrue(second.executeBatch().isFailed());
+        // 按第一次操作的顺序写入，commitArea最后写入
+        Assert.assertEquals("green", asString(dbService.get(area1, bytes("Tampa"))));
+        Assert.assertNull(dbService.get(area1, bytes("London")));
+
+        Assert.assertEquals("first", asString(dbService.getInterruptedBatchTag()));
+        Assert.assertTrue(dbService.clearInterruptedBatch().isSuccess());
+        Assert.assertEquals("second", asString(dbService.getInterruptedBatchTag()));
+        Assert.assertTrue(dbService.clearInterruptedBatch().isSuccess());
+        Assert.assertNull(dbService.getInterruptedBatchTag());
+        dbService.destroyArea(area1);
+        dbService.destroyArea(area2);
+    }
+
+    @Test
+    public void testBindBatch() throws Exception {
+        MultiAreaBatchOperation batch = dbService.createMultiAreaWriteBatch();
+        dbService.bindBatch(batch);
+        Assert.assertSame(batch, dbService.getBoundBatch());
+        // 其他线程看不到绑定的批量
+        MultiAreaBatchOperation[] otherBound = new MultiAreaBatchOperation[]{batch};
+        Thread other = new Thread(() -> otherBound[0] = dbService.getBoundBatch());
+        other.start();
+        other.join();
+        Assert.assertNull(otherBound[0]);
+        dbService.unbindBatch();
+        Assert.assertNull(dbService.getBoundBatch());
+    }
+
+    @Test
+    public void testGroupCommitWriter() throws Exception {
+        String area = "testGroupCommit";
+        dbService.createArea(area);
+        GroupCommitWriter writer = new GroupCommitWriter(LevelDBManager.getArea(area));
+        int threads = 16;
+        int count = 1000;
+        Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            final int index = t;
+            workers[t] = new Thread(() -> {
+                try {
+                    for (int i = 0; i < count; i++) {
+                        writer.put(bytes(index + "-" + i), bytes("value" + i));
+                    }
+                    writer.delete(bytes(index + "-0"));
+                } catch (Exception e) {
+                    Log.error(e);
+                }
+            });
+            workers[t].start();
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        Assert.assertEquals(threads * (count - 1), dbService.keyList(area).size());
+        Assert.assertEquals("value5", asString(dbService.get(area, bytes("3-5"))));
+        Assert.assertNull(dbService.get(area, bytes("3-0")));
+        dbService.destroyArea(area);
+    }
+
+    @Test
+    public void testAreaCache() {
+        String area = "testAreaCache";
+        Assert.assertTrue(dbService.createArea(area, new CacheConfig(200)).isSuccess());
+        Assert.assertEquals(DBErrorCode.DB_AREA_EXIST, dbService.createArea(area, new CacheConfig(200)).getErrorCode());
+        dbService.put(area, bytes("k1"), bytes("v1"));
+        Assert.assertEquals("v1", asString(dbService.get(area, bytes("k1"))));
+        Assert.assertEquals("v1", asString(dbService.get(area, bytes("k1"))));
+        CacheStats stats = dbService.getCacheStats(area);
+        Assert.assertEquals(1, stats.getHitCount());
+        Assert.assertEquals(1, stats.getMissCount());
+
+        dbService.put(area, bytes("k1"), bytes("v1-new"));
+        Assert.assertEquals("v1-new", asString(dbService.get(area, bytes("k1"))));
+        BatchOperation batch = dbService.createWriteBatch(area);
+        batch.delete(bytes("k1"));
+        batch.executeBatch();
+        Assert.assertNull(dbService.get(area, bytes("k1")));
+
+        dbService.putModel(area, bytes("model"), "cached");
+        Assert.assertEquals("cached", dbService.getModel(area, bytes("model"), String.class));
+        dbService.putModel(area, bytes("model"), "cached-new");
+        Assert.assertEquals("cached-new", dbService.getModel(area, bytes("model"), String.class));
+
+        for (int i = 0; i < 1000; i++) {
+            dbService.put(area, bytes("key" + i), bytes("value" + i));
+            dbService.get(area, bytes("key" + i));
+        }
+        stats = dbService.getCacheStats(area);
+        Assert.assertTrue(stats.getSize() <= 200);
+        Assert.assertTrue(stats.getEvictionCount() > 0);
+        Assert.assertEquals("value10", asString(dbService.get(area, bytes("key10"))));
+        Assert.assertNull(dbService.getCacheStats(areaName));
+        dbService.destroyArea(area);
+        Assert.assertNull(dbService.getCacheStats(area));
+    }
+
+    @Test
+    public void testSnapshot() {
+        String area1 = "testSnapshot1";
+        String area2 = "testSnapshot2";
+        dbService.createArea(area1);
+        dbService.createArea(area2);
+        dbService.put(area1, bytes("k1"), bytes("v1"));
+        dbService.putModel(area2, bytes("k2"), "v2");
+
+        DBSnapshot snapshot = dbService.createSnapshot(area1, area2);
+        Assert.assertEquals(2, snapshot.getAreas().size());
+        MultiAreaBatchOperation batch = dbService.createMultiAreaWriteBatch();
+        batch.put(area1, bytes("k1"), bytes("v1-new"));
+        batch.put(area1, bytes("k3"), bytes("v3"));
+        batch.delete(area2, bytes("k2"));
+        Assert.assertTrue(batch.executeBatch().isSuccess());
+
+        Assert.assertEquals("v1", asString(dbService.get(area1, bytes("k1"), snapshot)));
+        Assert.assertNull(dbService.get(area1, bytes("k3"), snapshot));
+        Assert.assertEquals("v2", dbService.getModel(area2, bytes("k2"), String.class, snapshot));
+        Assert.assertEquals("k1", contactKeys(dbService.iterator(area1, ScanRange.all(), snapshot)));
+        Assert.assertEquals("k1", contactKeys(dbService.iterator(area1, ScanRange.all().reverse(), snapshot)));
+        Assert.assertEquals("v1-new", asString(dbService.get(area1, bytes("k1"))));
+        Assert.assertNull(dbService.getModel(area2, bytes("k2"), String.class));
+        snapshot.close();
+
+        Assert.assertNull(dbService.createSnapshot(area1, "testSnapshotNotExist"));
+        dbService.destroyArea(area1);
+        dbService.destroyArea(area2);
+    }
+
+    @Test
+    public void testIterator() {
+        String area = "testIterator";
+        dbService.createArea(area);
+        for (int i = 1; i <= 6; i++) {
+            dbService.put(area, bytes("a" + i), bytes("a" + i + "value"));
+            dbService.put(area, bytes("b" + i), bytes("b" + i + "value"));
+        }
+
+        Assert.assertEquals("a1a2a3a4a5a6", contactKeys(dbService.iterator(area, ScanRange.prefix(bytes("a")))));
+        Assert.assertEquals("b6b5b4b3b2b1", contactKeys(dbService.iterator(area, ScanRange.prefix(bytes("b")).reverse())));
+        Assert.assertEquals("a5a6b1b2", contactKeys(dbService.iterator(area, ScanRange.range(bytes("a5"), bytes("b3")))));
+        Assert.assertEquals("b2b1a6a5", contactKeys(dbService.iterator(area, ScanRange.range(bytes("a5"), bytes("b3")).reverse())));
+        Assert.assertEquals("b3b4b5b6", contactKeys(dbService.iterator(area, ScanRange.from(bytes("b3")))));
+        Assert.assertEquals("a4a5a6", contactKeys(dbService.iterator(area, ScanRange.from(bytes("a4")).withPrefix(bytes("a")))));
+        Assert.assertEquals("", contactKeys(dbService.iterator(area, ScanRange.prefix(bytes("c")))));
+        Assert.assertEquals(12, dbService.keyList(area).size());
+
+        EntryIterator<byte[]> iterator = dbService.iterator(area, ScanRange.all());
+        Entry<byte[], byte[]> entry = iterator.next();
+        Assert.assertEquals("a1", asString(entry.getKey()));
+        Assert.assertEquals("a1value", asString(entry.getValue()));
+        iterator.close();
+        Assert.assertFalse(iterator.hasNext());
+
+        Assert.assertNull(dbService.iterator("testIteratorNotExist", ScanRange.all()));
+        dbService.destroyArea(area);
+    }
+
+    @Test
+    public void testIteratorByClass() {
+        String area = "testIteratorByClass";
+        dbService.createArea(area);
+        for (int i = 1; i <= 5; i++) {
+            DBTestEntity entity = new DBTestEntity();
+            entity.setType(i);
+            dbService.putModel(area, bytes("entity" + i), entity);
+        }
+        EntryIterator<DBTestEntity> iterator = dbService.iterator(area, ScanRange.all().reverse(), DBTestEntity.class);
+        int type = 5;
+        while (iterator.hasNext()) {
+            Assert.assertEquals(type--, iterator.next().getValue().getType());
+        }
+        Assert.assertEquals(0, type);
+        dbService.destroyArea(area);
+    }
+
+    private static String contactKeys(EntryIterator<byte[]> iterator) {
+        String contact = "";
+        try {
+            while (iterator.hasNext()) {
+                contact += asString(iterator.next().getKey());
+            }
+        } finally {
+            iterator.close();
+        }
+        return contact;
+    }
+
     @AfterClass
     public static void after() {
         close();
@@ -0,0 +1,127 @@
+/**
+ * MIT License
+ * Copyright (c) 2017-2018 nuls.io
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.nuls.db.service;
+
+import io.nuls.db.codec.ModelCodecs;
+import io.nuls.db.codec.NulsDataCodec;
+import io.nuls.db.codec.TransactionCodec;
+import io.nuls.db.entity.TestTransaction;
+import io.nuls.db.model.ModelWrapper;
+import io.nuls.db.service.impl.LevelDBServiceImpl;
+import io.nuls.kernel.model.Coin;
+import io.nuls.kernel.model.Na;
+import io.nuls.kernel.utils.TransactionManager;
+import io.protostuff.LinkedBuffer;
+import io.protostuff.ProtostuffIOUtil;
+import io.protostuff.runtime.RuntimeSchema;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Ignore;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.function.IntFunction;
+
+/**
+ * 对比每种PO类型使用protostuff ModelWrapper与注册编解码器时putModel/getModel的吞吐量，需手动运行
+ * Compare putModel/getModel throughput per PO type between the protostuff ModelWrapper path and a registered codec. Run by hand.
+ */
+@Ignore
+public class ModelCodecPerformanceTest {
+
+    private static DBService dbService;
+
+    private static String areaName = "codec-performance";
+
+    private static final int COUNT = 100000;
+
+    private static final RuntimeSchema<ModelWrapper> SCHEMA = RuntimeSchema.createFrom(ModelWrapper.class);
+
+    @BeforeClass
+    public static void init() {
+        dbService = new LevelDBServiceImpl();
+        dbService.destroyArea(areaName);
+        dbService.createArea(areaName);
+        TransactionManager.putTx(TestTransaction.class, null);
+        ModelCodecs.register(TestTransaction.class, new TransactionCodec());
+        ModelCodecs.register(Coin.class, new NulsDataCodec<>(Coin::new));
+    }
+
+    @AfterClass
+    public static void after() {
+        dbService.destroyArea(areaName);
+    }
+
+    @Test
+    public void testTransaction() {
+        compare("TestTransaction", TestTransaction.class, i -> {
+            TestTransaction tx = new TestTransaction();
+            tx.setTime(1530000000000L + i);
+            tx.setRemark(("remark-" + i).getBytes(StandardCharsets.UTF_8));
+            tx.setBlockHeight(i);
+            return tx;
+        });
+    }
+
+    @Test
+    public void testCoin() {
+        compare("Coin", Coin.class, i -> new Coin(new byte[23], Na.valueOf(i), i));
+    }
+
+    private <T> void compare(String name, Class<T> clazz, IntFunction<T> factory) {
+        long start = System.nanoTime();
+        for (int i = 0; i < COUNT; i++) {
+            // 旧的写入方式：每次新建LinkedBuffer，包装为ModelWrapper
+            // The old write path: a new LinkedBuffer per call and a ModelWrapper around the value.
+            byte[] bytes = ProtostuffIOUtil.toByteArray(new ModelWrapper(factory.apply(i)), SCHEMA, LinkedBuffer.allocate(LinkedBuffer.DEFAULT_BUFFER_SIZE));
+            dbService.put(areaName, key(i), bytes);
+        }
+        long legacyPut = System.nanoTime() - start;
+        start = System.nanoTime();
+        for (int i = 0; i < COUNT; i++) {
+            Assert.assertNotNull(dbService.getModel(areaName, key(i), clazz));
+        }
+        long legacyGet = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        for (int i = 0; i < COUNT; i++) {
+            dbService.putModel(areaName, key(i), factory.apply(i));
+        }
+        long codecPut = System.nanoTime() - start;
+        start = System.nanoTime();
+        for (int i = 0; i < COUNT; i++) {
+            Assert.assertNotNull(dbService.getModel(areaName, key(i), clazz));
+        }
+        long codecGet = System.nanoTime() - start;
+
+        System.out.println(name + " protostuff put: " + opsPerSecond(legacyPut) + " ops/s, get: " + opsPerSecond(legacyGet) + " ops/s");
+        System.out.println(name + " codec      put: " + opsPerSecond(codecPut) + " ops/s, get: " + opsPerSecond(codecGet) + " ops/s");
+    }
+
+    private static byte[] key(int i) {
+        return ByteBuffer.allocate(4).putInt(i).array();
+    }
+
+    private static long opsPerSecond(long nanos) {
+        return COUNT * 1000000000L / Math.max(nanos, 1);
+    }
+}
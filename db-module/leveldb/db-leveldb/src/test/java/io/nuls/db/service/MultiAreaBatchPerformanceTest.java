@@ -0,0 +1,162 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017-2018 nuls.io
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package io.nuls.db.service;
+
+import io.nuls.db.manager.LevelDBManager;
+import io.nuls.db.service.impl.LevelDBServiceImpl;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Ignore;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 同步刷盘下对比每笔交易一个跨区域批量与整个区块一个跨区域批量每秒保存的区块数，需手动运行
+ * 写入布局与区块保存一致：区块头、高度索引、交易、UTXO和UTXO地址索引各在一个数据区域，每笔交易花费两个UTXO并产生两个UTXO
+ * Compare blocks saved per second with synced writes when every transaction is written in its own multi-area batch against
+ * one multi-area batch for the whole block. Run by hand.
+ * The write layout matches a block save: header, height index, transactions, UTXOs and the UTXO address index each live
+ * in their own data area, every transaction spends two UTXOs and creates two.
+ */
+@Ignore
+public class MultiAreaBatchPerformanceTest {
+
+    private static final String HEADER = "perf_block_header";
+    private static final String INDEX = "perf_block_header_index";
+    private static final String TX = "perf_ledger_tx";
+    private static final String UTXO = "perf_ledger_utxo";
+    private static final String ADDRESS = "perf_ledger_utxo_address";
+    private static final String[] AREAS = new String[]{HEADER, INDEX, TX, UTXO, ADDRESS};
+
+    private static final int BLOCKS = 50;
+
+    private static final int TXS_PER_BLOCK = 50;
+
+    private static final int ROUNDS = 3;
+
+    private static DBService dbService;
+
+    private static boolean writeSync;
+
+    @BeforeClass
+    public static void init() {
+        dbService = new LevelDBServiceImpl();
+        for (String area : AREAS) {
+            dbService.destroyArea(area);
+            dbService.createArea(area);
+        }
+        writeSync = LevelDBManager.isWriteSync();
+        LevelDBManager.setWriteSync(true);
+    }
+
+    @AfterClass
+    public static void after() {
+        LevelDBManager.setWriteSync(writeSync);
+        for (String area : AREAS) {
+            dbService.destroyArea(area);
+        }
+    }
+
+    @Test
+    public void testBlocksPerSecond() {
+        long height = 0;
+        for (int round = 0; round < ROUNDS; round++) {
+            long start = System.nanoTime();
+            for (int i = 0; i < BLOCKS; i++) {
+                saveBlockPerTx(height++);
+            }
+            long perTx = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            for (int i = 0; i < BLOCKS; i++) {
+                saveBlockInOneBatch(height++);
+            }
+            long perBlock = System.nanoTime() - start;
+            System.out.println("batch per tx: " + BLOCKS * 1000000000L / perTx + " blocks/s, batch per block: "
+                    + BLOCKS * 1000000000L / perBlock + " blocks/s");
+        }
+    }
+
+    /**
+     * 每笔交易一个跨区域批量，再写区块头和索引批量
+     * One multi-area batch per transaction, then the header and the index batch.
+     */
+    private void saveBlockPerTx(long height) {
+        for (int i = 0; i < TXS_PER_BLOCK; i++) {
+            MultiAreaBatchOperation batch = dbService.createMultiAreaWriteBatch();
+            stageTx(batch, height, i);
+            assertTrue(batch.executeBatch().isSuccess());
+        }
+        byte[] hash = key('b', height, 0);
+        assertTrue(dbService.put(HEADER, hash, new byte[200]).isSuccess());
+        BatchOperation batch = dbService.createWriteBatch(INDEX);
+        batch.put(key('h', height, 0), hash);
+        batch.put(key('p', 0, 0), hash);
+        assertTrue(batch.executeBatch().isSuccess());
+    }
+
+    /**
+     * 区块头、所有交易和索引在一个跨区域批量中写入，索引最后写入
+     * The header, all transactions and the index in one multi-area batch, the index is written last.
+     */
+    private void saveBlockInOneBatch(long height) {
+        MultiAreaBatchOperation batch = dbService.createMultiAreaWriteBatch();
+        byte[] hash = key('b', height, 0);
+        batch.setTag(hash);
+        batch.put(HEADER, hash, new byte[200]);
+        for (int i = 0; i < TXS_PER_BLOCK; i++) {
+            stageTx(batch, height, i);
+        }
+        batch.put(INDEX, key('h', height, 0), hash);
+        batch.put(INDEX, key('p', 0, 0), hash);
+        batch.setCommitArea(INDEX);
+        assertTrue(batch.executeBatch().isSuccess());
+    }
+
+    private void stageTx(MultiAreaBatchOperation batch, long height, int index) {
+        batch.put(TX, key('t', height, index), new byte[300]);
+        for (int out = 0; out < 2; out++) {
+            // 花费上一笔交易的输出
+            byte[] spent = key('u', index == 0 ? height - 1 : height, (index == 0 ? TXS_PER_BLOCK : index) * 2 - 2 + out);
+            batch.delete(UTXO, spent);
+            batch.delete(ADDRESS, address(spent));
+            byte[] created = key('u', height, index * 2 + out);
+            batch.put(UTXO, created, new byte[60]);
+            batch.put(ADDRESS, address(created), new byte[0]);
+        }
+    }
+
+    private static byte[] key(char type, long height, int index) {
+        return ByteBuffer.allocate(34).put((byte) type).putLong(height).putInt(index).array();
+    }
+
+    private static byte[] address(byte[] owner) {
+        return ByteBuffer.allocate(23 + owner.length).put(owner, 9, 4).put(new byte[19]).put(owner).array();
+    }
+}
@@ -31,7 +31,8 @@ import io.nuls.core.tools.log.Log;
 import io.nuls.core.tools.map.MapUtil;
 import io.nuls.core.tools.param.AssertUtil;
 import io.nuls.db.model.Entry;
-import io.nuls.db.service.BatchOperation;
+import io.nuls.db.service.DBService;
+import io.nuls.db.service.MultiAreaBatchOperation;
 import io.nuls.kernel.constant.KernelErrorCode;
 import io.nuls.kernel.constant.NulsConstant;
 import io.nuls.kernel.constant.TransactionErrorCode;
@@ -72,48 +73,44 @@ public class UtxoLedgerServiceImpl implements LedgerService {
     private UtxoLedgerTransactionStorageService utxoLedgerTransactionStorageService;
     @Autowired
     private ContractService contractService;
+    @Autowired
+    private DBService dbService;
 
     @Override
     public Result saveTx(Transaction tx) throws NulsException {
         if (tx == null) {
             return Result.getFailed(LedgerErrorCode.NULL_PARAMETER);
         }
+        // 交易本身、UTXO和地址索引在一个跨区域的批量中写入，保存区块时加入区块绑定的批量，由区块统一写入
+        // The transaction itself, the UTXOs and the address index are written in one multi-area batch,
+        // while a block is saved they are added to the batch bound by the block and written with it.
+        MultiAreaBatchOperation boundBatch = dbService.getBoundBatch();
+        MultiAreaBatchOperation batch = boundBatch != null ? boundBatch : utxoLedgerUtxoStorageService.createUtxoWriteBatch();
         try {
-            // 保存CoinData
-            Result result = saveCoinData(tx);
+            // 先保存交易，交易存在时CoinData可能已写入，回滚能够重复执行
+            // Save the transaction first, CoinData may be written once the transaction exists, and rolling it back can be repeated.
+            Result result = utxoLedgerTransactionStorageService.saveTx(batch, tx);
             if (result.isFailed()) {
-                Result rollbackResult = rollbackCoinData(tx);
-                if (rollbackResult.isFailed()) {
-                    throw new NulsException(rollbackResult.getErrorCode());
-                }
                 return result;
             }
-            // 保存交易
-            result = utxoLedgerTransactionStorageService.saveTx(tx);
-            if (result.isFailed()) {
-                Result rollbackResult = rollbackTx(tx);
-                if (rollbackResult.isFailed()) {
-                    throw new NulsException(rollbackResult.getErrorCode());
-                }
+            // 保存CoinData
+            result = saveCoinData(batch, tx);
+            if (result.isFailed() || boundBatch != null) {
+                return result;
             }
-            return result;
+            return batch.executeBatch();
         } catch (IOException e) {
             Log.error(e);
-            Result rollbackResult = rollbackTx(tx);
-            if (rollbackResult.isFailed()) {
-                throw new NulsException(rollbackResult.getErrorCode());
-            }
             return Result.getFailed(KernelErrorCode.IO_ERROR);
         }
     }
 
-    private Result saveCoinData(Transaction tx) throws IOException {
+    private Result saveCoinData(MultiAreaBatchOperation batch, Transaction tx) throws IOException {
         CoinData coinData = tx.getCoinData();
         //TestLog+
 //        Log.info("=============="+tx.getClass().getSimpleName()+"交易：hash-"+tx.getHash().getDigestHex());
         //TestLog-
         if (coinData != null) {
-            BatchOperation batch = utxoLedgerUtxoStorageService.createWriteBatch();
             // 删除utxo已花费 - from
             List<Coin> froms = coinData.getFrom();
             for (Coin from : froms) {
@@ -124,7 +121,10 @@ public class UtxoLedgerServiceImpl implements LedgerService {
 //                }
 //                Log.info("delete utxo:" + Hex.encode(from.()));
                 //TestLog-
-                batch.delete(from.getOwner());
+                // 地址索引的key以地址开头，需要先读出被花费的utxo的地址
+                // The address index is keyed by address first, so the address of the spent utxo is read beforehand.
+                Coin spent = utxoLedgerUtxoStorageService.getUtxo(from.getOwner());
+                utxoLedgerUtxoStorageService.deleteUtxo(batch, from.getOwner(), spent == null ? null : spent.getAddress());
             }
             // 保存utxo - to
             byte[] txHashBytes = tx.getHash().serialize();
@@ -133,17 +133,12 @@ public class UtxoLedgerServiceImpl implements LedgerService {
                 try {
                     byte[] owner = Arrays.concatenate(txHashBytes, new VarInt(i).encode());
 //                    Log.info("129 save utxo:::" + Hex.encode(owner));
-                    batch.put(owner, tos.get(i).serialize());
+                    utxoLedgerUtxoStorageService.putUtxo(batch, owner, tos.get(i));
                 } catch (IOException e) {
                     Log.error(e);
                     return Result.getFailed(KernelErrorCode.IO_ERROR);
                 }
             }
-            // 执行批量
-            Result batchResult = batch.executeBatch();
-            if (batchResult.isFailed()) {
-                return batchResult;
-            }
         }
         return Result.getSuccess();
     }
@@ -153,38 +148,34 @@ public class UtxoLedgerServiceImpl implements LedgerService {
         if (tx == null) {
             return Result.getFailed(LedgerErrorCode.NULL_PARAMETER);
         }
+        // 交易不存在时没有需要回滚的数据，中断的回滚可以重复执行
+        // Nothing is left to roll back once the transaction is gone, so an interrupted rollback can be repeated.
+        if (utxoLedgerTransactionStorageService.getTx(tx.getHash()) == null) {
+            return Result.getSuccess();
+        }
+        MultiAreaBatchOperation boundBatch = dbService.getBoundBatch();
+        MultiAreaBatchOperation batch = boundBatch != null ? boundBatch : utxoLedgerUtxoStorageService.createUtxoWriteBatch();
         try {
             // 回滚CoinData
-            Result result = rollbackCoinData(tx);
+            Result result = rollbackCoinData(batch, tx);
             if (result.isFailed()) {
-                Result recoveryResult = saveCoinData(tx);
-                if (recoveryResult.isFailed()) {
-                    throw new NulsException(recoveryResult.getErrorCode());
-                }
                 return result;
             }
-            // 回滚交易
-            result = utxoLedgerTransactionStorageService.deleteTx(tx);
-            if (result.isFailed()) {
-                Result recoveryResult = saveTx(tx);
-                if (recoveryResult.isFailed()) {
-                    throw new NulsException(recoveryResult.getErrorCode());
-                }
+            // 最后删除交易
+            // Delete the transaction last.
+            result = utxoLedgerTransactionStorageService.deleteTx(batch, tx);
+            if (result.isFailed() || boundBatch != null) {
+                return result;
             }
-            return result;
+            return batch.executeBatch();
         } catch (IOException e) {
             Log.error(e);
-            Result rollbackResult = saveTx(tx);
-            if (rollbackResult.isFailed()) {
-                throw new NulsException(rollbackResult.getErrorCode());
-            }
             return Result.getFailed(KernelErrorCode.IO_ERROR);
         }
     }
 
-    private Result rollbackCoinData(Transaction tx) throws IOException, NulsException {
+    private Result rollbackCoinData(MultiAreaBatchOperation batch, Transaction tx) throws IOException, NulsException {
         byte[] txHashBytes = tx.getHash().serialize();
-        BatchOperation batch = utxoLedgerUtxoStorageService.createWriteBatch();
         CoinData coinData = tx.getCoinData();
         if (coinData != null) {
             // 保存utxo已花费 - from
@@ -202,7 +193,7 @@ public class UtxoLedgerServiceImpl implements LedgerService {
                     recovery = fromTx.getCoinData().getTo().get(fromIndex);
                     recovery.setFrom(from.getFrom());
 //                    Log.info("rollback save utxo:::" + Hex.encode(from.()));
-                    batch.put(from.getOwner(), recovery.serialize());
+                    utxoLedgerUtxoStorageService.putUtxo(batch, from.getOwner(), recovery);
                 } catch (IOException e) {
                     Log.error(e);
                     return Result.getFailed(KernelErrorCode.IO_ERROR);
@@ -213,12 +204,7 @@ public class UtxoLedgerServiceImpl implements LedgerService {
             for (int i = 0, length = tos.size(); i < length; i++) {
                 byte[] owner = Arrays.concatenate(txHashBytes, new VarInt(i).encode());
 //                Log.info("批量删除：" + Hex.encode(owner));
-                batch.delete(owner);
-            }
-            // 执行批量
-            Result batchResult = batch.executeBatch();
-            if (batchResult.isFailed()) {
-                return batchResult;
+                utxoLedgerUtxoStorageService.deleteUtxo(batch, owner, tos.get(i).getAddress());
             }
         }
         return Result.getSuccess();
@@ -614,7 +600,7 @@ public class UtxoLedgerServiceImpl implements LedgerService {
     @Override
     public  List<Coin> getAllUtxo(byte[] address){
         List<Coin> coinList = new ArrayList<>();
-        Collection<Entry<byte[], byte[]>> rawList =utxoLedgerUtxoStorageService.getAllUtxoEntryBytes();
+        Collection<Entry<byte[], byte[]>> rawList = utxoLedgerUtxoStorageService.getUtxoEntryBytesByAddress(address);
         for (Entry<byte[], byte[]> coinEntry : rawList) {
             Coin coin = new Coin();
             try {
@@ -623,11 +609,9 @@ public class UtxoLedgerServiceImpl implements LedgerService {
                 Log.info("parse coin form db error");
                 continue;
             }
-            if (java.util.Arrays.equals(coin.getAddress(), address)) {
-                coin.setTempOwner(coin.getOwner());
-                coin.setOwner(coinEntry.getKey());
-                coinList.add(coin);
-            }
+            coin.setTempOwner(coin.getOwner());
+            coin.setOwner(coinEntry.getKey());
+            coinList.add(coin);
         }
         return coinList;
     }
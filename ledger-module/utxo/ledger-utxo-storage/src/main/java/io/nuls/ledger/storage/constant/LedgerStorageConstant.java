@@ -35,4 +35,10 @@ public interface LedgerStorageConstant {
     String DB_NAME_LEDGER_TX = "ledger_tx";
     String DB_NAME_LEDGER_UTXO = "ledger_utxo";
 
+    /**
+     * UTXO的地址索引，key为地址+UTXO的key，value为空
+     * Address index of the UTXOs, the key is the address followed by the key of the UTXO, the value is empty.
+     */
+    String DB_NAME_LEDGER_UTXO_ADDRESS = "ledger_utxo_address";
+
 }
@@ -23,6 +23,7 @@
  */
 package io.nuls.ledger.storage.service;
 
+import io.nuls.db.service.MultiAreaBatchOperation;
 import io.nuls.kernel.model.NulsDigestData;
 import io.nuls.kernel.model.Result;
 import io.nuls.kernel.model.Transaction;
@@ -40,4 +41,22 @@ public interface UtxoLedgerTransactionStorageService {
     Result deleteTx(Transaction tx);
 
     byte[] getTxBytes(byte[] txBytes);
+
+    /**
+     * 在批量操作中保存交易，与交易的UTXO一起写入
+     * Save the transaction in the batch operation, written together with the UTXOs of the transaction.
+     *
+     * @param batch
+     * @param tx
+     */
+    Result saveTx(MultiAreaBatchOperation batch, Transaction tx);
+
+    /**
+     * 在批量操作中删除交易
+     * Delete the transaction in the batch operation.
+     *
+     * @param batch
+     * @param tx
+     */
+    Result deleteTx(MultiAreaBatchOperation batch, Transaction tx);
 }
@@ -25,9 +25,11 @@ package io.nuls.ledger.storage.service;
 
 import io.nuls.db.model.Entry;
 import io.nuls.db.service.BatchOperation;
+import io.nuls.db.service.MultiAreaBatchOperation;
 import io.nuls.kernel.model.Coin;
 import io.nuls.kernel.model.Result;
 
+import java.io.IOException;
 import java.util.List;
 
 /**
@@ -49,4 +51,39 @@ public interface UtxoLedgerUtxoStorageService {
     List<byte[]> getAllUtxoBytes();
 
     List<Entry<byte[], byte[]>> getAllUtxoEntryBytes();
+
+    /**
+     * 创建同时写入UTXO和地址索引的批量操作
+     * Create a batch operation writing the UTXOs and their address index together.
+     */
+    MultiAreaBatchOperation createUtxoWriteBatch();
+
+    /**
+     * 在批量操作中保存UTXO及其地址索引
+     * Save a UTXO and its address index entry in the batch operation.
+     *
+     * @param batch
+     * @param owner UTXO的key/Key of the UTXO
+     * @param coin
+     */
+    Result putUtxo(MultiAreaBatchOperation batch, byte[] owner, Coin coin) throws IOException;
+
+    /**
+     * 在批量操作中删除UTXO及其地址索引
+     * Delete a UTXO and its address index entry in the batch operation.
+     *
+     * @param batch
+     * @param owner   UTXO的key/Key of the UTXO
+     * @param address UTXO所属地址，为null时只删除UTXO/Address of the UTXO, only the UTXO is deleted when null
+     */
+    Result deleteUtxo(MultiAreaBatchOperation batch, byte[] owner, byte[] address);
+
+    /**
+     * 通过地址索引获取地址的所有UTXO，耗时只与该地址的UTXO数量有关
+     * Get all UTXOs of the address through the address index, the cost depends only on the number of UTXOs of the address.
+     *
+     * @param address
+     * @return key为UTXO的key，value为UTXO/The key is the key of the UTXO, the value is the UTXO
+     */
+    List<Entry<byte[], byte[]>> getUtxoEntryBytesByAddress(byte[] address);
 }
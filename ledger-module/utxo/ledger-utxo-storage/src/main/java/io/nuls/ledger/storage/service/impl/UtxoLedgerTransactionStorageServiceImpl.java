@@ -26,6 +26,7 @@ package io.nuls.ledger.storage.service.impl;
 import io.nuls.core.tools.log.Log;
 import io.nuls.db.constant.DBErrorCode;
 import io.nuls.db.service.DBService;
+import io.nuls.db.service.MultiAreaBatchOperation;
 import io.nuls.kernel.constant.KernelErrorCode;
 import io.nuls.kernel.exception.NulsException;
 import io.nuls.kernel.exception.NulsRuntimeException;
@@ -93,7 +94,15 @@ public class UtxoLedgerTransactionStorageServiceImpl implements UtxoLedgerTransa
             Log.error(e);
             throw new NulsRuntimeException(e);
         }
-        Transaction tx = dbService.getModel(LedgerStorageConstant.DB_NAME_LEDGER_TX, hashBytes, Transaction.class);
+        // 保存或回滚区块期间读取绑定的批量，能读到同一区块中前面尚未写入的交易
+        // Read through the bound batch while a block is saved or rolled back, so earlier transactions of the block are visible before they are written.
+        MultiAreaBatchOperation batch = dbService.getBoundBatch();
+        Transaction tx;
+        if (batch != null) {
+            tx = batch.getModel(LedgerStorageConstant.DB_NAME_LEDGER_TX, hashBytes, Transaction.class);
+        } else {
+            tx = dbService.getModel(LedgerStorageConstant.DB_NAME_LEDGER_TX, hashBytes, Transaction.class);
+        }
         if (tx != null) {
             tx.setHash(hash);
         }
@@ -124,4 +133,30 @@ public class UtxoLedgerTransactionStorageServiceImpl implements UtxoLedgerTransa
         }
         return dbService.get(LedgerStorageConstant.DB_NAME_LEDGER_TX, txBytes);
     }
+
+    @Override
+    public Result saveTx(MultiAreaBatchOperation batch, Transaction tx) {
+        if (tx == null) {
+            return Result.getFailed(KernelErrorCode.NULL_PARAMETER);
+        }
+        try {
+            return batch.putModel(LedgerStorageConstant.DB_NAME_LEDGER_TX, tx.getHash().serialize(), tx);
+        } catch (IOException e) {
+            Log.error(e);
+            return Result.getFailed(KernelErrorCode.IO_ERROR);
+        }
+    }
+
+    @Override
+    public Result deleteTx(MultiAreaBatchOperation batch, Transaction tx) {
+        if (tx == null) {
+            return Result.getFailed(KernelErrorCode.NULL_PARAMETER);
+        }
+        try {
+            return batch.delete(LedgerStorageConstant.DB_NAME_LEDGER_TX, tx.getHash().serialize());
+        } catch (IOException e) {
+            Log.error(e);
+            return Result.getFailed(KernelErrorCode.IO_ERROR);
+        }
+    }
 }
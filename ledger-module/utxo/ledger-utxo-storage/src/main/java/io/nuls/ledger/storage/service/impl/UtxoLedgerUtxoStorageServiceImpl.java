@@ -26,9 +26,14 @@ package io.nuls.ledger.storage.service.impl;
 import io.nuls.core.tools.crypto.Hex;
 import io.nuls.core.tools.log.Log;
 import io.nuls.db.constant.DBErrorCode;
+import io.nuls.core.tools.array.ArraysTool;
 import io.nuls.db.model.Entry;
+import io.nuls.db.model.ScanRange;
 import io.nuls.db.service.BatchOperation;
 import io.nuls.db.service.DBService;
+import io.nuls.db.service.DBSnapshot;
+import io.nuls.db.service.EntryIterator;
+import io.nuls.db.service.MultiAreaBatchOperation;
 import io.nuls.kernel.constant.KernelErrorCode;
 import io.nuls.kernel.exception.NulsException;
 import io.nuls.kernel.exception.NulsRuntimeException;
@@ -41,6 +46,8 @@ import io.nuls.ledger.storage.constant.LedgerStorageConstant;
 import io.nuls.ledger.storage.service.UtxoLedgerUtxoStorageService;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 /**
@@ -57,6 +64,16 @@ public class UtxoLedgerUtxoStorageServiceImpl implements UtxoLedgerUtxoStorageSe
     @Autowired
     private DBService dbService;
 
+    /**
+     * 地址索引已建立的标记，长度与地址索引的key不同，不会被按地址的前缀查询匹配到
+     * Marker of a built address index, its length differs from the index keys so that no address prefix query matches it.
+     */
+    private static final byte[] ADDRESS_INDEX_BUILT_KEY = new byte[]{0};
+
+    private static final byte[] EMPTY_VALUE = new byte[0];
+
+    private static final int ADDRESS_INDEX_BATCH_SIZE = 10000;
+
     /**
      * 该方法在所有属性被设置之后调用，用于辅助对象初始化
      * This method is invoked after all properties are set, and is used to assist object initialization.
@@ -67,6 +84,61 @@ public class UtxoLedgerUtxoStorageServiceImpl implements UtxoLedgerUtxoStorageSe
         if (result.isFailed() && !DBErrorCode.DB_AREA_EXIST.equals(result.getErrorCode())) {
             throw new NulsRuntimeException(result.getErrorCode());
         }
+        result = dbService.createArea(LedgerStorageConstant.DB_NAME_LEDGER_UTXO_ADDRESS);
+        if (result.isFailed() && !DBErrorCode.DB_AREA_EXIST.equals(result.getErrorCode())) {
+            throw new NulsRuntimeException(result.getErrorCode());
+        }
+        if (dbService.get(LedgerStorageConstant.DB_NAME_LEDGER_UTXO_ADDRESS, ADDRESS_INDEX_BUILT_KEY) == null) {
+            buildAddressIndex();
+        }
+    }
+
+    /**
+     * 升级后第一次启动时根据已有的UTXO建立地址索引，完成后写入标记，中途退出时下次启动重新建立
+     * Build the address index from the existing UTXOs on the first start after the upgrade, a marker is written when done,
+     * the index is built again on the next start if this is interrupted.
+     */
+    private void buildAddressIndex() {
+        Log.info("building utxo address index...");
+        long count = 0;
+        BatchOperation batch = dbService.createWriteBatch(LedgerStorageConstant.DB_NAME_LEDGER_UTXO_ADDRESS);
+        EntryIterator<byte[]> iterator = dbService.iterator(LedgerStorageConstant.DB_NAME_LEDGER_UTXO, ScanRange.all());
+        try {
+            while (iterator.hasNext()) {
+                Entry<byte[], byte[]> entry = iterator.next();
+                Coin coin = new Coin();
+                try {
+                    coin.parse(entry.getValue(), 0);
+                } catch (NulsException e) {
+                    Log.error(e);
+                    continue;
+                }
+                byte[] address = coin.getAddress();
+                if (address == null) {
+                    continue;
+                }
+                batch.put(ArraysTool.concatenate(address, entry.getKey()), EMPTY_VALUE);
+                if (++count % ADDRESS_INDEX_BATCH_SIZE == 0) {
+                    executeIndexBatch(batch);
+                    batch = dbService.createWriteBatch(LedgerStorageConstant.DB_NAME_LEDGER_UTXO_ADDRESS);
+                }
+                if (count % 1000000 == 0) {
+                    Log.info("utxo address index: " + count + " utxos indexed");
+                }
+            }
+        } finally {
+            iterator.close();
+        }
+        batch.put(ADDRESS_INDEX_BUILT_KEY, EMPTY_VALUE);
+        executeIndexBatch(batch);
+        Log.info("utxo address index built, " + count + " utxos indexed");
+    }
+
+    private void executeIndexBatch(BatchOperation batch) {
+        Result result = batch.executeBatch();
+        if (result.isFailed()) {
+            throw new NulsRuntimeException(result.getErrorCode());
+        }
     }
 
     @Override
@@ -111,6 +183,12 @@ public class UtxoLedgerUtxoStorageServiceImpl implements UtxoLedgerUtxoStorageSe
         if (owner == null) {
             return null;
         }
+        // 保存或回滚区块期间读取绑定的批量，能读到同一区块中前面的交易尚未写入的UTXO
+        // Read through the bound batch while a block is saved or rolled back, so UTXOs of earlier transactions of the block are visible before they are written.
+        MultiAreaBatchOperation batch = dbService.getBoundBatch();
+        if (batch != null) {
+            return batch.get(LedgerStorageConstant.DB_NAME_LEDGER_UTXO, owner);
+        }
         return dbService.get(LedgerStorageConstant.DB_NAME_LEDGER_UTXO, owner);
     }
 
@@ -124,4 +202,60 @@ public class UtxoLedgerUtxoStorageServiceImpl implements UtxoLedgerUtxoStorageSe
         return dbService.entryList(LedgerStorageConstant.DB_NAME_LEDGER_UTXO);
     }
 
+    @Override
+    public MultiAreaBatchOperation createUtxoWriteBatch() {
+        return dbService.createMultiAreaWriteBatch();
+    }
+
+    @Override
+    public Result putUtxo(MultiAreaBatchOperation batch, byte[] owner, Coin coin) throws IOException {
+        Result result = batch.put(LedgerStorageConstant.DB_NAME_LEDGER_UTXO, owner, coin.serialize());
+        byte[] address = coin.getAddress();
+        if (result.isFailed() || address == null) {
+            return result;
+        }
+        return batch.put(LedgerStorageConstant.DB_NAME_LEDGER_UTXO_ADDRESS, ArraysTool.concatenate(address, owner), EMPTY_VALUE);
+    }
+
+    @Override
+    public Result deleteUtxo(MultiAreaBatchOperation batch, byte[] owner, byte[] address) {
+        Result result = batch.delete(LedgerStorageConstant.DB_NAME_LEDGER_UTXO, owner);
+        if (result.isFailed() || address == null) {
+            return result;
+        }
+        return batch.delete(LedgerStorageConstant.DB_NAME_LEDGER_UTXO_ADDRESS, ArraysTool.concatenate(address, owner));
+    }
+
+    @Override
+    public List<Entry<byte[], byte[]>> getUtxoEntryBytesByAddress(byte[] address) {
+        List<Entry<byte[], byte[]>> list = new ArrayList<>();
+        if (address == null) {
+            return list;
+        }
+        // 在快照上读取，避免索引和UTXO之间出现正在写入的批量操作的一部分
+        // Read on a snapshot, so that no half of a batch being written shows up between the index and the UTXOs.
+        DBSnapshot snapshot = dbService.createSnapshot(LedgerStorageConstant.DB_NAME_LEDGER_UTXO, LedgerStorageConstant.DB_NAME_LEDGER_UTXO_ADDRESS);
+        if (snapshot == null) {
+            return list;
+        }
+        try {
+            EntryIterator<byte[]> iterator = dbService.iterator(LedgerStorageConstant.DB_NAME_LEDGER_UTXO_ADDRESS, ScanRange.prefix(address), snapshot);
+            try {
+                while (iterator.hasNext()) {
+                    byte[] key = iterator.next().getKey();
+                    byte[] owner = Arrays.copyOfRange(key, address.length, key.length);
+                    byte[] utxoBytes = dbService.get(LedgerStorageConstant.DB_NAME_LEDGER_UTXO, owner, snapshot);
+                    if (utxoBytes != null) {
+                        list.add(new Entry<>(owner, utxoBytes));
+                    }
+                }
+            } finally {
+                iterator.close();
+            }
+        } finally {
+            snapshot.close();
+        }
+        return list;
+    }
+
 }
@@ -0,0 +1,158 @@
+/**
+ * MIT License
+ * <p>
+ * Copyright (c) 2017-2018 nuls.io
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.nuls.ledger.storage.service.impl;
+
+import io.nuls.db.model.Entry;
+import io.nuls.db.service.DBService;
+import io.nuls.db.service.MultiAreaBatchOperation;
+import io.nuls.db.service.impl.LevelDBServiceImpl;
+import io.nuls.kernel.model.Coin;
+import io.nuls.kernel.model.Na;
+import io.nuls.ledger.storage.constant.LedgerStorageConstant;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.lang.reflect.Field;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * UTXO地址索引的正确性，按地址查询的结果与原来的全表扫描一致
+ * Correctness of the utxo address index; a query by address agrees with the former full scan.
+ */
+public class UtxoLedgerUtxoStorageServiceImplTest {
+
+    private static final int ADDRESS_COUNT = 2000;
+
+    private static final int UTXO_PER_ADDRESS = 50;
+
+    private static DBService dbService;
+
+    private static UtxoLedgerUtxoStorageServiceImpl service;
+
+    @BeforeClass
+    public static void init() throws Exception {
+        dbService = new LevelDBServiceImpl();
+        dbService.destroyArea(LedgerStorageConstant.DB_NAME_LEDGER_UTXO);
+        dbService.destroyArea(LedgerStorageConstant.DB_NAME_LEDGER_UTXO_ADDRESS);
+        service = new UtxoLedgerUtxoStorageServiceImpl();
+        Field field = UtxoLedgerUtxoStorageServiceImpl.class.getDeclaredField("dbService");
+        field.setAccessible(true);
+        field.set(service, dbService);
+        service.afterPropertiesSet();
+
+        MultiAreaBatchOperation batch = service.createUtxoWriteBatch();
+        for (int i = 0; i < ADDRESS_COUNT * UTXO_PER_ADDRESS; i++) {
+            service.putUtxo(batch, owner(i), new Coin(address(i % ADDRESS_COUNT), Na.valueOf(i)));
+            if ((i + 1) % 10000 == 0) {
+                Assert.assertTrue(batch.executeBatch().isSuccess());
+                batch = service.createUtxoWriteBatch();
+            }
+        }
+        Assert.assertTrue(batch.executeBatch().isSuccess());
+    }
+
+    @AfterClass
+    public static void after() {
+        dbService.destroyArea(LedgerStorageConstant.DB_NAME_LEDGER_UTXO);
+        dbService.destroyArea(LedgerStorageConstant.DB_NAME_LEDGER_UTXO_ADDRESS);
+    }
+
+    @Test
+    public void testPutAndDelete() throws Exception {
+        byte[] address = address(ADDRESS_COUNT + 1);
+        Assert.assertTrue(service.getUtxoEntryBytesByAddress(address).isEmpty());
+
+        MultiAreaBatchOperation batch = service.createUtxoWriteBatch();
+        byte[] owner = owner(-1);
+        service.putUtxo(batch, owner, new Coin(address, Na.valueOf(1)));
+        Assert.assertTrue(batch.executeBatch().isSuccess());
+        List<Entry<byte[], byte[]>> list = service.getUtxoEntryBytesByAddress(address);
+        Assert.assertEquals(1, list.size());
+        Assert.assertArrayEquals(owner, list.get(0).getKey());
+
+        batch = service.createUtxoWriteBatch();
+        service.deleteUtxo(batch, owner, address);
+        Assert.assertTrue(batch.executeBatch().isSuccess());
+        Assert.assertTrue(service.getUtxoEntryBytesByAddress(address).isEmpty());
+        Assert.assertNull(service.getUtxoBytes(owner));
+    }
+
+    @Test
+    public void testBuildIndex() throws Exception {
+        dbService.destroyArea(LedgerStorageConstant.DB_NAME_LEDGER_UTXO_ADDRESS);
+        service.afterPropertiesSet();
+        for (int i = 0; i < 10; i++) {
+            assertUtxoOfAddress(i);
+        }
+    }
+
+    @Test
+    public void testGetByAddress() throws Exception {
+        for (int i = 0; i < 10; i++) {
+            assertUtxoOfAddress(i * 7);
+        }
+        for (int i = 0; i < 3; i++) {
+            Assert.assertEquals(scanByAddress(address(i)), service.getUtxoEntryBytesByAddress(address(i)).size());
+        }
+    }
+
+    private void assertUtxoOfAddress(int index) throws Exception {
+        List<Entry<byte[], byte[]>> list = service.getUtxoEntryBytesByAddress(address(index));
+        Assert.assertEquals(UTXO_PER_ADDRESS, list.size());
+        for (Entry<byte[], byte[]> entry : list) {
+            Coin coin = new Coin();
+            coin.parse(entry.getValue(), 0);
+            Assert.assertArrayEquals(address(index), coin.getAddress());
+            Assert.assertArrayEquals(entry.getKey(), owner((int) coin.getNa().getValue()));
+        }
+    }
+
+    /**
+     * 添加索引前getAllUtxo的查询方式
+     * How getAllUtxo queried before the index was added.
+     */
+    private int scanByAddress(byte[] address) throws Exception {
+        int count = 0;
+        for (Entry<byte[], byte[]> entry : service.getAllUtxoEntryBytes()) {
+            Coin coin = new Coin();
+            coin.parse(entry.getValue(), 0);
+            if (Arrays.equals(coin.getAddress(), address)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static byte[] owner(int i) {
+        return ByteBuffer.allocate(35).putInt(i).array();
+    }
+
+    private static byte[] address(int i) {
+        return ByteBuffer.allocate(23).put((byte) 1).putInt(i).array();
+    }
+}
@@ -97,20 +97,10 @@ public class MessageBusServiceImpl implements MessageBusService {
 
     @Override
     public Result<? extends BaseMessage> getMessageInstance(short moduleId, int type) {
-        Class<? extends BaseMessage> clazz = MessageManager.getMessage(moduleId, type);
-        if (null == clazz) {
+        BaseMessage message = MessageManager.newMessage(moduleId, type);
+        if (null == message) {
             return Result.getFailed(MessageBusErrorCode.UNKOWN_MSG_TYPE);
         }
-        BaseMessage message = null;
-        try {
-            message = clazz.newInstance();
-        } catch (InstantiationException e) {
-            Log.error(e);
-            return Result.getFailed(MessageBusErrorCode.INSTANTIATION_EXCEPTION);
-        } catch (IllegalAccessException e) {
-            Log.error(e);
-            return Result.getFailed(MessageBusErrorCode.ILLEGAL_ACCESS_EXCEPTION);
-        }
 
         return Result.getSuccess().setData(message);
     }
@@ -27,30 +27,96 @@ package io.nuls.message.bus.manager;
 
 import io.nuls.protocol.message.base.BaseMessage;
 
-import java.util.HashMap;
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
 
 /**
  * @author: Niels Wang
  */
 public class MessageManager {
 
-    private static final Map<String, Class<? extends BaseMessage>> MESSAGE_MAP = new HashMap<>();
+    private static final Map<Integer, Class<? extends BaseMessage>> MESSAGE_MAP = new ConcurrentHashMap<>();
 
-    private static void putMessage(short moduleId, int type, Class<? extends BaseMessage> msgClass) {
-        MESSAGE_MAP.put(moduleId + "_" + type, msgClass);
+    /**
+     * 注册消息时预先生成的消息工厂，接收消息时不再通过反射创建实例
+     * The message factories created when a message is registered, so that received messages are not instantiated by reflection.
+     */
+    private static final Map<Integer, Supplier<? extends BaseMessage>> FACTORY_MAP = new ConcurrentHashMap<>();
+
+    private static int getKey(short moduleId, int type) {
+        return ((moduleId & 0xFFFF) << 16) | (type & 0xFFFF);
+    }
+
+    private static void putMessage(short moduleId, int type, Class<? extends BaseMessage> msgClass, Supplier<? extends BaseMessage> factory) {
+        int key = getKey(moduleId, type);
+        MESSAGE_MAP.put(key, msgClass);
+        FACTORY_MAP.put(key, factory);
     }
 
     public static Class<? extends BaseMessage> getMessage(short moduleId, int type) {
-        return MESSAGE_MAP.get(moduleId + "_" + type);
+        return MESSAGE_MAP.get(getKey(moduleId, type));
+    }
+
+    /**
+     * 用注册的工厂创建消息实例
+     * Create a message instance with the registered factory.
+     *
+     * @return 消息类型未注册时返回null/null if the message type is not registered
+     */
+    public static BaseMessage newMessage(short moduleId, int type) {
+        Supplier<? extends BaseMessage> factory = FACTORY_MAP.get(getKey(moduleId, type));
+        if (null == factory) {
+            return null;
+        }
+        return factory.get();
     }
 
     public static void putMessage(Class<? extends BaseMessage> msgClass) {
         try {
-            BaseMessage message = msgClass.newInstance();
-            putMessage(message.getHeader().getModuleId(), message.getHeader().getMsgType(), msgClass);
-        } catch (Exception e) {
+            putFactory(msgClass);
+        } catch (Throwable e) {
             e.printStackTrace();
         }
     }
+
+    private static <T extends BaseMessage> void putFactory(Class<T> msgClass) throws Throwable {
+        putMessage(msgClass, createFactory(msgClass));
+    }
+
+    public static <T extends BaseMessage> void putMessage(Class<T> msgClass, Supplier<T> factory) {
+        BaseMessage message = factory.get();
+        putMessage(message.getHeader().getModuleId(), message.getHeader().getMsgType(), msgClass, factory);
+    }
+
+    /**
+     * 由无参构造方法生成工厂，不能生成lambda时（如消息类不可见）退回到缓存的构造方法
+     * Create a factory from the no-arg constructor, falling back to the cached constructor
+     * when no lambda can be spun for the class, e.g. when it is not visible here.
+     */
+    private static <T extends BaseMessage> Supplier<T> createFactory(Class<T> msgClass) throws Throwable {
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            MethodHandle constructor = lookup.findConstructor(msgClass, MethodType.methodType(void.class));
+            CallSite site = LambdaMetafactory.metafactory(lookup, "get", MethodType.methodType(Supplier.class),
+                    MethodType.methodType(Object.class), constructor, MethodType.methodType(msgClass));
+            return (Supplier<T>) site.getTarget().invoke();
+        } catch (Throwable e) {
+            Constructor<T> constructor = msgClass.getDeclaredConstructor();
+            constructor.setAccessible(true);
+            return () -> {
+                try {
+                    return constructor.newInstance();
+                } catch (Exception ex) {
+                    throw new IllegalStateException(ex);
+                }
+            };
+        }
+    }
 }
@@ -48,4 +48,19 @@ public class NulsLengthFieldBasedFrameDecoder extends LengthFieldBasedFrameDecod
     public Object decode(ChannelHandlerContext ctx, ByteBuf in) throws Exception {
         return super.decode(ctx, in);
     }
+
+    /**
+     * 把帧放入池化的堆内缓冲区，消息可以直接从其底层数组解析，不再为每条消息分配新的字节数组
+     * Put the frame into a pooled heap buffer, so that messages are parsed directly from its backing array
+     * instead of allocating a new byte array for every message.
+     */
+    @Override
+    protected ByteBuf extractFrame(ChannelHandlerContext ctx, ByteBuf buffer, int index, int length) {
+        if (buffer.hasArray()) {
+            return super.extractFrame(ctx, buffer, index, length);
+        }
+        ByteBuf frame = ctx.alloc().heapBuffer(length);
+        frame.writeBytes(buffer, index, length);
+        return frame;
+    }
 }
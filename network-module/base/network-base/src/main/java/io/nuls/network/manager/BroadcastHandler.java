@@ -25,10 +25,13 @@
 
 package io.nuls.network.manager;
 
-import io.netty.buffer.Unpooled;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.ByteBufOutputStream;
 import io.netty.channel.ChannelFuture;
 import io.nuls.core.tools.log.Log;
 import io.nuls.kernel.constant.KernelErrorCode;
+import io.nuls.kernel.exception.NulsRuntimeException;
 import io.nuls.kernel.model.BaseNulsData;
 import io.nuls.network.constant.NetworkErrorCode;
 import io.nuls.network.constant.NetworkParam;
@@ -38,6 +41,7 @@ import io.nuls.network.model.NodeGroup;
 import io.nuls.protocol.message.base.BaseMessage;
 import io.nuls.protocol.message.base.MessageHeader;
 
+import java.io.IOException;
 import java.util.*;
 
 public class BroadcastHandler {
@@ -165,6 +169,25 @@ public class BroadcastHandler {
         return result;
     }
 
+    /**
+     * 把消息直接序列化到池化的直接内存缓冲区，不再生成中间的字节数组
+     * Serialize the message directly into a pooled direct buffer instead of an intermediate byte array.
+     */
+    private ByteBuf encode(BaseMessage message, ByteBufAllocator allocator) throws IOException {
+        int size = message.size();
+        ByteBuf buffer = allocator.directBuffer(size);
+        try {
+            message.serialize(new ByteBufOutputStream(buffer));
+            if (buffer.readableBytes() != size) {
+                throw new NulsRuntimeException(KernelErrorCode.SERIALIZE_ERROR);
+            }
+        } catch (IOException | RuntimeException e) {
+            buffer.release();
+            throw e;
+        }
+        return buffer;
+    }
+
     public BroadcastResult broadcastToANode(BaseMessage message, Node node, boolean asyn) {
         if (!node.isAlive()) {
             return new BroadcastResult(false, NetworkErrorCode.NET_NODE_DEAD);
@@ -174,13 +197,12 @@ public class BroadcastHandler {
         }
         try {
             MessageHeader header = message.getHeader();
-            byte[] serialize = header.serialize();
             header.setMagicNumber(networkParam.getPacketMagic());
 
             BaseNulsData body = message.getMsgBody();
             header.setLength(body.size());
 
-            ChannelFuture future = node.getChannel().writeAndFlush(Unpooled.wrappedBuffer(message.serialize()));
+            ChannelFuture future = node.getChannel().writeAndFlush(encode(message, node.getChannel().alloc()));
             if (!asyn) {
                 future.await();
                 boolean success = future.isSuccess();
@@ -129,9 +129,16 @@ public class ConnectionManager {
         List<BaseMessage> list;
         try {
             list = new ArrayList<>();
-            byte[] bytes = new byte[buffer.readableBytes()];
-            buffer.readBytes(bytes);
-            NulsByteBuffer byteBuffer = new NulsByteBuffer(bytes);
+            NulsByteBuffer byteBuffer;
+            if (buffer.hasArray()) {
+                // 直接解析帧的底层数组，解析出的数据都是复制出来的，帧释放后不受影响
+                // Parse the backing array of the frame directly, parsed data is copied out and not affected once the frame is released
+                byteBuffer = new NulsByteBuffer(buffer.array(), buffer.arrayOffset() + buffer.readerIndex(), buffer.readableBytes());
+            } else {
+                byte[] bytes = new byte[buffer.readableBytes()];
+                buffer.readBytes(bytes);
+                byteBuffer = new NulsByteBuffer(bytes);
+            }
             while (!byteBuffer.isFinished()) {
                 MessageHeader header = byteBuffer.readNulsData(new MessageHeader());
                 byteBuffer.setCursor(byteBuffer.getCursor() - header.size());
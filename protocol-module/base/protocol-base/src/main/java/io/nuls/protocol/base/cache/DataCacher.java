@@ -29,9 +29,10 @@ import io.nuls.core.tools.log.Log;
 import io.nuls.kernel.model.NulsDigestData;
 import io.nuls.protocol.constant.MessageDataType;
 
-import java.util.HashMap;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Future;
 
 /**
  * @author: Niels Wang
@@ -44,13 +45,33 @@ public class DataCacher<T> {
         this.type = type;
     }
 
-    private Map<NulsDigestData, CompletableFuture<T>> cacher = new HashMap<>();
+    private Map<NulsDigestData, Pending<T>> cacher = new ConcurrentHashMap<>();
 
+    /**
+     * 等待中的请求，记录共享同一个future的请求数
+     * A pending request with the number of requests sharing its future.
+     */
+    private static class Pending<T> {
+        private final CompletableFuture<T> future = new CompletableFuture<>();
+        private int refCount;
+    }
+
+    /**
+     * 同一个hash已有未完成的请求时返回同一个future，先收到的响应同时完成所有等待者，
+     * 区块下载中向多个节点重复请求同一段区块时依赖此行为；每次调用都要对应一次{@link #removeFuture(NulsDigestData, Future)}
+     * The same future is returned while a request for the hash is pending, the first response completes every waiter,
+     * block download relies on this when the same range is requested from several nodes.
+     * Every call must be paired with one {@link #removeFuture(NulsDigestData, Future)}.
+     */
     public CompletableFuture<T> addFuture(NulsDigestData hash) {
-        CompletableFuture future = new CompletableFuture<>();
 //        Log.info(type + "创建future：：：" + hash);
-        cacher.put(hash, future);
-        return future;
+        return cacher.compute(hash, (k, pending) -> {
+            if (pending == null) {
+                pending = new Pending<>();
+            }
+            pending.refCount++;
+            return pending;
+        }).future;
     }
 
     public boolean callback(NulsDigestData hash, T t) {
@@ -58,31 +79,40 @@ public class DataCacher<T> {
     }
 
     public boolean callback(NulsDigestData hash, T t, boolean log) {
-        CompletableFuture<T> future = cacher.get(hash);
-        if (future == null) {
+        Pending<T> pending = cacher.remove(hash);
+        if (pending == null) {
             if (log) {
                 Log.warn("Time out: ({}) : {}", type, hash.getDigestHex());
             }
             return false;
         }
-        future.complete(t);
 //        Log.info(type + "完成并删除future：：：" + hash);
-        cacher.remove(hash);
+        pending.future.complete(t);
         return true;
     }
 
     public void notFound(NulsDigestData hash) {
-        CompletableFuture<T> future = cacher.get(hash);
-        if (future == null) {
+        Pending<T> pending = cacher.remove(hash);
+        if (pending == null) {
             return;
         }
-        future.complete(null);
 //        Log.info(type + "not fount删除future：：：" + hash);
-        cacher.remove(hash);
+        pending.future.complete(null);
     }
 
-    public void removeFuture(NulsDigestData hash) {
+    /**
+     * 释放一次addFuture得到的future，最后一个请求释放后才删除，其它请求仍可以收到响应；
+     * future已经完成或被同一hash的新请求替换时不做处理
+     * Release a future obtained from addFuture, it is only removed when the last request releases it, so the other requests
+     * still receive the response. Nothing is done if the future was completed already or replaced by a new request for the hash.
+     */
+    public void removeFuture(NulsDigestData hash, Future<T> future) {
 //        Log.info(type + "调用删除future：：：" + hash);
-        cacher.remove(hash);
+        cacher.computeIfPresent(hash, (k, pending) -> {
+            if (pending.future != future) {
+                return pending;
+            }
+            return --pending.refCount > 0 ? pending : null;
+        });
     }
 }
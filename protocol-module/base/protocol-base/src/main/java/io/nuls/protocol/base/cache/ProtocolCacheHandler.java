@@ -114,24 +114,24 @@ public class ProtocolCacheHandler {
         reactCacher.callback(requesetId, requesetId);
     }
 
-    public static void removeBlockByHeightFuture(NulsDigestData hash) {
-        blockByHeightCacher.removeFuture(hash);
+    public static void removeBlockByHeightFuture(NulsDigestData hash, Future<Block> future) {
+        blockByHeightCacher.removeFuture(hash, future);
     }
 
-    public static void removeBlockByHashFuture(NulsDigestData hash) {
-        blockByHashCacher.removeFuture(hash);
+    public static void removeBlockByHashFuture(NulsDigestData hash, Future<Block> future) {
+        blockByHashCacher.removeFuture(hash, future);
     }
 
-    public static void removeHashesFuture(NulsDigestData hash) {
-        blockHashesCacher.removeFuture(hash);
+    public static void removeHashesFuture(NulsDigestData hash, Future<BlockHashResponse> future) {
+        blockHashesCacher.removeFuture(hash, future);
     }
 
-    public static void removeTaskFuture(NulsDigestData hash) {
-        taskCacher.removeFuture(hash);
+    public static void removeTaskFuture(NulsDigestData hash, Future<CompleteParam> future) {
+        taskCacher.removeFuture(hash, future);
     }
 
-    public static void removeRequest(NulsDigestData requesetId) {
-        reactCacher.removeFuture(requesetId);
+    public static void removeRequest(NulsDigestData requesetId, Future<NulsDigestData> future) {
+        reactCacher.removeFuture(requesetId, future);
     }
 
 }
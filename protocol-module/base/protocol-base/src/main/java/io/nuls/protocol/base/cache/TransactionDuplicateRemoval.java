@@ -49,4 +49,12 @@ public class TransactionDuplicateRemoval {
     public static void insert(NulsDigestData hash) {
         FILTER.insert(hash.getDigestBytes());
     }
+
+    /**
+     * 去重过滤器当前的误判率估计值
+     * Estimated current false positive rate of the duplicate filter.
+     */
+    public static double getFalsePositiveRate() {
+        return FILTER.getFalsePositiveRate();
+    }
 }
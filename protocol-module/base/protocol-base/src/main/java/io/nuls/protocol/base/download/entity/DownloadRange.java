@@ -0,0 +1,120 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017-2018 nuls.io
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package io.nuls.protocol.base.download.entity;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * 一段待下载的连续区块高度
+ * A range of contiguous block heights to download.
+ */
+public class DownloadRange {
+
+    private final long startHeight;
+    private final int size;
+
+    /**
+     * 已请求过该范围的节点
+     * Nodes this range has been requested from.
+     */
+    private final Set<String> triedNodes = new HashSet<>();
+
+    /**
+     * 正在进行中的请求数，被慢节点拖住时会同时向另一个节点请求
+     * Number of requests in flight, a range held up by a slow node is requested from another node as well.
+     */
+    private int inFlight;
+
+    private long dispatchTime;
+
+    private int failures;
+
+    private boolean completed;
+
+    public DownloadRange(long startHeight, int size) {
+        this.startHeight = startHeight;
+        this.size = size;
+    }
+
+    public long getStartHeight() {
+        return startHeight;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public long getEndHeight() {
+        return startHeight + size - 1;
+    }
+
+    public boolean containsHeight(long height) {
+        return height >= startHeight && height <= getEndHeight();
+    }
+
+    public void dispatched(String nodeId, long time) {
+        triedNodes.add(nodeId);
+        inFlight++;
+        dispatchTime = time;
+    }
+
+    public void returned() {
+        inFlight--;
+    }
+
+    public void failed() {
+        failures++;
+    }
+
+    public int getFailures() {
+        return failures;
+    }
+
+    public boolean isTried(String nodeId) {
+        return triedNodes.contains(nodeId);
+    }
+
+    public int getTriedCount() {
+        return triedNodes.size();
+    }
+
+    public int getInFlight() {
+        return inFlight;
+    }
+
+    public long getDispatchTime() {
+        return dispatchTime;
+    }
+
+    public boolean isCompleted() {
+        return completed;
+    }
+
+    public void setCompleted(boolean completed) {
+        this.completed = completed;
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017-2018 nuls.io
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package io.nuls.protocol.base.download.entity;
+
+import io.nuls.network.model.Node;
+
+/**
+ * 节点的区块下载速度统计
+ * Block download throughput statistics of a node.
+ */
+public class NodeDownloadSpeed {
+
+    /**
+     * 新样本在平均速度中的权重
+     * Weight of a new sample in the average speed.
+     */
+    private static final double SMOOTHING = 0.3d;
+
+    private final Node node;
+
+    /**
+     * 平均下载速度，单位：区块/毫秒，尚无样本时为0
+     * Average download speed in blocks per millisecond, 0 before the first sample.
+     */
+    private double speed;
+
+    private int inFlight;
+
+    private int failures;
+
+    public NodeDownloadSpeed(Node node) {
+        this.node = node;
+    }
+
+    public void record(int blockCount, long millis) {
+        double sample = (double) blockCount / Math.max(1L, millis);
+        speed = speed == 0 ? sample : SMOOTHING * sample + (1 - SMOOTHING) * speed;
+    }
+
+    public void failed() {
+        failures++;
+        // 失败按速度减半处理，使失败的节点分到更少的区块
+        // A failure halves the speed, so a failing node gets fewer blocks.
+        speed = speed / 2;
+    }
+
+    /**
+     * 按速度计算一次请求的区块数，使每次请求耗时接近targetMillis
+     * Number of blocks of one request sized by the speed, so that a request takes about targetMillis.
+     */
+    public int rangeSize(long targetMillis, int defaultSize, int minSize, int maxSize) {
+        if (speed == 0) {
+            return defaultSize;
+        }
+        long size = Math.round(speed * targetMillis);
+        return (int) Math.max(minSize, Math.min(maxSize, size));
+    }
+
+    /**
+     * 按平均速度估计下载指定数量区块的耗时，尚无样本时返回-1
+     * Estimated time to download the given number of blocks at the average speed, -1 before the first sample.
+     */
+    public long expectedMillis(int blockCount) {
+        if (speed == 0) {
+            return -1L;
+        }
+        return (long) (blockCount / speed);
+    }
+
+    public Node getNode() {
+        return node;
+    }
+
+    public double getSpeed() {
+        return speed;
+    }
+
+    public int getInFlight() {
+        return inFlight;
+    }
+
+    public void dispatched() {
+        inFlight++;
+    }
+
+    public void returned() {
+        inFlight--;
+    }
+
+    public int getFailures() {
+        return failures;
+    }
+}
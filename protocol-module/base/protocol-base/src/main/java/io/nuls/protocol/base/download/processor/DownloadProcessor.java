@@ -40,6 +40,7 @@ import io.nuls.network.service.NetworkService;
 import io.nuls.protocol.base.constant.DownloadStatus;
 import io.nuls.protocol.base.download.entity.NetworkNewestBlockInfos;
 import io.nuls.protocol.base.download.thread.DownloadThreadManager;
+import io.nuls.protocol.base.download.utils.BlockReorderBuffer;
 import io.nuls.protocol.base.download.utils.DownloadDataStorage;
 import io.nuls.protocol.constant.ProtocolConstant;
 import io.nuls.protocol.service.BlockService;
@@ -55,6 +56,13 @@ public class DownloadProcessor extends Thread {
     private static DownloadProcessor INSTANCE = new DownloadProcessor();
 
     private static long FAIL_RETRY_TIME = 30 * 1000L;
+
+    /**
+     * 已下载未保存的区块和进行中的请求所占的高度窗口，验证落后时下载在窗口满后暂停
+     * Height window shared by downloaded but unsaved blocks and requests in flight, downloading pauses once it is full
+     * when verification falls behind.
+     */
+    private static final int DOWNLOAD_WINDOW_SIZE = 1000;
     private long failedTime;
 
     private DownloadStatus downloadStatus = DownloadStatus.WAIT;
@@ -114,16 +122,16 @@ public class DownloadProcessor extends Thread {
             return;
         }
         NulsContext.getInstance().setNetBestBlockHeight(newestInfos.getNetBestHeight());
-        BlockingQueue<Block> blockQueue = new LinkedBlockingQueue<>();
+        BlockReorderBuffer reorderBuffer = new BlockReorderBuffer(DOWNLOAD_WINDOW_SIZE);
 
-        DownloadThreadManager downloadThreadManager = new DownloadThreadManager(newestInfos, blockQueue);
+        DownloadThreadManager downloadThreadManager = new DownloadThreadManager(newestInfos, reorderBuffer);
 
         FutureTask<Boolean> threadManagerFuture = new FutureTask<>(downloadThreadManager);
 
         TaskManager.createAndRunThread(ProtocolConstant.MODULE_ID_PROTOCOL, "download-thread-manager",
                 new Thread(threadManagerFuture));
 
-        DownloadDataStorage downloadDataStorage = new DownloadDataStorage(blockQueue);
+        DownloadDataStorage downloadDataStorage = new DownloadDataStorage(reorderBuffer);
 
         FutureTask<Boolean> dataStorageFuture = new FutureTask<>(downloadDataStorage);
 
@@ -131,9 +139,12 @@ public class DownloadProcessor extends Thread {
                 new Thread(dataStorageFuture));
 
         try {
-            Boolean downResult = threadManagerFuture.get();
-
-            blockQueue.offer(new Block());
+            Boolean downResult;
+            try {
+                downResult = threadManagerFuture.get();
+            } finally {
+                reorderBuffer.close();
+            }
 
             Boolean storageResult = dataStorageFuture.get();
 
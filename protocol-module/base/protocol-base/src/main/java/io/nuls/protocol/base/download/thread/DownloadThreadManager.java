@@ -39,40 +39,77 @@ import io.nuls.kernel.thread.manager.NulsThreadFactory;
 import io.nuls.kernel.thread.manager.TaskManager;
 import io.nuls.network.model.Node;
 import io.nuls.network.service.NetworkService;
+import io.nuls.protocol.base.download.entity.DownloadRange;
 import io.nuls.protocol.base.download.entity.NetworkNewestBlockInfos;
+import io.nuls.protocol.base.download.entity.NodeDownloadSpeed;
 import io.nuls.protocol.base.download.entity.ResultMessage;
+import io.nuls.protocol.base.download.utils.BlockReorderBuffer;
 import io.nuls.protocol.base.download.utils.DownloadUtils;
 import io.nuls.protocol.constant.ProtocolConstant;
 import io.nuls.protocol.service.BlockService;
 
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Queue;
-import java.util.concurrent.Callable;
-import java.util.concurrent.ExecutionException;
-import java.util.concurrent.FutureTask;
-import java.util.concurrent.ThreadPoolExecutor;
+import java.util.*;
+import java.util.concurrent.*;
 
 /**
+ * 区块下载调度
+ * 在重排序缓冲区的窗口内把连续的高度范围分配给各节点，每个节点同时保持多个请求，请求的区块数按节点实测速度调整，
+ * 下载结果乱序放入缓冲区并按高度连续交给存储线程；窗口最前面的范围被慢节点拖住时，再向其它节点请求同一范围，先返回者有效
+ * Block download scheduling.
+ * Contiguous height ranges within the window of the reorder buffer are assigned to the peers, each peer keeps several requests
+ * in flight and the number of blocks per request follows the measured speed of the peer.
+ * Results are added to the buffer out of order and handed to the storage thread in height order;
+ * when the range at the head of the window is held up by a slow peer it is requested from another peer too, the first answer wins.
+ *
  * @author ln
  */
 public class DownloadThreadManager implements Callable<Boolean> {
 
+    /**
+     * 每个节点同时进行中的请求数
+     * Requests in flight per node.
+     */
+    private static final int MAX_IN_FLIGHT_PER_NODE = 2;
+
+    private static final int DEFAULT_RANGE_SIZE = 10;
+    private static final int MIN_RANGE_SIZE = 5;
+    private static final int MAX_RANGE_SIZE = 50;
+
+    /**
+     * 按节点速度调整请求大小时，一次请求的目标耗时
+     * Target duration of one request when sizing it by the speed of the node.
+     */
+    private static final long TARGET_REQUEST_MILLIS = 2000L;
+
+    /**
+     * 窗口最前面的范围请求超过该时长后允许向其它节点重复请求
+     * The range at the head of the window may be requested from another node after this long.
+     */
+    private static final long STEAL_AFTER_MILLIS = 3000L;
+
+    private static final long POLL_MILLIS = 200L;
+
     private BlockService blockService = NulsContext.getServiceBean(BlockService.class);
     private NetworkService networkService = NulsContext.getServiceBean(NetworkService.class);
     private ConsensusService consensusService = NulsContext.getServiceBean(ConsensusService.class);
-    private NulsThreadFactory factory = new NulsThreadFactory(ProtocolConstant.MODULE_ID_PROTOCOL, "download");
 
     private NetworkNewestBlockInfos newestInfos;
-    private Queue<Block> blockQueue;
-    private String queueName;
+    private BlockReorderBuffer reorderBuffer;
+
+    private NulsDigestData localBestHash;
+    private NulsDigestData netBestHash;
+    private long netBestHeight;
+    private long nextStartHeight;
 
-    private int maxDowncount = 10;
+    private List<NodeDownloadSpeed> speeds = new ArrayList<>();
+    private Map<Future<ResultMessage>, Request> requests = new HashMap<>();
+    private LinkedList<DownloadRange> ranges = new LinkedList<>();
+    private LinkedList<DownloadRange> retryRanges = new LinkedList<>();
+    private CompletionService<ResultMessage> completionService;
 
-    public DownloadThreadManager(NetworkNewestBlockInfos newestInfos, Queue<Block> blockQueue) {
+    public DownloadThreadManager(NetworkNewestBlockInfos newestInfos, BlockReorderBuffer reorderBuffer) {
         this.newestInfos = newestInfos;
-        this.blockQueue = blockQueue;
-        this.queueName = queueName;
+        this.reorderBuffer = reorderBuffer;
     }
 
     @Override
@@ -87,127 +124,210 @@ public class DownloadThreadManager implements Callable<Boolean> {
             return false;
         }
 
-        List<Node> nodes = newestInfos.getNodes();
-        NulsDigestData netBestHash = newestInfos.getNetBestHash();
-        long netBestHeight = newestInfos.getNetBestHeight();
+        netBestHash = newestInfos.getNetBestHash();
+        netBestHeight = newestInfos.getNetBestHeight();
         Block localBestBlock = blockService.getBestBlock().getData();
-        NulsDigestData localBestHash = localBestBlock.getHeader().getHash();
+        localBestHash = localBestBlock.getHeader().getHash();
         long localBestHeight = localBestBlock.getHeader().getHeight();
 
-        ThreadPoolExecutor executor = TaskManager.createThreadPool(nodes.size(), 0,
-                new NulsThreadFactory(ProtocolConstant.MODULE_ID_PROTOCOL, "download-thread"));
-
-        List<FutureTask<ResultMessage>> futures = new ArrayList<>();
+        nextStartHeight = localBestHeight + 1;
+        reorderBuffer.start(nextStartHeight);
 
-        long totalCount = netBestHeight - localBestHeight;
-
-        long laveCount = totalCount;
-
-        long downCount = (long) Math.ceil((double) totalCount / (maxDowncount * nodes.size()));
-
-        for (long i = 0; i < downCount; i++) {
+        for (Node node : newestInfos.getNodes()) {
+            speeds.add(new NodeDownloadSpeed(node));
+        }
+        if (speeds.isEmpty()) {
+            return true;
+        }
 
-            long startHeight = (localBestHeight + 1) + i * maxDowncount * nodes.size();
+        ThreadPoolExecutor executor = TaskManager.createThreadPool(speeds.size() * (MAX_IN_FLIGHT_PER_NODE + 1), 0,
+                new NulsThreadFactory(ProtocolConstant.MODULE_ID_PROTOCOL, "download-thread"));
+        completionService = new ExecutorCompletionService<>(executor);
 
-            for (int j = nodes.size() - 1; j >= 0; j--) {
-                Node node = nodes.get(j);
-                if (!node.isHandShake()) {
-                    nodes.remove(j);
+        try {
+            while (reorderBuffer.getContiguousHeight() < netBestHeight) {
+                if (getAvailableCount() == 0) {
+                    resetNetwork("no available node to download blocks from");
                 }
-            }
-            for (int j = 0; j < nodes.size(); j++) {
-                long start = startHeight + j * maxDowncount;
-                int size = maxDowncount;
-
-                boolean isEnd = false;
-                if (start + size >= netBestHeight) {
-                    size = (int) (netBestHeight - start) + 1;
-                    isEnd = true;
+                dispatch();
+                stealSlowRange();
+                if (requests.isEmpty()) {
+                    // 窗口已满，等待存储线程取走区块
+                    // The window is full, wait for the storage thread to take blocks.
+                    reorderBuffer.awaitProgress(POLL_MILLIS, TimeUnit.MILLISECONDS);
+                    continue;
                 }
-
-                DownloadThread downloadThread = new DownloadThread(localBestHash, netBestHash, start, size, nodes.get(j));
-
-                FutureTask<ResultMessage> downloadThreadFuture = new FutureTask<>(downloadThread);
-
-                executor.execute(factory.newThread(downloadThreadFuture));
-
-                futures.add(downloadThreadFuture);
-
-                if (isEnd) {
-                    break;
+                Future<ResultMessage> future = completionService.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (future != null) {
+                    handleResult(requests.remove(future), future);
                 }
             }
-            for (FutureTask<ResultMessage> task : futures) {
-                ResultMessage result = null;
-                try {
-                    result = task.get();
-                } catch (Exception e) {
-                    Log.error(e);
-                }
-                List<Block> blockList = null;
+        } finally {
+            executor.shutdown();
+        }
+        return true;
+    }
 
-                if (result == null || (blockList = result.getBlockList()) == null || blockList.size() == 0) {
-                    blockList = retryDownload(executor, result);
-                }
+    /**
+     * 为有空闲的节点分配范围，速度快的节点优先，失败待重试的范围优先
+     * Assign ranges to nodes with free request slots, faster nodes first and failed ranges first.
+     */
+    private void dispatch() {
+        List<NodeDownloadSpeed> idleList = new ArrayList<>();
+        for (NodeDownloadSpeed speed : speeds) {
+            if (speed.getNode().isHandShake() && speed.getInFlight() < MAX_IN_FLIGHT_PER_NODE) {
+                idleList.add(speed);
+            }
+        }
+        idleList.sort((s1, s2) -> Double.compare(s2.getSpeed(), s1.getSpeed()));
 
-                if (blockList == null) {
-                    executor.shutdown();
-                    resetNetwork("attempts to download blocks from all available nodes failed");
-                    return true;
+        for (NodeDownloadSpeed speed : idleList) {
+            while (speed.getInFlight() < MAX_IN_FLIGHT_PER_NODE) {
+                DownloadRange range = takeRetryRange(speed);
+                if (range == null) {
+                    range = nextRange(speed);
                 }
-
-                for (Block block : blockList) {
-                    blockQueue.offer(block);
+                if (range == null) {
+                    break;
                 }
+                submit(range, speed);
             }
-            futures.clear();
         }
-
-        executor.shutdown();
-
-        return true;
     }
 
-    private List<Block> retryDownload(ThreadPoolExecutor executor, ResultMessage result) throws InterruptedException, ExecutionException {
+    private DownloadRange takeRetryRange(NodeDownloadSpeed speed) {
+        String nodeId = speed.getNode().getId();
+        int availableCount = getAvailableCount();
+        Iterator<DownloadRange> it = retryRanges.iterator();
+        while (it.hasNext()) {
+            DownloadRange range = it.next();
+            // 已经向所有可用节点请求过的范围可以再交给任意节点
+            // A range already tried on every available node may be retried on any node.
+            if (!range.isTried(nodeId) || range.getTriedCount() >= availableCount) {
+                it.remove();
+                return range;
+            }
+        }
+        return null;
+    }
 
-        //try download to other nodes
-        List<Node> otherNodes = new ArrayList<>();
+    private DownloadRange nextRange(NodeDownloadSpeed speed) {
+        if (nextStartHeight > netBestHeight || !reorderBuffer.isInWindow(nextStartHeight)) {
+            return null;
+        }
+        int size = speed.rangeSize(TARGET_REQUEST_MILLIS, DEFAULT_RANGE_SIZE, MIN_RANGE_SIZE, MAX_RANGE_SIZE);
+        long windowEnd = reorderBuffer.getNextHeight() + reorderBuffer.getCapacity() - 1;
+        long endHeight = Math.min(Math.min(nextStartHeight + size - 1, netBestHeight), windowEnd);
+        DownloadRange range = new DownloadRange(nextStartHeight, (int) (endHeight - nextStartHeight + 1));
+        ranges.add(range);
+        nextStartHeight = endHeight + 1;
+        return range;
+    }
 
-        Node defultNode = result.getNode();
+    private void submit(DownloadRange range, NodeDownloadSpeed speed) {
+        long now = System.currentTimeMillis();
+        DownloadThread downloadThread = new DownloadThread(localBestHash, netBestHash, range.getStartHeight(), range.getSize(), speed.getNode());
+        Future<ResultMessage> future = completionService.submit(downloadThread);
+        requests.put(future, new Request(range, speed, now));
+        range.dispatched(speed.getNode().getId(), now);
+        speed.dispatched();
+    }
 
-        for (Node node : newestInfos.getNodes()) {
-            if (!node.getId().equals(defultNode.getId())) {
-                otherNodes.add(node);
+    /**
+     * 窗口最前面的范围只有一个请求且耗时过长时，交给最快的其它节点重复请求
+     * When the range at the head of the window has a single request that takes too long, request it from the fastest other node as well.
+     */
+    private void stealSlowRange() {
+        long headHeight = reorderBuffer.getContiguousHeight() + 1;
+        DownloadRange range = null;
+        for (DownloadRange r : ranges) {
+            if (r.containsHeight(headHeight)) {
+                range = r;
+                break;
             }
         }
-
-        for (Node node : otherNodes) {
-            result.setNode(node);
-            List<Block> blockList = downloadBlockFromNode(executor, result);
-            if (blockList != null && blockList.size() > 0) {
-                return blockList;
+        if (range == null || range.getInFlight() != 1) {
+            return;
+        }
+        NodeDownloadSpeed thief = null;
+        for (NodeDownloadSpeed speed : speeds) {
+            if (!speed.getNode().isHandShake() || range.isTried(speed.getNode().getId()) || speed.getInFlight() > MAX_IN_FLIGHT_PER_NODE) {
+                continue;
+            }
+            if (thief == null || speed.getSpeed() > thief.getSpeed()) {
+                thief = speed;
             }
         }
-
-        //if fail , down again
-        result.setNode(defultNode);
-
-        return downloadBlockFromNode(executor, result);
+        if (thief == null) {
+            return;
+        }
+        long elapsed = System.currentTimeMillis() - range.getDispatchTime();
+        long expected = thief.expectedMillis(range.getSize());
+        if (elapsed < Math.max(STEAL_AFTER_MILLIS, expected * 2)) {
+            return;
+        }
+        submit(range, thief);
     }
 
-    private List<Block> downloadBlockFromNode(ThreadPoolExecutor executor, ResultMessage result) throws ExecutionException, InterruptedException {
-        DownloadThread downloadThread = new DownloadThread(result.getStartHash(), result.getEndHash(), result.getStartHeight(), result.getSize(), result.getNode());
-
-        FutureTask<ResultMessage> downloadThreadFuture = new FutureTask<ResultMessage>(downloadThread);
-        executor.execute(new Thread(downloadThreadFuture));
+    private void handleResult(Request request, Future<ResultMessage> future) throws InterruptedException {
+        DownloadRange range = request.range;
+        NodeDownloadSpeed speed = request.speed;
+        range.returned();
+        speed.returned();
 
         List<Block> blockList = null;
         try {
-            blockList = downloadThreadFuture.get().getBlockList();
-        } catch (Exception e) {
+            blockList = future.get().getBlockList();
+        } catch (ExecutionException e) {
             Log.error(e);
         }
-        return blockList;
+        boolean complete = blockList != null && blockList.size() == range.getSize() && !blockList.contains(null);
+        if (blockList != null) {
+            reorderBuffer.add(blockList);
+        }
+        if (complete) {
+            speed.record(range.getSize(), System.currentTimeMillis() - request.startTime);
+        } else {
+            speed.failed();
+        }
+        if (range.isCompleted()) {
+            return;
+        }
+        if (complete || reorderBuffer.getContiguousHeight() >= range.getEndHeight()) {
+            range.setCompleted(true);
+            ranges.remove(range);
+            return;
+        }
+        if (range.getInFlight() > 0) {
+            return;
+        }
+        range.failed();
+        if (range.getFailures() > getAvailableCount()) {
+            resetNetwork("attempts to download blocks from all available nodes failed");
+        }
+        retryRanges.add(range);
+    }
+
+    private int getAvailableCount() {
+        int count = 0;
+        for (NodeDownloadSpeed speed : speeds) {
+            if (speed.getNode().isHandShake()) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static class Request {
+        private final DownloadRange range;
+        private final NodeDownloadSpeed speed;
+        private final long startTime;
+
+        private Request(DownloadRange range, NodeDownloadSpeed speed, long startTime) {
+            this.range = range;
+            this.speed = speed;
+            this.startTime = startTime;
+        }
     }
 
     private boolean checkFirstBlock() throws NulsException {
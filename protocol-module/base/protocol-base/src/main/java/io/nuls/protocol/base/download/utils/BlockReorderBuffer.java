@@ -0,0 +1,172 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017-2018 nuls.io
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package io.nuls.protocol.base.download.utils;
+
+import io.nuls.kernel.model.Block;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 下载区块的重排序缓冲区
+ * 各节点下载的区块乱序放入，按高度连续地取出交给存储线程；缓冲区只接受[下一个待取出高度, 下一个待取出高度 + 容量)范围内的区块，
+ * 下载线程据此限制发出的请求，验证落后时自动停止继续下载
+ * Reorder buffer of downloaded blocks.
+ * Blocks downloaded from the peers are added out of order and taken by the storage thread in contiguous height order.
+ * Only blocks in [next height to take, next height to take + capacity) are accepted, the downloader limits its requests
+ * by the same window, so downloading pauses by itself when verification falls behind.
+ */
+public class BlockReorderBuffer {
+
+    private final int capacity;
+    private final Map<Long, Block> blocks = new HashMap<>();
+
+    /**
+     * 下一个待取出的高度
+     * The next height to take.
+     */
+    private long nextHeight = -1L;
+
+    /**
+     * 已连续收到的最高高度
+     * The highest height received contiguously.
+     */
+    private long contiguousHeight = -1L;
+
+    private boolean closed;
+
+    public BlockReorderBuffer(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive");
+        }
+        this.capacity = capacity;
+    }
+
+    /**
+     * 设置第一个待取出的高度，在此之前取出操作会一直等待
+     * Set the first height to take, take waits until this is called.
+     */
+    public synchronized void start(long startHeight) {
+        this.nextHeight = startHeight;
+        this.contiguousHeight = startHeight - 1;
+        notifyAll();
+    }
+
+    /**
+     * 放入下载到的区块，窗口外或已存在的高度被忽略
+     * Add downloaded blocks, heights outside the window or already present are ignored.
+     *
+     * @return 实际放入的区块数/Number of blocks actually added
+     */
+    public synchronized int add(List<Block> blockList) {
+        if (nextHeight < 0 || closed || blockList == null) {
+            return 0;
+        }
+        int count = 0;
+        for (Block block : blockList) {
+            if (block == null || block.getHeader() == null) {
+                continue;
+            }
+            long height = block.getHeader().getHeight();
+            if (height <= contiguousHeight || !isInWindow(height) || blocks.containsKey(height)) {
+                continue;
+            }
+            blocks.put(height, block);
+            count++;
+        }
+        while (blocks.containsKey(contiguousHeight + 1)) {
+            contiguousHeight++;
+        }
+        if (count > 0) {
+            notifyAll();
+        }
+        return count;
+    }
+
+    /**
+     * 取出下一个连续高度的区块，缓冲区关闭且没有可连续取出的区块时返回null
+     * Take the block of the next contiguous height, returns null once the buffer is closed and no contiguous block is left.
+     */
+    public synchronized Block take() throws InterruptedException {
+        while (true) {
+            Block block = nextHeight < 0 ? null : blocks.remove(nextHeight);
+            if (block != null) {
+                nextHeight++;
+                notifyAll();
+                return block;
+            }
+            if (closed) {
+                return null;
+            }
+            wait();
+        }
+    }
+
+    /**
+     * 等待窗口向前移动，用于下载线程在窗口已满时等待
+     * Wait for the window to move forward, used by the downloader when the window is full.
+     */
+    public synchronized void awaitProgress(long timeout, TimeUnit unit) throws InterruptedException {
+        if (!closed) {
+            unit.timedWait(this, timeout);
+        }
+    }
+
+    /**
+     * 关闭缓冲区，存储线程取完剩余的连续区块后结束
+     * Close the buffer, the storage thread finishes after taking the remaining contiguous blocks.
+     */
+    public synchronized void close() {
+        closed = true;
+        notifyAll();
+    }
+
+    /**
+     * 高度是否在当前接收窗口内
+     * Whether the height is within the current window.
+     */
+    public synchronized boolean isInWindow(long height) {
+        return nextHeight >= 0 && height >= nextHeight && height < nextHeight + capacity;
+    }
+
+    public synchronized long getNextHeight() {
+        return nextHeight;
+    }
+
+    public synchronized long getContiguousHeight() {
+        return contiguousHeight;
+    }
+
+    public synchronized int size() {
+        return blocks.size();
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+}
@@ -30,33 +30,29 @@ import io.nuls.core.tools.log.Log;
 import io.nuls.kernel.context.NulsContext;
 import io.nuls.kernel.model.Block;
 
-import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.Callable;
 
 /**
+ * 按高度顺序从重排序缓冲区取出下载的区块并交给共识模块保存
+ * Takes the downloaded blocks from the reorder buffer in height order and hands them to the consensus module.
+ *
  * Created by ln on 2018/4/8.
  */
 public class DownloadDataStorage implements Callable<Boolean> {
 
-    private BlockingQueue<Block> blockQueue;
-    private String queueName;
-    private boolean running = true;
+    private BlockReorderBuffer reorderBuffer;
 
     private ConsensusService consensusService = NulsContext.getServiceBean(ConsensusService.class);
 
-    public DownloadDataStorage(BlockingQueue<Block> blockQueue) {
-        this.blockQueue = blockQueue;
-        this.queueName = queueName;
+    public DownloadDataStorage(BlockReorderBuffer reorderBuffer) {
+        this.reorderBuffer = reorderBuffer;
     }
 
     @Override
     public Boolean call() throws Exception {
         try {
             Block block;
-            while ((block = blockQueue.take()) != null) {
-                if (block.getHeader() == null) {
-                    break;
-                }
+            while ((block = reorderBuffer.take()) != null) {
                 consensusService.addBlock(block);
             }
             return true;
@@ -62,8 +62,8 @@ public class DownloadUtils {
         Result result = messageBusService.sendToNode(message, node, false);
 //        Log.error("start request:"+new Date().toLocaleString()+" ::: "+hash);
         if (!result.isSuccess()) {
-            ProtocolCacheHandler.removeBlockByHashFuture(hash);
-            ProtocolCacheHandler.removeRequest(hash);
+            ProtocolCacheHandler.removeBlockByHashFuture(hash, future);
+            ProtocolCacheHandler.removeRequest(hash, reactFuture);
             return null;
         }
         try {
@@ -74,8 +74,8 @@ public class DownloadUtils {
             Log.error(node.getId(), e);
             return null;
         } finally {
-            ProtocolCacheHandler.removeBlockByHashFuture(hash);
-            ProtocolCacheHandler.removeRequest(hash);
+            ProtocolCacheHandler.removeBlockByHashFuture(hash, future);
+            ProtocolCacheHandler.removeRequest(hash, reactFuture);
         }
     }
 
@@ -115,12 +115,12 @@ public class DownloadUtils {
         Result result = messageBusService.sendToNode(message, node, false);
         Log.info("sended.......");
         if (!result.isSuccess()) {
-            ProtocolCacheHandler.removeTaskFuture(message.getHash());
-            ProtocolCacheHandler.removeRequest(requestHash);
+            ProtocolCacheHandler.removeTaskFuture(requestHash, taskFuture);
+            ProtocolCacheHandler.removeRequest(requestHash, reactFuture);
 
             for (Map<NulsDigestData, Future<Block>> blockFutureMap : blockFutures) {
                 for (Map.Entry<NulsDigestData, Future<Block>> entry : blockFutureMap.entrySet()) {
-                    ProtocolCacheHandler.removeBlockByHeightFuture(entry.getKey());
+                    ProtocolCacheHandler.removeBlockByHeightFuture(entry.getKey(), entry.getValue());
                 }
             }
             return resultList;
@@ -142,12 +142,12 @@ public class DownloadUtils {
             Log.error(e.getMessage());
             return new ArrayList<>();
         } finally {
-            ProtocolCacheHandler.removeTaskFuture(requestHash);
-            ProtocolCacheHandler.removeRequest(requestHash);
+            ProtocolCacheHandler.removeTaskFuture(requestHash, taskFuture);
+            ProtocolCacheHandler.removeRequest(requestHash, reactFuture);
 
             for (Map<NulsDigestData, Future<Block>> blockFutureMap : blockFutures) {
                 for (Map.Entry<NulsDigestData, Future<Block>> entry : blockFutureMap.entrySet()) {
-                    ProtocolCacheHandler.removeBlockByHeightFuture(entry.getKey());
+                    ProtocolCacheHandler.removeBlockByHeightFuture(entry.getKey(), entry.getValue());
                 }
             }
         }
@@ -175,7 +175,7 @@ public class DownloadUtils {
         Future<BlockHashResponse> future = ProtocolCacheHandler.addGetBlockHashesRequest(requestHash);
         Result hashesResult = messageBusService.sendToNode(message, node, false);
         if (!hashesResult.isSuccess()) {
-            ProtocolCacheHandler.removeHashesFuture(requestHash);
+            ProtocolCacheHandler.removeHashesFuture(requestHash, future);
             return new ArrayList<>();
         }
 
@@ -188,7 +188,7 @@ public class DownloadUtils {
             Log.error(node.getId() + ",start:" + startHeight + " , size:" + size);
             Log.error(e);
         } finally {
-            ProtocolCacheHandler.removeHashesFuture(requestHash);
+            ProtocolCacheHandler.removeHashesFuture(requestHash, future);
         }
 
         if (null == response || response.getHashList() == null || response.getHashList().size() != size) {
@@ -31,12 +31,14 @@ import io.nuls.kernel.context.NulsContext;
 import io.nuls.kernel.exception.NulsException;
 import io.nuls.kernel.exception.NulsRuntimeException;
 import io.nuls.kernel.model.Block;
+import io.nuls.kernel.model.Result;
 import io.nuls.kernel.thread.manager.TaskManager;
 import io.nuls.kernel.utils.TransactionManager;
 import io.nuls.message.bus.constant.MessageBusConstant;
 import io.nuls.message.bus.service.MessageBusService;
 import io.nuls.network.constant.NetworkConstant;
 import io.nuls.protocol.base.handler.*;
+import io.nuls.protocol.base.service.BlockServiceImpl;
 import io.nuls.protocol.base.service.DownloadServiceImpl;
 import io.nuls.protocol.message.*;
 import io.nuls.protocol.model.tx.CoinBaseTransaction;
@@ -64,6 +66,12 @@ public class BaseProtocolsModuleBootstrap extends AbstractProtocolModule {
         this.waitForDependencyRunning(MessageBusConstant.MODULE_ID_MESSAGE_BUS);
         this.waitForDependencyInited(ConsensusConstant.MODULE_ID_CONSENSUS, NetworkConstant.NETWORK_MODULE_ID);
         BlockService blockService = NulsContext.getServiceBean(BlockService.class);
+        // 先修复上次中途中断的区块批量，再读取和校验最新区块
+        // Repair the block batches interrupted in the last run before the best block is read and verified.
+        Result result = ((BlockServiceImpl) blockService).recoverInterruptedBlocks();
+        if (result.isFailed()) {
+            throw new NulsRuntimeException(result.getErrorCode());
+        }
 
         Block block0 = blockService.getGengsisBlock().getData();
         Block genesisBlock = NulsContext.getInstance().getGenesisBlock();
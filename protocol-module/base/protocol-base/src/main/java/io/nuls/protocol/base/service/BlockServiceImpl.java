@@ -31,7 +31,10 @@ import io.nuls.contract.dto.ContractTransfer;
 import io.nuls.contract.entity.tx.CallContractTransaction;
 import io.nuls.contract.entity.tx.ContractTransferTransaction;
 import io.nuls.contract.service.ContractService;
+import io.nuls.core.tools.array.ArraysTool;
 import io.nuls.core.tools.log.Log;
+import io.nuls.db.service.DBService;
+import io.nuls.db.service.MultiAreaBatchOperation;
 import io.nuls.kernel.constant.KernelErrorCode;
 import io.nuls.kernel.exception.NulsException;
 import io.nuls.kernel.lite.annotation.Autowired;
@@ -50,6 +53,7 @@ import io.nuls.protocol.service.TransactionService;
 import io.nuls.protocol.storage.po.BlockHeaderPo;
 import io.nuls.protocol.storage.service.BlockHeaderStorageService;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -62,6 +66,13 @@ import java.util.List;
 @Service("blockService")
 public class BlockServiceImpl implements BlockService {
 
+    /**
+     * 区块批量的标记类型，标记为类型加区块hash
+     * Tag types of the block batches, a tag is the type followed by the block hash.
+     */
+    private static final byte BATCH_SAVE = 1;
+    private static final byte BATCH_ROLLBACK = 2;
+
     /**
      * 存储工具类
      * Storage utility class
@@ -83,6 +94,9 @@ public class BlockServiceImpl implements BlockService {
     @Autowired
     private ContractService contractService;
 
+    @Autowired
+    private DBService dbService;
+
     /**
      * 获取创世块（从存储中）
      * Get the creation block (from storage)
@@ -289,24 +303,52 @@ public class BlockServiceImpl implements BlockService {
         if (null == block || block.getHeader() == null || block.getTxs() == null) {
             return Result.getFailed(ProtocolErroeCode.BLOCK_IS_NULL);
         }
-        long height = block.getHeader().getHeight();
+        BlockHeader header = block.getHeader();
+        long height = header.getHeight();
+        // 区块头、交易、UTXO和地址索引在一个绑定到当前线程的跨区域批量中一次写入，高度索引最后写入
+        // The header, the transactions, the UTXOs and the address index are written at once in a multi-area batch
+        // bound to the current thread, the height index is written last.
+        MultiAreaBatchOperation batch = dbService.createMultiAreaWriteBatch();
+        try {
+            batch.setTag(batchTag(BATCH_SAVE, header.getHash()));
+        } catch (IOException e) {
+            Log.error(e);
+            return Result.getFailed(KernelErrorCode.IO_ERROR);
+        }
         List<Transaction> savedList = new ArrayList<>();
-        for (Transaction transaction : block.getTxs()) {
-            transaction.setBlockHeight(height);
-            Result result = transactionService.commitTx(transaction, block.getHeader());
-            if (result.isSuccess()) {
-                result = ledgerService.saveTx(transaction);
-            }
-            if (result.isSuccess()) {
-                savedList.add(transaction);
-            } else {
-                this.rollbackTxList(savedList, block.getHeader(), false);
+        Result result;
+        dbService.bindBatch(batch);
+        try {
+            result = this.blockHeaderStorageService.saveBlockHeader(batch, PoConvertUtil.toBlockHeaderPo(block));
+            if (result.isFailed()) {
                 return result;
             }
+            for (Transaction transaction : block.getTxs()) {
+                transaction.setBlockHeight(height);
+                result = transactionService.commitTx(transaction, header);
+                if (result.isSuccess()) {
+                    result = ledgerService.saveTx(transaction);
+                }
+                if (result.isSuccess()) {
+                    savedList.add(transaction);
+                } else {
+                    // 批量没有执行，账本的回滚也只进入批量，这里只撤销交易处理器的提交
+                    // The batch is not executed and the ledger rollback only goes into it, only the processor commits are undone here.
+                    this.rollbackTxList(savedList, header, false);
+                    return result;
+                }
+            }
+            result = batch.executeBatch();
+            if (result.isFailed()) {
+                this.rollbackTxList(savedList, header, false);
+            }
+        } finally {
+            dbService.unbindBatch();
         }
-        Result result = this.blockHeaderStorageService.saveBlockHeader(PoConvertUtil.toBlockHeaderPo(block));
         if (result.isFailed()) {
-            this.rollbackTxList(savedList, block.getHeader(), false);
+            // 批量中途中断时从存储中撤销已写入的部分
+            // Undo the part written to the storage when the batch was interrupted.
+            this.recoverInterruptedBlocks(false);
             return result;
         }
         try {
@@ -359,17 +401,49 @@ public class BlockServiceImpl implements BlockService {
         if (null == block) {
             return Result.getFailed(ProtocolErroeCode.BLOCK_IS_NULL);
         }
-        boolean b = this.rollbackTxList(block.getTxs(), block.getHeader(), true);
-        if (!b) {
-            return Result.getFailed(KernelErrorCode.DATA_ERROR);
-        }
         BlockHeaderPo po = new BlockHeaderPo();
         po.setHash(block.getHeader().getHash());
         po.setHeight(block.getHeader().getHeight());
         po.setPreHash(block.getHeader().getPreHash());
-        Result result = this.blockHeaderStorageService.removeBlockHerader(po);
+        // 高度索引最先删除，区块头最后删除，交易、UTXO和地址索引在同一个批量中一次回滚
+        // The height index is removed first and the header last, the transactions, UTXOs and address index are rolled back at once in the same batch.
+        MultiAreaBatchOperation batch = dbService.createMultiAreaWriteBatch();
+        try {
+            batch.setTag(batchTag(BATCH_ROLLBACK, po.getHash()));
+        } catch (IOException e) {
+            Log.error(e);
+            return Result.getFailed(KernelErrorCode.IO_ERROR);
+        }
+        Result result;
+        dbService.bindBatch(batch);
+        try {
+            result = this.blockHeaderStorageService.removeBlockHerader(batch, po);
+            if (result.isFailed()) {
+                return result;
+            }
+            boolean b = this.rollbackTxList(block.getTxs(), block.getHeader(), true);
+            if (!b) {
+                return Result.getFailed(KernelErrorCode.DATA_ERROR);
+            }
+            result = batch.executeBatch();
+        } finally {
+            dbService.unbindBatch();
+        }
         if (result.isFailed()) {
-            return result;
+            if (dbService.getInterruptedBatchTag() == null) {
+                // 批量没有写入，恢复交易处理器的提交
+                // Nothing is written, restore the processor commits.
+                for (Transaction tx : block.getTxs()) {
+                    transactionService.commitTx(tx, block.getHeader());
+                }
+                return result;
+            }
+            // 批量中途中断时继续完成回滚
+            // Complete the rollback when the batch was interrupted.
+            result = this.recoverInterruptedBlocks(false);
+            if (result.isFailed()) {
+                return result;
+            }
         }
         try {
             accountLedgerService.rollbackTransactions(block.getTxs());
@@ -381,6 +455,111 @@ public class BlockServiceImpl implements BlockService {
         return result;
     }
 
+    /**
+     * 修复中途中断的区块批量：保存中断的区块从存储中撤销，回滚中断的区块继续完成回滚，启动时在校验最新区块之前调用
+     * Repair interrupted block batches: a block whose save was interrupted is undone from the storage, a block whose rollback
+     * was interrupted is rolled back completely. It is called at startup before the best block is verified.
+     *
+     * @return 操作结果/operating result
+     */
+    public Result recoverInterruptedBlocks() {
+        return recoverInterruptedBlocks(true);
+    }
+
+    /**
+     * @param rollbackProcessors 撤销保存中断的区块时是否同时回滚交易处理器，运行中保存失败时已经回滚过
+     *                           whether the processors are rolled back as well when a block whose save was interrupted is undone,
+     *                           a save failing at runtime has rolled them back already
+     */
+    private Result recoverInterruptedBlocks(boolean rollbackProcessors) {
+        byte[] tag;
+        while ((tag = dbService.getInterruptedBatchTag()) != null) {
+            Result result = recoverInterruptedBlock(tag, rollbackProcessors);
+            if (result.isFailed()) {
+                return result;
+            }
+            result = dbService.clearInterruptedBatch();
+            if (result.isFailed()) {
+                return result;
+            }
+        }
+        return Result.getSuccess();
+    }
+
+    private Result recoverInterruptedBlock(byte[] tag, boolean rollbackProcessors) {
+        if (tag.length == 0 || (tag[0] != BATCH_SAVE && tag[0] != BATCH_ROLLBACK)) {
+            Log.warn("interrupted batch not written by a block is skipped");
+            return Result.getSuccess();
+        }
+        NulsDigestData hash = new NulsDigestData();
+        try {
+            hash.parse(tag, 1);
+        } catch (NulsException e) {
+            Log.error(e);
+            return Result.getSuccess();
+        }
+        // 保存时区块头最先写入，回滚时区块头最后删除，区块头不存在说明没有需要修复的数据
+        // The header is written first on save and deleted last on rollback, a missing header means nothing needs repair.
+        BlockHeaderPo headerPo = blockHeaderStorageService.getBlockHeaderPo(hash);
+        if (null == headerPo) {
+            return Result.getSuccess();
+        }
+        boolean save = tag[0] == BATCH_SAVE;
+        if (save) {
+            // 高度索引最后写入，索引已指向该区块说明批量已全部写入
+            // The height index is written last, an index pointing at the block means the whole batch is written.
+            BlockHeaderPo indexed = blockHeaderStorageService.getBlockHeaderPo(headerPo.getHeight());
+            if (null != indexed && hash.equals(indexed.getHash())) {
+                return Result.getSuccess();
+            }
+        }
+        Log.info("repair interrupted block " + (save ? "save" : "rollback") + ", height: " + headerPo.getHeight() + ", hash: " + hash);
+        // 交易记录在UTXO之前写入、在UTXO之后删除，已写入的交易按倒序回滚，不存在的交易没有写入任何数据
+        // Transaction records are written before their UTXOs and deleted after them, the written ones are rolled back in reverse,
+        // a missing transaction has written nothing.
+        boolean withProcessors = save && rollbackProcessors;
+        Block block = getBlock(headerPo, !withProcessors);
+        MultiAreaBatchOperation batch = dbService.createMultiAreaWriteBatch();
+        try {
+            batch.setTag(batchTag(BATCH_ROLLBACK, hash));
+        } catch (IOException e) {
+            Log.error(e);
+            return Result.getFailed(KernelErrorCode.IO_ERROR);
+        }
+        dbService.bindBatch(batch);
+        try {
+            Result result = blockHeaderStorageService.removeBlockHerader(batch, headerPo);
+            if (result.isFailed()) {
+                return result;
+            }
+            List<Transaction> txs = block.getTxs();
+            for (int i = txs.size() - 1; i >= 0; i--) {
+                Transaction tx = txs.get(i);
+                if (null == tx) {
+                    continue;
+                }
+                if (withProcessors) {
+                    result = transactionService.rollbackTx(tx, block.getHeader());
+                } else {
+                    result = ledgerService.rollbackTx(tx);
+                }
+                if (result.isFailed()) {
+                    return result;
+                }
+            }
+            return batch.executeBatch();
+        } catch (NulsException e) {
+            Log.error(e);
+            return Result.getFailed(e.getErrorCode());
+        } finally {
+            dbService.unbindBatch();
+        }
+    }
+
+    private byte[] batchTag(byte type, NulsDigestData hash) throws IOException {
+        return ArraysTool.concatenate(new byte[]{type}, hash.serialize());
+    }
+
     /**
      * 转发区块给连接的其他对等节点，允许一个列外（不转发给它）
      * Forward block to other peers of the connection, allowing one column (not forward to it)
@@ -40,6 +40,7 @@ import io.nuls.kernel.validate.ValidateResult;
 import io.nuls.ledger.service.LedgerService;
 import io.nuls.message.bus.service.MessageBusService;
 import io.nuls.network.model.Node;
+import io.nuls.protocol.base.utils.ConflictResolver;
 import io.nuls.protocol.cache.TemporaryCacheManager;
 import io.nuls.protocol.constant.ProtocolConstant;
 import io.nuls.protocol.message.ForwardTxMessage;
@@ -202,6 +203,12 @@ public class TransactionServiceImpl implements TransactionService {
         return result;
     }
 
+    @Override
+    public ValidateResult<List<Transaction>> resolveConflicts(List<Transaction> txList) {
+        List<TransactionProcessor> processorList = TransactionManager.getAllProcessorList();
+        return ConflictResolver.resolve(txList, processorList, tx -> tx.getType() != ProtocolConstant.TX_TYPE_COINBASE && tx.getType() != ProtocolConstant.TX_TYPE_TRANSFER);
+    }
+
     @Override
     public Transaction getTx(NulsDigestData hash) {
         return consensusService.getTx(hash);
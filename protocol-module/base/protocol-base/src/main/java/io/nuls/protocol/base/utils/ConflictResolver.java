@@ -0,0 +1,209 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017-2018 nuls.io
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package io.nuls.protocol.base.utils;
+
+import io.nuls.kernel.constant.ErrorCode;
+import io.nuls.kernel.constant.TransactionErrorCode;
+import io.nuls.kernel.model.Coin;
+import io.nuls.kernel.model.Transaction;
+import io.nuls.kernel.processor.ConflictDetectProcessor;
+import io.nuls.kernel.processor.ConflictKey;
+import io.nuls.kernel.validate.ValidateResult;
+import io.nuls.ledger.util.LedgerUtil;
+
+import java.util.*;
+import java.util.function.Predicate;
+
+/**
+ * 单遍冲突检测：按顺序逐笔接受交易，系统交易优先，与已接受交易花费同一输出或占用冲突键的交易被舍弃，
+ * 得到一个极大的无冲突交易集合，之后在剩余交易上各处理器的conflictDetect只再执行一次
+ * Single pass conflict resolution: transactions are accepted one by one in order with system transactions first,
+ * a transaction spending the same output as or taking a conflicting key of an accepted transaction is discarded,
+ * which gives a maximal conflict free subset, then conflictDetect of each processor runs once more on the remaining transactions.
+ */
+public class ConflictResolver {
+
+    private static final String OUTPOINT_KEY_PREFIX = "utxo:";
+
+    /**
+     * 检测并舍弃冲突的交易
+     * Detect and discard the conflicting transactions.
+     *
+     * @param txList        需要检查的交易列表/A list of transactions to be checked.
+     * @param processorList 冲突检测处理器/conflict detect processors
+     * @param detectFilter  需要再由conflictDetect检查的交易/the transactions to be checked by conflictDetect again
+     * @return 成功时data为空列表，失败时data中返回所有舍弃的交易，errorCode为第一个冲突的原因
+     * On success data is an empty list, on failure data holds all discarded transactions and errorCode is the cause of the first conflict.
+     */
+    public static ValidateResult<List<Transaction>> resolve(List<Transaction> txList, List<? extends ConflictDetectProcessor> processorList, Predicate<Transaction> detectFilter) {
+        List<Transaction> discardList = new ArrayList<>();
+        if (null == txList || txList.isEmpty()) {
+            return success(discardList);
+        }
+        List<Transaction> orderedList = new ArrayList<>(txList.size());
+        for (Transaction tx : txList) {
+            if (tx.isSystemTx()) {
+                orderedList.add(tx);
+            }
+        }
+        for (Transaction tx : txList) {
+            if (!tx.isSystemTx()) {
+                orderedList.add(tx);
+            }
+        }
+
+        ErrorCode firstError = null;
+        String firstClassName = null;
+        Map<String, Boolean> takenKeyMap = new HashMap<>();
+        Set<Transaction> discardSet = Collections.newSetFromMap(new IdentityHashMap<>());
+        List<ConflictKey> keyList = new ArrayList<>();
+        Map<ConflictKey, String> ownerMap = new HashMap<>();
+        for (Transaction tx : orderedList) {
+            keyList.clear();
+            ownerMap.clear();
+            if (!tx.isSystemTx() && null != tx.getCoinData() && null != tx.getCoinData().getFrom()) {
+                for (Coin from : tx.getCoinData().getFrom()) {
+                    keyList.add(ConflictKey.exclusive(OUTPOINT_KEY_PREFIX + LedgerUtil.asString(from.getOwner()), TransactionErrorCode.TRANSACTION_REPEATED));
+                }
+            }
+            for (ConflictDetectProcessor processor : processorList) {
+                List<ConflictKey> keys = processor.getConflictKeys(tx);
+                if (null == keys) {
+                    continue;
+                }
+                for (ConflictKey key : keys) {
+                    keyList.add(key);
+                    ownerMap.put(key, processor.getClass().getName());
+                }
+            }
+            ConflictKey conflict = null;
+            for (ConflictKey key : keyList) {
+                Boolean exclusive = takenKeyMap.get(key.getKey());
+                if (null != exclusive && (exclusive || key.isExclusive())) {
+                    conflict = key;
+                    break;
+                }
+            }
+            if (null != conflict) {
+                discardSet.add(tx);
+                if (null == firstError) {
+                    firstError = conflict.getErrorCode();
+                    firstClassName = ownerMap.containsKey(conflict) ? ownerMap.get(conflict) : ConflictResolver.class.getName();
+                }
+                continue;
+            }
+            for (ConflictKey key : keyList) {
+                if (key.isExclusive()) {
+                    takenKeyMap.put(key.getKey(), true);
+                } else {
+                    takenKeyMap.putIfAbsent(key.getKey(), false);
+                }
+            }
+        }
+
+        List<Transaction> detectList = new ArrayList<>();
+        for (Transaction tx : txList) {
+            if (!discardSet.contains(tx) && detectFilter.test(tx)) {
+                detectList.add(tx);
+            }
+        }
+        ValidateResult unidentified = null;
+        for (ConflictDetectProcessor processor : processorList) {
+            while (!detectList.isEmpty()) {
+                ValidateResult result = processor.conflictDetect(detectList);
+                if (result.isSuccess()) {
+                    break;
+                }
+                Set<Transaction> detectSet = Collections.newSetFromMap(new IdentityHashMap<>());
+                detectSet.addAll(detectList);
+                Set<Transaction> removeSet = Collections.newSetFromMap(new IdentityHashMap<>());
+                for (Transaction tx : getDiscardList(result)) {
+                    if (detectSet.contains(tx)) {
+                        removeSet.add(tx);
+                    }
+                }
+                if (removeSet.isEmpty()) {
+                    // 处理器没有指出冲突的交易，无法继续舍弃
+                    // the processor did not name the conflicting transaction, nothing more can be discarded
+                    if (null == unidentified) {
+                        unidentified = result;
+                    }
+                    break;
+                }
+                detectList.removeIf(removeSet::contains);
+                discardSet.addAll(removeSet);
+                if (null == firstError) {
+                    firstError = result.getErrorCode();
+                    firstClassName = result.getClassName();
+                }
+            }
+        }
+
+        for (Transaction tx : txList) {
+            if (discardSet.contains(tx)) {
+                discardList.add(tx);
+            }
+        }
+        if (discardList.isEmpty() && null == unidentified) {
+            return success(discardList);
+        }
+        ValidateResult<List<Transaction>> result;
+        if (null != firstError) {
+            result = ValidateResult.getFailedResult(firstClassName, firstError);
+        } else {
+            result = ValidateResult.getFailedResult(unidentified.getClassName(), unidentified.getErrorCode());
+        }
+        result.setData(discardList);
+        return result;
+    }
+
+    /**
+     * 按conflictDetect的约定从结果中取出应舍弃的交易：单笔交易直接舍弃，两笔交易的列表舍弃后一笔，其他列表全部舍弃
+     * Take the transactions to discard from the result by the conflictDetect convention: a single transaction is discarded,
+     * the latter one of a two transaction list is discarded, other lists are discarded entirely.
+     */
+    private static List<Transaction> getDiscardList(ValidateResult result) {
+        List<Transaction> list = new ArrayList<>();
+        Object data = result.getData();
+        if (data instanceof Transaction) {
+            list.add((Transaction) data);
+        } else if (data instanceof List) {
+            List<Transaction> dataList = (List<Transaction>) data;
+            if (dataList.size() == 2) {
+                list.add(dataList.get(1));
+            } else {
+                list.addAll(dataList);
+            }
+        }
+        return list;
+    }
+
+    private static ValidateResult<List<Transaction>> success(List<Transaction> discardList) {
+        ValidateResult<List<Transaction>> result = ValidateResult.getSuccessResult();
+        result.setData(discardList);
+        return result;
+    }
+}
@@ -29,48 +29,124 @@ import com.google.common.hash.BloomFilter;
 import com.google.common.hash.Funnels;
 
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * 向量清单过滤器
+ * 由多代布隆过滤器轮转组成，新数据写入最新一代，查询检查所有代；最新一代写满后淘汰最旧的一代并新建一代，
+ * 因此最近写入的数据不会因为清空过滤器而全部被当作新数据
+ * 写入和查询都不加锁
+ * Inventory filter.
+ * Made of rotating generations of bloom filters, new items go into the newest generation and lookups check every generation.
+ * When the newest generation is full the oldest one is dropped and a new one is started,
+ * so recently seen items are aged out gradually instead of being forgotten all at once by a reset.
+ * Inserts and lookups take no lock.
  *
  * @author ln
  */
 public class InventoryFilter {
 
-    private final int elements;
-    private AtomicInteger size = new AtomicInteger(0);
+    public static final int DEFAULT_GENERATIONS = 2;
 
-    private BloomFilter<byte[]> filter;
+    private static final double DEFAULT_FPP = 0.00001;
 
-//    private Lock lock = new ReentrantLock();
+    private final int generationElements;
+    private final double generationFpp;
 
+    private final AtomicReference<Generations> generations;
+
+    /**
+     * @param elements 最多记住的最近数据条数/Maximal number of recent items remembered
+     */
     public InventoryFilter(int elements) {
-        this.elements = elements;
-        filter = BloomFilter.create(Funnels.byteArrayFunnel(), elements, 0.00001);
+        this(elements, DEFAULT_GENERATIONS, DEFAULT_FPP);
     }
 
-    public BloomFilter getFilter() {
-        return filter;
+    /**
+     * @param elements    最多记住的最近数据条数，最新一代刚轮转后至少记住其中(generations-1)/generations
+     *                    Maximal number of recent items remembered, at least (generations-1)/generations of it right after a rotation
+     * @param generations 代数，至少为2/Number of generations, at least 2
+     * @param fpp         所有代合计的期望误判率/Expected false positive rate of all generations together
+     */
+    public InventoryFilter(int elements, int generations, double fpp) {
+        if (generations < 2) {
+            throw new IllegalArgumentException("at least 2 generations are required");
+        }
+        this.generationElements = Math.max(1, elements / generations);
+        this.generationFpp = fpp / generations;
+        BloomFilter<byte[]>[] filters = newFilters(generations);
+        for (int i = 0; i < generations; i++) {
+            filters[i] = newFilter();
+        }
+        this.generations = new AtomicReference<>(new Generations(filters));
     }
 
     public void insert(byte[] object) {
-//        lock.lock();
-//        try {
-        filter.put(object);
-        int count = size.incrementAndGet();
-        if (count >= elements - 100) {
-            this.clear();
+        Generations current = generations.get();
+        current.filters[0].put(object);
+        if (current.count.incrementAndGet() == generationElements) {
+            rotate(current);
         }
-//        } finally {
-//            lock.unlock();
-//        }
     }
 
     public boolean contains(byte[] object) {
-        return filter.mightContain(object);
+        for (BloomFilter<byte[]> filter : generations.get().filters) {
+            if (filter.mightContain(object)) {
+                return true;
+            }
+        }
+        return false;
     }
 
     public void clear() {
-        filter = BloomFilter.create(Funnels.byteArrayFunnel(), elements, 0.00001);
+        Generations current = generations.get();
+        BloomFilter<byte[]>[] filters = newFilters(current.filters.length);
+        for (int i = 0; i < filters.length; i++) {
+            filters[i] = newFilter();
+        }
+        generations.set(new Generations(filters));
+    }
+
+    /**
+     * 当前的误判率估计值，由各代已写入的数据量计算
+     * Estimated current false positive rate, computed from the items written to each generation.
+     */
+    public double getFalsePositiveRate() {
+        double miss = 1;
+        for (BloomFilter<byte[]> filter : generations.get().filters) {
+            miss *= 1 - filter.expectedFpp();
+        }
+        return 1 - miss;
+    }
+
+    private void rotate(Generations current) {
+        BloomFilter<byte[]>[] filters = newFilters(current.filters.length);
+        filters[0] = newFilter();
+        System.arraycopy(current.filters, 0, filters, 1, filters.length - 1);
+        // 轮转期间仍写入旧的最新一代的数据会留在下一代中，依然可以查到
+        // Items still written to the previous newest generation during the rotation stay in the next generation and remain visible.
+        generations.compareAndSet(current, new Generations(filters));
+    }
+
+    private BloomFilter<byte[]> newFilter() {
+        return BloomFilter.create(Funnels.byteArrayFunnel(), generationElements, generationFpp);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static BloomFilter<byte[]>[] newFilters(int size) {
+        return new BloomFilter[size];
+    }
+
+    /**
+     * 不可变的各代快照，下标0为最新一代
+     * Immutable snapshot of the generations, index 0 is the newest.
+     */
+    private static final class Generations {
+        private final BloomFilter<byte[]>[] filters;
+        private final AtomicInteger count = new AtomicInteger(0);
+
+        private Generations(BloomFilter<byte[]>[] filters) {
+            this.filters = filters;
+        }
     }
 }
@@ -0,0 +1,129 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017-2018 nuls.io
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package io.nuls.protocol.base.cache;
+
+import io.nuls.kernel.model.NulsDigestData;
+import io.nuls.kernel.utils.SerializeUtils;
+import io.nuls.protocol.constant.MessageDataType;
+import org.junit.Test;
+
+import java.util.concurrent.*;
+
+import static org.junit.Assert.*;
+
+public class DataCacherTest {
+
+    private static NulsDigestData hash(long height) {
+        return NulsDigestData.calcDigestData(SerializeUtils.uint64ToByteArray(height));
+    }
+
+    @Test
+    public void testDuplicateRequest() throws Exception {
+        DataCacher<String> cacher = new DataCacher<>(MessageDataType.BLOCK);
+        NulsDigestData hash = hash(1);
+        Future<String> first = cacher.addFuture(hash);
+        Future<String> second = cacher.addFuture(hash);
+        assertSame(first, second);
+
+        // 第一个请求超时释放后，重复的请求仍能收到响应
+        // After the first request times out and releases it, the duplicate request still receives the response.
+        cacher.removeFuture(hash, first);
+        assertTrue(cacher.callback(hash, "block"));
+        assertEquals("block", second.get(1, TimeUnit.SECONDS));
+        cacher.removeFuture(hash, second);
+
+        // 两个请求都释放后不再等待响应
+        // No response is awaited once both requests have released it.
+        Future<String> third = cacher.addFuture(hash);
+        Future<String> fourth = cacher.addFuture(hash);
+        cacher.removeFuture(hash, third);
+        cacher.removeFuture(hash, fourth);
+        assertFalse(cacher.callback(hash, "late", false));
+    }
+
+    @Test
+    public void testStaleRelease() throws Exception {
+        DataCacher<String> cacher = new DataCacher<>(MessageDataType.BLOCK);
+        NulsDigestData hash = hash(2);
+        Future<String> old = cacher.addFuture(hash);
+        cacher.notFound(hash);
+        assertNull(old.get(1, TimeUnit.SECONDS));
+
+        // 已完成的请求晚到的释放不影响同一hash的新请求
+        // A late release of a completed request does not affect a new request for the same hash.
+        Future<String> renewed = cacher.addFuture(hash);
+        assertNotSame(old, renewed);
+        cacher.removeFuture(hash, old);
+        assertTrue(cacher.callback(hash, "block"));
+        assertEquals("block", renewed.get(1, TimeUnit.SECONDS));
+        cacher.removeFuture(hash, renewed);
+    }
+
+    /**
+     * 模拟下载线程把窗口最前面的慢范围再交给另一个节点：慢节点的请求先超时，另一个节点的响应要交给后发出的请求
+     * Simulates the download manager handing the slow range at the head of the window to another node: the request
+     * to the slow node times out first, and the answer of the other node has to reach the later request.
+     */
+    @Test
+    public void testStolenRange() throws Exception {
+        DataCacher<String> cacher = new DataCacher<>(MessageDataType.BLOCKS);
+        NulsDigestData hash = hash(3);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        CountDownLatch slowRequested = new CountDownLatch(1);
+        CountDownLatch stolen = new CountDownLatch(1);
+        try {
+            Future<String> slow = executor.submit(() -> request(cacher, hash, 100L, slowRequested, stolen));
+            Future<String> thief = executor.submit(() -> {
+                slowRequested.await();
+                return request(cacher, hash, 5000L, stolen, null);
+            });
+            assertNull(slow.get(5, TimeUnit.SECONDS));
+            assertTrue(cacher.callback(hash, "range"));
+            assertEquals("range", thief.get(5, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * 和DownloadUtils一样注册请求、等待响应并在结束时释放
+     * Register the request, wait for the response and release it at the end, the same way DownloadUtils does.
+     */
+    private static String request(DataCacher<String> cacher, NulsDigestData hash, long timeout, CountDownLatch requested, CountDownLatch before) throws InterruptedException {
+        Future<String> future = cacher.addFuture(hash);
+        requested.countDown();
+        if (before != null) {
+            before.await();
+        }
+        try {
+            return future.get(timeout, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException | TimeoutException e) {
+            return null;
+        } finally {
+            cacher.removeFuture(hash, future);
+        }
+    }
+}
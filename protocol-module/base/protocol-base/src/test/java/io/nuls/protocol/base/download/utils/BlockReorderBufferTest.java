@@ -0,0 +1,125 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017-2018 nuls.io
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package io.nuls.protocol.base.download.utils;
+
+import io.nuls.kernel.model.Block;
+import io.nuls.kernel.model.BlockHeader;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class BlockReorderBufferTest {
+
+    @Test
+    public void testReorder() throws InterruptedException {
+        BlockReorderBuffer buffer = new BlockReorderBuffer(10);
+        buffer.start(100);
+
+        assertEquals(2, buffer.add(blocks(103, 104)));
+        assertEquals(99, buffer.getContiguousHeight());
+        assertEquals(3, buffer.add(blocks(100, 101, 102)));
+        assertEquals(104, buffer.getContiguousHeight());
+
+        // 重复的高度和窗口外的高度被忽略
+        assertEquals(0, buffer.add(blocks(101, 110, 99)));
+        assertEquals(1, buffer.add(blocks(109)));
+
+        for (long height = 100; height <= 104; height++) {
+            assertEquals(height, buffer.take().getHeader().getHeight());
+        }
+        assertEquals(105, buffer.getNextHeight());
+        assertTrue(buffer.isInWindow(114));
+        assertFalse(buffer.isInWindow(115));
+
+        buffer.close();
+        assertNull(buffer.take());
+        assertEquals(1, buffer.size());
+    }
+
+    @Test
+    public void testConsumer() throws InterruptedException {
+        final BlockReorderBuffer buffer = new BlockReorderBuffer(20);
+        final List<Long> taken = new ArrayList<>();
+        Thread consumer = new Thread(() -> {
+            try {
+                Block block;
+                while ((block = buffer.take()) != null) {
+                    taken.add(block.getHeader().getHeight());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        consumer.start();
+
+        buffer.start(1);
+        for (long start = 1; start <= 100; start += 20) {
+            // 后一段先到，窗口满时等待消费者取走区块
+            while (!buffer.isInWindow(start + 19)) {
+                buffer.awaitProgress(100, TimeUnit.MILLISECONDS);
+            }
+            assertEquals(10, buffer.add(range(start + 10, 10)));
+            assertEquals(start - 1, buffer.getContiguousHeight());
+            assertEquals(10, buffer.add(range(start, 10)));
+        }
+        assertEquals(100, buffer.getContiguousHeight());
+        buffer.close();
+        consumer.join(5000);
+
+        assertEquals(100, taken.size());
+        for (int i = 0; i < taken.size(); i++) {
+            assertEquals(i + 1, taken.get(i).longValue());
+        }
+    }
+
+    private List<Block> blocks(long... heights) {
+        List<Block> list = new ArrayList<>();
+        for (long height : heights) {
+            list.add(block(height));
+        }
+        return list;
+    }
+
+    private List<Block> range(long start, int size) {
+        List<Block> list = new ArrayList<>();
+        for (long height = start; height < start + size; height++) {
+            list.add(block(height));
+        }
+        return list;
+    }
+
+    private Block block(long height) {
+        BlockHeader header = new BlockHeader();
+        header.setHeight(height);
+        Block block = new Block();
+        block.setHeader(header);
+        return block;
+    }
+}
@@ -0,0 +1,272 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017-2018 nuls.io
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package io.nuls.protocol.base.utils;
+
+import io.nuls.kernel.constant.KernelErrorCode;
+import io.nuls.kernel.constant.TransactionErrorCode;
+import io.nuls.kernel.exception.NulsException;
+import io.nuls.kernel.lite.core.SpringLiteContext;
+import io.nuls.kernel.model.Coin;
+import io.nuls.kernel.model.CoinData;
+import io.nuls.kernel.model.Na;
+import io.nuls.kernel.model.Result;
+import io.nuls.kernel.model.Transaction;
+import io.nuls.kernel.model.TransactionLogicData;
+import io.nuls.kernel.processor.ConflictDetectProcessor;
+import io.nuls.kernel.processor.ConflictKey;
+import io.nuls.kernel.processor.TransactionProcessor;
+import io.nuls.kernel.utils.NulsByteBuffer;
+import io.nuls.kernel.validate.ValidateResult;
+import io.nuls.protocol.base.service.TransactionServiceImpl;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class ConflictResolverTest {
+
+    private static final int TYPE_NORMAL = 1001;
+    private static final int TYPE_STOP = 1002;
+    private static final int TYPE_DEPOSIT = 1003;
+    private static final int TYPE_LEGACY = 1004;
+
+    @Test
+    public void testDoubleSpend() {
+        TestTx tx1 = new TestTx(TYPE_NORMAL, false, null, outpoint(1));
+        TestTx tx2 = new TestTx(TYPE_NORMAL, false, null, outpoint(1), outpoint(2));
+        TestTx tx3 = new TestTx(TYPE_NORMAL, false, null, outpoint(2));
+        TestTx tx4 = new TestTx(TYPE_NORMAL, false, null, outpoint(3));
+
+        ValidateResult<List<Transaction>> result = ConflictResolver.resolve(Arrays.asList(tx1, tx2, tx3, tx4), Collections.emptyList(), tx -> true);
+        assertTrue(result.isFailed());
+        assertEquals(TransactionErrorCode.TRANSACTION_REPEATED, result.getErrorCode());
+        assertEquals(Collections.singletonList(tx2), result.getData());
+
+        result = ConflictResolver.resolve(Arrays.asList(tx1, tx3, tx4), Collections.emptyList(), tx -> true);
+        assertTrue(result.isSuccess());
+        assertTrue(result.getData().isEmpty());
+    }
+
+    @Test
+    public void testExclusiveAndSharedKeys() {
+        List<KeyProcessor> processors = Collections.singletonList(new KeyProcessor());
+        TestTx deposit1 = new TestTx(TYPE_DEPOSIT, false, "agent-1");
+        TestTx deposit2 = new TestTx(TYPE_DEPOSIT, false, "agent-1");
+        TestTx stop = new TestTx(TYPE_STOP, false, "agent-1");
+        TestTx otherStop = new TestTx(TYPE_STOP, false, "agent-2");
+        TestTx stopAgain = new TestTx(TYPE_STOP, false, "agent-2");
+
+        // 共享的键互不冲突，与独占的键冲突
+        ValidateResult<List<Transaction>> result = ConflictResolver.resolve(Arrays.asList(deposit1, deposit2, stop, otherStop, stopAgain), processors, tx -> true);
+        assertTrue(result.isFailed());
+        assertEquals(KernelErrorCode.DATA_ERROR, result.getErrorCode());
+        assertEquals(KeyProcessor.class.getName(), result.getClassName());
+        assertEquals(Arrays.asList(stop, stopAgain), result.getData());
+
+        result = ConflictResolver.resolve(Arrays.asList(stop, deposit1, deposit2), processors, tx -> true);
+        assertEquals(Arrays.asList(deposit1, deposit2), result.getData());
+    }
+
+    @Test
+    public void testSystemTxFirst() {
+        List<KeyProcessor> processors = Collections.singletonList(new KeyProcessor());
+        TestTx deposit = new TestTx(TYPE_DEPOSIT, false, "agent-1");
+        TestTx systemStop = new TestTx(TYPE_STOP, true, "agent-1");
+
+        ValidateResult<List<Transaction>> result = ConflictResolver.resolve(Arrays.asList(deposit, systemStop), processors, tx -> true);
+        assertEquals(Collections.singletonList(deposit), result.getData());
+    }
+
+    @Test
+    public void testLegacyConflictDetect() {
+        List<LegacyProcessor> processors = Collections.singletonList(new LegacyProcessor());
+        TestTx tx1 = new TestTx(TYPE_LEGACY, false, null, outpoint(1));
+        TestTx tx2 = new TestTx(TYPE_LEGACY, false, null);
+        TestTx tx3 = new TestTx(TYPE_LEGACY, false, null);
+        TestTx doubleSpend = new TestTx(TYPE_LEGACY, false, null, outpoint(1));
+        TestTx filtered = new TestTx(TYPE_NORMAL, false, null);
+
+        // 只有第一笔同类交易被保留，已按键舍弃的交易不再交给conflictDetect
+        ValidateResult<List<Transaction>> result = ConflictResolver.resolve(Arrays.asList(tx1, doubleSpend, tx2, filtered, tx3), processors, tx -> tx.getType() == TYPE_LEGACY);
+        assertTrue(result.isFailed());
+        assertEquals(TransactionErrorCode.TRANSACTION_REPEATED, result.getErrorCode());
+        assertEquals(Arrays.asList(doubleSpend, tx2, tx3), result.getData());
+        assertEquals(3, processors.get(0).count);
+
+        // 处理器没有指出冲突的交易时返回失败，但没有可舍弃的交易
+        processors.get(0).identify = false;
+        result = ConflictResolver.resolve(Arrays.asList(tx1, tx2), processors, tx -> true);
+        assertTrue(result.isFailed());
+        assertEquals(KernelErrorCode.FAILED, result.getErrorCode());
+        assertTrue(result.getData().isEmpty());
+    }
+
+    @Test
+    public void testManyConflicts() {
+        List<KeyProcessor> processors = Collections.singletonList(new KeyProcessor());
+        int count = 100000;
+        List<Transaction> txList = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            // 每十笔交易中一笔注销节点，每个节点被注销十次，其余交易两两花费同一个输出
+            if (i % 10 == 0) {
+                txList.add(new TestTx(TYPE_STOP, false, "agent-" + (i / 100), outpoint(count + i)));
+            } else {
+                txList.add(new TestTx(TYPE_DEPOSIT, false, "agent-" + (count + i / 100), outpoint(i / 2)));
+            }
+        }
+        ValidateResult<List<Transaction>> result = ConflictResolver.resolve(txList, processors, tx -> true);
+        // 每十笔交易中四笔双花，每个节点除第一笔外的九笔注销交易冲突
+        assertEquals(count / 10 * 4 + count / 100 * 9, result.getData().size());
+    }
+
+    /**
+     * 区块验证仍走原来的conflictDetect：单遍检测会舍弃的交易（键冲突、重复花费），原来接受的区块仍被接受
+     * Block verification still goes through the former conflictDetect: a block the baseline accepted is still accepted,
+     * even when the single pass resolution would discard some of its transactions for key conflicts or double spends.
+     */
+    @Test
+    public void testBlockVerificationUnchanged() throws Exception {
+        SpringLiteContext.putBean(StrictProcessor.class, false);
+        try {
+            TransactionServiceImpl transactionService = new TransactionServiceImpl();
+            TestTx stop = new TestTx(TYPE_STOP, false, "agent-1", outpoint(1));
+            TestTx stopAgain = new TestTx(TYPE_STOP, false, "agent-1", outpoint(2));
+            TestTx spend = new TestTx(TYPE_NORMAL, false, null, outpoint(3));
+            TestTx doubleSpend = new TestTx(TYPE_NORMAL, false, null, outpoint(3));
+            List<Transaction> blockTxList = Arrays.asList(stop, stopAgain, spend, doubleSpend);
+
+            assertTrue(transactionService.conflictDetect(blockTxList).isSuccess());
+
+            ValidateResult<List<Transaction>> result = transactionService.resolveConflicts(blockTxList);
+            assertTrue(result.isFailed());
+            assertEquals(Arrays.asList(stopAgain, doubleSpend), result.getData());
+        } finally {
+            SpringLiteContext.removeBean(StrictProcessor.class);
+        }
+    }
+
+    private static byte[] outpoint(int index) {
+        byte[] bytes = new byte[34];
+        bytes[0] = (byte) (index >>> 24);
+        bytes[1] = (byte) (index >>> 16);
+        bytes[2] = (byte) (index >>> 8);
+        bytes[3] = (byte) index;
+        return bytes;
+    }
+
+    static class TestTx extends Transaction {
+
+        private final boolean systemTx;
+
+        private final String agent;
+
+        TestTx(int type, boolean systemTx, String agent, byte[]... outpoints) {
+            super(type);
+            this.systemTx = systemTx;
+            this.agent = agent;
+            CoinData coinData = new CoinData();
+            for (byte[] owner : outpoints) {
+                coinData.getFrom().add(new Coin(owner, Na.NA));
+            }
+            setCoinData(coinData);
+        }
+
+        @Override
+        public boolean isSystemTx() {
+            return systemTx;
+        }
+
+        @Override
+        protected TransactionLogicData parseTxData(NulsByteBuffer byteBuffer) throws NulsException {
+            return null;
+        }
+
+        @Override
+        public String getInfo(byte[] address) {
+            return null;
+        }
+    }
+
+    static class KeyProcessor implements ConflictDetectProcessor {
+
+        @Override
+        public ValidateResult conflictDetect(List<Transaction> txList) {
+            return ValidateResult.getSuccessResult();
+        }
+
+        @Override
+        public List<ConflictKey> getConflictKeys(Transaction tx) {
+            String agent = ((TestTx) tx).agent;
+            if (tx.getType() == TYPE_STOP) {
+                return Collections.singletonList(ConflictKey.exclusive("agent:" + agent, KernelErrorCode.DATA_ERROR));
+            } else if (tx.getType() == TYPE_DEPOSIT) {
+                return Collections.singletonList(ConflictKey.shared("agent:" + agent, KernelErrorCode.DATA_ERROR));
+            }
+            return null;
+        }
+    }
+
+    static class LegacyProcessor implements ConflictDetectProcessor {
+
+        private int count;
+
+        private boolean identify = true;
+
+        @Override
+        public ValidateResult conflictDetect(List<Transaction> txList) {
+            count++;
+            if (txList.size() <= 1) {
+                return ValidateResult.getSuccessResult();
+            }
+            ValidateResult result = ValidateResult.getFailedResult(getClass().getName(), KernelErrorCode.FAILED);
+            if (identify) {
+                result.setData(txList.get(1));
+            }
+            return result;
+        }
+    }
+
+    /**
+     * 键比原来的conflictDetect更严格的处理器
+     * A processor whose keys are stricter than its former conflictDetect.
+     */
+    public static class StrictProcessor extends KeyProcessor implements TransactionProcessor<Transaction> {
+
+        @Override
+        public Result onRollback(Transaction tx, Object secondaryData) {
+            return Result.getSuccess();
+        }
+
+        @Override
+        public Result onCommit(Transaction tx, Object secondaryData) {
+            return Result.getSuccess();
+        }
+    }
+}
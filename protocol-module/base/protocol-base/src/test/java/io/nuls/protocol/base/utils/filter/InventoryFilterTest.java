@@ -39,6 +39,9 @@ import java.util.List;
 import java.util.Set;
 import java.util.concurrent.atomic.AtomicInteger;
 
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
 /**
  * @author: Niels Wang
  * @date: 2018/7/8
@@ -119,4 +122,33 @@ public class InventoryFilterTest {
         System.out.println("real-size====" + set.size());
 
     }
+
+    @Test
+    public void testRotation() {
+        InventoryFilter filter = new InventoryFilter(10000);
+        assertTrue(filter.getFalsePositiveRate() == 0);
+        for (int i = 0; i < 25000; i++) {
+            filter.insert(intBytes(i));
+            // 最近写入的一代容量的数据始终可以查到
+            int from = Math.max(0, i - 4999);
+            assertTrue(filter.contains(intBytes(from)));
+            assertTrue(filter.contains(intBytes(i)));
+        }
+        int forgotten = 0;
+        for (int i = 0; i < 10000; i++) {
+            if (!filter.contains(intBytes(i))) {
+                forgotten++;
+            }
+        }
+        assertTrue(forgotten > 9900);
+        double fpp = filter.getFalsePositiveRate();
+        assertTrue(fpp > 0 && fpp < 0.0001);
+
+        filter.clear();
+        assertFalse(filter.contains(intBytes(24999)));
+    }
+
+    private byte[] intBytes(int i) {
+        return new byte[]{(byte) (i >>> 24), (byte) (i >>> 16), (byte) (i >>> 8), (byte) i};
+    }
 }
\ No newline at end of file
@@ -25,6 +25,7 @@
 
 package io.nuls.protocol.storage.service;
 
+import io.nuls.db.service.MultiAreaBatchOperation;
 import io.nuls.kernel.model.NulsDigestData;
 import io.nuls.kernel.model.Result;
 import io.nuls.protocol.storage.po.BlockHeaderPo;
@@ -64,6 +65,17 @@ public interface BlockHeaderStorageService {
      */
     Result saveBlockHeader(BlockHeaderPo po);
 
+    /**
+     * 在跨区域批量中保存区块头数据，与区块的交易一起写入，高度索引最后写入，索引存在即说明整个批量已写入
+     * Save the block header data in the multi-area batch together with the transactions of the block, the height index
+     * is written last, so an existing index means the whole batch is written.
+     *
+     * @param batch 跨区域批量/multi-area batch
+     * @param po    区块头数据/block header data
+     * @return 操作结果/operating result
+     */
+    Result saveBlockHeader(MultiAreaBatchOperation batch, BlockHeaderPo po);
+
     /**
      * 从存储中删除区块头数据
      * Remove block header data from storage.
@@ -73,6 +85,16 @@ public interface BlockHeaderStorageService {
      */
     Result removeBlockHerader(BlockHeaderPo po);
 
+    /**
+     * 在跨区域批量中删除区块头数据，区块头最后删除，区块头不存在即说明整个批量已写入
+     * Remove block header data in the multi-area batch, the header is deleted last, so a missing header means the whole batch is written.
+     *
+     * @param batch 跨区域批量/multi-area batch
+     * @param po    区块头/block header data
+     * @return 操作结果/operating result
+     */
+    Result removeBlockHerader(MultiAreaBatchOperation batch, BlockHeaderPo po);
+
     /**
      * 获取最新的区块头
      * Get the latest block header.
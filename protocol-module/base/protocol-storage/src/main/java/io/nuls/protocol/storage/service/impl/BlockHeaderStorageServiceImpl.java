@@ -27,7 +27,11 @@ package io.nuls.protocol.storage.service.impl;
 
 import io.nuls.core.tools.log.Log;
 import io.nuls.db.constant.DBErrorCode;
+import io.nuls.db.model.CacheConfig;
+import io.nuls.db.service.BatchOperation;
 import io.nuls.db.service.DBService;
+import io.nuls.db.service.DBSnapshot;
+import io.nuls.db.service.MultiAreaBatchOperation;
 import io.nuls.kernel.constant.KernelErrorCode;
 import io.nuls.kernel.exception.NulsException;
 import io.nuls.kernel.exception.NulsRuntimeException;
@@ -68,11 +72,11 @@ public class BlockHeaderStorageServiceImpl implements BlockHeaderStorageService,
      */
     @Override
     public void afterPropertiesSet() {
-        Result result = this.dbService.createArea(ProtocolStorageConstant.DB_NAME_BLOCK_HEADER_INDEX);
+        Result result = this.dbService.createArea(ProtocolStorageConstant.DB_NAME_BLOCK_HEADER_INDEX, new CacheConfig(4096));
         if (result.isFailed() && !DBErrorCode.DB_AREA_EXIST.equals(result.getErrorCode())) {
             throw new NulsRuntimeException(result.getErrorCode());
         }
-        result = this.dbService.createArea(ProtocolStorageConstant.DB_NAME_BLOCK_HEADER);
+        result = this.dbService.createArea(ProtocolStorageConstant.DB_NAME_BLOCK_HEADER, new CacheConfig(2048));
         if (result.isFailed() && !DBErrorCode.DB_AREA_EXIST.equals(result.getErrorCode())) {
             throw new NulsRuntimeException(result.getErrorCode());
         }
@@ -95,11 +99,7 @@ public class BlockHeaderStorageServiceImpl implements BlockHeaderStorageService,
         if(height < 0L) {
             return null;
         }
-        byte[] hashBytes = dbService.get(ProtocolStorageConstant.DB_NAME_BLOCK_HEADER_INDEX, new VarInt(height).encode());
-        if (null == hashBytes) {
-            return null;
-        }
-        return getBlockHeaderPo(hashBytes);
+        return getIndexedBlockHeaderPo(new VarInt(height).encode());
     }
 
     /**
@@ -134,6 +134,10 @@ public class BlockHeaderStorageServiceImpl implements BlockHeaderStorageService,
         if (null == bytes) {
             return null;
         }
+        return toBlockHeaderPo(hashBytes, bytes);
+    }
+
+    private BlockHeaderPo toBlockHeaderPo(byte[] hashBytes, byte[] bytes) {
         BlockHeaderPo po = new BlockHeaderPo();
         try {
             po.parse(bytes,0);
@@ -169,7 +173,10 @@ public class BlockHeaderStorageServiceImpl implements BlockHeaderStorageService,
             Log.error(e);
             return Result.getFailed(KernelErrorCode.IO_ERROR);
         }
-        Result result = null;
+        // 先保存区块头，再在同一个区域内原子地写入高度索引和最新区块指针，中途中断时只会留下一个没有索引的区块头
+        // Save the header first, then write the height index and best block pointer atomically in their own area,
+        // an interrupted save only leaves an unindexed header behind.
+        Result result;
         try {
             result = dbService.put(ProtocolStorageConstant.DB_NAME_BLOCK_HEADER, hashBytes, po.serialize());
         } catch (IOException e) {
@@ -179,20 +186,40 @@ public class BlockHeaderStorageServiceImpl implements BlockHeaderStorageService,
         if (result.isFailed()) {
             return result;
         }
-        result = dbService.put(ProtocolStorageConstant.DB_NAME_BLOCK_HEADER_INDEX, new VarInt(po.getHeight()).encode(), hashBytes);
+        BatchOperation batch = dbService.createWriteBatch(ProtocolStorageConstant.DB_NAME_BLOCK_HEADER_INDEX);
+        batch.put(new VarInt(po.getHeight()).encode(), hashBytes);
+        batch.put(bestBlockKey, hashBytes);
+        result = batch.executeBatch();
         if (result.isFailed()) {
-            this.removeBlockHerader(hashBytes);
-            return result;
+            dbService.delete(ProtocolStorageConstant.DB_NAME_BLOCK_HEADER, hashBytes);
         }
-        dbService.put(ProtocolStorageConstant.DB_NAME_BLOCK_HEADER_INDEX, bestBlockKey, hashBytes);
-        return Result.getSuccess();
+        return result;
     }
 
-    private Result removeBlockHerader(byte[] hashBytes) {
-        if (null == hashBytes) {
+    /**
+     * 在跨区域批量中保存区块头数据，高度索引所在区域最后写入
+     * Save the block header data in the multi-area batch, the area of the height index is written last.
+     *
+     * @param batch 跨区域批量/multi-area batch
+     * @param po    区块头数据/block header data
+     * @return 操作结果/operating result
+     */
+    @Override
+    public Result saveBlockHeader(MultiAreaBatchOperation batch, BlockHeaderPo po) {
+        if (null == batch || null == po) {
             return Result.getFailed(KernelErrorCode.NULL_PARAMETER);
         }
-        return dbService.delete(ProtocolStorageConstant.DB_NAME_BLOCK_HEADER, hashBytes);
+        try {
+            byte[] hashBytes = po.getHash().serialize();
+            batch.put(ProtocolStorageConstant.DB_NAME_BLOCK_HEADER, hashBytes, po.serialize());
+            batch.put(ProtocolStorageConstant.DB_NAME_BLOCK_HEADER_INDEX, new VarInt(po.getHeight()).encode(), hashBytes);
+            batch.put(ProtocolStorageConstant.DB_NAME_BLOCK_HEADER_INDEX, bestBlockKey, hashBytes);
+        } catch (IOException e) {
+            Log.error(e);
+            return Result.getFailed(KernelErrorCode.IO_ERROR);
+        }
+        batch.setCommitArea(ProtocolStorageConstant.DB_NAME_BLOCK_HEADER_INDEX);
+        return Result.getSuccess();
     }
 
     /**
@@ -207,18 +234,46 @@ public class BlockHeaderStorageServiceImpl implements BlockHeaderStorageService,
         if (null == po || po.getHeight() < 0 || po.getHash() == null || po.getPreHash() == null) {
             return Result.getFailed(KernelErrorCode.NULL_PARAMETER);
         }
-        dbService.delete(ProtocolStorageConstant.DB_NAME_BLOCK_HEADER_INDEX, new VarInt(po.getHeight()).encode());
+        // 先原子地删除高度索引并回退最新区块指针，再删除区块头
+        // Remove the height index and move the best block pointer back atomically first, then delete the header.
+        BatchOperation batch = dbService.createWriteBatch(ProtocolStorageConstant.DB_NAME_BLOCK_HEADER_INDEX);
+        batch.delete(new VarInt(po.getHeight()).encode());
         try {
-            dbService.put(ProtocolStorageConstant.DB_NAME_BLOCK_HEADER_INDEX, bestBlockKey, po.getPreHash().serialize());
+            batch.put(bestBlockKey, po.getPreHash().serialize());
+            Result result = batch.executeBatch();
+            if (result.isFailed()) {
+                return result;
+            }
+            return dbService.delete(ProtocolStorageConstant.DB_NAME_BLOCK_HEADER, po.getHash().serialize());
         } catch (IOException e) {
             Log.error(e);
+            return Result.getFailed();
+        }
+    }
+
+    /**
+     * 在跨区域批量中删除区块头数据，高度索引所在区域最先写入，区块头所在区域最后写入
+     * Remove the block header data in the multi-area batch, the area of the height index is written first and the area of the header last.
+     *
+     * @param batch 跨区域批量/multi-area batch
+     * @param po    区块头,摘要和高度必须要有/Block heads, abstracts and heights must be available.
+     * @return 操作结果/operating result
+     */
+    @Override
+    public Result removeBlockHerader(MultiAreaBatchOperation batch, BlockHeaderPo po) {
+        if (null == batch || null == po || po.getHeight() < 0 || po.getHash() == null || po.getPreHash() == null) {
+            return Result.getFailed(KernelErrorCode.NULL_PARAMETER);
         }
         try {
-            return removeBlockHerader(po.getHash().serialize());
+            batch.delete(ProtocolStorageConstant.DB_NAME_BLOCK_HEADER_INDEX, new VarInt(po.getHeight()).encode());
+            batch.put(ProtocolStorageConstant.DB_NAME_BLOCK_HEADER_INDEX, bestBlockKey, po.getPreHash().serialize());
+            batch.delete(ProtocolStorageConstant.DB_NAME_BLOCK_HEADER, po.getHash().serialize());
         } catch (IOException e) {
             Log.error(e);
-            return Result.getFailed();
+            return Result.getFailed(KernelErrorCode.IO_ERROR);
         }
+        batch.setCommitArea(ProtocolStorageConstant.DB_NAME_BLOCK_HEADER);
+        return Result.getSuccess();
     }
 
     /**
@@ -227,11 +282,36 @@ public class BlockHeaderStorageServiceImpl implements BlockHeaderStorageService,
      */
     @Override
     public BlockHeaderPo getBestBlockHeaderPo() {
-        byte[] hashBytes = dbService.get(ProtocolStorageConstant.DB_NAME_BLOCK_HEADER_INDEX, bestBlockKey);
+        return getIndexedBlockHeaderPo(bestBlockKey);
+    }
+
+    /**
+     * 通过高度索引读取区块头，索引存在而区块头读不到时说明读取期间区块被回滚，在两个区域的同一快照上重新读取
+     * 快照读取不经过缓存，所以只在这种情况下使用
+     * Read the block header through the height index. When the index exists but the header does not, the block was
+     * rolled back in between, so both are read again on one snapshot of the two areas.
+     * Snapshot reads bypass the cache, so a snapshot is only used in this case.
+     */
+    private BlockHeaderPo getIndexedBlockHeaderPo(byte[] indexKey) {
+        byte[] hashBytes = dbService.get(ProtocolStorageConstant.DB_NAME_BLOCK_HEADER_INDEX, indexKey);
         if (null == hashBytes) {
             return null;
         }
-        return getBlockHeaderPo(hashBytes);
+        byte[] bytes = dbService.get(ProtocolStorageConstant.DB_NAME_BLOCK_HEADER, hashBytes);
+        if (null != bytes) {
+            return toBlockHeaderPo(hashBytes, bytes);
+        }
+        try (DBSnapshot snapshot = dbService.createSnapshot(ProtocolStorageConstant.DB_NAME_BLOCK_HEADER_INDEX, ProtocolStorageConstant.DB_NAME_BLOCK_HEADER)) {
+            hashBytes = dbService.get(ProtocolStorageConstant.DB_NAME_BLOCK_HEADER_INDEX, indexKey, snapshot);
+            if (null == hashBytes) {
+                return null;
+            }
+            bytes = dbService.get(ProtocolStorageConstant.DB_NAME_BLOCK_HEADER, hashBytes, snapshot);
+            if (null == bytes) {
+                return null;
+            }
+            return toBlockHeaderPo(hashBytes, bytes);
+        }
     }
 
 }
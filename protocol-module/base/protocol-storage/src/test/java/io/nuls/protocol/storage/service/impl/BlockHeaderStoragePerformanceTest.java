@@ -0,0 +1,141 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017-2018 nuls.io
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package io.nuls.protocol.storage.service.impl;
+
+import io.nuls.db.module.impl.LevelDbModuleBootstrap;
+import io.nuls.db.service.BatchOperation;
+import io.nuls.db.service.DBService;
+import io.nuls.db.service.MultiAreaBatchOperation;
+import io.nuls.kernel.MicroKernelBootstrap;
+import io.nuls.kernel.context.NulsContext;
+import io.nuls.kernel.model.NulsDigestData;
+import io.nuls.kernel.model.NulsSignData;
+import io.nuls.kernel.script.BlockSignature;
+import io.nuls.kernel.utils.VarInt;
+import io.nuls.protocol.storage.constant.ProtocolStorageConstant;
+import io.nuls.protocol.storage.po.BlockHeaderPo;
+import io.nuls.protocol.storage.service.BlockHeaderStorageService;
+import org.junit.BeforeClass;
+import org.junit.Ignore;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 对比区块头在一个跨区域批量中写入与先写区块头再写索引批量两种方式每秒保存的区块数，需手动运行
+ * Compare blocks saved per second when the header is written in one multi-area batch against
+ * a header put followed by an index batch. Run by hand.
+ */
+@Ignore
+public class BlockHeaderStoragePerformanceTest {
+
+    private static final int COUNT = 20000;
+
+    private static final int ROUNDS = 3;
+
+    private static BlockHeaderStorageService service;
+
+    private static DBService dbService;
+
+    @BeforeClass
+    public static void init() {
+        LevelDbModuleBootstrap bootstrap = new LevelDbModuleBootstrap();
+        bootstrap.init();
+        bootstrap.start();
+
+        MicroKernelBootstrap mk = MicroKernelBootstrap.getInstance();
+        mk.init();
+        mk.start();
+
+        service = NulsContext.getServiceBean(BlockHeaderStorageService.class);
+        dbService = NulsContext.getServiceBean(DBService.class);
+    }
+
+    @Test
+    public void testBlocksPerSecond() throws Exception {
+        for (int round = 0; round < ROUNDS; round++) {
+            List<BlockHeaderPo> list = createHeaders(round);
+            long start = System.nanoTime();
+            for (BlockHeaderPo po : list) {
+                MultiAreaBatchOperation batch = dbService.createMultiAreaWriteBatch();
+                assertTrue(service.saveBlockHeader(batch, po).isSuccess());
+                assertTrue(batch.executeBatch().isSuccess());
+            }
+            long multiArea = System.nanoTime() - start;
+            for (int i = list.size() - 1; i >= 0; i--) {
+                assertTrue(service.removeBlockHerader(list.get(i)).isSuccess());
+            }
+
+            start = System.nanoTime();
+            for (BlockHeaderPo po : list) {
+                byte[] hashBytes = po.getHash().serialize();
+                assertTrue(dbService.put(ProtocolStorageConstant.DB_NAME_BLOCK_HEADER, hashBytes, po.serialize()).isSuccess());
+                BatchOperation batch = dbService.createWriteBatch(ProtocolStorageConstant.DB_NAME_BLOCK_HEADER_INDEX);
+                batch.put(new VarInt(po.getHeight()).encode(), hashBytes);
+                assertTrue(batch.executeBatch().isSuccess());
+            }
+            long twoStep = System.nanoTime() - start;
+            for (int i = list.size() - 1; i >= 0; i--) {
+                assertTrue(service.removeBlockHerader(list.get(i)).isSuccess());
+            }
+            System.out.println("multi-area batch: " + COUNT * 1000000000L / multiArea + " blocks/s, header then index: "
+                    + COUNT * 1000000000L / twoStep + " blocks/s");
+        }
+    }
+
+    private List<BlockHeaderPo> createHeaders(int round) {
+        List<BlockHeaderPo> list = new ArrayList<>(COUNT);
+        for (int i = 0; i < COUNT; i++) {
+            BlockHeaderPo po = new BlockHeaderPo();
+            po.setHash(NulsDigestData.calcDigestData((round + "-hash-" + i).getBytes()));
+            po.setPreHash(NulsDigestData.calcDigestData((round + "-hash-" + (i - 1)).getBytes()));
+            po.setMerkleHash(NulsDigestData.calcDigestData((round + "-merkle-" + i).getBytes()));
+            po.setHeight(10000000L + i);
+            po.setTime(1530000000000L + i);
+            po.setExtend(new byte[64]);
+            po.setPackingAddress(new byte[23]);
+            po.setScriptSign(createSignature());
+            po.setTxCount(1);
+            List<NulsDigestData> txHashList = new ArrayList<>();
+            txHashList.add(NulsDigestData.calcDigestData((round + "-tx-" + i).getBytes()));
+            po.setTxHashList(txHashList);
+            list.add(po);
+        }
+        return list;
+    }
+
+    private BlockSignature createSignature() {
+        BlockSignature signature = new BlockSignature();
+        signature.setPublicKey(new byte[33]);
+        NulsSignData signData = new NulsSignData();
+        signData.setSignBytes(new byte[70]);
+        signature.setSignData(signData);
+        return signature;
+    }
+}
@@ -42,7 +42,13 @@ public class TemporaryCacheManager {
     private LimitHashMap<NulsDigestData, NulsDigestData> smallBlockHashCacheMap = new LimitHashMap<>(100);
 //    private CacheMap<NulsDigestData, Transaction> txCacheMap = new CacheMap<>("temp-tx-cache", 128, NulsDigestData.class, Transaction.class, 0, 3600);
 
-    private LimitHashMap<NulsDigestData, Transaction> txCacheMap = new LimitHashMap<>(100000);
+    /**
+     * 交易缓存除条数外同时按交易字节数限制，避免大交易占满内存
+     * The transaction cache is bounded by the serialized size of the transactions as well, so that large transactions cannot exhaust the memory.
+     */
+    private static final long TX_CACHE_MAX_BYTES = 64L * 1024 * 1024;
+
+    private LimitHashMap<NulsDigestData, Transaction> txCacheMap = new LimitHashMap<>(100000, TX_CACHE_MAX_BYTES, (hash, tx) -> tx.getSize(), false);
 
     private TemporaryCacheManager() {
 
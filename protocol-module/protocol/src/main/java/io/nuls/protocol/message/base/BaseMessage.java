@@ -63,8 +63,8 @@ public abstract class BaseMessage<T extends BaseNulsData> extends BaseNulsData {
 //     */
     @Override
     protected void serializeToStream(NulsOutputStreamBuffer stream) throws IOException {
-        stream.write(header.serialize());
-        stream.write(msgBody.serialize());
+        stream.writeNulsData(header);
+        stream.writeNulsData(msgBody);
     }
 
     @Override
@@ -103,6 +103,20 @@ public interface TransactionService {
      */
     ValidateResult conflictDetect(List<Transaction> txList);
 
+    /**
+     * 单遍冲突检测，一次找出所有冲突的交易，剩余交易是一个极大的无冲突集合，只用于打包时选择交易，
+     * 验证区块仍使用{@link #conflictDetect(List)}，保持共识规则不变
+     * <p>
+     * Single pass conflict detection, all conflicting transactions are found in one call and the remaining
+     * transactions form a maximal conflict free subset. Only used to select transactions when packing,
+     * block verification still uses {@link #conflictDetect(List)} so the consensus rule stays unchanged.
+     *
+     * @param txList 需要检查的交易列表/A list of transactions to be checked.
+     * @return 成功时data为空列表，失败时data中返回所有应舍弃的交易，msg中返回第一个冲突的原因
+     * On success data is an empty list, on failure data returns all transactions to discard and MSG returns the cause of the first conflict.
+     */
+    ValidateResult<List<Transaction>> resolveConflicts(List<Transaction> txList);
+
     /**
      * 根据交易hash获取交易信息
      * get transaction by tx hash
@@ -63,14 +63,9 @@ public class LimitHashMapTest {
         System.out.println("插入20万条累计用时：" + use + "纳秒");
         long start = System.currentTimeMillis();
         for (int i = 0; i < 100000; i++) {
-            map.getQueue().size();
+            map.size();
         }
-        System.out.println("queue size 100000次用时：" + (System.currentTimeMillis() - start) + "ms");
-        start = System.currentTimeMillis();
-        for (int i = 0; i < 100000; i++) {
-            map.getMap().size();
-        }
-        System.out.println("map size 100000次用时：" + (System.currentTimeMillis() - start) + "ms");
+        System.out.println("size 100000次用时：" + (System.currentTimeMillis() - start) + "ms");
         start = System.currentTimeMillis();
         for (NulsDigestData key : hashList) {
             map.get(key);
@@ -25,63 +25,169 @@
 
 package io.nuls.cache;
 
+import java.util.AbstractCollection;
 import java.util.Collection;
-import java.util.HashMap;
-import java.util.LinkedList;
+import java.util.Iterator;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
+ * 有容量上限的并发Map，按key的hash分段加锁，插入、删除均为O(1)，超出上限时每次只淘汰所在分段最旧的若干条
+ * 读操作不加锁；LRU模式下命中时尝试将节点移到队尾，分段锁被占用时放弃本次调整
+ * 可选按权重（如字节数）限制容量，数量和权重任一超限都会触发淘汰
+ * A bounded concurrent map striped by key hash, insert and remove are O(1), when over the bound only the
+ * eldest entries of the written segment are evicted, one by one, instead of half the map at once.
+ * Reads take no lock; in LRU mode a hit tries to move the node to the tail and skips the reordering when the segment is busy.
+ * Optionally the map is bounded by weight (e.g. bytes) as well, exceeding either the count or the weight triggers eviction.
+ *
  * @author: Niels Wang
  * @date: 2018/7/5
  */
 public class LimitHashMap<K, V> {
 
+    /**
+     * 计算条目的权重
+     * Computes the weight of an entry.
+     */
+    public interface Weigher<K, V> {
+        int weigh(K key, V value);
+    }
+
+    /**
+     * 每个分段至少容纳的条目数，避免容量很小时分段不均导致过早淘汰
+     * Minimal number of entries per segment, so that small maps are not evicted early by uneven segments.
+     */
+    private static final int MIN_SEGMENT_SIZE = 64;
+
+    private static final int MAX_SEGMENTS = 16;
+
     private final int maxSize;
-    private Map<K, V> map = new ConcurrentHashMap<>();
+    private final long maxWeight;
+    private final Weigher<? super K, ? super V> weigher;
+    private final boolean accessOrder;
 
-    private LinkedBlockingDeque<K> queue = new LinkedBlockingDeque<>();
+    private final Map<K, Node<K, V>> map = new ConcurrentHashMap<>();
+    private final Segment<K, V>[] segments;
+    private final int segmentMask;
 
+    /**
+     * 先进先出淘汰
+     * FIFO eviction.
+     */
     public LimitHashMap(int maxSize) {
-        this.maxSize = maxSize;
+        this(maxSize, false);
     }
 
-    public boolean put(K k, V v) {
-        V other = map.put(k, v);
-        if(other != null) {
-            return false;
+    /**
+     * @param accessOrder true:最近最少使用淘汰/LRU eviction, false:先进先出淘汰/FIFO eviction
+     */
+    public LimitHashMap(int maxSize, boolean accessOrder) {
+        this(maxSize, 0, null, accessOrder);
+    }
+
+    /**
+     * @param maxWeight   权重上限，小于等于0时不限制/Weight limit, no limit when less than or equal to 0
+     * @param weigher     条目权重/Entry weight
+     * @param accessOrder true:最近最少使用淘汰/LRU eviction, false:先进先出淘汰/FIFO eviction
+     */
+    @SuppressWarnings("unchecked")
+    public LimitHashMap(int maxSize, long maxWeight, Weigher<? super K, ? super V> weigher, boolean accessOrder) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("maxSize must be positive");
         }
-        queue.offer(k);
-        if (maxSize > queue.size()) {
-            return true;
+        if (maxWeight > 0 && weigher == null) {
+            throw new IllegalArgumentException("weigher is required when maxWeight is set");
         }
-        int count = maxSize / 2;
+        this.maxSize = maxSize;
+        this.maxWeight = maxWeight > 0 ? maxWeight : 0;
+        this.weigher = this.maxWeight > 0 ? weigher : null;
+        this.accessOrder = accessOrder;
+
+        int count = Integer.highestOneBit(Math.max(1, Math.min(MAX_SEGMENTS, maxSize / MIN_SEGMENT_SIZE)));
+        this.segments = new Segment[count];
         for (int i = 0; i < count; i++) {
-            K key = queue.poll();
-            if (null == key) {
-                return true;
+            int size = maxSize / count + (i < maxSize % count ? 1 : 0);
+            long weight = this.maxWeight / count + (i < this.maxWeight % count ? 1 : 0);
+            segments[i] = new Segment<>(size, weight);
+        }
+        this.segmentMask = count - 1;
+    }
+
+    /**
+     * 放入一条数据，key已存在时替换value并返回false
+     * Put an entry, the value is replaced and false is returned when the key already exists.
+     */
+    public boolean put(K k, V v) {
+        int weight = weigher == null ? 0 : weigher.weigh(k, v);
+        Segment<K, V> segment = segmentFor(k);
+        segment.lock.lock();
+        try {
+            Node<K, V> node = new Node<>(k, v, weight);
+            Node<K, V> old = map.put(k, node);
+            if (old != null) {
+                segment.unlink(old);
             }
-            map.remove(key);
-            if (count % 100 == 0 && count > queue.size()) {
-                break;
+            segment.linkLast(node);
+            while (segment.isOverflow()) {
+                Node<K, V> eldest = segment.head;
+                segment.unlink(eldest);
+                map.remove(eldest.key, eldest);
             }
+            return old == null;
+        } finally {
+            segment.lock.unlock();
         }
-        return true;
     }
 
     public void remove(K k) {
-        map.remove(k);
-        queue.remove(k);
+        Segment<K, V> segment = segmentFor(k);
+        segment.lock.lock();
+        try {
+            Node<K, V> node = map.remove(k);
+            if (node != null) {
+                segment.unlink(node);
+            }
+        } finally {
+            segment.lock.unlock();
+        }
     }
 
     public V get(K k) {
-        return map.get(k);
+        Node<K, V> node = map.get(k);
+        if (node == null) {
+            return null;
+        }
+        if (accessOrder) {
+            Segment<K, V> segment = segmentFor(k);
+            if (segment.lock.tryLock()) {
+                try {
+                    if (node.linked) {
+                        segment.unlink(node);
+                        segment.linkLast(node);
+                    }
+                } finally {
+                    segment.lock.unlock();
+                }
+            }
+        }
+        return node.value;
     }
 
     public void clear() {
-        queue.clear();
-        map.clear();
+        for (Segment<K, V> segment : segments) {
+            segment.lock.lock();
+        }
+        try {
+            map.clear();
+            for (Segment<K, V> segment : segments) {
+                segment.clear();
+            }
+        } finally {
+            for (Segment<K, V> segment : segments) {
+                segment.lock.unlock();
+            }
+        }
     }
 
     public int size() {
@@ -92,15 +198,144 @@ public class LimitHashMap<K, V> {
         return map.containsKey(key);
     }
 
+    /**
+     * 弱一致的value视图
+     * Weakly consistent view of the values.
+     */
     public Collection<V> values() {
-        return map.values();
+        return new AbstractCollection<V>() {
+            @Override
+            public Iterator<V> iterator() {
+                final Iterator<Node<K, V>> it = map.values().iterator();
+                return new Iterator<V>() {
+                    @Override
+                    public boolean hasNext() {
+                        return it.hasNext();
+                    }
+
+                    @Override
+                    public V next() {
+                        return it.next().value;
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return map.size();
+            }
+        };
+    }
+
+    /**
+     * 当前所有条目的权重之和，未设置权重上限时为0
+     * Total weight of the current entries, 0 when no weight limit is set.
+     */
+    public long weight() {
+        long weight = 0;
+        for (Segment<K, V> segment : segments) {
+            weight += segment.weight;
+        }
+        return weight;
+    }
+
+    public int getMaxSize() {
+        return maxSize;
     }
 
-    public Map<K, V> getMap() {
-        return map;
+    private Segment<K, V> segmentFor(Object key) {
+        int h = key.hashCode();
+        h ^= (h >>> 16);
+        return segments[h & segmentMask];
     }
 
-    public LinkedBlockingDeque<K> getQueue() {
-        return queue;
+    private static final class Node<K, V> {
+        private final K key;
+        private final V value;
+        private final int weight;
+        private Node<K, V> prev;
+        private Node<K, V> next;
+        private boolean linked;
+
+        private Node(K key, V value, int weight) {
+            this.key = key;
+            this.value = value;
+            this.weight = weight;
+        }
+    }
+
+    /**
+     * 分段内的双向链表，按插入（或访问）顺序排列，所有修改都在分段锁内进行
+     * Doubly linked list of a segment in insertion (or access) order, all changes are made under the segment lock.
+     */
+    private static final class Segment<K, V> {
+        private final ReentrantLock lock = new ReentrantLock();
+        private final int maxSize;
+        private final long maxWeight;
+        private Node<K, V> head;
+        private Node<K, V> tail;
+        private int size;
+        private volatile long weight;
+
+        private Segment(int maxSize, long maxWeight) {
+            this.maxSize = maxSize;
+            this.maxWeight = maxWeight;
+        }
+
+        private boolean isOverflow() {
+            // 至少保留刚写入的一条，单条超过权重上限时也不会被立即淘汰
+            // Always keep the entry just written, even when it alone exceeds the weight limit.
+            return size > 1 && (size > maxSize || (maxWeight > 0 && weight > maxWeight));
+        }
+
+        private void linkLast(Node<K, V> node) {
+            node.prev = tail;
+            node.next = null;
+            if (tail == null) {
+                head = node;
+            } else {
+                tail.next = node;
+            }
+            tail = node;
+            node.linked = true;
+            size++;
+            weight += node.weight;
+        }
+
+        private void unlink(Node<K, V> node) {
+            if (!node.linked) {
+                return;
+            }
+            if (node.prev == null) {
+                head = node.next;
+            } else {
+                node.prev.next = node.next;
+            }
+            if (node.next == null) {
+                tail = node.prev;
+            } else {
+                node.next.prev = node.prev;
+            }
+            node.prev = null;
+            node.next = null;
+            node.linked = false;
+            size--;
+            weight -= node.weight;
+        }
+
+        private void clear() {
+            Node<K, V> node = head;
+            while (node != null) {
+                Node<K, V> next = node.next;
+                node.prev = null;
+                node.next = null;
+                node.linked = false;
+                node = next;
+            }
+            head = null;
+            tail = null;
+            size = 0;
+            weight = 0;
+        }
     }
 }
@@ -0,0 +1,132 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017-2018 nuls.io
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package io.nuls.cache;
+
+import org.junit.Ignore;
+import org.junit.Test;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingDeque;
+
+/**
+ * 与原实现的并发写入耗时对比，需手动运行
+ * Concurrent write timing against the previous implementation. Run by hand.
+ */
+@Ignore
+public class LimitHashMapPerformanceTest {
+
+    /**
+     * 16个线程并发写入时与原实现（ConcurrentHashMap + LinkedBlockingDeque）的吞吐量对比
+     * Throughput compared with the previous implementation (ConcurrentHashMap + LinkedBlockingDeque) under 16 concurrent writers.
+     */
+    @Test
+    public void testPerformance() throws InterruptedException {
+        int threads = 16;
+        int count = 20000;
+        for (int round = 0; round < 3; round++) {
+            final LegacyLimitHashMap<Integer, Integer> legacy = new LegacyLimitHashMap<>(100000);
+            long legacyUse = runWriters(threads, count, (i) -> {
+                legacy.put(i, i);
+                if (i % 100 == 0) {
+                    legacy.remove(i);
+                }
+            });
+            final LimitHashMap<Integer, Integer> map = new LimitHashMap<>(100000);
+            long use = runWriters(threads, count, (i) -> {
+                map.put(i, i);
+                if (i % 100 == 0) {
+                    map.remove(i);
+                }
+            });
+            System.out.println("16线程各写入" + count + "条并删除其中1%, 原实现用时：" + legacyUse / 1000000 + "ms, 当前实现用时：" + use / 1000000 + "ms");
+        }
+    }
+
+    private interface Op {
+        void run(int i);
+    }
+
+    private long runWriters(int threads, final int count, final Op op) throws InterruptedException {
+        final CountDownLatch start = new CountDownLatch(1);
+        final CountDownLatch done = new CountDownLatch(threads);
+        for (int t = 0; t < threads; t++) {
+            final int base = t * count;
+            new Thread(() -> {
+                try {
+                    start.await();
+                    for (int i = 0; i < count; i++) {
+                        op.run(base + i);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    done.countDown();
+                }
+            }).start();
+        }
+        long begin = System.nanoTime();
+        start.countDown();
+        done.await();
+        return System.nanoTime() - begin;
+    }
+
+    private static class LegacyLimitHashMap<K, V> {
+        private final int maxSize;
+        private Map<K, V> map = new ConcurrentHashMap<>();
+        private LinkedBlockingDeque<K> queue = new LinkedBlockingDeque<>();
+
+        LegacyLimitHashMap(int maxSize) {
+            this.maxSize = maxSize;
+        }
+
+        boolean put(K k, V v) {
+            V other = map.put(k, v);
+            if (other != null) {
+                return false;
+            }
+            queue.offer(k);
+            if (maxSize > queue.size()) {
+                return true;
+            }
+            int count = maxSize / 2;
+            for (int i = 0; i < count; i++) {
+                K key = queue.poll();
+                if (null == key) {
+                    return true;
+                }
+                map.remove(key);
+            }
+            return true;
+        }
+
+        void remove(K k) {
+            map.remove(k);
+            queue.remove(k);
+        }
+    }
+}
@@ -0,0 +1,134 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017-2018 nuls.io
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package io.nuls.cache;
+
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.Assert.*;
+
+public class LimitHashMapTest {
+
+    @Test
+    public void testFifo() {
+        LimitHashMap<Integer, String> map = new LimitHashMap<>(100);
+        for (int i = 0; i < 1000; i++) {
+            assertTrue(map.put(i, "v" + i));
+            assertTrue(map.size() <= 100);
+        }
+        assertEquals(100, map.size());
+        assertNull(map.get(899));
+        assertEquals("v900", map.get(900));
+        assertEquals("v999", map.get(999));
+
+        assertFalse(map.put(999, "new"));
+        assertEquals("new", map.get(999));
+        assertEquals(100, map.size());
+
+        map.remove(900);
+        assertFalse(map.containsKey(900));
+        assertEquals(99, map.size());
+        map.put(1000, "v1000");
+        assertEquals(100, map.size());
+        assertTrue(map.containsKey(901));
+
+        map.clear();
+        assertEquals(0, map.size());
+        assertNull(map.get(999));
+    }
+
+    @Test
+    public void testLru() {
+        LimitHashMap<Integer, String> map = new LimitHashMap<>(3, true);
+        map.put(1, "a");
+        map.put(2, "b");
+        map.put(3, "c");
+        map.get(1);
+        map.put(4, "d");
+        assertTrue(map.containsKey(1));
+        assertFalse(map.containsKey(2));
+        assertEquals(3, map.values().size());
+    }
+
+    @Test
+    public void testWeight() {
+        LimitHashMap<Integer, byte[]> map = new LimitHashMap<>(100, 100, (k, v) -> v.length, false);
+        for (int i = 0; i < 10; i++) {
+            map.put(i, new byte[20]);
+        }
+        assertEquals(5, map.size());
+        assertEquals(100, map.weight());
+        assertTrue(map.containsKey(9));
+        assertFalse(map.containsKey(4));
+
+        map.put(10, new byte[200]);
+        assertEquals(1, map.size());
+        assertTrue(map.containsKey(10));
+
+        map.remove(10);
+        assertEquals(0, map.weight());
+    }
+
+    @Test
+    public void testConcurrentBound() throws InterruptedException {
+        final LimitHashMap<Integer, Integer> map = new LimitHashMap<>(10000);
+        runWriters(16, 50000, (i) -> {
+            map.put(i, i);
+            if (i % 3 == 0) {
+                map.remove(i);
+            }
+        });
+        assertTrue(map.size() <= 10000);
+        assertEquals(map.size(), map.values().size());
+    }
+
+    private interface Op {
+        void run(int i);
+    }
+
+    private void runWriters(int threads, final int count, final Op op) throws InterruptedException {
+        final CountDownLatch start = new CountDownLatch(1);
+        final CountDownLatch done = new CountDownLatch(threads);
+        for (int t = 0; t < threads; t++) {
+            final int base = t * count;
+            new Thread(() -> {
+                try {
+                    start.await();
+                    for (int i = 0; i < count; i++) {
+                        op.run(base + i);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    done.countDown();
+                }
+            }).start();
+        }
+        start.countDown();
+        done.await();
+    }
+}
@@ -24,6 +24,7 @@
  */
 package io.nuls.utxo.accounts.storage.service.impl;
 
+import io.nuls.db.model.CacheConfig;
 import io.nuls.db.service.BatchOperation;
 import io.nuls.db.service.DBService;
 import io.nuls.kernel.constant.KernelErrorCode;
@@ -177,7 +178,7 @@ public class UtxoAccountsStorageServiceImpl implements UtxoAccountsStorageServic
 
     @Override
     public void afterPropertiesSet() throws NulsException {
-        dbService.createArea(UtxoAccountsStorageConstant.DB_NAME_UTXO_ACCOUNTS_CONFIRMED_BALANCE);
+        dbService.createArea(UtxoAccountsStorageConstant.DB_NAME_UTXO_ACCOUNTS_CONFIRMED_BALANCE, new CacheConfig(65536));
         dbService.createArea(UtxoAccountsStorageConstant.DB_NAME_UTXO_ACCOUNTS_BLOCK_CACHE);
 //        dbService.createArea(UtxoAccountsStorageConstant.DB_NAME_UTXO_ACCOUNTS_LOCKEDTIME_BALANCE);
 //        dbService.createArea(UtxoAccountsStorageConstant.DB_NAME_UTXO_ACCOUNTS_LOCKEDHEIGHT_BALANCE);